@@ -20,6 +20,7 @@ import org.jboss.errai.bus.client.api.BusErrorCallback;
 import org.jboss.errai.bus.client.api.base.DefaultErrorCallback;
 import org.jboss.errai.bus.client.api.base.MessageBuilder;
 import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageBus;
 import org.jboss.errai.bus.client.framework.AbstractRpcProxy;
 import org.jboss.errai.common.client.api.Assert;
 import org.jboss.errai.common.client.api.ErrorCallback;
@@ -85,7 +86,7 @@ public class DefaultRemoteCallBuilder {
   public RemoteCallEndpointDef call(final String serviceName) {
     message.toSubject(serviceName + ":RPC");
 
-    final RemoteCallSendable sendable = bus -> {
+    final RemoteCallSendable send = bus -> {
       final Integer id;
 
       final String rpcMethod = message.getCommandType();
@@ -130,6 +131,19 @@ public class DefaultRemoteCallBuilder {
       message.sendNowWith(bus);
     };
 
+    final RemoteCallSendable sendable = new RemoteCallSendable() {
+      @Override
+      public void sendNowWith(final MessageBus viaThis) {
+        send.sendNowWith(viaThis);
+      }
+
+      @Override
+      public RemoteCallSendable inBatch(final String batchId) {
+        message.set(MessageParts.RpcBatch, batchId);
+        return this;
+      }
+    };
+
     final RemoteCallErrorDef errorDef = new RemoteCallErrorDef() {
       @Override
       public RemoteCallSendable errorsHandledBy(@SuppressWarnings("rawtypes") final ErrorCallback errorCallback) {
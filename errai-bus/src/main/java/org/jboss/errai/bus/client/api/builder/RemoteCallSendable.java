@@ -32,4 +32,15 @@ public interface RemoteCallSendable {
    * @param viaThis - the message bus to send the message with
    */
   public void sendNowWith(MessageBus viaThis);
+
+  /**
+   * Marks the call as part of the given batch. The server may execute the calls of a batch that arrive together in
+   * parallel, so only calls that do not depend on each other should share a batch id.
+   *
+   * @param batchId - the id of the batch, unique per client
+   * @return this sendable
+   */
+  public default RemoteCallSendable inBatch(String batchId) {
+    return this;
+  }
 }
@@ -20,6 +20,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.errai.bus.client.api.QueueSession;
@@ -36,6 +38,9 @@ import org.jboss.errai.bus.server.io.Wakeable;
 import org.jboss.errai.bus.server.io.buffers.Buffer;
 import org.jboss.errai.bus.server.io.buffers.BufferColor;
 import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+import org.jboss.errai.bus.server.metrics.MessageTrace;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
+import org.jboss.errai.bus.server.metrics.TraceStage;
 import org.slf4j.Logger;
 
 /**
@@ -63,6 +68,11 @@ public class MessageQueueImpl implements MessageQueue {
   private final Object pageLock = new Object();
   private final AtomicInteger messageCount = new AtomicInteger();
 
+  /**
+   * Traces of messages that were written to the buffer but not yet picked up by a poll.
+   */
+  private final Queue<MessageTrace> pendingTraces = new ConcurrentLinkedQueue<MessageTrace>();
+
   private static final Logger log = getLogger(MessageQueueImpl.class);
 
   public MessageQueueImpl(final TransmissionBuffer buffer, final QueueSession session, final int timeoutSecs) {
@@ -79,7 +89,11 @@ public class MessageQueueImpl implements MessageQueue {
     }
 
     if (deliveryHandler instanceof Buffered) {
-      return ((Buffered) deliveryHandler).copyFromBuffer(this, stream);
+      final boolean transmitted = ((Buffered) deliveryHandler).copyFromBuffer(this, stream);
+      if (transmitted && !pendingTraces.isEmpty()) {
+        markTransmitted();
+      }
+      return transmitted;
     }
     else {
       // this can happen during the hand off to WebSockets.
@@ -96,7 +110,11 @@ public class MessageQueueImpl implements MessageQueue {
     }
 
     if (deliveryHandler instanceof Buffered) {
-      return ((Buffered) deliveryHandler).copyFromBuffer(timeUnit, time, this, stream);
+      final boolean transmitted = ((Buffered) deliveryHandler).copyFromBuffer(timeUnit, time, this, stream);
+      if (transmitted && !pendingTraces.isEmpty()) {
+        markTransmitted();
+      }
+      return transmitted;
     }
     else {
       // this can happen during the hand off to WebSockets.
@@ -120,7 +138,36 @@ public class MessageQueueImpl implements MessageQueue {
       throw new QueueUnavailableException("queue is not available");
     }
 
-    return deliveryHandler.deliver(this, message);
+    final MessageTrace trace = traceOf(message);
+    if (trace == null) {
+      return deliveryHandler.deliver(this, message);
+    }
+
+    final MessageDeliveryHandler handler = deliveryHandler;
+    final boolean delivered = handler.deliver(this, message);
+    trace.mark(TraceStage.ENQUEUED);
+    if (handler instanceof Buffered) {
+      pendingTraces.add(trace);
+    }
+    else {
+      trace.mark(TraceStage.TRANSMITTED);
+    }
+    return delivered;
+  }
+
+  private static MessageTrace traceOf(final Message message) {
+    if (!MessageTracer.isEnabled()) {
+      return null;
+    }
+    final MessageTrace trace = MessageTracer.of(message);
+    return (trace != null) ? trace : MessageTracer.current();
+  }
+
+  private void markTransmitted() {
+    MessageTrace trace;
+    while ((trace = pendingTraces.poll()) != null) {
+      trace.mark(TraceStage.TRANSMITTED);
+    }
   }
 
   @Override
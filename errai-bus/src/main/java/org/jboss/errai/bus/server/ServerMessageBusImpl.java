@@ -71,9 +71,14 @@ import org.jboss.errai.bus.server.io.buffers.BufferColor;
 import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
 import org.jboss.errai.bus.server.io.websockets.WebSocketServerHandler;
 import org.jboss.errai.bus.server.io.websockets.WebSocketTokenManager;
+import org.jboss.errai.bus.server.metrics.BusMetrics;
+import org.jboss.errai.bus.server.metrics.MessageTrace;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
+import org.jboss.errai.bus.server.metrics.TraceStage;
 import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
 import org.jboss.errai.bus.server.service.ErraiService;
 import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.service.RpcBatchExecutor;
 import org.jboss.errai.bus.server.util.LocalContext;
 import org.jboss.errai.bus.server.util.SecureHashUtil;
 import org.jboss.errai.common.client.protocols.MessageParts;
@@ -116,6 +121,8 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
   private BusMonitor busMonitor;
 
+  private final BusMetrics metrics;
+
   private final Set<String> reservedNames = new HashSet<String>();
 
   private final boolean hostedModeTesting;
@@ -143,6 +150,9 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     this.messageQueueTimeoutSecs = ErraiConfigAttribs.MESSAGE_QUEUE_TIMEOUT_SECS.getInt(config);
     this.sseEnabled = ErraiConfigAttribs.ENABLE_SSE_SUPPORT.getBoolean(config);
     this.webSocketServer = ErraiConfigAttribs.ENABLE_WEB_SOCKET_SERVER.getBoolean(config);
+    this.metrics = new BusMetrics(ErraiConfigAttribs.ENABLE_METRICS.getBoolean(config));
+    MessageTracer.configure(Double.parseDouble(ErraiConfigAttribs.TRACE_SAMPLE_RATE.get(config)),
+        ErraiConfigAttribs.TRACE_BUFFER_SIZE.getInt(config));
 
     final int webSocketPort;
     final String webSocketPath;
@@ -224,6 +234,9 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
     scheduler.scheduleAtFixedRate(new HousekeeeperRunnable(), 8, 8, TimeUnit.SECONDS);
 
+    registerGauges();
+    metrics.start(scheduler, Integer.toHexString(System.identityHashCode(this)));
+
     try {
       clustering = ErraiConfigAttribs.ENABLE_CLUSTERING.getBoolean(config);
       final String clusteringProviderCls = ErraiConfigAttribs.CLUSTERING_PROVIDER.get(config);
@@ -242,6 +255,19 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     }
   }
 
+  private void registerGauges() {
+    metrics.registerGauge(BusMetrics.GAUGE_ACTIVE_QUEUES, () -> messageQueues.size());
+    metrics.registerGauge(BusMetrics.GAUGE_PAGED_QUEUES, () -> {
+      int paged = 0;
+      for (final MessageQueue queue : messageQueues.values()) {
+        if (queue.isPaged()) paged++;
+      }
+      return paged;
+    });
+    metrics.registerGauge(BusMetrics.GAUGE_BUFFER_FREE_BYTES, () -> bufferStatus().getFreeBytes());
+    metrics.registerGauge(BusMetrics.GAUGE_DEAD_LETTERS, () -> deadLetter.size());
+  }
+
   private void addQueue(final QueueSession session, final MessageQueue queue) {
     messageQueues.put(session, queue);
     sessionLookup.put(session.getSessionId(), session);
@@ -264,6 +290,15 @@ public class ServerMessageBusImpl implements ServerMessageBus {
    */
   @Override
   public void sendGlobal(final Message message) {
+    try {
+      deliverGlobal(message);
+    }
+    finally {
+      RpcBatchExecutor.delivered(message);
+    }
+  }
+
+  private void deliverGlobal(final Message message) {
     verifyConnectionToMessageSource(message);
     message.commit();
     final String subject = message.getSubject();
@@ -293,12 +328,33 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       }
     }
 
+    final DeliveryPlan plan;
     if (subscriptions.containsKey(subject)) {
-      subscriptions.get(subject).deliver(message);
+      plan = subscriptions.get(subject);
     }
     else if (subscriptions.containsKey("local:".concat(subject))) {
-      subscriptions.get("local:".concat(subject)).deliver(message);
+      plan = subscriptions.get("local:".concat(subject));
+    }
+    else {
+      return;
     }
+
+    final MessageTrace trace = MessageTracer.of(message);
+    final MessageTrace outerTrace = (trace != null) ? MessageTracer.enter(trace) : null;
+    if (trace != null) {
+      trace.mark(TraceStage.DELIVERY_START);
+    }
+    final long start = System.nanoTime();
+    try {
+      plan.deliver(message);
+    }
+    finally {
+      if (trace != null) {
+        trace.mark(TraceStage.DELIVERY_END);
+        MessageTracer.exit(outerTrace);
+      }
+    }
+    metrics.recordDelivery(subject, System.nanoTime() - start);
   }
 
   private void verifyConnectionToMessageSource(final Message message) {
@@ -418,6 +474,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
         final String messageId = message.getSubject() + SecureHashUtil.hashToHexString(hashBytes);
 
         deadLetter.put(messageId, new ClusterWaitEntry(System.currentTimeMillis(), message, timeoutCallback));
+        metrics.recordClusterForward();
 
         clusteringProvider.clusterTransmit(sessionId, message.getSubject(), messageId);
         message.setFlag(RoutingFlag.ClusterWait);
@@ -431,7 +488,9 @@ public class ServerMessageBusImpl implements ServerMessageBus {
   private void enqueueForDelivery(final MessageQueue queue, final Message message) {
     try {
       if (queue != null && isAnyoneListening(queue, message.getSubject())) {
+        final long start = System.nanoTime();
         queue.offer(message);
+        metrics.recordEnqueue(queue.getSession().getSessionId(), System.nanoTime() - start);
       }
       else {
         if (queue != null && !queue.isInitialized()) {
@@ -535,6 +594,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       }
     }
 
+    metrics.recordSessionClosed(queue.getSession().getSessionId());
     fireQueueCloseListeners(new QueueCloseEvent(queue));
   }
 
@@ -985,7 +1045,17 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
   @Override
   public boolean removeDeadLetterMessage(final String messageId) {
-    return deadLetter.remove(messageId) != null;
+    final ClusterWaitEntry entry = deadLetter.remove(messageId);
+    if (entry != null) {
+      metrics.recordClusterForwardTime(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - entry.getTime()));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public BusMetrics getMetrics() {
+    return metrics;
   }
 
   @Override
@@ -995,6 +1065,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     }
 
     scheduler.shutdown();
+    metrics.stop();
 
     transmissionbuffer.clear();
     subscriptions.clear();
@@ -1300,6 +1371,9 @@ public class ServerMessageBusImpl implements ServerMessageBus {
         }
       }
 
+      metrics.recordPageOut(paged);
+      metrics.recordSessionsExpired(killed);
+
       if (paged > 0 || killed > 0) {
         log.debug("[bus] killed " + killed + " sessions and paged out " + paged + " queues");
       }
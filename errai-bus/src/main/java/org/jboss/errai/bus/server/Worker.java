@@ -35,6 +35,7 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public class Worker extends Thread {
   private MessageBus bus;
+  private WorkerFactory factory;
   private BlockingQueue<Message> messages;
   private long timeout;
 
@@ -53,6 +54,7 @@ public class Worker extends Thread {
    */
   public Worker(WorkerFactory factory, ErraiService svc) {
     super("Dispatch Worker Thread");
+    this.factory = factory;
     this.timeout = factory.getWorkerTimeout();
     this.messages = factory.getMessages();
     this.bus = svc.getBus();
@@ -78,6 +80,15 @@ public class Worker extends Thread {
     return workExpiry == 0 || currentTimeMillis() < workExpiry;
   }
 
+  /**
+   * Returns true if this thread is currently processing a message
+   *
+   * @return true if a message is being processed
+   */
+  public boolean isBusy() {
+    return workExpiry != 0;
+  }
+
   /**
    * Interrupts this worker thread, and expire it due to a timeout.
    * Creates an error message if they could not be interrupted
@@ -108,6 +119,7 @@ public class Worker extends Thread {
         while (true) {
           if ((message = messages.poll(60, TimeUnit.SECONDS)) != null) {
             workExpiry = currentTimeMillis() + timeout;
+            factory.recordDispatchWait(message);
             deliverToBus(bus, message);
             workExpiry = 0;
           }
@@ -20,8 +20,10 @@ import org.jboss.errai.bus.client.api.RoutingFlag;
 import org.jboss.errai.bus.client.api.base.MessageDeliveryFailure;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.util.ErrorHelper;
+import org.jboss.errai.bus.server.metrics.BusMetrics;
 import org.jboss.errai.bus.server.service.ErraiService;
 import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.service.RpcBatchExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +43,11 @@ public class WorkerFactory {
   private static final String CONFIG_ASYNC_WORKER_TIMEOUT = "errai.async.worker.timeout";
   private static final String CONFIG_ASYNC_DELIVERY_QUEUE_SIZE = "errai.async.delivery.queue_size";
 
+  /**
+   * Message resource holding the {@link System#nanoTime()} at which a message was handed to the worker queue.
+   */
+  static final String DISPATCH_TIME_RESOURCE = "DispatchTime";
+
   private Worker[] workerPool;
 
   private ErraiService svc;
@@ -49,6 +56,8 @@ public class WorkerFactory {
 
   private BlockingQueue<Message> messages;
 
+  private final BusMetrics metrics;
+
   private int poolSize = DEFAULT_THREAD_POOL_SIZE;
   private long workerTimeout = Boolean.getBoolean("org.jboss.errai.debugmode") ? seconds(360) : seconds(30);
 
@@ -62,6 +71,7 @@ public class WorkerFactory {
    */
   public WorkerFactory(final ErraiService svc) {
     this.svc = svc;
+    this.metrics = svc.getBus().getMetrics();
 
     ErraiServiceConfigurator cfg = svc.getConfiguration();
 
@@ -89,6 +99,15 @@ public class WorkerFactory {
       workerPool[i] = new Worker(this, svc);
     }
 
+    metrics.registerGauge(BusMetrics.GAUGE_DISPATCH_QUEUE_DEPTH, () -> messages.size());
+    metrics.registerGauge(BusMetrics.GAUGE_DISPATCH_BUSY_WORKERS, () -> {
+      int busy = 0;
+      for (final Worker w : workerPool) {
+        if (w.isBusy()) busy++;
+      }
+      return busy;
+    });
+
     if (svc.getBus() instanceof ServerMessageBusImpl) {
       ServerMessageBusImpl busImpl = (ServerMessageBusImpl) svc.getBus();
       /**
@@ -122,10 +141,12 @@ public class WorkerFactory {
    * @param m - message to be delivered
    */
   public void deliverGlobal(Message m) throws InterruptedException {
+    markDispatchTime(m);
     if (messages.offer(m, 30, java.util.concurrent.TimeUnit.SECONDS)) {
       return;
     }
     else {
+      metrics.recordDispatchSaturation();
       switch (saturationPolicy) {
         case CallerRuns:
           svc.getBus().sendGlobal(m);
@@ -144,10 +165,12 @@ public class WorkerFactory {
    */
   public void deliver(Message m) throws InterruptedException {
     m.setFlag(RoutingFlag.NonGlobalRouting);
+    markDispatchTime(m);
     if (messages.offer(m, 30, java.util.concurrent.TimeUnit.SECONDS)) {
       return;
     }
     else {
+      metrics.recordDispatchSaturation();
       switch (saturationPolicy) {
         case CallerRuns:
           svc.getBus().send(m);
@@ -159,7 +182,28 @@ public class WorkerFactory {
     }
   }
 
+  private void markDispatchTime(final Message m) {
+    if (metrics.isEnabled()) {
+      m.setResource(DISPATCH_TIME_RESOURCE, System.nanoTime());
+    }
+  }
+
+  /**
+   * Records the time the given message spent waiting in the worker queue.
+   *
+   * @param m - a message that was just taken from the queue by a worker
+   */
+  protected void recordDispatchWait(Message m) {
+    final Long dispatchTime = m.getResource(Long.class, DISPATCH_TIME_RESOURCE);
+    if (dispatchTime != null) {
+      metrics.recordDispatchWait(System.nanoTime() - dispatchTime);
+    }
+  }
+
   private void sendDeliveryFailure(Message m) {
+    // the message is dropped, so a batch waiting for it must not wait any longer
+    RpcBatchExecutor.delivered(m);
+
     MessageDeliveryFailure mdf
             = new MessageDeliveryFailure("could not deliver message because the outgoing queue is full");
 
@@ -238,6 +282,12 @@ public class WorkerFactory {
         System.err.println("was interrupted waiting to shutdown async worker pool");
         e.printStackTrace();
       }
+
+      // nothing delivers the queued messages anymore
+      Message m;
+      while ((m = messages.poll()) != null) {
+        RpcBatchExecutor.delivered(m);
+      }
     }
 
   }
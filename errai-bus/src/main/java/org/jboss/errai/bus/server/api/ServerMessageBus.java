@@ -24,6 +24,7 @@ import org.jboss.errai.bus.client.api.QueueSession;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.api.messaging.MessageBus;
 import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.server.metrics.BusMetrics;
 import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
 
 /**
@@ -108,4 +109,14 @@ public interface ServerMessageBus extends MessageBus {
    * Stop the MessateBus.
    */
   public void stop();
+
+  /**
+   * Returns the metrics registry of this bus. The default implementation returns a shared, disabled registry, so
+   * that implementations which predate metrics keep working.
+   *
+   * @return the {@link BusMetrics} of this bus. Never null, but possibly disabled.
+   */
+  public default BusMetrics getMetrics() {
+    return BusMetrics.disabled();
+  }
 }
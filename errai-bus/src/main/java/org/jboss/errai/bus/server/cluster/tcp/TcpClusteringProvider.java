@@ -0,0 +1,527 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster.tcp;
+
+import static org.jboss.errai.bus.server.cluster.ClusterParts.BusId;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.MessageId;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.Payload;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.SessId;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.Subject;
+import static org.jboss.errai.common.client.protocols.MessageParts.CommandType;
+import static org.jboss.errai.common.client.protocols.MessageParts.SessionID;
+import static org.jboss.errai.common.client.protocols.MessageParts.ToSubject;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.RoutingFlag;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.server.QueueUnavailableException;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.cluster.ClusterCommands;
+import org.jboss.errai.bus.server.cluster.ClusterParts;
+import org.jboss.errai.bus.server.cluster.ClusteringProvider;
+import org.jboss.errai.bus.server.cluster.IntrabusQueueSession;
+import org.jboss.errai.bus.server.io.MessageFactory;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.util.SecureHashUtil;
+import org.jboss.errai.common.client.protocols.Resources;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.codec.string.StringEncoder;
+
+/**
+ * A {@link ClusteringProvider} that uses persistent TCP connections between a statically configured set of peers
+ * instead of group membership and multicast discovery. Peers are listed with
+ * {@link TcpConfigAttribs#CLUSTER_MEMBERS} or {@link TcpConfigAttribs#CLUSTER_MEMBERS_FILE}, and each node listens on
+ * {@link ErraiConfigAttribs#CLUSTER_PORT}.
+ * <p>
+ * Connections to peers are established lazily and kept open, so that all cluster traffic to a given peer is
+ * pipelined over a single channel. Replies to point-to-point commands ({@link ClusterCommands#NotifyOwner},
+ * {@link ClusterCommands#InvalidRoute}) are written back on the channel the request arrived on. Peers that cannot be
+ * reached are skipped and retried on the next transmission.
+ */
+public class TcpClusteringProvider implements ClusteringProvider, MessageCallback {
+
+  private static final String CLUSTER_SERVICE = "local:ErraiClusterService"; // erraibus service
+  private static final String TCP_CHANNEL_RESOURCE = "TcpClusterChannel";
+
+  private static Logger log = LoggerFactory.getLogger(TcpClusteringProvider.class);
+
+  private final String busId = SecureHashUtil.nextSecureHash();
+
+  private final ServerMessageBus serverMessageBus;
+  private final List<InetSocketAddress> members;
+  private final Map<InetSocketAddress, ChannelFuture> peerChannels = new ConcurrentHashMap<>();
+
+  private final NioEventLoopGroup bossGroup = new NioEventLoopGroup(1);
+  private final NioEventLoopGroup workerGroup = new NioEventLoopGroup();
+  private final Bootstrap clientBootstrap;
+  private final Channel serverChannel;
+
+  final Cache<String, Channel> sessionToNodeCache;
+
+  @Inject
+  private TcpClusteringProvider(final ServerMessageBus messageBus,
+                                final ErraiServiceConfigurator config,
+                                final ErraiService erraiService) {
+    this.serverMessageBus = messageBus;
+
+    final InetSocketAddress bindAddress = new InetSocketAddress(TcpConfigAttribs.BIND_ADDRESS.get(config),
+        ErraiConfigAttribs.CLUSTER_PORT.getInt(config));
+    this.members = Collections.unmodifiableList(parseMembers(config, bindAddress));
+
+    final int maxFrameSize = TcpConfigAttribs.MAX_FRAME_SIZE.getInt(config);
+    final ClusterChannelHandler handler = new ClusterChannelHandler();
+    final ChannelInitializer<SocketChannel> initializer = new ChannelInitializer<SocketChannel>() {
+      @Override
+      protected void initChannel(final SocketChannel ch) throws Exception {
+        ch.pipeline().addLast("frame-decoder", new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4));
+        ch.pipeline().addLast("frame-encoder", new LengthFieldPrepender(4));
+        ch.pipeline().addLast("string-decoder", new StringDecoder(StandardCharsets.UTF_8));
+        ch.pipeline().addLast("string-encoder", new StringEncoder(StandardCharsets.UTF_8));
+        ch.pipeline().addLast("handler", handler);
+      }
+    };
+
+    clientBootstrap = new Bootstrap()
+        .group(workerGroup)
+        .channel(NioSocketChannel.class)
+        .option(ChannelOption.TCP_NODELAY, true)
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, TcpConfigAttribs.CONNECT_TIMEOUT.getInt(config))
+        .handler(initializer);
+
+    try {
+      serverChannel = new ServerBootstrap()
+          .group(bossGroup, workerGroup)
+          .channel(NioServerSocketChannel.class)
+          .childOption(ChannelOption.TCP_NODELAY, true)
+          .childOption(ChannelOption.SO_KEEPALIVE, true)
+          .childHandler(initializer)
+          .bind(bindAddress)
+          .sync()
+          .channel();
+    }
+    catch (Exception e) {
+      bossGroup.shutdownGracefully();
+      workerGroup.shutdownGracefully();
+      throw new RuntimeException("could not bind cluster listener to " + bindAddress, e);
+    }
+
+    serverMessageBus.subscribe(CLUSTER_SERVICE, this);
+
+    erraiService.addShutdownHook(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          serverChannel.close().syncUninterruptibly();
+          for (final ChannelFuture future : peerChannels.values()) {
+            future.channel().close();
+          }
+          peerChannels.clear();
+        }
+        finally {
+          bossGroup.shutdownGracefully();
+          workerGroup.shutdownGracefully();
+        }
+        log.info("shut down tcp clustering service");
+      }
+    });
+
+    sessionToNodeCache = CacheBuilder.newBuilder()
+        .maximumSize(100)
+        .build();
+
+    log.info("starting errai tcp clustering service on " + bindAddress + " with members " + members);
+  }
+
+  private static List<InetSocketAddress> parseMembers(final ErraiServiceConfigurator config,
+                                                      final InetSocketAddress bindAddress) {
+    final Set<String> entries = new LinkedHashSet<>();
+    for (final String member : TcpConfigAttribs.CLUSTER_MEMBERS.get(config).split(",")) {
+      if (!member.trim().isEmpty()) {
+        entries.add(member.trim());
+      }
+    }
+
+    final String membersFile = TcpConfigAttribs.CLUSTER_MEMBERS_FILE.get(config);
+    if (membersFile != null && !membersFile.trim().isEmpty()) {
+      try (final BufferedReader reader = new BufferedReader(
+          new InputStreamReader(new FileInputStream(membersFile.trim()), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          line = line.trim();
+          if (!line.isEmpty() && !line.startsWith("#")) {
+            entries.add(line);
+          }
+        }
+      }
+      catch (IOException e) {
+        throw new RuntimeException("could not read cluster members file: " + membersFile, e);
+      }
+    }
+
+    final List<InetSocketAddress> addresses = new ArrayList<>(entries.size());
+    for (final String entry : entries) {
+      final int idx = entry.lastIndexOf(':');
+      if (idx <= 0 || idx == entry.length() - 1) {
+        throw new IllegalArgumentException("illegal cluster member (expected host:port): " + entry);
+      }
+      final InetSocketAddress member = InetSocketAddress.createUnresolved(entry.substring(0, idx),
+          Integer.parseInt(entry.substring(idx + 1)));
+      if (isLocalNode(member, bindAddress)) {
+        log.debug("ignoring cluster member " + entry + "; it names the local node.");
+      }
+      else {
+        addresses.add(member);
+      }
+    }
+    return addresses;
+  }
+
+  /**
+   * @return true if the given member is the listener bound to <tt>bindAddress</tt>: it has the same port and its host
+   *         is the bind address, or any address of this machine when bound to the wildcard address. Members that
+   *         can't be resolved are never local.
+   */
+  static boolean isLocalNode(final InetSocketAddress member, final InetSocketAddress bindAddress) {
+    if (member.getPort() != bindAddress.getPort()) {
+      return false;
+    }
+
+    final InetAddress address;
+    try {
+      address = InetAddress.getByName(member.getHostString());
+    }
+    catch (UnknownHostException e) {
+      return false;
+    }
+
+    final InetAddress boundTo = bindAddress.getAddress();
+    if (boundTo != null && !boundTo.isAnyLocalAddress()) {
+      return address.equals(boundTo);
+    }
+    if (address.isAnyLocalAddress() || address.isLoopbackAddress()) {
+      return true;
+    }
+    try {
+      return NetworkInterface.getByInetAddress(address) != null;
+    }
+    catch (SocketException e) {
+      return false;
+    }
+  }
+
+  @Sharable
+  private class ClusterChannelHandler extends SimpleChannelInboundHandler<String> {
+    @Override
+    protected void channelRead0(final ChannelHandlerContext ctx, final String payload) throws Exception {
+      receive(ctx.channel(), payload);
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+      log.warn("error on cluster channel " + ctx.channel().remoteAddress() + "; closing channel.", cause);
+      ctx.close();
+    }
+  }
+
+  private void receive(final Channel channel, final String payload) {
+    try {
+      final Message erraiMessage = MessageFactory.createCommandMessage(IntrabusQueueSession.INSTANCE, payload);
+      erraiMessage.setResource(TCP_CHANNEL_RESOURCE, channel);
+
+      if (busId.equals(erraiMessage.get(String.class, BusId))) {
+        return;
+      }
+      erraiMessage.setFlag(RoutingFlag.FromPeer);
+
+      serverMessageBus.sendGlobal(erraiMessage);
+    }
+    catch (Exception e) {
+      log.error("failed to process message from cluster peer " + channel.remoteAddress(), e);
+    }
+  }
+
+  @Override
+  public void callback(final Message message) {
+    final QueueSession queueSession = message.getResource(QueueSession.class, "Session");
+    if (queueSession != IntrabusQueueSession.INSTANCE) {
+      log.warn("message to cluster service ('" + CLUSTER_SERVICE + "') originating from illegal session. " +
+          " message was discarded.");
+      return;
+    }
+
+    final Channel source = message.getResource(Channel.class, TCP_CHANNEL_RESOURCE);
+
+    switch (ClusterCommands.valueOf(message.getCommandType())) {
+      case WhoHandles: {
+        final String subject = message.get(String.class, Subject);
+        if (serverMessageBus.hasRemoteSubscriptions(subject)) {
+          final String sessionIdRequested = message.get(String.class, ClusterParts.SessId);
+
+          try {
+            if (serverMessageBus.getQueueBySession(sessionIdRequested) == null) {
+              return;
+            }
+          }
+          catch (QueueUnavailableException e) {
+            return;
+          }
+
+          final Message replyMsg = CommandMessage.create()
+              .set(ToSubject, CLUSTER_SERVICE)
+              .set(CommandType, ClusterCommands.NotifyOwner.name())
+              .set(BusId, busId)
+              .copy(MessageId, message)
+              .set(ClusterParts.SessId, sessionIdRequested);
+
+          sendTo(source, replyMsg);
+        }
+      }
+      break;
+
+      case NotifyOwner: {
+        final String messageId = message.get(String.class, MessageId);
+        final String sessId = message.get(String.class, SessId);
+        final Message deferredMessage = serverMessageBus.getDeadLetterMessage(messageId);
+        serverMessageBus.removeDeadLetterMessage(messageId);
+
+        sessionToNodeCache.put(sessId, source);
+
+        if (deferredMessage != null) {
+          sendTo(source, createForwardMessageFor(deferredMessage, messageId));
+        }
+      }
+      break;
+
+      case InvalidRoute: {
+        final String sessionId = message.get(String.class, SessId);
+        sessionToNodeCache.invalidate(sessionId);
+
+        final String messageId = message.get(String.class, MessageId);
+        final String subject = message.get(String.class, Subject);
+
+        sendToAll(createWhoHandlesMessage(sessionId, subject, messageId));
+        break;
+      }
+
+      case MessageForward: {
+        final String payload = message.get(String.class, Payload);
+        final Message forwardMessage = MessageFactory.createCommandMessage(IntrabusQueueSession.INSTANCE, payload);
+        forwardMessage.setFlag(RoutingFlag.FromPeer);
+
+        final String sessId = message.get(String.class, SessId);
+        if (sessId == null) {
+          serverMessageBus.sendGlobal(forwardMessage);
+        }
+        else {
+          final MessageQueue messageQueue;
+
+          try {
+            messageQueue = serverMessageBus.getQueueBySession(sessId);
+          }
+          catch (QueueUnavailableException e) {
+            final String messageId = message.get(String.class, MessageId);
+            sendTo(source, createInvalidRouteMessage(sessId, forwardMessage.getSubject(), messageId));
+            return;
+          }
+
+          // otherwise route it directly to the client.
+          forwardMessage.setResource(Resources.Session.name(), messageQueue.getSession());
+          serverMessageBus.send(forwardMessage);
+        }
+      }
+      break;
+    }
+  }
+
+  @Override
+  public void clusterTransmit(final String sessionId, final String subject, final String messageId) {
+    final Channel knownChannel = sessionToNodeCache.getIfPresent(sessionId);
+    if (knownChannel != null && knownChannel.isActive()) {
+      sendTo(knownChannel, createForwardMessageFor(serverMessageBus.getDeadLetterMessage(messageId), messageId));
+    }
+    else {
+      if (knownChannel != null) {
+        sessionToNodeCache.invalidate(sessionId);
+      }
+      sendToAll(createWhoHandlesMessage(sessionId, subject, messageId));
+    }
+  }
+
+  @Override
+  public void clusterTransmitGlobal(final Message message) {
+    sendToAll(createForwardMessageFor(message, null));
+  }
+
+  /**
+   * @return The peers this node was configured with, in configuration order.
+   */
+  public List<InetSocketAddress> getMembers() {
+    return members;
+  }
+
+  private void sendTo(final Channel channel, final Message message) {
+    if (channel == null || !channel.isActive()) {
+      log.debug("dropping cluster message; channel to peer is no longer active.");
+      return;
+    }
+    channel.writeAndFlush(ErraiProtocol.encodePayload(message.getParts()));
+  }
+
+  private void sendToAll(final Message message) {
+    final String payload = ErraiProtocol.encodePayload(message.getParts());
+    for (final InetSocketAddress member : members) {
+      getPeerChannel(member).addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(final ChannelFuture future) throws Exception {
+          if (future.isSuccess()) {
+            future.channel().writeAndFlush(payload);
+          }
+          else {
+            log.debug("cluster member " + member + " is not reachable: " + future.cause());
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns the (possibly still pending) connection to the given peer, initiating a new connection if there is none
+   * or the previous connection was lost. This method never blocks, so it is safe to call from an I/O thread.
+   */
+  private ChannelFuture getPeerChannel(final InetSocketAddress member) {
+    final ChannelFuture existing = peerChannels.get(member);
+    if (existing != null && (!existing.isDone() || existing.channel().isActive())) {
+      return existing;
+    }
+
+    final ChannelFuture connectFuture = clientBootstrap.connect(member.getHostString(), member.getPort());
+    if (existing == null ? peerChannels.putIfAbsent(member, connectFuture) != null
+                         : !peerChannels.replace(member, existing, connectFuture)) {
+      // another thread won the race to reconnect.
+      connectFuture.channel().close();
+      return peerChannels.get(member);
+    }
+
+    connectFuture.addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(final ChannelFuture future) throws Exception {
+        if (future.isSuccess()) {
+          future.channel().closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final ChannelFuture closed) throws Exception {
+              peerChannels.remove(member, connectFuture);
+            }
+          });
+        }
+        else {
+          peerChannels.remove(member, connectFuture);
+        }
+      }
+    });
+
+    return connectFuture;
+  }
+
+  private Message createForwardMessageFor(final Message message, final String messageId) {
+    final Message forward = CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.MessageForward.name())
+        .set(Payload, ErraiProtocol.encodePayload(message.getParts()))
+        .set(BusId, busId);
+
+    if (message.hasPart(SessionID)) {
+      final String value = message.get(String.class, SessionID);
+      if (!IntrabusQueueSession.INSTANCE.getSessionId().equals(value)) {
+        forward.set(SessId, value);
+      }
+    }
+
+    if (messageId != null) {
+      forward.set(MessageId, messageId);
+    }
+
+    return forward;
+  }
+
+  private Message createInvalidRouteMessage(final String sessionId, final String subject, final String messageId) {
+    return CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.InvalidRoute.name())
+        .set(SessId, sessionId)
+        .set(Subject, subject)
+        .set(MessageId, messageId)
+        .set(BusId, busId);
+  }
+
+  private Message createWhoHandlesMessage(final String sessionId, final String subject, final String messageId) {
+    return CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.WhoHandles.name())
+        .set(ClusterParts.SessId, sessionId)
+        .set(BusId, busId)
+        .set(Subject, subject)
+        .set(MessageId, messageId);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster.tcp;
+
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+
+/**
+ * Configuration attributes for the {@link TcpClusteringProvider}. The port the provider listens on is taken from
+ * {@link org.jboss.errai.bus.server.service.ErraiConfigAttribs#CLUSTER_PORT}.
+ */
+public enum TcpConfigAttribs {
+  /**
+   * A comma separated list of <tt>host:port</tt> pairs naming the members of the cluster. The list may include the
+   * local node, which is dropped when the members are parsed: an entry names the local node if its port is the
+   * {@link org.jboss.errai.bus.server.service.ErraiConfigAttribs#CLUSTER_PORT} and its host resolves to the
+   * {@link #BIND_ADDRESS} (or to any address of this machine when bound to the wildcard address).
+   */
+  CLUSTER_MEMBERS("errai.bus.cluster.tcp.members", ""),
+
+  /**
+   * The path to a file containing one <tt>host:port</tt> pair per line. Blank lines and lines starting with
+   * <tt>#</tt> are ignored. Members listed in this file are added to those in {@link #CLUSTER_MEMBERS}.
+   */
+  CLUSTER_MEMBERS_FILE("errai.bus.cluster.tcp.members_file"),
+
+  /**
+   * The local address the cluster listener binds to.
+   */
+  BIND_ADDRESS("errai.bus.cluster.tcp.bind_address", "0.0.0.0"),
+
+  /**
+   * The timeout in milliseconds for establishing a connection to a peer.
+   */
+  CONNECT_TIMEOUT("errai.bus.cluster.tcp.connect_timeout", "2000"),
+
+  /**
+   * The maximum size in bytes of a single frame exchanged between peers.
+   */
+  MAX_FRAME_SIZE("errai.bus.cluster.tcp.max_frame_size", "16777216");
+
+  protected final String attributeName;
+  protected final String defaultValue;
+
+  TcpConfigAttribs(final String attributeName) {
+    this(attributeName, null);
+  }
+
+  TcpConfigAttribs(final String attributeName, final String defaultValue) {
+    this.attributeName = attributeName;
+    this.defaultValue = defaultValue;
+  }
+
+  public boolean getBoolean(final ErraiServiceConfigurator configurator) {
+    setDefaultValue(configurator);
+    return configurator.getBooleanProperty(getAttributeName());
+  }
+
+  public Integer getInt(final ErraiServiceConfigurator configurator) {
+    setDefaultValue(configurator);
+    return configurator.getIntProperty(getAttributeName());
+  }
+
+  public String get(final ErraiServiceConfigurator configurator) {
+    setDefaultValue(configurator);
+    return configurator.getProperty(getAttributeName());
+  }
+
+  public void set(final ErraiServiceConfigurator configurator, final String value) {
+    configurator.setProperty(getAttributeName(), value);
+  }
+
+  private void setDefaultValue(final ErraiServiceConfigurator configurator) {
+    if (defaultValue != null && !configurator.hasProperty(getAttributeName())) {
+      configurator.setProperty(getAttributeName(), defaultValue);
+    }
+  }
+
+  public String getAttributeName() {
+    return attributeName;
+  }
+}
@@ -18,6 +18,9 @@ package org.jboss.errai.bus.server.io;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
@@ -28,6 +31,11 @@ import org.jboss.errai.bus.client.api.messaging.MessageBus;
 import org.jboss.errai.bus.client.api.messaging.MessageCallback;
 import org.jboss.errai.bus.server.QueueUnavailableException;
 import org.jboss.errai.bus.server.api.RpcContext;
+import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.metrics.BusMetrics;
+import org.jboss.errai.bus.server.metrics.MessageTrace;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
+import org.jboss.errai.bus.server.metrics.TraceStage;
 import org.slf4j.Logger;
 
 /**
@@ -35,18 +43,41 @@ import org.slf4j.Logger;
  */
 public abstract class AbstractRPCMethodCallback implements MessageCallback {
   private static final Logger log = getLogger(AbstractRPCMethodCallback.class);
+  private static final Object[] NO_ARGS = new Object[0];
 
   protected final ServiceInstanceProvider serviceProvider;
   protected final Class[] targetTypes;
   protected final Method method;
   protected final MessageBus bus;
 
+  /**
+   * The endpoint method adapted to {@code (Object target, Object[] args) -> Object}, so that calls avoid the access
+   * checks and argument boxing of {@link Method#invoke(Object, Object...)}.
+   */
+  private final MethodHandle invoker;
+  private final String endpointName;
+  private volatile BusMetrics metrics;
+
   protected AbstractRPCMethodCallback(final ServiceInstanceProvider genericSvc,
                                       final Method method,
                                       final MessageBus bus) {
     this.serviceProvider = genericSvc;
     this.targetTypes = (this.method = method).getParameterTypes();
     this.bus = bus;
+    this.invoker = createInvoker(method);
+    this.endpointName = method.getDeclaringClass().getName() + "." + method.getName();
+  }
+
+  private static MethodHandle createInvoker(final Method method) {
+    try {
+      method.setAccessible(true);
+      return MethodHandles.lookup().unreflect(method)
+          .asSpreader(Object[].class, method.getParameterTypes().length)
+          .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+    catch (final IllegalAccessException e) {
+      throw new RuntimeException("could not access RPC endpoint " + method, e);
+    }
   }
 
   public Object invokeMethodFromMessage(Message message) {
@@ -60,9 +91,15 @@ public abstract class AbstractRPCMethodCallback implements MessageCallback {
               + "; required: " + targetTypes.length + ")");
     }
 
+    final MessageTrace trace = MessageTracer.of(message);
+    if (trace != null) {
+      trace.mark(TraceStage.INVOKE_START);
+    }
+    final long start = System.nanoTime();
     try {
       RpcContext.set(message);
-      return method.invoke(serviceProvider.get(message), (parms != null) ? parms.toArray(new Object[parms.size()]) : new Object[0]);
+      return invoke(serviceProvider.get(message),
+          (targetTypes.length == 0) ? NO_ARGS : parms.toArray(new Object[targetTypes.length]));
     }
     catch (final QueueUnavailableException e) {
       throw e;
@@ -79,6 +116,130 @@ public abstract class AbstractRPCMethodCallback implements MessageCallback {
     }
     finally {
       RpcContext.remove();
+      recordInvocation(System.nanoTime() - start);
+      if (trace != null) {
+        trace.mark(TraceStage.INVOKE_END);
+      }
+    }
+  }
+
+  /**
+   * Calls the endpoint with the semantics of {@link Method#invoke(Object, Object...)}: arguments that do not fit the
+   * parameter types (including null for a primitive parameter) cause an {@link IllegalArgumentException} before the
+   * endpoint runs, and anything the endpoint throws is wrapped in an {@link InvocationTargetException}.
+   */
+  private Object invoke(final Object target, final Object[] args) throws InvocationTargetException {
+    if (target == null) {
+      throw new NullPointerException("no service instance for RPC endpoint " + method);
+    }
+    for (int i = 0; i < args.length; i++) {
+      args[i] = adaptArgument(targetTypes[i], args[i]);
+    }
+    try {
+      return (Object) invoker.invokeExact(target, args);
+    }
+    catch (final Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  /**
+   * Checks an argument against its parameter type. Wrapper values for primitive parameters are converted to the exact
+   * wrapper type of the parameter, applying the widening conversions {@link Method#invoke(Object, Object...)} allows,
+   * so that the unboxing done by {@link #invoker} cannot fail.
+   */
+  private static Object adaptArgument(final Class<?> type, final Object arg) {
+    if (!type.isPrimitive()) {
+      if (arg != null && !type.isInstance(arg)) {
+        throw new IllegalArgumentException("argument type mismatch: expected " + type.getName() + " but got "
+            + arg.getClass().getName());
+      }
+      return arg;
+    }
+
+    if (arg == null) {
+      throw new IllegalArgumentException("null passed for primitive parameter of type " + type.getName());
+    }
+    if (type == boolean.class) {
+      if (arg instanceof Boolean) {
+        return arg;
+      }
+    }
+    else if (arg instanceof Character) {
+      final char c = (Character) arg;
+      if (type == char.class) {
+        return arg;
+      }
+      else if (type != byte.class && type != short.class) {
+        return widen(type, c);
+      }
+    }
+    else if (arg instanceof Byte || arg instanceof Short || arg instanceof Integer || arg instanceof Long
+        || arg instanceof Float || arg instanceof Double) {
+      if (numericRank(arg.getClass()) <= numericRank(type) && type != char.class) {
+        return widen(type, (Number) arg);
+      }
+    }
+
+    throw new IllegalArgumentException("argument type mismatch: expected " + type.getName() + " but got "
+        + arg.getClass().getName());
+  }
+
+  private static int numericRank(final Class<?> type) {
+    if (type == byte.class || type == Byte.class) {
+      return 0;
+    }
+    else if (type == short.class || type == Short.class) {
+      return 1;
+    }
+    else if (type == int.class || type == Integer.class) {
+      return 2;
+    }
+    else if (type == long.class || type == Long.class) {
+      return 3;
+    }
+    else if (type == float.class || type == Float.class) {
+      return 4;
+    }
+    else if (type == double.class || type == Double.class) {
+      return 5;
+    }
+    return -1;
+  }
+
+  private static Object widen(final Class<?> type, final Number value) {
+    if (type == byte.class) {
+      return value.byteValue();
+    }
+    else if (type == short.class) {
+      return value.shortValue();
+    }
+    else if (type == int.class) {
+      return value.intValue();
+    }
+    else if (type == long.class) {
+      return value.longValue();
+    }
+    else if (type == float.class) {
+      return value.floatValue();
+    }
+    else {
+      return value.doubleValue();
+    }
+  }
+
+  private static Object widen(final Class<?> type, final char value) {
+    return widen(type, Integer.valueOf(value));
+  }
+
+  private void recordInvocation(final long nanos) {
+    BusMetrics busMetrics = metrics;
+    if (busMetrics == null) {
+      if (!(bus instanceof ServerMessageBus)) {
+        return;
+      }
+      metrics = busMetrics = ((ServerMessageBus) bus).getMetrics();
     }
+    busMetrics.recordRpcInvocation(endpointName, nanos);
   }
 }
@@ -18,12 +18,14 @@ package org.jboss.errai.bus.server.io;
 
 import static org.jboss.errai.marshalling.server.protocol.ErraiProtocolServer.encodePayloadToByteArrayInputStream;
 
+import org.jboss.errai.bus.client.api.HasEncoded;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.server.io.buffers.Buffer;
 import org.jboss.errai.bus.server.io.buffers.BufferColor;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author Mike Brock
@@ -35,7 +37,13 @@ public final class BufferHelper {
   public static void encodeAndWrite(final Buffer buffer, final BufferColor bufferColor, final Message message)
           throws IOException {
 
-    buffer.write(encodePayloadToByteArrayInputStream(message.getParts()), bufferColor);
+    if (message instanceof HasEncoded) {
+      buffer.write(new ByteArrayInputStream(((HasEncoded) message).getEncoded().getBytes(StandardCharsets.UTF_8)),
+          bufferColor);
+    }
+    else {
+      buffer.write(encodePayloadToByteArrayInputStream(message.getParts()), bufferColor);
+    }
   }
 
   private static final byte[] NOOP_ARRAY = new byte[0];
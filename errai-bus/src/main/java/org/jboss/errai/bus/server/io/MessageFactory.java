@@ -31,6 +31,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.jboss.errai.bus.client.api.QueueSession;
 import org.jboss.errai.bus.client.api.RoutingFlag;
 import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
 import org.jboss.errai.common.client.protocols.MessageParts;
 import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
@@ -68,37 +69,41 @@ public class MessageFactory {
   public static Message createCommandMessage(QueueSession session, HttpServletRequest request, String json) {
     if (json.length() == 0) return null;
 
+    final long received = MessageTracer.now();
     Map<String, Object> parts = decodeToMap(json);
     parts.remove(MessageParts.SessionID.name());
 
-    return from(parts, session, request);
+    return from(parts, session, request, received);
   }
 
   @SuppressWarnings("unchecked")
   public static Message createCommandMessage(QueueSession session, String json) {
     if (json.length() == 0) return null;
 
+    final long received = MessageTracer.now();
     Message msg = createWithPartsFromRawMap(ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(JSONDecoder.decode(json),
         new DecodingSession(MappingContextSingleton.get())))
             .setResource("Session", session)
             .setResource("SessionID", session.getSessionId());
 
     msg.setFlag(RoutingFlag.FromRemote);
+    MessageTracer.start(msg, received);
 
     return msg;
   }
 
 
   public static List<Message> createCommandMessage(QueueSession session, HttpServletRequest request) throws IOException {
+    final long received = MessageTracer.now();
     EJValue value = JSONStreamDecoder.decode(request.getInputStream());
     if (value.isObject() != null) {
-      return Collections.singletonList(from(getParts(value), session, request));
+      return Collections.singletonList(from(getParts(value), session, request, received));
     }
     else if (value.isArray() != null) {
       EJArray arr = value.isArray();
       List<Message> messages = new ArrayList<Message>(arr.size());
       for (int i = 0; i < arr.size(); i++) {
-        messages.add(from(getParts(arr.get(i)), session, request));
+        messages.add(from(getParts(arr.get(i)), session, request, received));
       }
       return messages;
     }
@@ -112,15 +117,16 @@ public class MessageFactory {
 
 
   public static List<Message> createCommandMessage(QueueSession session, InputStream inputStream) throws IOException {
+    final long received = MessageTracer.now();
     EJValue value = JSONStreamDecoder.decode(inputStream);
     if (value.isObject() != null) {
-      return Collections.singletonList(from(getParts(value), session, null));
+      return Collections.singletonList(from(getParts(value), session, null, received));
     }
     else if (value.isArray() != null) {
       EJArray arr = value.isArray();
       List<Message> messages = new ArrayList<Message>(arr.size());
       for (int i = 0; i < arr.size(); i++) {
-        messages.add(from(getParts(arr.get(i)), session, null));
+        messages.add(from(getParts(arr.get(i)), session, null, received));
       }
       return messages;
     }
@@ -130,14 +136,15 @@ public class MessageFactory {
   }
 
   public static List<Message> createCommandMessage(QueueSession session, EJValue value) {
+    final long received = MessageTracer.now();
     if (value.isObject() != null) {
-      return Collections.singletonList(from(getParts(value), session, null));
+      return Collections.singletonList(from(getParts(value), session, null, received));
     }
     else if (value.isArray() != null) {
       EJArray arr = value.isArray();
       List<Message> messages = new ArrayList<Message>(arr.size());
       for (int i = 0; i < arr.size(); i++) {
-        messages.add(from(getParts(arr.get(i)), session, null));
+        messages.add(from(getParts(arr.get(i)), session, null, received));
       }
       return messages;
     }
@@ -154,12 +161,13 @@ public class MessageFactory {
   }
 
   @SuppressWarnings("unchecked")
-  private static Message from(Map parts, QueueSession session, HttpServletRequest request) {
+  private static Message from(Map parts, QueueSession session, HttpServletRequest request, long received) {
     Message msg = createWithParts(parts)
             .setResource("Session", session)
             .setResource("SessionID", session.getSessionId())
             .setResource(HttpServletRequest.class.getName(), request);
     msg.setFlag(RoutingFlag.FromRemote);
+    MessageTracer.start(msg, received);
     return msg;
   }
 }
@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The server-side metrics registry of a single {@link org.jboss.errai.bus.server.api.ServerMessageBus}. Recording is
+ * lock-free and allocation-free on the hot path (counters are {@link LongAdder}s and durations go into fixed-size
+ * {@link LatencyHistogram}s), so the registry is intended to stay enabled in production. When metrics are disabled
+ * with {@link org.jboss.errai.bus.server.service.ErraiConfigAttribs#ENABLE_METRICS}, every recording method returns
+ * immediately.
+ * <p>
+ * Metrics are exposed through JMX under {@code org.jboss.errai:type=BusMetrics,name=<bus id>} and as JSON via
+ * {@link #toJson()} (see {@link org.jboss.errai.bus.server.servlet.BusMetricsServlet}).
+ */
+public class BusMetrics implements BusMetricsMXBean {
+  public static final String GAUGE_ACTIVE_QUEUES = "queues.active";
+  public static final String GAUGE_PAGED_QUEUES = "queues.paged";
+  public static final String GAUGE_BUFFER_FREE_BYTES = "buffer.freeBytes";
+  public static final String GAUGE_DEAD_LETTERS = "cluster.deadLetters";
+  public static final String GAUGE_DISPATCH_QUEUE_DEPTH = "dispatcher.queueDepth";
+  public static final String GAUGE_DISPATCH_BUSY_WORKERS = "dispatcher.busyWorkers";
+
+  private static final Logger log = LoggerFactory.getLogger(BusMetrics.class);
+
+  private static final BusMetrics DISABLED = new BusMetrics(false);
+
+  private final boolean enabled;
+
+  private final Meter delivered = new Meter();
+  private final Meter enqueued = new Meter();
+  private final LatencyHistogram enqueueTime = new LatencyHistogram();
+  private final LatencyHistogram dispatchWaitTime = new LatencyHistogram();
+  private final LongAdder dispatchSaturations = new LongAdder();
+  private final LatencyHistogram rpcInvocationTime = new LatencyHistogram();
+  private final Meter pagedOut = new Meter();
+  private final Meter sessionsExpired = new Meter();
+  private final Meter clusterForwards = new Meter();
+  private final LatencyHistogram clusterForwardTime = new LatencyHistogram();
+
+  private final ConcurrentMap<String, SubjectMetrics> subjects = new ConcurrentHashMap<String, SubjectMetrics>();
+  private final ConcurrentMap<String, SubjectMetrics> rpcEndpoints = new ConcurrentHashMap<String, SubjectMetrics>();
+  private final ConcurrentMap<String, LongAdder> sessions = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<String, LongSupplier>();
+
+  private ObjectName objectName;
+
+  public BusMetrics(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return a shared registry that records nothing.
+   */
+  public static BusMetrics disabled() {
+    return DISABLED;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Starts periodic rate computation on the given scheduler and registers this registry with the platform MBean
+   * server. Has no effect if metrics are disabled.
+   */
+  public void start(final ScheduledExecutorService scheduler, final String busId) {
+    if (!enabled) {
+      return;
+    }
+
+    scheduler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        tick();
+      }
+
+      @Override
+      public String toString() {
+        return "BusMetricsTick";
+      }
+    }, Meter.TICK_INTERVAL_SECS, Meter.TICK_INTERVAL_SECS, TimeUnit.SECONDS);
+
+    try {
+      final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName("org.jboss.errai:type=BusMetrics,name=" + ObjectName.quote(busId));
+      mBeanServer.registerMBean(this, name);
+      objectName = name;
+    }
+    catch (Exception e) {
+      log.warn("could not register bus metrics with JMX", e);
+    }
+  }
+
+  public void stop() {
+    if (objectName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      }
+      catch (Exception e) {
+        log.debug("could not unregister bus metrics from JMX", e);
+      }
+      objectName = null;
+    }
+  }
+
+  public void registerGauge(final String name, final LongSupplier gauge) {
+    if (enabled) {
+      gauges.put(name, gauge);
+    }
+  }
+
+  /**
+   * Records the delivery of a message to the local subscribers of a subject.
+   */
+  public void recordDelivery(final String subject, final long nanos) {
+    if (!enabled) {
+      return;
+    }
+    delivered.mark();
+    subjectMetrics(subjects, subject).record(nanos);
+  }
+
+  /**
+   * Records that a message was offered to the outbound queue of a session.
+   */
+  public void recordEnqueue(final String sessionId, final long nanos) {
+    if (!enabled) {
+      return;
+    }
+    enqueued.mark();
+    enqueueTime.record(nanos);
+
+    LongAdder counter = sessions.get(sessionId);
+    if (counter == null) {
+      final LongAdder newCounter = new LongAdder();
+      counter = sessions.putIfAbsent(sessionId, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    counter.increment();
+  }
+
+  /**
+   * Records the time a message spent waiting in the dispatcher queue before a worker picked it up.
+   */
+  public void recordDispatchWait(final long nanos) {
+    if (enabled) {
+      dispatchWaitTime.record(nanos);
+    }
+  }
+
+  /**
+   * Records that the dispatcher queue was full and the saturation policy had to be applied.
+   */
+  public void recordDispatchSaturation() {
+    if (enabled) {
+      dispatchSaturations.increment();
+    }
+  }
+
+  public void recordRpcInvocation(final String endpoint, final long nanos) {
+    if (!enabled) {
+      return;
+    }
+    rpcInvocationTime.record(nanos);
+    subjectMetrics(rpcEndpoints, endpoint).record(nanos);
+  }
+
+  public void recordPageOut(final int queues) {
+    if (enabled) {
+      pagedOut.mark(queues);
+    }
+  }
+
+  public void recordSessionsExpired(final int count) {
+    if (enabled) {
+      sessionsExpired.mark(count);
+    }
+  }
+
+  public void recordSessionClosed(final String sessionId) {
+    if (enabled) {
+      sessions.remove(sessionId);
+    }
+  }
+
+  public void recordClusterForward() {
+    if (enabled) {
+      clusterForwards.mark();
+    }
+  }
+
+  /**
+   * Records the time between asking the cluster for the owner of a session and the message being handed off.
+   */
+  public void recordClusterForwardTime(final long nanos) {
+    if (enabled) {
+      clusterForwardTime.record(nanos);
+    }
+  }
+
+  private static SubjectMetrics subjectMetrics(final ConcurrentMap<String, SubjectMetrics> map, final String name) {
+    SubjectMetrics metrics = map.get(name);
+    if (metrics == null) {
+      final SubjectMetrics newMetrics = new SubjectMetrics();
+      metrics = map.putIfAbsent(name, newMetrics);
+      if (metrics == null) {
+        metrics = newMetrics;
+      }
+    }
+    return metrics;
+  }
+
+  void tick() {
+    delivered.tick();
+    enqueued.tick();
+    pagedOut.tick();
+    sessionsExpired.tick();
+    clusterForwards.tick();
+    for (final SubjectMetrics metrics : subjects.values()) {
+      metrics.tick();
+    }
+    for (final SubjectMetrics metrics : rpcEndpoints.values()) {
+      metrics.tick();
+    }
+  }
+
+  @Override
+  public long getMessagesDelivered() {
+    return delivered.getCount();
+  }
+
+  @Override
+  public double getMessageDeliveryRate() {
+    return delivered.getOneMinuteRate();
+  }
+
+  @Override
+  public long getMessagesEnqueued() {
+    return enqueued.getCount();
+  }
+
+  @Override
+  public double getMessageEnqueueRate() {
+    return enqueued.getOneMinuteRate();
+  }
+
+  @Override
+  public HistogramSnapshot getEnqueueTime() {
+    return enqueueTime.snapshot();
+  }
+
+  @Override
+  public HistogramSnapshot getDispatchWaitTime() {
+    return dispatchWaitTime.snapshot();
+  }
+
+  @Override
+  public long getDispatchSaturations() {
+    return dispatchSaturations.sum();
+  }
+
+  @Override
+  public HistogramSnapshot getRpcInvocationTime() {
+    return rpcInvocationTime.snapshot();
+  }
+
+  @Override
+  public long getQueuesPagedOut() {
+    return pagedOut.getCount();
+  }
+
+  @Override
+  public long getSessionsExpired() {
+    return sessionsExpired.getCount();
+  }
+
+  @Override
+  public long getClusterForwards() {
+    return clusterForwards.getCount();
+  }
+
+  @Override
+  public HistogramSnapshot getClusterForwardTime() {
+    return clusterForwardTime.snapshot();
+  }
+
+  @Override
+  public Map<String, Long> getGauges() {
+    final Map<String, Long> values = new TreeMap<String, Long>();
+    for (final Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().getAsLong());
+    }
+    return values;
+  }
+
+  @Override
+  public Map<String, HistogramSnapshot> getSubjectTimes() {
+    return snapshots(subjects);
+  }
+
+  @Override
+  public Map<String, HistogramSnapshot> getRpcEndpointTimes() {
+    return snapshots(rpcEndpoints);
+  }
+
+  @Override
+  public Map<String, Long> getSessionMessageCounts() {
+    final Map<String, Long> values = new TreeMap<String, Long>();
+    for (final Map.Entry<String, LongAdder> entry : sessions.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    return values;
+  }
+
+  public SubjectMetrics getSubjectMetrics(final String subject) {
+    return subjects.get(subject);
+  }
+
+  public SubjectMetrics getRpcEndpointMetrics(final String endpoint) {
+    return rpcEndpoints.get(endpoint);
+  }
+
+  private static Map<String, HistogramSnapshot> snapshots(final Map<String, SubjectMetrics> map) {
+    final Map<String, HistogramSnapshot> values = new TreeMap<String, HistogramSnapshot>();
+    for (final Map.Entry<String, SubjectMetrics> entry : map.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().getTime().snapshot());
+    }
+    return values;
+  }
+
+  @Override
+  public void reset() {
+    delivered.reset();
+    enqueued.reset();
+    pagedOut.reset();
+    sessionsExpired.reset();
+    clusterForwards.reset();
+    enqueueTime.reset();
+    dispatchWaitTime.reset();
+    rpcInvocationTime.reset();
+    clusterForwardTime.reset();
+    dispatchSaturations.reset();
+    subjects.clear();
+    rpcEndpoints.clear();
+    sessions.clear();
+  }
+
+  @Override
+  public String toJson() {
+    final StringBuilder sb = new StringBuilder(1024);
+    sb.append("{\"enabled\":").append(enabled);
+    appendMeter(sb, "delivered", delivered);
+    appendMeter(sb, "enqueued", enqueued);
+    appendMeter(sb, "queuesPagedOut", pagedOut);
+    appendMeter(sb, "sessionsExpired", sessionsExpired);
+    appendMeter(sb, "clusterForwards", clusterForwards);
+    sb.append(",\"dispatchSaturations\":").append(dispatchSaturations.sum());
+    appendHistogram(sb, "enqueueTime", enqueueTime);
+    appendHistogram(sb, "dispatchWaitTime", dispatchWaitTime);
+    appendHistogram(sb, "rpcInvocationTime", rpcInvocationTime);
+    appendHistogram(sb, "clusterForwardTime", clusterForwardTime);
+
+    sb.append(",\"gauges\":{");
+    boolean first = true;
+    for (final Map.Entry<String, Long> entry : getGauges().entrySet()) {
+      if (!first) sb.append(',');
+      appendString(sb, entry.getKey());
+      sb.append(':').append(entry.getValue());
+      first = false;
+    }
+    sb.append('}');
+
+    appendSubjects(sb, "subjects", subjects);
+    appendSubjects(sb, "rpcEndpoints", rpcEndpoints);
+
+    sb.append(",\"sessions\":{");
+    first = true;
+    for (final Map.Entry<String, Long> entry : getSessionMessageCounts().entrySet()) {
+      if (!first) sb.append(',');
+      appendString(sb, entry.getKey());
+      sb.append(':').append(entry.getValue());
+      first = false;
+    }
+    sb.append("}}");
+    return sb.toString();
+  }
+
+  private static void appendMeter(final StringBuilder sb, final String name, final Meter meter) {
+    sb.append(",\"").append(name).append("\":{\"count\":").append(meter.getCount())
+        .append(",\"rate\":").append(meter.getOneMinuteRate()).append('}');
+  }
+
+  private static void appendHistogram(final StringBuilder sb, final String name, final LatencyHistogram histogram) {
+    sb.append(",\"").append(name).append("\":");
+    histogram.snapshot().appendJson(sb);
+  }
+
+  private static void appendSubjects(final StringBuilder sb, final String name,
+                                     final Map<String, SubjectMetrics> map) {
+    sb.append(",\"").append(name).append("\":{");
+    boolean first = true;
+    for (final Map.Entry<String, SubjectMetrics> entry : new TreeMap<String, SubjectMetrics>(map).entrySet()) {
+      if (!first) sb.append(',');
+      appendString(sb, entry.getKey());
+      sb.append(":{\"count\":").append(entry.getValue().getMessages().getCount())
+          .append(",\"rate\":").append(entry.getValue().getMessages().getOneMinuteRate())
+          .append(",\"time\":");
+      entry.getValue().getTime().snapshot().appendJson(sb);
+      sb.append('}');
+      first = false;
+    }
+    sb.append('}');
+  }
+
+  static void appendString(final StringBuilder sb, final String value) {
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            sb.append(String.format("\\u%04x", (int) c));
+          }
+          else {
+            sb.append(c);
+          }
+      }
+    }
+    sb.append('"');
+  }
+}
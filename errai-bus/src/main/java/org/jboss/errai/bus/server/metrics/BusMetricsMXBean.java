@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of {@link BusMetrics}. All durations are in nanoseconds and all rates are one-minute
+ * moving averages in events per second.
+ */
+public interface BusMetricsMXBean {
+  long getMessagesDelivered();
+
+  double getMessageDeliveryRate();
+
+  long getMessagesEnqueued();
+
+  double getMessageEnqueueRate();
+
+  HistogramSnapshot getEnqueueTime();
+
+  HistogramSnapshot getDispatchWaitTime();
+
+  long getDispatchSaturations();
+
+  HistogramSnapshot getRpcInvocationTime();
+
+  long getQueuesPagedOut();
+
+  long getSessionsExpired();
+
+  long getClusterForwards();
+
+  HistogramSnapshot getClusterForwardTime();
+
+  Map<String, Long> getGauges();
+
+  Map<String, HistogramSnapshot> getSubjectTimes();
+
+  Map<String, HistogramSnapshot> getRpcEndpointTimes();
+
+  Map<String, Long> getSessionMessageCounts();
+
+  String toJson();
+
+  /**
+   * Sets all counters, rates and latency histograms back to zero, and forgets the recorded subjects, RPC endpoints and
+   * session message counts. Gauges report live values and are not affected.
+   */
+  void reset();
+}
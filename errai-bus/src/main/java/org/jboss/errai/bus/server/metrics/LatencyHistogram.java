@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds. Values are recorded into log-linear buckets (every power of two
+ * is split into {@value #SUB_BUCKETS} linear sub-buckets), which bounds the relative error of reported percentiles to
+ * 12.5% while keeping the footprint of a histogram fixed regardless of the range of recorded values.
+ *
+ * @see HistogramSnapshot
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+  private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(final long nanos) {
+    final long value = nanos < 0 ? 0 : nanos;
+    buckets.incrementAndGet(indexOf(value));
+    count.increment();
+    sum.add(value);
+
+    long currentMax;
+    while (value > (currentMax = max.get())) {
+      if (max.compareAndSet(currentMax, value)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public HistogramSnapshot snapshot() {
+    final long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      total += (counts[i] = buckets.get(i));
+    }
+
+    final long maxValue = max.get();
+    final long mean = total == 0 ? 0 : sum.sum() / total;
+
+    return new HistogramSnapshot(total, mean,
+        percentile(counts, total, 0.50, maxValue),
+        percentile(counts, total, 0.90, maxValue),
+        percentile(counts, total, 0.99, maxValue),
+        percentile(counts, total, 0.999, maxValue),
+        maxValue);
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  private static long percentile(final long[] counts, final long total, final double quantile, final long maxValue) {
+    if (total == 0) {
+      return 0;
+    }
+
+    final long rank = (long) Math.ceil(total * quantile);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  static int indexOf(final long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBoundOf(final int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    final int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+    final long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+    final long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (1L << exponent) + (subBucket + 1) * width - 1;
+  }
+}
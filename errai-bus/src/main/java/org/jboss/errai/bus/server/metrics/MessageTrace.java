@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The stage timestamps of a single sampled message, as taken with {@link System#nanoTime()}. Each stage is recorded
+ * at most once; later marks of the same stage are ignored. Traces are published to the {@link MessageTracer} ring
+ * buffer as soon as they start, so a dump may contain traces of messages that are still in flight.
+ */
+public final class MessageTrace {
+  private static final TraceStage[] STAGES = TraceStage.values();
+
+  private final String traceId;
+  private final String subject;
+  private final long startTime;
+  private final AtomicLongArray stamps = new AtomicLongArray(STAGES.length);
+
+  MessageTrace(final String traceId, final String subject) {
+    this.traceId = traceId;
+    this.subject = subject;
+    this.startTime = System.currentTimeMillis();
+  }
+
+  public void mark(final TraceStage stage) {
+    mark(stage, System.nanoTime());
+  }
+
+  void mark(final TraceStage stage, final long nanos) {
+    stamps.compareAndSet(stage.ordinal(), 0, nanos);
+  }
+
+  public String getTraceId() {
+    return traceId;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  /**
+   * @return the wall-clock time in milliseconds at which the trace was started.
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return the {@link System#nanoTime()} at which the given stage was reached, or 0 if it was not reached (yet).
+   */
+  public long getTimestamp(final TraceStage stage) {
+    return stamps.get(stage.ordinal());
+  }
+
+  /**
+   * @return the nanoseconds elapsed between the two stages, or -1 if either of them was not reached (yet).
+   */
+  public long getElapsed(final TraceStage from, final TraceStage to) {
+    final long start = getTimestamp(from);
+    final long end = getTimestamp(to);
+    return (start == 0 || end == 0) ? -1 : end - start;
+  }
+
+  void appendJson(final StringBuilder sb) {
+    sb.append("{\"traceId\":");
+    BusMetrics.appendString(sb, traceId);
+    sb.append(",\"subject\":");
+    BusMetrics.appendString(sb, subject == null ? "" : subject);
+    sb.append(",\"startTime\":").append(startTime).append(",\"stages\":{");
+
+    final long received = getTimestamp(TraceStage.RECEIVED);
+    boolean first = true;
+    for (final TraceStage stage : STAGES) {
+      final long stamp = getTimestamp(stage);
+      if (stamp == 0) continue;
+      if (!first) sb.append(',');
+      sb.append('"').append(stage.name()).append("\":").append(stamp - received);
+      first = false;
+    }
+    sb.append("}}");
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder(128);
+    appendJson(sb);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.ObjectName;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples inbound messages and records the time they spend in each {@link TraceStage} between being decoded and the
+ * reply being written back to the client. Completed and in-flight traces are kept in a fixed-size ring buffer that can
+ * be dumped through JMX (under {@code org.jboss.errai:type=MessageTracer}), as JSON via {@link #toJson()}, or read
+ * programmatically with {@link #dump()}.
+ * <p>
+ * A sampled message carries its trace id in the {@value #TRACE_ID_PART} message part, so the id travels with the
+ * message if it is forwarded, and a client can force a message to be traced by setting that part itself. The
+ * {@link MessageTrace} is attached to the message as the {@value #TRACE_RESOURCE} resource, and to the delivering
+ * thread while subscribers run so that outbound messages can be attributed to it.
+ * <p>
+ * The tracer is shared by all buses in the JVM, since messages are decoded before they are associated with a bus. It
+ * takes its settings from the first bus that starts; later buses don't change them, but the sample rate and buffer
+ * size can still be changed through JMX. Tracing is off unless a sample rate above zero is configured with
+ * {@link org.jboss.errai.bus.server.service.ErraiConfigAttribs#TRACE_SAMPLE_RATE}; while it is off every hook costs a
+ * single volatile read.
+ */
+public final class MessageTracer implements MessageTracerMXBean {
+  public static final String TRACE_ID_PART = "TraceId";
+  public static final String TRACE_RESOURCE = "MessageTrace";
+
+  private static final Logger log = LoggerFactory.getLogger(MessageTracer.class);
+
+  private static final MessageTracer INSTANCE = new MessageTracer();
+  private static final ThreadLocal<MessageTrace> currentTrace = new ThreadLocal<MessageTrace>();
+
+  private static volatile boolean enabled;
+
+  private volatile double sampleRate;
+  private volatile AtomicReferenceArray<MessageTrace> ring = new AtomicReferenceArray<MessageTrace>(1024);
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicBoolean configured = new AtomicBoolean();
+
+  private MessageTracer() {
+  }
+
+  public static MessageTracer get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Sets the sample rate and ring buffer size and registers the tracer with the platform MBean server, unless the
+   * tracer has been configured already, in which case the settings are kept and a differing configuration is logged.
+   *
+   * @param sampleRate
+   *     the fraction of inbound messages to trace, between 0 (off) and 1 (every message).
+   * @param bufferSize
+   *     the number of traces to retain.
+   */
+  public static void configure(final double sampleRate, final int bufferSize) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("trace buffer size must be positive: " + bufferSize);
+    }
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("trace sample rate must be between 0 and 1: " + sampleRate);
+    }
+    if (!INSTANCE.configured.compareAndSet(false, true)) {
+      if (sampleRate != INSTANCE.sampleRate || bufferSize != INSTANCE.ring.length()) {
+        log.warn("message tracer is shared by all buses and already configured with sample rate "
+            + INSTANCE.sampleRate + " and buffer size " + INSTANCE.ring.length() + "; ignoring sample rate " + sampleRate
+            + " and buffer size " + bufferSize);
+      }
+      return;
+    }
+    INSTANCE.setBufferSize(bufferSize);
+    INSTANCE.setSampleRate(sampleRate);
+    INSTANCE.register();
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the current {@link System#nanoTime()} if tracing is enabled, otherwise 0. Used to timestamp the start of
+   *         decoding without paying for the clock read when tracing is off.
+   */
+  public static long now() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Decides whether to trace a freshly decoded message and, if so, starts its trace. Messages that already carry a
+   * {@value #TRACE_ID_PART} part are always traced.
+   *
+   * @param message
+   *     the decoded message.
+   * @param receivedNanos
+   *     the value of {@link #now()} taken before decoding started.
+   *
+   * @return the new trace, or null if the message is not traced.
+   */
+  public static MessageTrace start(final Message message, final long receivedNanos) {
+    if (!enabled || message == null) {
+      return null;
+    }
+
+    final long decoded = System.nanoTime();
+    String traceId = message.get(String.class, TRACE_ID_PART);
+    if (traceId == null) {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (random.nextDouble() >= INSTANCE.sampleRate) {
+        return null;
+      }
+      traceId = Long.toHexString(random.nextLong());
+      message.set(TRACE_ID_PART, traceId);
+    }
+
+    final MessageTrace trace = new MessageTrace(traceId, message.getSubject());
+    trace.mark(TraceStage.RECEIVED, receivedNanos != 0 ? receivedNanos : decoded);
+    trace.mark(TraceStage.DECODED, decoded);
+    message.setResource(TRACE_RESOURCE, trace);
+    INSTANCE.publish(trace);
+    return trace;
+  }
+
+  /**
+   * @return the trace of the given message, or null if tracing is off or the message is not traced.
+   */
+  public static MessageTrace of(final Message message) {
+    if (!enabled || message == null) {
+      return null;
+    }
+    return message.getResource(MessageTrace.class, TRACE_RESOURCE);
+  }
+
+  public static void mark(final Message message, final TraceStage stage) {
+    final MessageTrace trace = of(message);
+    if (trace != null) {
+      trace.mark(stage);
+    }
+  }
+
+  /**
+   * @return the trace of the message whose subscribers are currently running on this thread, or null.
+   */
+  public static MessageTrace current() {
+    return enabled ? currentTrace.get() : null;
+  }
+
+  /**
+   * Makes the given trace the {@link #current()} trace of this thread.
+   *
+   * @return the previously current trace, to be passed to {@link #exit(MessageTrace)}.
+   */
+  public static MessageTrace enter(final MessageTrace trace) {
+    final MessageTrace previous = currentTrace.get();
+    currentTrace.set(trace);
+    return previous;
+  }
+
+  public static void exit(final MessageTrace previous) {
+    if (previous == null) {
+      currentTrace.remove();
+    }
+    else {
+      currentTrace.set(previous);
+    }
+  }
+
+  private void publish(final MessageTrace trace) {
+    final AtomicReferenceArray<MessageTrace> buffer = ring;
+    buffer.set((int) (written.getAndIncrement() % buffer.length()), trace);
+  }
+
+  /**
+   * @return the retained traces, oldest first.
+   */
+  public List<MessageTrace> dump() {
+    final AtomicReferenceArray<MessageTrace> buffer = ring;
+    final int size = buffer.length();
+    final long end = written.get();
+    final List<MessageTrace> traces = new ArrayList<MessageTrace>((int) Math.min(end, size));
+    for (long i = Math.max(0, end - size); i < end; i++) {
+      final MessageTrace trace = buffer.get((int) (i % size));
+      if (trace != null) {
+        traces.add(trace);
+      }
+    }
+    return traces;
+  }
+
+  public String toJson() {
+    final StringBuilder sb = new StringBuilder(256);
+    sb.append("{\"sampleRate\":").append(sampleRate).append(",\"traces\":[");
+    boolean first = true;
+    for (final MessageTrace trace : dump()) {
+      if (!first) sb.append(',');
+      trace.appendJson(sb);
+      first = false;
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  @Override
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public void setSampleRate(final double sampleRate) {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("trace sample rate must be between 0 and 1: " + sampleRate);
+    }
+    this.sampleRate = sampleRate;
+    enabled = sampleRate > 0;
+  }
+
+  @Override
+  public int getBufferSize() {
+    return ring.length();
+  }
+
+  @Override
+  public void setBufferSize(final int bufferSize) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("trace buffer size must be positive: " + bufferSize);
+    }
+    if (ring.length() != bufferSize) {
+      ring = new AtomicReferenceArray<MessageTrace>(bufferSize);
+      written.set(0);
+    }
+  }
+
+  @Override
+  public long getTracesRecorded() {
+    return written.get();
+  }
+
+  @Override
+  public String dumpTraces() {
+    return toJson();
+  }
+
+  @Override
+  public void clear() {
+    final AtomicReferenceArray<MessageTrace> buffer = ring;
+    for (int i = 0; i < buffer.length(); i++) {
+      buffer.set(i, null);
+    }
+    written.set(0);
+  }
+
+  private void register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("org.jboss.errai:type=MessageTracer"));
+    }
+    catch (Exception e) {
+      log.warn("could not register message tracer with JMX", e);
+    }
+  }
+}
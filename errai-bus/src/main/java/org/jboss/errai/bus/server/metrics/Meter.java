@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events and maintains an exponentially weighted one-minute moving average of their rate. Marking is a single
+ * striped add; the rate is only recomputed when the owning {@link BusMetrics} is ticked.
+ */
+public final class Meter {
+  static final int TICK_INTERVAL_SECS = 5;
+  private static final double ALPHA = 1 - Math.exp(-TICK_INTERVAL_SECS / 60.0);
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder uncounted = new LongAdder();
+
+  private volatile double rate = 0.0;
+  private volatile boolean initialized = false;
+
+  public void mark() {
+    count.increment();
+    uncounted.increment();
+  }
+
+  public void mark(final long n) {
+    count.add(n);
+    uncounted.add(n);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return The one-minute moving average rate of events per second.
+   */
+  public double getOneMinuteRate() {
+    return rate;
+  }
+
+  /**
+   * Sets the count and the rate back to zero.
+   */
+  void reset() {
+    count.reset();
+    uncounted.reset();
+    rate = 0.0;
+    initialized = false;
+  }
+
+  void tick() {
+    final double instantRate = uncounted.sumThenReset() / (double) TICK_INTERVAL_SECS;
+    if (initialized) {
+      rate += (ALPHA * (instantRate - rate));
+    }
+    else {
+      rate = instantRate;
+      initialized = true;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+/**
+ * The number, rate, and processing time of messages delivered to a single subject or RPC endpoint.
+ */
+public final class SubjectMetrics {
+  private final Meter messages = new Meter();
+  private final LatencyHistogram time = new LatencyHistogram();
+
+  public void record(final long nanos) {
+    messages.mark();
+    time.record(nanos);
+  }
+
+  public Meter getMessages() {
+    return messages;
+  }
+
+  public LatencyHistogram getTime() {
+    return time;
+  }
+
+  void tick() {
+    messages.tick();
+  }
+}
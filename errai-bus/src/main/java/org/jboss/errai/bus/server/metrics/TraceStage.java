@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.metrics;
+
+/**
+ * The points in the life of an inbound message at which a {@link MessageTrace} takes a timestamp, in the order they
+ * normally occur.
+ */
+public enum TraceStage {
+  /**
+   * The server started decoding the request payload that contained the message.
+   */
+  RECEIVED,
+
+  /**
+   * The message was decoded from the payload.
+   */
+  DECODED,
+
+  /**
+   * The message was handed to the {@link org.jboss.errai.bus.server.api.RequestDispatcher}.
+   */
+  DISPATCHED,
+
+  /**
+   * The bus started delivering the message to its local subscribers (for asynchronous dispatch, after it waited for a
+   * worker).
+   */
+  DELIVERY_START,
+
+  /**
+   * An RPC endpoint method started executing.
+   */
+  INVOKE_START,
+
+  /**
+   * The RPC endpoint method returned or threw.
+   */
+  INVOKE_END,
+
+  /**
+   * Delivery to the local subscribers finished.
+   */
+  DELIVERY_END,
+
+  /**
+   * The first outbound message produced while handling the message (usually the reply) was offered to a client queue.
+   */
+  ENQUEUED,
+
+  /**
+   * That outbound message was written to the client, either directly over a WebSocket or by the next poll of the
+   * client's queue.
+   */
+  TRANSMITTED
+}
@@ -94,6 +94,38 @@ public enum ErraiConfigAttribs {
   ENABLE_CLUSTERING("errai.bus.enable_clustering", "false"),
   CLUSTERING_PROVIDER("errai.bus.clustering_provider", "org.jboss.errai.bus.server.cluster.noop.NoopClusteringProvider"),
 
+  /**
+   * Whether the bus records metrics (message counts and rates, queue and dispatcher latencies, RPC invocation times).
+   * Metrics are exposed through JMX and the {@link org.jboss.errai.bus.server.servlet.BusMetricsServlet}.
+   * <p/>
+   * Default value: true
+   */
+  ENABLE_METRICS("errai.bus.enable_metrics", "true"),
+
+  /**
+   * The fraction (between 0 and 1) of inbound messages for which the time spent in each processing stage is traced.
+   * Traces are kept in the ring buffer of the {@link org.jboss.errai.bus.server.metrics.MessageTracer}, which is shared
+   * by all buses in the JVM and configured by the first bus that starts.
+   * <p/>
+   * Default value: 0 (tracing is off)
+   */
+  TRACE_SAMPLE_RATE("errai.bus.trace.sample_rate", "0"),
+
+  /**
+   * The number of message traces retained by the {@link org.jboss.errai.bus.server.metrics.MessageTracer}.
+   * <p/>
+   * Default value: 1024
+   */
+  TRACE_BUFFER_SIZE("errai.bus.trace.buffer_size", "1024"),
+
+  /**
+   * The maximum number of threads used to execute the calls of a single RPC batch in parallel. Set to 1 to execute
+   * batched calls one after the other.
+   * <p/>
+   * Default value: 8
+   */
+  RPC_BATCH_PARALLELISM("errai.bus.rpc_batch_parallelism", "8"),
+
   MESSAGE_QUEUE_TIMEOUT_SECS("errai.bus.message_queue_timeout_secs", "90"),
   SATURATION_POLICY("errai.bus.saturation_policy", "CallerRuns");
 
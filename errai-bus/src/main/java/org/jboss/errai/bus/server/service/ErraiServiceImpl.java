@@ -18,6 +18,7 @@ package org.jboss.errai.bus.server.service;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.jboss.errai.bus.client.api.base.MessageDeliveryFailure;
 import org.jboss.errai.bus.client.api.builder.DefaultRemoteCallBuilder;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.api.messaging.RequestDispatcher;
@@ -28,8 +29,11 @@ import org.jboss.errai.bus.server.ServerMessageBusImpl;
 import org.jboss.errai.bus.server.api.ServerMessageBus;
 import org.jboss.errai.bus.server.api.SessionProvider;
 import org.jboss.errai.bus.server.io.websockets.WebSocketServer;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
+import org.jboss.errai.bus.server.metrics.TraceStage;
 import org.jboss.errai.bus.server.service.bootstrap.BootstrapContext;
 import org.jboss.errai.bus.server.service.bootstrap.OrderedBootstrap;
+import org.jboss.errai.common.client.protocols.MessageParts;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
@@ -48,6 +52,7 @@ public class ErraiServiceImpl<S> implements ErraiService<S> {
   private ErraiServiceConfigurator config;
   private SessionProvider<S> sessionProvider;
   private RequestDispatcher dispatcher;
+  private RpcBatchExecutor batchExecutor;
   private List<Runnable> shutdownHooks = new ArrayList<Runnable>();
   private final Logger log = getLogger(getClass());
 
@@ -63,6 +68,9 @@ public class ErraiServiceImpl<S> implements ErraiService<S> {
   public ErraiServiceImpl(final ErraiServiceConfigurator configurator) {
     this.bus = new ServerMessageBusImpl(this, configurator);
     this.config = configurator;
+    this.batchExecutor = new RpcBatchExecutor(this::dispatch,
+        ErraiConfigAttribs.RPC_BATCH_PARALLELISM.getInt(configurator),
+        ErraiConfigAttribs.MESSAGE_QUEUE_TIMEOUT_SECS.getInt(configurator), this::failUndeliveredBatchCall);
     boostrap();
   }
 
@@ -88,12 +96,19 @@ public class ErraiServiceImpl<S> implements ErraiService<S> {
     }
 
     message.addResources(config.getResourceProviders());
+    dispatch(message);
+  }
 
-    /*
-     * Pass the message off to the messaging bus for handling.
-     */
+  /**
+   * Passes the message off to the messaging bus for handling.
+   *
+   * @return false if the message could not be dispatched.
+   */
+  private boolean dispatch(Message message) {
     try {
+      MessageTracer.mark(message, TraceStage.DISPATCHED);
       getDispatcher().dispatchGlobal(message);
+      return true;
     }
     catch (QueueUnavailableException e) {
       throw e;
@@ -104,14 +119,67 @@ public class ErraiServiceImpl<S> implements ErraiService<S> {
         message.setResource("Exception", t.getCause());
         ErrorHelper.sendClientError(bus, message, t.getMessage(), t);
       }
+      return false;
     }
   }
 
+  /**
+   * Reports a call of an RPC batch that was not delivered in time to its sender.
+   */
+  private void failUndeliveredBatchCall(Message message) {
+    final MessageDeliveryFailure failure = new MessageDeliveryFailure("RPC call was not delivered within "
+        + ErraiConfigAttribs.MESSAGE_QUEUE_TIMEOUT_SECS.getInt(config) + " seconds");
+    log.warn(failure.getMessage() + ": " + message.getSubject());
+    if (message.getErrorCallback() == null || message.getErrorCallback().error(message, failure)) {
+      ErrorHelper.sendClientError(bus, message, failure.getMessage(), failure);
+    }
+  }
+
+  /**
+   * Passes off the messages to the bus for handling, in order. Consecutive RPC requests of the same batch are
+   * independent of each other and are dispatched together by the {@link RpcBatchExecutor}.
+   *
+   * @param messages - the messages to store/deliver
+   */
   @Override
   public void store(Collection<Message> messages) {
+    List<Message> batch = null;
+    String batchId = null;
+
     for (Message m : messages) {
-      store(m);
+      final String id = (m != null) ? m.get(String.class, MessageParts.RpcBatch) : null;
+      if (batch != null && (id == null || !id.equals(batchId))) {
+        storeBatch(batch);
+        batch = null;
+      }
+
+      if (id == null) {
+        store(m);
+      }
+      else {
+        if (batch == null) {
+          batch = new ArrayList<Message>();
+          batchId = id;
+        }
+        batch.add(m);
+      }
+    }
+
+    if (batch != null) {
+      storeBatch(batch);
+    }
+  }
+
+  private void storeBatch(final List<Message> batch) {
+    if (batch.size() == 1) {
+      store(batch.get(0));
+      return;
+    }
+
+    for (Message m : batch) {
+      m.addResources(config.getResourceProviders());
     }
+    batchExecutor.execute(batch);
   }
 
   @Override
@@ -28,6 +28,7 @@ import org.jboss.errai.bus.client.api.messaging.MessageCallback;
 import org.jboss.errai.bus.server.api.MessageQueue;
 import org.jboss.errai.bus.server.api.QueueClosedListener;
 import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.metrics.BusMetrics;
 import org.jboss.errai.common.client.api.Assert;
 
 import java.util.ArrayList;
@@ -242,6 +243,11 @@ public class MessageBusProxy implements ServerMessageBus {
     return proxied.getScheduler();
   }
 
+  @Override
+  public BusMetrics getMetrics() {
+    return proxied.getMetrics();
+  }
+
   @Override
   public void addQueueClosedListener(QueueClosedListener listener) {
     proxied.addQueueClosedListener(listener);
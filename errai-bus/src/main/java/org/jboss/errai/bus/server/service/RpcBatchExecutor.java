@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.QueueUnavailableException;
+
+/**
+ * Dispatches the calls of an RPC batch (requests that carry the same
+ * {@link org.jboss.errai.common.client.protocols.MessageParts#RpcBatch} part) and returns when all of them have been
+ * delivered. The replies are therefore already queued when the transport writes its response, so the whole batch is
+ * answered in one round trip.
+ * <p>
+ * Every call goes through the bus's {@link org.jboss.errai.bus.client.api.messaging.RequestDispatcher}, so its
+ * timeouts, saturation policy and threading apply to batched calls as to any other message. With the
+ * {@link org.jboss.errai.bus.server.AsyncDispatcher} up to {@code parallelism} calls of a batch are in flight at once
+ * on the dispatcher's workers. A synchronous dispatcher delivers the calls one after the other on the calling thread.
+ * <p>
+ * A batch never holds the calling thread longer than the given timeout: calls that have not been delivered by then
+ * are handed to the failure handler, and their later delivery (if any) no longer counts.
+ */
+public class RpcBatchExecutor {
+  private static final String COMPLETION_RESOURCE = "RpcBatchCompletion";
+
+  private final Predicate<Message> dispatch;
+  private final int parallelism;
+  private final long timeoutNanos;
+  private final Consumer<Message> onTimeout;
+
+  /**
+   * @param dispatch
+   *          hands a message to the dispatcher, and returns false if it could not be dispatched (in which case it will
+   *          never be delivered).
+   * @param parallelism
+   *          the maximum number of calls of one batch that are dispatched but not yet delivered.
+   * @param timeoutSecs
+   *          the maximum time {@link #execute(List)} waits for the calls of a batch to be delivered.
+   * @param onTimeout
+   *          called with every call that was not delivered before the timeout expired, e.g. to report an error to the
+   *          client.
+   */
+  public RpcBatchExecutor(final Predicate<Message> dispatch, final int parallelism, final int timeoutSecs,
+          final Consumer<Message> onTimeout) {
+    this.dispatch = dispatch;
+    this.parallelism = Math.max(1, parallelism);
+    this.timeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, timeoutSecs));
+    this.onTimeout = onTimeout;
+  }
+
+  public void execute(final List<Message> calls) {
+    final long deadline = System.nanoTime() + timeoutNanos;
+    final Semaphore inFlight = new Semaphore(parallelism);
+    final CountDownLatch done = new CountDownLatch(calls.size());
+    final List<Completion> completions = new ArrayList<Completion>(calls.size());
+    QueueUnavailableException unavailable = null;
+
+    try {
+      for (final Message call : calls) {
+        final Completion completion = new Completion(inFlight, done);
+        completions.add(completion);
+        call.setResource(COMPLETION_RESOURCE, completion);
+        if (!inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          break;
+        }
+        try {
+          if (!dispatch.test(call)) {
+            completion.complete();
+          }
+        }
+        catch (QueueUnavailableException e) {
+          completion.complete();
+          unavailable = e;
+        }
+        catch (RuntimeException | Error e) {
+          completion.complete();
+          throw e;
+        }
+      }
+
+      done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      failUnfinished(calls, completions);
+    }
+
+    if (unavailable != null) {
+      throw unavailable;
+    }
+  }
+
+  private void failUnfinished(final List<Message> calls, final List<Completion> completions) {
+    for (int i = 0; i < calls.size(); i++) {
+      final Message call = calls.get(i);
+      if (i >= completions.size()) {
+        // never dispatched
+        onTimeout.accept(call);
+      }
+      else if (completions.get(i).complete()) {
+        onTimeout.accept(call);
+      }
+    }
+  }
+
+  /**
+   * Called by the bus when it has finished delivering a message, successfully or not, or knows that it never will.
+   * Has no effect for messages that are not part of a batch.
+   */
+  public static void delivered(final Message message) {
+    final Completion completion = message.getResource(Completion.class, COMPLETION_RESOURCE);
+    if (completion != null) {
+      completion.complete();
+    }
+  }
+
+  private static class Completion {
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final Semaphore inFlight;
+    private final CountDownLatch done;
+
+    private Completion(final Semaphore inFlight, final CountDownLatch done) {
+      this.inFlight = inFlight;
+      this.done = done;
+    }
+
+    /**
+     * @return true if this call completed the message, false if it was already complete.
+     */
+    private boolean complete() {
+      // a message may be delivered more than once (e.g. after a delayed retry), but counts only once
+      if (completed.compareAndSet(false, true)) {
+        inFlight.release();
+        done.countDown();
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.servlet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jboss.errai.bus.server.metrics.BusMetrics;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
+import org.jboss.errai.bus.server.service.ErraiService;
+
+/**
+ * Serves the current {@link BusMetrics} of the server bus as a JSON document, for consumption by monitoring systems
+ * that poll over HTTP rather than JMX.
+ * <p/>
+ * <h2>Configuration</h2>
+ * <p/>
+ * <pre>
+ * {@code <servlet>}
+ *   {@code <servlet-name>ErraiBusMetrics</servlet-name>}
+ *   {@code <servlet-class>org.jboss.errai.bus.server.servlet.BusMetricsServlet</servlet-class>}
+ * {@code </servlet>}
+ *
+ * {@code <servlet-mapping>}
+ *   {@code <servlet-name>ErraiBusMetrics</servlet-name>}
+ *   {@code <url-pattern>/errai-bus-metrics</url-pattern>}
+ * {@code </servlet-mapping>}
+ * </pre>
+ * <p/>
+ * Requesting the endpoint with a {@code traces} parameter (e.g. {@code /errai-bus-metrics?traces}) returns the
+ * sampled message traces of the {@link MessageTracer} instead.
+ * <p/>
+ * The endpoint exposes internal details such as session identifiers, so it should be protected by a security
+ * constraint.
+ */
+public class BusMetricsServlet extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+
+  private ErraiService<?> service;
+
+  @Override
+  public void init(final ServletConfig config) throws ServletException {
+    super.init(config);
+    service = ServletBootstrapUtil.getService(config);
+  }
+
+  @Override
+  protected void doGet(final HttpServletRequest request, final HttpServletResponse response)
+      throws ServletException, IOException {
+    final String body = (request.getParameter("traces") != null) ? MessageTracer.get().toJson()
+        : service.getBus().getMetrics().toJson();
+    final byte[] json = body.getBytes(StandardCharsets.UTF_8);
+
+    response.setHeader("Cache-Control", "no-cache");
+    response.setContentType("application/json; charset=utf-8");
+    response.setContentLength(json.length);
+    response.getOutputStream().write(json);
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.base.MessageBuilder;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.metrics.BusMetrics;
+import org.jboss.errai.bus.server.metrics.HistogramSnapshot;
+import org.jboss.errai.bus.server.metrics.LatencyHistogram;
+import org.jboss.errai.bus.server.metrics.MessageTrace;
+import org.jboss.errai.bus.server.metrics.MessageTracer;
+import org.jboss.errai.bus.server.metrics.SubjectMetrics;
+import org.jboss.errai.bus.server.metrics.TraceStage;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.service.ErraiServiceConfiguratorImpl;
+import org.jboss.errai.bus.server.service.ErraiServiceFactory;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.junit.Test;
+
+public class BusMetricsTests {
+
+  @Test
+  public void testHistogramPercentilesAreWithinBucketError() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+
+    final HistogramSnapshot snapshot = histogram.snapshot();
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), snapshot.getMax());
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(500), snapshot.getP50());
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(990), snapshot.getP99());
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(500), snapshot.getMean());
+  }
+
+  @Test
+  public void testEmptyHistogram() {
+    final HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+    assertEquals(0, snapshot.getCount());
+    assertEquals(0, snapshot.getP99());
+    assertEquals(0, snapshot.getMax());
+  }
+
+  @Test
+  public void testDisabledMetricsRecordNothing() {
+    final BusMetrics metrics = new BusMetrics(false);
+    metrics.recordDelivery("subject", 100);
+    metrics.recordEnqueue("session", 100);
+
+    assertEquals(0, metrics.getMessagesDelivered());
+    assertEquals(0, metrics.getMessagesEnqueued());
+    assertTrue(metrics.getSubjectTimes().isEmpty());
+  }
+
+  @Test
+  public void testResetClearsEverythingButGauges() {
+    final BusMetrics metrics = new BusMetrics(true);
+    metrics.registerGauge("test.gauge", () -> 42);
+    metrics.recordDelivery("subject", 100);
+    metrics.recordEnqueue("session", 100);
+    metrics.recordPageOut(2);
+    metrics.recordSessionsExpired(3);
+    metrics.recordClusterForward();
+    metrics.recordDispatchSaturation();
+    metrics.recordRpcInvocation("Service.method", 100);
+
+    metrics.reset();
+
+    assertEquals(0, metrics.getMessagesDelivered());
+    assertEquals(0, metrics.getMessagesEnqueued());
+    assertEquals(0, metrics.getQueuesPagedOut());
+    assertEquals(0, metrics.getSessionsExpired());
+    assertEquals(0, metrics.getClusterForwards());
+    assertEquals(0, metrics.getDispatchSaturations());
+    assertEquals(0, metrics.getEnqueueTime().getCount());
+    assertEquals(0, metrics.getRpcInvocationTime().getCount());
+    assertTrue(metrics.getSubjectTimes().isEmpty());
+    assertTrue(metrics.getRpcEndpointTimes().isEmpty());
+    assertTrue(metrics.getSessionMessageCounts().isEmpty());
+    assertEquals(Long.valueOf(42), metrics.getGauges().get("test.gauge"));
+  }
+
+  @Test
+  public void testBusRecordsLocalDeliveries() {
+    MappingContextSingleton.get();
+
+    final ErraiServiceConfigurator configurator = new ErraiServiceConfiguratorImpl();
+    ErraiConfigAttribs.AUTO_DISCOVER_SERVICES.set(configurator, "false");
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(configurator, "2");
+    final ErraiService<?> service = ErraiServiceFactory.create(configurator);
+
+    try {
+      service.getBus().subscribe("MetricsTestService", message -> {});
+
+      for (int i = 0; i < 10; i++) {
+        MessageBuilder.createMessage()
+            .toSubject("MetricsTestService")
+            .signalling()
+            .noErrorHandling()
+            .sendNowWith(service.getBus());
+      }
+
+      final BusMetrics metrics = service.getBus().getMetrics();
+      final SubjectMetrics subjectMetrics = metrics.getSubjectMetrics("MetricsTestService");
+      assertNotNull(subjectMetrics);
+      assertEquals(10, subjectMetrics.getMessages().getCount());
+      assertEquals(10, subjectMetrics.getTime().getCount());
+      assertTrue(metrics.getGauges().containsKey(BusMetrics.GAUGE_ACTIVE_QUEUES));
+      assertTrue(metrics.toJson().contains("\"MetricsTestService\":{\"count\":10"));
+    }
+    finally {
+      service.stopService();
+    }
+  }
+
+  @Test
+  public void testNoTracesWhenSamplingIsOff() {
+    MessageTracer.get().setSampleRate(0);
+    MessageTracer.get().clear();
+
+    final Message message = CommandMessage.create().toSubject("TraceTestService");
+    assertNull(MessageTracer.start(message, MessageTracer.now()));
+    assertNull(MessageTracer.of(message));
+    assertTrue(MessageTracer.get().dump().isEmpty());
+  }
+
+  @Test
+  public void testTraceRingBufferKeepsNewestTraces() {
+    try {
+      MessageTracer.get().setBufferSize(4);
+      MessageTracer.get().setSampleRate(1);
+      MessageTracer.get().clear();
+
+      MessageTrace last = null;
+      for (int i = 0; i < 6; i++) {
+        final Message message = CommandMessage.create().toSubject("TraceTestService");
+        last = MessageTracer.start(message, MessageTracer.now());
+        assertNotNull(last);
+        assertEquals(last.getTraceId(), message.get(String.class, MessageTracer.TRACE_ID_PART));
+      }
+
+      final List<MessageTrace> traces = MessageTracer.get().dump();
+      assertEquals(4, traces.size());
+      assertSame(last, traces.get(3));
+      assertEquals(6, MessageTracer.get().getTracesRecorded());
+      assertTrue(MessageTracer.get().toJson().contains("\"traceId\":\"" + last.getTraceId() + "\""));
+    }
+    finally {
+      MessageTracer.get().setSampleRate(0);
+      MessageTracer.get().setBufferSize(1024);
+    }
+  }
+
+  @Test
+  public void testLaterBusesDontReconfigureTracer() {
+    MessageTracer.configure(0, 1024);
+    final double sampleRate = MessageTracer.get().getSampleRate();
+    final int bufferSize = MessageTracer.get().getBufferSize();
+
+    MessageTracer.configure(1, 4);
+    assertEquals(sampleRate, MessageTracer.get().getSampleRate(), 0);
+    assertEquals(bufferSize, MessageTracer.get().getBufferSize());
+  }
+
+  @Test
+  public void testBusTracesDelivery() {
+    MappingContextSingleton.get();
+
+    final ErraiServiceConfigurator configurator = new ErraiServiceConfiguratorImpl();
+    ErraiConfigAttribs.AUTO_DISCOVER_SERVICES.set(configurator, "false");
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(configurator, "2");
+    final ErraiService<?> service = ErraiServiceFactory.create(configurator);
+    MessageTracer.get().setSampleRate(1);
+
+    try {
+      final AtomicReference<MessageTrace> current = new AtomicReference<MessageTrace>();
+      service.getBus().subscribe("TraceTestService", message -> current.set(MessageTracer.current()));
+
+      final Message message = CommandMessage.create().toSubject("TraceTestService");
+      final MessageTrace trace = MessageTracer.start(message, MessageTracer.now());
+      service.store(message);
+
+      assertSame(trace, current.get());
+      assertNull(MessageTracer.current());
+      assertTrue(trace.getElapsed(TraceStage.RECEIVED, TraceStage.DISPATCHED) >= 0);
+      assertTrue(trace.getElapsed(TraceStage.DELIVERY_START, TraceStage.DELIVERY_END) >= 0);
+      assertEquals(-1, trace.getElapsed(TraceStage.INVOKE_START, TraceStage.INVOKE_END));
+    }
+    finally {
+      service.stopService();
+      MessageTracer.get().setSampleRate(0);
+    }
+  }
+
+  private static void assertWithin(final long expected, final long actual) {
+    assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 8);
+  }
+}
@@ -50,11 +50,15 @@ public class ClusteringTests extends TestCase {
   private final AtomicInteger counter = new AtomicInteger(0);
 
   private ErraiService<?> startInstance() {
-    final ErraiService<?> newService = InVMBusUtil.startService(counter.incrementAndGet());
+    final ErraiService<?> newService = createInstance(counter.incrementAndGet());
     startedInstances.add(newService);
     return newService;
   }
 
+  protected ErraiService<?> createInstance(final int portOffset) {
+    return InVMBusUtil.startService(portOffset);
+  }
+
   @Override
   protected void setUp() throws Exception {
     MappingContextSingleton.get();
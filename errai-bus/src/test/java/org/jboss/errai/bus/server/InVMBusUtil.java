@@ -18,6 +18,8 @@ package org.jboss.errai.bus.server;
 
 import org.jboss.errai.bus.server.cluster.jgroups.JGroupsClusteringProvider;
 import org.jboss.errai.bus.server.cluster.jgroups.JGroupsConfigAttribs;
+import org.jboss.errai.bus.server.cluster.tcp.TcpClusteringProvider;
+import org.jboss.errai.bus.server.cluster.tcp.TcpConfigAttribs;
 import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
 import org.jboss.errai.bus.server.service.ErraiService;
 import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
@@ -40,4 +42,29 @@ public class InVMBusUtil {
     ErraiConfigAttribs.BUS_BUFFER_SIZE.set(configurator, "2"); // 2 MB
     return ErraiServiceFactory.create(configurator);
   }
+
+  /**
+   * Starts a bus clustered with the {@link TcpClusteringProvider} over loopback. The member list contains the nodes
+   * at port offsets <tt>1</tt> through <tt>clusterSize</tt>, so that all nodes started with the same cluster size
+   * will find each other.
+   */
+  public static ErraiService startTcpService(final int portOffset, final int clusterSize) {
+    final ErraiServiceConfigurator configurator = new ErraiServiceConfiguratorImpl();
+    final int basePort = ErraiConfigAttribs.CLUSTER_PORT.getInt(configurator) + 100;
+    final StringBuilder members = new StringBuilder();
+    for (int i = 1; i <= clusterSize; i++) {
+      if (members.length() > 0) {
+        members.append(',');
+      }
+      members.append("127.0.0.1:").append(basePort + i);
+    }
+    ErraiConfigAttribs.CLUSTER_PORT.set(configurator, String.valueOf(basePort + portOffset));
+    TcpConfigAttribs.BIND_ADDRESS.set(configurator, "127.0.0.1");
+    TcpConfigAttribs.CLUSTER_MEMBERS.set(configurator, members.toString());
+    ErraiConfigAttribs.ENABLE_CLUSTERING.set(configurator, "true");
+    ErraiConfigAttribs.CLUSTERING_PROVIDER.set(configurator, TcpClusteringProvider.class.getName());
+    ErraiConfigAttribs.AUTO_DISCOVER_SERVICES.set(configurator, "false");
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(configurator, "2"); // 2 MB
+    return ErraiServiceFactory.create(configurator);
+  }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.base.MessageDeliveryFailure;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.io.AbstractRPCMethodCallback;
+import org.jboss.errai.bus.server.io.ValueReplyRPCEndpointCallback;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.service.ErraiServiceConfiguratorImpl;
+import org.jboss.errai.bus.server.service.ErraiServiceFactory;
+import org.jboss.errai.bus.server.service.RpcBatchExecutor;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.junit.Test;
+
+public class RPCEndpointTests {
+  public interface Calculator {
+    int add(int a, int b);
+
+    String greet(String name);
+
+    long now();
+
+    long scale(long value, double factor);
+
+    void fail(String reason);
+  }
+
+  private static class CalculatorImpl implements Calculator {
+    @Override
+    public int add(final int a, final int b) {
+      return a + b;
+    }
+
+    @Override
+    public String greet(final String name) {
+      return "Hello, " + name;
+    }
+
+    @Override
+    public long now() {
+      return 42L;
+    }
+
+    @Override
+    public long scale(final long value, final double factor) {
+      return (long) (value * factor);
+    }
+
+    @Override
+    public void fail(final String reason) {
+      throw new IllegalStateException(reason);
+    }
+  }
+
+  private static AbstractRPCMethodCallback endpoint(final String name, final Class<?>... parameterTypes)
+      throws NoSuchMethodException {
+    final Calculator calculator = new CalculatorImpl();
+    return new ValueReplyRPCEndpointCallback(message -> calculator,
+        Calculator.class.getMethod(name, parameterTypes), null);
+  }
+
+  private static Message call(final Object... args) {
+    final Message message = CommandMessage.create();
+    if (args.length > 0) {
+      message.set("MethodParms", Arrays.asList(args));
+    }
+    return message;
+  }
+
+  @Test
+  public void testPrimitiveArgumentsAndReturnValue() throws Exception {
+    assertEquals(5, endpoint("add", int.class, int.class).invokeMethodFromMessage(call(2, 3)));
+  }
+
+  @Test
+  public void testReferenceArguments() throws Exception {
+    assertEquals("Hello, Errai", endpoint("greet", String.class).invokeMethodFromMessage(call("Errai")));
+    assertEquals("Hello, null", endpoint("greet", String.class).invokeMethodFromMessage(call((Object) null)));
+  }
+
+  @Test
+  public void testNoArguments() throws Exception {
+    assertEquals(42L, endpoint("now").invokeMethodFromMessage(call()));
+    assertEquals(42L, endpoint("now").invokeMethodFromMessage(call().set("MethodParms", Collections.emptyList())));
+  }
+
+  @Test
+  public void testEndpointExceptionIsReportedAsRpcFailure() throws Exception {
+    try {
+      endpoint("fail", String.class).invokeMethodFromMessage(call("boom"));
+      fail("expected MessageDeliveryFailure");
+    }
+    catch (final MessageDeliveryFailure e) {
+      assertTrue(e.isRpcEndpointException());
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      assertEquals("boom", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testWideningPrimitiveArguments() throws Exception {
+    assertEquals(11L, endpoint("scale", long.class, double.class).invokeMethodFromMessage(call(11, 1.0f)));
+  }
+
+  @Test
+  public void testWrongArgumentTypeIsNotReportedAsEndpointException() throws Exception {
+    try {
+      endpoint("add", int.class, int.class).invokeMethodFromMessage(call(1, "two"));
+      fail("expected MessageDeliveryFailure");
+    }
+    catch (final MessageDeliveryFailure e) {
+      assertFalse(e.isRpcEndpointException());
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+
+    try {
+      endpoint("greet", String.class).invokeMethodFromMessage(call(42));
+      fail("expected MessageDeliveryFailure");
+    }
+    catch (final MessageDeliveryFailure e) {
+      assertFalse(e.isRpcEndpointException());
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
+  @Test
+  public void testNullPrimitiveArgumentIsNotReportedAsEndpointException() throws Exception {
+    try {
+      endpoint("add", int.class, int.class).invokeMethodFromMessage(call(1, null));
+      fail("expected MessageDeliveryFailure");
+    }
+    catch (final MessageDeliveryFailure e) {
+      assertFalse(e.isRpcEndpointException());
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
+  @Test
+  public void testWrongNumberOfArguments() throws Exception {
+    try {
+      endpoint("add", int.class, int.class).invokeMethodFromMessage(call(1));
+      fail("expected MessageDeliveryFailure");
+    }
+    catch (final MessageDeliveryFailure e) {
+      assertSame(null, e.getCause());
+    }
+  }
+
+  @Test
+  public void testBatchedCallsRunOnAsyncWorkersAndCompleteBeforeStoreReturns() {
+    final ErraiServiceConfigurator configurator = batchConfigurator(AsyncDispatcher.class.getName());
+    configurator.setProperty("errai.async.thread_pool_size", "4");
+    final ErraiService<?> service = ErraiServiceFactory.create(configurator);
+
+    try {
+      final Set<Long> threads = ConcurrentHashMap.newKeySet();
+      final List<String> order = subscribeRecorder(service, threads);
+
+      final List<Message> messages = new ArrayList<Message>();
+      for (int i = 0; i < 4; i++) {
+        messages.add(batchedCall("batched"));
+      }
+
+      service.store(messages);
+
+      assertEquals(4, order.size());
+      assertFalse("batched calls must not run on the calling thread",
+          threads.contains(Thread.currentThread().getId()));
+      assertTrue("expected batched calls on several workers: " + threads, threads.size() > 1);
+    }
+    finally {
+      service.stopService();
+    }
+  }
+
+  @Test
+  public void testBatchedCallsRunInOrderOnCallingThreadWithSimpleDispatcher() {
+    final ErraiService<?> service = ErraiServiceFactory.create(batchConfigurator(SimpleDispatcher.class.getName()));
+
+    try {
+      final Set<Long> threads = ConcurrentHashMap.newKeySet();
+      final List<String> order = subscribeRecorder(service, threads);
+
+      final List<Message> messages = new ArrayList<Message>();
+      messages.add(CommandMessage.create().toSubject("BatchTestService").set(MessageParts.Value, "before"));
+      for (int i = 0; i < 4; i++) {
+        messages.add(batchedCall("batched" + i));
+      }
+      messages.add(CommandMessage.create().toSubject("BatchTestService").set(MessageParts.Value, "after"));
+
+      service.store(messages);
+
+      assertEquals(Arrays.asList("before", "batched0", "batched1", "batched2", "batched3", "after"), order);
+      assertEquals(Collections.singleton(Thread.currentThread().getId()), threads);
+    }
+    finally {
+      service.stopService();
+    }
+  }
+
+  @Test
+  public void testBatchCallsThatAreNeverDeliveredFailAfterTimeout() {
+    final List<Message> dispatched = new CopyOnWriteArrayList<Message>();
+    final List<Message> failed = new CopyOnWriteArrayList<Message>();
+    final RpcBatchExecutor executor = new RpcBatchExecutor(m -> {
+      // the first call is delivered, the others are lost
+      if (dispatched.isEmpty()) {
+        RpcBatchExecutor.delivered(m);
+      }
+      dispatched.add(m);
+      return true;
+    }, 2, 1, failed::add);
+
+    final List<Message> calls = Arrays.asList(batchedCall("a"), batchedCall("b"), batchedCall("c"), batchedCall("d"));
+    final long start = System.nanoTime();
+    executor.execute(calls);
+    final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertTrue("waited " + elapsedMillis + "ms", elapsedMillis >= 900 && elapsedMillis < 5000);
+    // only two calls can be in flight, so the last one is never dispatched
+    assertEquals(calls.subList(0, 3), dispatched);
+    assertEquals(calls.subList(1, 4), failed);
+
+    // a late delivery has no effect
+    RpcBatchExecutor.delivered(calls.get(1));
+    assertEquals(3, failed.size());
+  }
+
+  @Test
+  public void testBatchCallsMarkedDeliveredWithoutRunningDontBlock() {
+    final List<Message> failed = new CopyOnWriteArrayList<Message>();
+    final RpcBatchExecutor executor = new RpcBatchExecutor(m -> {
+      // what the worker factory does when it rejects or drops a message
+      RpcBatchExecutor.delivered(m);
+      return true;
+    }, 2, 60, failed::add);
+
+    final long start = System.nanoTime();
+    executor.execute(Arrays.asList(batchedCall("a"), batchedCall("b"), batchedCall("c")));
+
+    assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    assertTrue(failed.isEmpty());
+  }
+
+  private static ErraiServiceConfigurator batchConfigurator(final String dispatcher) {
+    MappingContextSingleton.get();
+
+    final ErraiServiceConfigurator configurator = new ErraiServiceConfiguratorImpl();
+    ErraiConfigAttribs.AUTO_DISCOVER_SERVICES.set(configurator, "false");
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(configurator, "2");
+    ErraiConfigAttribs.ERRAI_DISPATCHER_IMPLEMENTATION.set(configurator, dispatcher);
+    ErraiConfigAttribs.RPC_BATCH_PARALLELISM.set(configurator, "4");
+    return configurator;
+  }
+
+  private static List<String> subscribeRecorder(final ErraiService<?> service, final Set<Long> threads) {
+    final List<String> order = new CopyOnWriteArrayList<String>();
+    service.getBus().subscribe("BatchTestService", message -> {
+      threads.add(Thread.currentThread().getId());
+      try {
+        Thread.sleep(100);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      order.add(message.get(String.class, MessageParts.Value));
+    });
+    return order;
+  }
+
+  private static Message batchedCall(final String value) {
+    return CommandMessage.create().toSubject("BatchTestService")
+        .set(MessageParts.RpcBatch, "1").set(MessageParts.Value, value);
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import org.jboss.errai.bus.server.service.ErraiService;
+
+/**
+ * Runs the {@link ClusteringTests} against buses clustered with the
+ * {@link org.jboss.errai.bus.server.cluster.tcp.TcpClusteringProvider} over loopback.
+ */
+public class TcpClusteringTests extends ClusteringTests {
+  private static final int CLUSTER_SIZE = 3;
+
+  @Override
+  protected ErraiService<?> createInstance(final int portOffset) {
+    return InVMBusUtil.startTcpService(portOffset, CLUSTER_SIZE);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster.tcp;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+
+import org.junit.Test;
+
+public class TcpClusteringProviderTests {
+
+  private static boolean isLocal(final String host, final int port, final InetSocketAddress bindAddress) {
+    return TcpClusteringProvider.isLocalNode(InetSocketAddress.createUnresolved(host, port), bindAddress);
+  }
+
+  @Test
+  public void testMemberOnBindAddressAndPortIsLocal() {
+    final InetSocketAddress bindAddress = new InetSocketAddress("127.0.0.1", 8100);
+
+    assertTrue(isLocal("127.0.0.1", 8100, bindAddress));
+    assertFalse(isLocal("127.0.0.1", 8101, bindAddress));
+  }
+
+  @Test
+  public void testLoopbackMemberIsLocalWhenBoundToWildcardAddress() {
+    final InetSocketAddress bindAddress = new InetSocketAddress("0.0.0.0", 8100);
+
+    assertTrue(isLocal("127.0.0.1", 8100, bindAddress));
+    assertTrue(isLocal("localhost", 8100, bindAddress));
+    assertFalse(isLocal("127.0.0.1", 8101, bindAddress));
+  }
+
+  @Test
+  public void testMemberOnOtherAddressIsNotLocal() {
+    final InetSocketAddress bindAddress = new InetSocketAddress("127.0.0.1", 8100);
+
+    assertFalse(isLocal("127.0.0.2", 8100, bindAddress));
+    assertFalse(isLocal("192.0.2.1", 8100, new InetSocketAddress("0.0.0.0", 8100)));
+  }
+
+  @Test
+  public void testUnresolvableMemberIsNotLocal() {
+    assertFalse(isLocal("no-such-host.invalid", 8100, new InetSocketAddress("0.0.0.0", 8100)));
+  }
+}
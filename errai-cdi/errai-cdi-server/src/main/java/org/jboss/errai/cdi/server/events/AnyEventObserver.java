@@ -20,8 +20,6 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.EventMetadata;
 
-import org.jboss.errai.config.rebind.EnvUtil;
-
 /**
  * Managed bean that observes all server-side events and dispatches them to the
  * connected clients using the {@link EventDispatcher}.
@@ -45,7 +43,7 @@ public class AnyEventObserver {
 
     // Check if the event is a portable Errai CDI event and should be forwarded
     // to all listening clients
-    if (EnvUtil.isPortableType(event.getClass())) {
+    if (eventDispatcher.isPortableType(event.getClass())) {
       eventDispatcher.sendEventToClients(event, emd);
     }
 
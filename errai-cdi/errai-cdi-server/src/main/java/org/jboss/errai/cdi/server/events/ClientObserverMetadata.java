@@ -82,18 +82,19 @@ public class ClientObserverMetadata {
   }
 
   public boolean matches(Object event, EventMetadata emd) {
-    Class<?> actualEventType = event.getClass();
-    Set<String> actualQualifiers = (emd != null) ? CDI
-            .getQualifiersPart(emd.getQualifiers().toArray(new Annotation[0])) : Collections.<String> emptySet();
-
     // The clients subscribe to every supertype and interface type separately
     // which is why checking for equals is enough here. Otherwise, we would have
     // to check for eventType.isAssignableFrom(actualEventType).
-    boolean typeMatches = eventType.equals(actualEventType);
-    boolean qualifiersMatch = qualifiers.isEmpty() || qualifiers.contains(Any.class.getName())
-            || actualQualifiers.containsAll(this.qualifiers);
+    if (!eventType.equals(event.getClass())) {
+      return false;
+    }
+    if (qualifiers.isEmpty() || qualifiers.contains(Any.class.getName())) {
+      return true;
+    }
 
-    return typeMatches && qualifiersMatch;
+    Set<String> actualQualifiers = (emd != null) ? CDI
+            .getQualifiersPart(emd.getQualifiers().toArray(new Annotation[0])) : Collections.<String> emptySet();
+    return actualQualifiers.containsAll(this.qualifiers);
   }
 
   @Override
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.cdi.server.events;
+
+import java.util.Map;
+
+import org.jboss.errai.bus.client.api.HasEncoded;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.marshalling.server.protocol.ErraiProtocolServer;
+
+/**
+ * A CDI event message for a single client session that shares its wire encoding with the messages for all other
+ * sessions observing the same event. The session id only exists for routing (see {@link RoutingMap}) and is not part
+ * of the encoding, so the event is marshalled once, by whichever message is written to a client first, no matter how
+ * many clients observe it.
+ */
+class EncodedEventMessage extends CommandMessage implements HasEncoded {
+  private final Encoding encoding;
+
+  EncodedEventMessage(final Map<String, Object> parts, final Encoding encoding) {
+    super(parts, 0);
+    this.encoding = encoding;
+  }
+
+  @Override
+  public String getEncoded() {
+    return encoding.get();
+  }
+
+  /**
+   * The lazily computed encoding of the parts shared by the messages of one event.
+   */
+  static class Encoding {
+    private final Map<String, Object> parts;
+    private volatile String encoded;
+
+    Encoding(final Map<String, Object> parts) {
+      this.parts = parts;
+    }
+
+    String get() {
+      String value = encoded;
+      if (value == null) {
+        synchronized (this) {
+          value = encoded;
+          if (value == null) {
+            encoded = value = ErraiProtocolServer.encodeProcessedPayload(parts);
+          }
+        }
+      }
+      return value;
+    }
+  }
+}
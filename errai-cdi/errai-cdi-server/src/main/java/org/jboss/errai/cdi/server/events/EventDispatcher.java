@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.EventMetadata;
@@ -69,6 +70,10 @@ public class EventDispatcher implements MessageCallback {
   private final Set<ClientObserverMetadata> clientObservers = Collections
           .newSetFromMap(new ConcurrentHashMap<ClientObserverMetadata, Boolean>());
 
+  private final ConcurrentMap<ObserverKey, List<ObserverMethod<? super Object>>> localObservers =
+          new ConcurrentHashMap<ObserverKey, List<ObserverMethod<? super Object>>>();
+  private final ConcurrentMap<Class<?>, Boolean> portableTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+
   public EventDispatcher(final BeanManager beanManager, final EventRoutingTable eventRoutingTable,
           final MessageBus messageBus, final Set<String> observedEvents, final Map<String, Annotation> eventQualifiers) {
 
@@ -117,25 +122,11 @@ public class EventDispatcher implements MessageCallback {
         final Object o = message.get(Object.class, CDIProtocol.BeanReference);
         try {
           RpcContext.set(message);
+          @SuppressWarnings("unchecked")
           final Set<String> qualifierNames = message.get(Set.class, CDIProtocol.Qualifiers);
-          final List<Annotation> qualifiers = new ArrayList<Annotation>();
-
-          if (qualifierNames != null) {
-            for (final String serializedQualifier : qualifierNames) {
-              final Annotation qualifier = eventQualifiers.get(serializedQualifier);
-              if (qualifier != null) {
-                qualifiers.add(qualifier);
-              }
-            }
-          }
           // Fire event to all local observers
-          final Annotation[] qualArray = qualifiers.toArray(new Annotation[qualifiers.size()]);
-          final Set<ObserverMethod<? super Object>> observerMethods = beanManager.resolveObserverMethods(o, qualArray);
-          for (final ObserverMethod<? super Object> observer : observerMethods) {
-            // Don't mirror the event back to the clients
-            if (!(AnyEventObserver.class.equals(observer.getBeanClass()))) {
-              observer.notify(o);
-            }
+          for (final ObserverMethod<? super Object> observer : getLocalObservers(o, qualifierNames)) {
+            observer.notify(o);
           }
         } finally {
           RpcContext.remove();
@@ -164,6 +155,61 @@ public class EventDispatcher implements MessageCallback {
     }
   }
 
+  /**
+   * Returns the server-side observers of a remote event, excluding the {@link AnyEventObserver} so that the event is
+   * not mirrored back to the clients. The observers of a CDI deployment are fixed once it is validated, so the result
+   * is cached per event type and set of qualifiers for the lifetime of this dispatcher, which is recreated on every
+   * deployment.
+   */
+  List<ObserverMethod<? super Object>> getLocalObservers(final Object event, final Set<String> qualifierNames) {
+    final ObserverKey key = new ObserverKey(event.getClass(), qualifierNames);
+    List<ObserverMethod<? super Object>> observers = localObservers.get(key);
+    if (observers != null) {
+      return observers;
+    }
+
+    final List<Annotation> qualifiers = new ArrayList<Annotation>();
+    boolean cacheable = true;
+    if (qualifierNames != null) {
+      for (final String serializedQualifier : qualifierNames) {
+        final Annotation qualifier = eventQualifiers.get(serializedQualifier);
+        if (qualifier != null) {
+          qualifiers.add(qualifier);
+        }
+        else {
+          // don't let clients grow the cache with made-up qualifiers
+          cacheable = false;
+        }
+      }
+    }
+
+    observers = new ArrayList<ObserverMethod<? super Object>>();
+    final Annotation[] qualArray = qualifiers.toArray(new Annotation[qualifiers.size()]);
+    for (final ObserverMethod<? super Object> observer : beanManager.resolveObserverMethods(event, qualArray)) {
+      if (!(AnyEventObserver.class.equals(observer.getBeanClass()))) {
+        observers.add(observer);
+      }
+    }
+
+    if (cacheable) {
+      localObservers.putIfAbsent(key, observers);
+    }
+    return observers;
+  }
+
+  /**
+   * Checks whether an event fired on the server can be sent to clients. The verdict is cached per event type since
+   * {@link EnvUtil#isPortableType(Class)} goes through the {@link org.jboss.errai.codegen.meta.MetaClassFactory}.
+   */
+  public boolean isPortableType(final Class<?> eventType) {
+    Boolean portable = portableTypes.get(eventType);
+    if (portable == null) {
+      portable = EnvUtil.isPortableType(eventType);
+      portableTypes.putIfAbsent(eventType, portable);
+    }
+    return portable;
+  }
+
   private String getEventTypes() {
     final StringBuilder stringBuilder = new StringBuilder();
     for (final String s : observedEvents) {
@@ -208,8 +254,10 @@ public class EventDispatcher implements MessageCallback {
       messagebus.send(CommandMessage.createWithParts(messageParts));
     }
     else {
+      // all sessions receive the same payload, so the event only needs to be marshalled once
+      final EncodedEventMessage.Encoding encoding = new EncodedEventMessage.Encoding(messageParts);
       for (final String id : eventRoutingTable.getQueueIdsForRoute(eventType.getName(), qualifierTypes)) {
-        messagebus.send(CommandMessage.createWithParts(new RoutingMap(messageParts, id)));
+        messagebus.send(new EncodedEventMessage(new RoutingMap(messageParts, id), encoding));
       }
     }
   }
@@ -222,4 +270,27 @@ public class EventDispatcher implements MessageCallback {
     
     return null;
   }
+
+  private static final class ObserverKey {
+    private final Class<?> eventType;
+    private final Set<String> qualifiers;
+
+    ObserverKey(final Class<?> eventType, final Set<String> qualifiers) {
+      this.eventType = eventType;
+      this.qualifiers = (qualifiers != null) ? qualifiers : Collections.<String> emptySet();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof ObserverKey))
+        return false;
+      final ObserverKey other = (ObserverKey) obj;
+      return eventType.equals(other.eventType) && qualifiers.equals(other.qualifiers);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * eventType.hashCode() + qualifiers.hashCode();
+    }
+  }
 }
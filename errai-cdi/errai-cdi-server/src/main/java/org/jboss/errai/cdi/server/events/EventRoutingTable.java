@@ -22,6 +22,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.errai.bus.client.api.QueueSession;
 import org.jboss.errai.bus.client.api.laundry.Laundry;
@@ -30,139 +32,235 @@ import org.jboss.errai.bus.client.api.laundry.LaundryListProviderFactory;
 
 /**
  * <a href="http://www.youtube.com/watch?v=qBXn9PptgN8">Architectural Overview</a>
+ * <p>
+ * Routes are kept per event type as a map of the qualifiers a client subscribed with to the subscribed sessions. The
+ * set of sessions an event with a given set of qualifiers has to be sent to (the union of all routes whose qualifiers
+ * are a subset) is resolved once and cached until one of the routes it was computed from changes. A reverse index of
+ * the routes activated by each session makes cleaning up after an ended session proportional to the number of routes
+ * of that session. None of the read paths take a lock.
  *
  * @author Mike Brock
  */
 public class EventRoutingTable {
-  private static final String CDI_EVENT_ROUTES_ACTIVE = "cdi.event.routesActive";
+  // type to routes of that type
+  private final ConcurrentMap<String, EventRoutes> activeRoutes = new ConcurrentHashMap<String, EventRoutes>();
 
-  // type to (set<annotations> to set<session ids>)
-  private final Map<String, Map<Set<String>, Set<String>>> activeRoutes
-      = new ConcurrentHashMap<String, Map<Set<String>, Set<String>>>();
-
-  private final Object routeChangeLock = new Object();
-  private final Object sessionChangeLock = new Object();
+  // session id to the routes activated by that session
+  private final ConcurrentMap<String, Set<RouteKey>> sessionRoutes = new ConcurrentHashMap<String, Set<RouteKey>>();
 
   public void activateRoute(final String eventType,
                             final Set<String> annotations,
                             final QueueSession queueSession) {
 
-
-    Map<Set<String>, Set<String>> route = activeRoutes.get(eventType);
-    if (route == null) {
-      synchronized (routeChangeLock) {
-        route = activeRoutes.get(eventType);
-        if (route == null) {
-          activeRoutes.put(eventType, route = new ConcurrentHashMap<Set<String>, Set<String>>());
-        }
+    EventRoutes routes = activeRoutes.get(eventType);
+    if (routes == null) {
+      final EventRoutes newRoutes = new EventRoutes();
+      routes = activeRoutes.putIfAbsent(eventType, newRoutes);
+      if (routes == null) {
+        routes = newRoutes;
       }
     }
 
-    Set<String> sessions = route.get(annotations);
-
-    if (sessions == null) {
-      synchronized (sessionChangeLock) {
-        sessions = route.get(annotations);
-        if (sessions == null) {
-          route.put(annotations, sessions =
-              Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
-        }
-      }
+    final String sessionId = queueSession.getSessionId();
+    if (routes.add(annotations, sessionId)) {
+      getSessionRoutes(queueSession).add(new RouteKey(eventType, annotations));
     }
-
-    sessions.add(queueSession.getSessionId());
-
-    updateLaundry(queueSession);
   }
 
   public void deactivateRoute(final String eventType,
                               final Set<String> annotations,
                               final QueueSession queueSession) {
 
-    final Map<Set<String>, Set<String>> route = activeRoutes.get(eventType);
-    if (route == null) {
+    final EventRoutes routes = activeRoutes.get(eventType);
+    if (routes == null) {
       return;
     }
 
-    final Set<String> sessions = route.get(annotations);
-    if (sessions == null) {
-      for (final Map.Entry<Set<String>, Set<String>> entry : activeRoutes.get(eventType).entrySet()) {
-        if (annotations.containsAll(entry.getKey())) {
-          entry.getValue().remove(queueSession.getSessionId());
-        }
+    final String sessionId = queueSession.getSessionId();
+    final Set<RouteKey> keys = sessionRoutes.get(sessionId);
+    if (routes.hasRoute(annotations)) {
+      routes.remove(annotations, sessionId);
+      if (keys != null) {
+        keys.remove(new RouteKey(eventType, annotations));
       }
     }
     else {
-      sessions.remove(queueSession.getSessionId());
+      for (final Set<String> routeAnnotations : routes.removeCovered(annotations, sessionId)) {
+        if (keys != null) {
+          keys.remove(new RouteKey(eventType, routeAnnotations));
+        }
+      }
     }
   }
 
   public boolean isRouteActive(final String eventType,
                                final Set<String> annotations,
                                final QueueSession queueSession) {
-    final Map<Set<String>, Set<String>> route = activeRoutes.get(eventType);
-    if (route == null) {
-      return false;
-    }
-    final Set<String> sessions = route.get(annotations);
-    final boolean active = sessions != null && sessions.contains(queueSession.getSessionId());
-    return active;
+    final EventRoutes routes = activeRoutes.get(eventType);
+    return routes != null && routes.isActive(annotations, queueSession.getSessionId());
   }
 
   public Collection<String> getQueueIdsForRoute(final String eventType,
                                                 final Set<String> annotations) {
 
-    final Map<Set<String>, Set<String>> route = activeRoutes.get(eventType);
-    if (route == null) {
+    final EventRoutes routes = activeRoutes.get(eventType);
+    if (routes == null) {
       return Collections.emptySet();
     }
+    return routes.resolve(annotations);
+  }
 
-    final Set<String> sessions = route.get(annotations);
-    if (sessions == null) {
-      final Set<String> ids = new HashSet<String>();
-      for (final Map.Entry<Set<String>, Set<String>> entry : activeRoutes.get(eventType).entrySet()) {
-        if (annotations.containsAll(entry.getKey())) {
-          ids.addAll(entry.getValue());
+  void removeAllForId(final String id) {
+    final Set<RouteKey> keys = sessionRoutes.remove(id);
+    if (keys == null) {
+      return;
+    }
+
+    for (final RouteKey key : keys) {
+      final EventRoutes routes = activeRoutes.get(key.eventType);
+      if (routes != null) {
+        routes.remove(key.annotations, id);
+      }
+    }
+  }
+
+  private Set<RouteKey> getSessionRoutes(final QueueSession queueSession) {
+    final String sessionId = queueSession.getSessionId();
+    Set<RouteKey> keys = sessionRoutes.get(sessionId);
+    if (keys == null) {
+      final Set<RouteKey> newKeys = Collections.newSetFromMap(new ConcurrentHashMap<RouteKey, Boolean>());
+      keys = sessionRoutes.putIfAbsent(sessionId, newKeys);
+      if (keys == null) {
+        keys = newKeys;
+        // the first route of this session: make sure it is cleaned up once the session ends
+        final LaundryList laundryList = LaundryListProviderFactory.get().getLaundryList(queueSession);
+        laundryList.add(new Laundry() {
+          @Override
+          public void clean() throws Exception {
+            removeAllForId(sessionId);
+          }
+        });
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * The routes of a single event type.
+   */
+  private static class EventRoutes {
+    // annotations subscribed to -> set<session ids>
+    private final ConcurrentMap<Set<String>, Set<String>> routes = new ConcurrentHashMap<Set<String>, Set<String>>();
+
+    // annotations of a fired event -> immutable set<session ids> of all routes with a subset of these annotations
+    private final ConcurrentMap<Set<String>, Set<String>> resolved = new ConcurrentHashMap<Set<String>, Set<String>>();
+
+    // bumped on every change to the routes, so that a resolution racing with a change is not cached
+    private final AtomicLong version = new AtomicLong();
+
+    boolean add(final Set<String> annotations, final String sessionId) {
+      Set<String> sessions = routes.get(annotations);
+      if (sessions == null) {
+        final Set<String> newSessions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        sessions = routes.putIfAbsent(annotations, newSessions);
+        if (sessions == null) {
+          sessions = newSessions;
         }
       }
 
-      synchronized (sessionChangeLock) {
-        final Map<Set<String>, Set<String>> routeMap = new ConcurrentHashMap<Set<String>, Set<String>>();
-        routeMap.put(annotations, ids);
-        activeRoutes.put(eventType, routeMap);
+      final boolean added = sessions.add(sessionId);
+      if (added) {
+        changed(annotations);
       }
+      return added;
+    }
 
-      return ids;
+    void remove(final Set<String> annotations, final String sessionId) {
+      final Set<String> sessions = routes.get(annotations);
+      if (sessions != null && sessions.remove(sessionId)) {
+        changed(annotations);
+      }
     }
 
-    return sessions;
-  }
+    /**
+     * Removes the session from all routes with a subset of the given annotations and returns the annotations of the
+     * routes it was removed from.
+     */
+    Set<Set<String>> removeCovered(final Set<String> annotations, final String sessionId) {
+      final Set<Set<String>> removed = new HashSet<Set<String>>();
+      for (final Map.Entry<Set<String>, Set<String>> entry : routes.entrySet()) {
+        if (annotations.containsAll(entry.getKey()) && entry.getValue().remove(sessionId)) {
+          changed(entry.getKey());
+          removed.add(entry.getKey());
+        }
+      }
+      return removed;
+    }
+
+    boolean hasRoute(final Set<String> annotations) {
+      return routes.containsKey(annotations);
+    }
+
+    boolean isActive(final Set<String> annotations, final String sessionId) {
+      final Set<String> sessions = routes.get(annotations);
+      return sessions != null && sessions.contains(sessionId);
+    }
+
+    Set<String> resolve(final Set<String> annotations) {
+      Set<String> ids = resolved.get(annotations);
+      if (ids != null) {
+        return ids;
+      }
 
-  private void removeAllForId(final String id) {
-    synchronized (sessionChangeLock) {
-      for (final Map<Set<String>, Set<String>> routeMaps : activeRoutes.values()) {
-        for (final Map.Entry<Set<String>, Set<String>> entry : routeMaps.entrySet()) {
-          entry.getValue().remove(id);
+      final long expected = version.get();
+      final Set<String> union = new HashSet<String>();
+      for (final Map.Entry<Set<String>, Set<String>> entry : routes.entrySet()) {
+        if (annotations.containsAll(entry.getKey())) {
+          union.addAll(entry.getValue());
         }
       }
+      ids = Collections.unmodifiableSet(union);
+
+      resolved.put(annotations, ids);
+      if (version.get() != expected) {
+        resolved.remove(annotations, ids);
+      }
+      return ids;
     }
-  }
 
-  private void updateLaundry(final QueueSession queueSession) {
-    Boolean routesActive = queueSession.getAttribute(Boolean.class, CDI_EVENT_ROUTES_ACTIVE);
-    if (routesActive == null) {
-      synchronized (queueSession) {
-        routesActive = queueSession.getAttribute(Boolean.class, CDI_EVENT_ROUTES_ACTIVE);
-        if (routesActive == null) {
-          final LaundryList laundryList = LaundryListProviderFactory.get().getLaundryList(queueSession);
-          laundryList.add(new Laundry() {
-            @Override
-            public void clean() throws Exception {
-              removeAllForId(queueSession.getSessionId());
-            }
-          });
+    /**
+     * Drops the cached resolutions that included the route with the given annotations.
+     */
+    private void changed(final Set<String> annotations) {
+      version.incrementAndGet();
+      for (final Set<String> eventAnnotations : resolved.keySet()) {
+        if (eventAnnotations.containsAll(annotations)) {
+          resolved.remove(eventAnnotations);
         }
       }
     }
   }
+
+  private static final class RouteKey {
+    private final String eventType;
+    private final Set<String> annotations;
+
+    RouteKey(final String eventType, final Set<String> annotations) {
+      this.eventType = eventType;
+      this.annotations = annotations;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof RouteKey))
+        return false;
+      final RouteKey other = (RouteKey) obj;
+      return eventType.equals(other.eventType) && annotations.equals(other.annotations);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * eventType.hashCode() + annotations.hashCode();
+    }
+  }
 }
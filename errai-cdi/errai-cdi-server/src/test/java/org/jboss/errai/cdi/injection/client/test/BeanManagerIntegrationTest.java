@@ -58,6 +58,7 @@ import org.jboss.errai.cdi.injection.client.qualifier.QualParmAppScopeBeanApples
 import org.jboss.errai.cdi.injection.client.qualifier.QualParmAppScopeBeanOranges;
 import org.jboss.errai.cdi.injection.client.qualifier.QualV;
 import org.jboss.errai.enterprise.client.cdi.AbstractErraiCDITest;
+import org.jboss.errai.ioc.client.QualifierUtil;
 import org.jboss.errai.ioc.client.container.DestructionCallback;
 import org.jboss.errai.ioc.client.container.IOC;
 import org.jboss.errai.ioc.client.container.IOCResolutionException;
@@ -424,6 +425,8 @@ public class BeanManagerIntegrationTest extends AbstractErraiCDITest {
     final SyncBeanManager bm = IOC.getBeanManager();
     assertEquals("The disabled alternative must not be in the bean manager before being programmatically added.", 0,
             bm.lookupBeans(DisabledAlternativeBean.class).size());
+    assertEquals("The disabled alternative must not be in the bean manager before being programmatically added.", 0,
+            bm.lookupBeans(DisabledAlternativeBean.class, QualifierUtil.ANY_ANNOTATION).size());
 
     bm.registerBean(new SyncBeanDef<DisabledAlternativeBean>() {
 
@@ -480,6 +483,8 @@ public class BeanManagerIntegrationTest extends AbstractErraiCDITest {
 
     assertEquals("Failed to lookup programmatically added bean by type.", 1, bm.lookupBeans(DisabledAlternativeBean.class).size());
     assertEquals("Failed to lookup programmatically added bean by name.", 1, bm.lookupBeans("Name of DisabledAlternative").size());
+    assertEquals("Failed to lookup programmatically added bean by type and qualifier after an earlier lookup.", 1,
+            bm.lookupBeans(DisabledAlternativeBean.class, QualifierUtil.ANY_ANNOTATION).size());
   }
 
   public void testLookupByNameDoesNotFindOtherBeansOfSameType() throws Exception {
@@ -1,13 +1,46 @@
 package org.jboss.errai.cdi.server.events;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Default;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+import javax.enterprise.util.AnnotationLiteral;
 
 import org.jboss.errai.bus.server.api.RpcContext;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.enterprise.client.cdi.CDICommands;
+import org.jboss.errai.enterprise.client.cdi.CDIProtocol;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.junit.Before;
 import org.junit.Test;
 
 public class EventDispatcherTest {
+
+  private static final String DEFAULT = Default.class.getName();
+  private static final String ANY = Any.class.getName();
+
+  @SuppressWarnings("serial")
+  private static final Annotation DEFAULT_LITERAL = new AnnotationLiteral<Default>() {};
+  @SuppressWarnings("serial")
+  private static final Annotation ANY_LITERAL = new AnnotationLiteral<Any>() {};
   
   @Before
   public void setup() {
@@ -40,4 +73,125 @@ public class EventDispatcherTest {
     assertNull(convSessionId);
   }
   
+  @Test
+  public void eventIsEncodedOnceForAllSessions() {
+    MappingContextSingleton.get();
+
+    final Map<String, Object> parts = new HashMap<String, Object>();
+    parts.put(MessageParts.ToSubject.name(), "cdi.event:java.lang.String");
+    parts.put(MessageParts.CommandType.name(), CDICommands.CDIEvent.name());
+    parts.put(CDIProtocol.BeanType.name(), String.class.getName());
+    parts.put(CDIProtocol.BeanReference.name(), "hello");
+
+    final EncodedEventMessage.Encoding encoding = new EncodedEventMessage.Encoding(parts);
+    final EncodedEventMessage first = new EncodedEventMessage(new RoutingMap(parts, "session-one"), encoding);
+    final EncodedEventMessage second = new EncodedEventMessage(new RoutingMap(parts, "session-two"), encoding);
+
+    assertEquals("session-one", first.get(String.class, MessageParts.SessionID));
+    assertEquals("session-two", second.get(String.class, MessageParts.SessionID));
+    assertSame(first.getEncoded(), second.getEncoded());
+    assertFalse(first.getEncoded().contains("session-one"));
+  }
+
+  @Test
+  public void localObserversAreResolvedOncePerEventTypeAndQualifiers() {
+    final ObserverBeanManager beanManager = new ObserverBeanManager();
+    final EventDispatcher dispatcher = newDispatcher(beanManager);
+
+    final List<ObserverMethod<? super Object>> observers = dispatcher.getLocalObservers("hello", qualifiers(DEFAULT));
+    assertSame(observers, dispatcher.getLocalObservers("again", qualifiers(DEFAULT)));
+
+    assertEquals(1, beanManager.resolutions.size());
+    assertEquals(Collections.singletonList(beanManager.serverObserver), observers);
+  }
+
+  @Test
+  public void localObserversAreCachedSeparatelyPerQualifierSet() {
+    final ObserverBeanManager beanManager = new ObserverBeanManager();
+    final EventDispatcher dispatcher = newDispatcher(beanManager);
+
+    dispatcher.getLocalObservers("hello", qualifiers(DEFAULT));
+    dispatcher.getLocalObservers("hello", qualifiers(DEFAULT, ANY));
+    dispatcher.getLocalObservers("hello", null);
+    dispatcher.getLocalObservers("hello", qualifiers(DEFAULT, ANY));
+
+    assertEquals(3, beanManager.resolutions.size());
+    assertEquals(new HashSet<Annotation>(Arrays.asList(DEFAULT_LITERAL)), beanManager.resolutions.get(0));
+    assertEquals(new HashSet<Annotation>(Arrays.asList(DEFAULT_LITERAL, ANY_LITERAL)), beanManager.resolutions.get(1));
+    assertEquals(Collections.emptySet(), beanManager.resolutions.get(2));
+  }
+
+  @Test
+  public void localObserversForUnknownQualifiersAreNotCached() {
+    final ObserverBeanManager beanManager = new ObserverBeanManager();
+    final EventDispatcher dispatcher = newDispatcher(beanManager);
+
+    dispatcher.getLocalObservers("hello", qualifiers(DEFAULT, "com.example.MadeUp"));
+    dispatcher.getLocalObservers("hello", qualifiers(DEFAULT, "com.example.MadeUp"));
+
+    assertEquals(2, beanManager.resolutions.size());
+    // the unknown qualifier is dropped from the resolution
+    assertEquals(new HashSet<Annotation>(Arrays.asList(DEFAULT_LITERAL)), beanManager.resolutions.get(0));
+  }
+
+  @Test
+  public void portableTypeVerdict() {
+    final EventDispatcher dispatcher = newDispatcher(new ObserverBeanManager());
+
+    assertTrue(dispatcher.isPortableType(String.class));
+    assertTrue(dispatcher.isPortableType(String.class));
+    assertFalse(dispatcher.isPortableType(EventDispatcherTest.class));
+    assertFalse(dispatcher.isPortableType(EventDispatcherTest.class));
+  }
+
+  private static Set<String> qualifiers(final String... names) {
+    return new LinkedHashSet<String>(Arrays.asList(names));
+  }
+
+  private static EventDispatcher newDispatcher(final ObserverBeanManager beanManager) {
+    final Map<String, Annotation> eventQualifiers = new HashMap<String, Annotation>();
+    eventQualifiers.put(DEFAULT, DEFAULT_LITERAL);
+    eventQualifiers.put(ANY, ANY_LITERAL);
+    return new EventDispatcher(beanManager.asBeanManager(), null, null, Collections.<String> emptySet(), eventQualifiers);
+  }
+
+  /**
+   * A bean manager that knows one server-side observer and the {@link AnyEventObserver}, and records the qualifiers of
+   * every observer resolution.
+   */
+  private static class ObserverBeanManager {
+    private final List<Set<Annotation>> resolutions = new ArrayList<Set<Annotation>>();
+    private final ObserverMethod<?> serverObserver = observerOf(EventDispatcherTest.class);
+    private final ObserverMethod<?> anyEventObserver = observerOf(AnyEventObserver.class);
+
+    private BeanManager asBeanManager() {
+      return (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { BeanManager.class },
+          (proxy, method, args) -> {
+            if (method.getName().equals("resolveObserverMethods")) {
+              resolutions.add(new HashSet<Annotation>(Arrays.asList((Annotation[]) args[1])));
+              return new LinkedHashSet<ObserverMethod<?>>(Arrays.asList(anyEventObserver, serverObserver));
+            }
+            throw new UnsupportedOperationException(method.getName());
+          });
+    }
+
+    private static ObserverMethod<?> observerOf(final Class<?> beanClass) {
+      return (ObserverMethod<?>) Proxy.newProxyInstance(EventDispatcherTest.class.getClassLoader(),
+          new Class<?>[] { ObserverMethod.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "getBeanClass":
+              return beanClass;
+            case "equals":
+              return proxy == args[0];
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "toString":
+              return "observer in " + beanClass.getSimpleName();
+            default:
+              throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+  }
+
 }
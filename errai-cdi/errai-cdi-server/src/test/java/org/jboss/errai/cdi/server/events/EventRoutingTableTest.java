@@ -0,0 +1,86 @@
+package org.jboss.errai.cdi.server.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.junit.Test;
+
+public class EventRoutingTableTest {
+
+  private static final String TYPE = "org.foo.MyEvent";
+
+  private final EventRoutingTable table = new EventRoutingTable();
+
+  @Test
+  public void eventIsRoutedToAllRoutesWithSubsetOfQualifiers() {
+    table.activateRoute(TYPE, qualifiers(), session("a"));
+    table.activateRoute(TYPE, qualifiers("A"), session("b"));
+    table.activateRoute(TYPE, qualifiers("A", "B"), session("c"));
+
+    assertEquals(ids("a"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers())));
+    assertEquals(ids("a", "b"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A"))));
+    assertEquals(ids("a", "b", "c"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A", "B", "C"))));
+    assertTrue(table.getQueueIdsForRoute("org.foo.Other", qualifiers()).isEmpty());
+  }
+
+  @Test
+  public void resolvedRoutesAreUpdatedWhenRoutesChange() {
+    table.activateRoute(TYPE, qualifiers("A"), session("a"));
+    assertEquals(ids("a"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A", "B"))));
+
+    table.activateRoute(TYPE, qualifiers("B"), session("b"));
+    assertEquals(ids("a", "b"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A", "B"))));
+
+    table.deactivateRoute(TYPE, qualifiers("A"), session("a"));
+    assertEquals(ids("b"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A", "B"))));
+    assertFalse(table.isRouteActive(TYPE, qualifiers("A"), session("a")));
+    assertTrue(table.isRouteActive(TYPE, qualifiers("B"), session("b")));
+  }
+
+  @Test
+  public void resolvingUnknownQualifiersKeepsExistingRoutes() {
+    table.activateRoute(TYPE, qualifiers("A"), session("a"));
+    table.getQueueIdsForRoute(TYPE, qualifiers("A", "B"));
+
+    assertTrue(table.isRouteActive(TYPE, qualifiers("A"), session("a")));
+    assertEquals(ids("a"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A"))));
+  }
+
+  @Test
+  public void endedSessionIsRemovedFromAllItsRoutes() {
+    table.activateRoute(TYPE, qualifiers(), session("a"));
+    table.activateRoute(TYPE, qualifiers("A"), session("a"));
+    table.activateRoute("org.foo.Other", qualifiers(), session("a"));
+    table.activateRoute(TYPE, qualifiers(), session("b"));
+    assertEquals(ids("a", "b"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A"))));
+
+    table.removeAllForId("a");
+
+    assertEquals(ids("b"), new HashSet<String>(table.getQueueIdsForRoute(TYPE, qualifiers("A"))));
+    assertTrue(table.getQueueIdsForRoute("org.foo.Other", qualifiers()).isEmpty());
+    assertFalse(table.isRouteActive(TYPE, qualifiers("A"), session("a")));
+  }
+
+  private static Set<String> qualifiers(final String... names) {
+    return new HashSet<String>(Arrays.asList(names));
+  }
+
+  private static Set<String> ids(final String... ids) {
+    return qualifiers(ids);
+  }
+
+  private static QueueSession session(final String id) {
+    return new MockQueueSession() {
+      @Override
+      public String getSessionId() {
+        return id;
+      }
+    };
+  }
+}
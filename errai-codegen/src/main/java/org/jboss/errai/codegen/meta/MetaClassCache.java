@@ -18,6 +18,7 @@ package org.jboss.errai.codegen.meta;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -25,73 +26,196 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import org.jboss.errai.codegen.meta.impl.TypeHierarchyIndex;
 import org.jboss.errai.common.rebind.CacheStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * The cache is organized in generations. A generation is replaced as a whole
+ * by {@link #clear()} and {@link #updateCache(Map)}, which build the next
+ * generation from a copy of the current one and then publish it with a single
+ * volatile write. Readers never lock: they see either the previous or the next
+ * generation, never a partially cleared or updated one. Code that makes several
+ * reads that have to agree with each other (e.g. a generator checking for
+ * changes) should pin the {@link #currentGeneration() current generation} and
+ * read from it.
+ * <p>
+ * Within a generation, types discovered on demand (see
+ * {@link #pushCache(String, MetaClass)}) are added to concurrent maps. A push
+ * that races with the publication of the next generation is repeated against
+ * the published one, and entries pushed to the previous generation while it was
+ * being copied are merged into the next one after publication, so no pushed
+ * entry is lost.
+ *
  * @author Mike Brock
  */
 public class MetaClassCache implements CacheStore {
   private static final Logger logger = LoggerFactory.getLogger(MetaClassCache.class);
 
-  private final Map<String, CacheEntry> PRIMARY_CLASS_CACHE
-      = new ConcurrentHashMap<String, CacheEntry>(2000);
-
   private final Map<String, CacheEntry> PERMANENT_CLASS_CACHE
       = new ConcurrentHashMap<String, CacheEntry>(2000);
 
-  private final Map<String, MetaClass> ERASED_CLASS_CACHE
-      = new ConcurrentHashMap<String, MetaClass>(2000);
+  private volatile Generation generation = new Generation(Collections.<String, CacheEntry>emptyMap());
+
+  /**
+   * The state of the cache between two calls to {@link #clear()} or
+   * {@link #updateCache(Map)}. Reads from a generation are not affected by
+   * later calls to {@link #clear()} or {@link #updateCache(Map)}. A generation
+   * is not frozen, though: types pushed while it is current (see
+   * {@link #pushCache(String, MetaClass)}), including pushes racing with the
+   * publication of the next generation, are still added to it. Such pushes
+   * never replace an entry that is already cached, so a pinned generation can
+   * only gain entries.
+   */
+  public static final class Generation {
+    private final Map<String, CacheEntry> primaryClassCache = new ConcurrentHashMap<String, CacheEntry>(2000);
+    private final Map<String, MetaClass> erasedClassCache = new ConcurrentHashMap<String, MetaClass>(2000);
+
+    private final Set<String> invalidated =  Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<MetaClass> added = Collections.newSetFromMap(new ConcurrentHashMap<MetaClass, Boolean>());
+    private final Set<String> removed =  Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * The primary cache of the generation before the last {@link #clear()}. Never modified.
+     */
+    private final Map<String, CacheEntry> backupClassCache;
+    private final TypeHierarchyIndex typeHierarchyIndex = new TypeHierarchyIndex();
+
+    private Generation(final Map<String, CacheEntry> backupClassCache) {
+      this.backupClassCache = backupClassCache;
+    }
 
-  private final Set<String> invalidated =  Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
-  private final Set<MetaClass> added = Collections.newSetFromMap(new ConcurrentHashMap<MetaClass, Boolean>());
-  private final Set<String> removed =  Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
-  private final Map<String, CacheEntry> backupClassCache = new ConcurrentHashMap<String, MetaClassCache.CacheEntry>();
+    /**
+     * @return A new generation with the same contents but an empty type hierarchy index.
+     */
+    private Generation copy() {
+      final Generation copy = new Generation(backupClassCache);
+      copy.mergeFrom(this);
 
-  @Override
-  public void clear() {
-    backupClassCache.clear();
-    backupClassCache.putAll(PRIMARY_CLASS_CACHE);
+      return copy;
+    }
+
+    /**
+     * Adds the entries of the given generation that this generation doesn't have yet.
+     */
+    private void mergeFrom(final Generation other) {
+      for (final Entry<String, CacheEntry> entry : other.primaryClassCache.entrySet()) {
+        primaryClassCache.putIfAbsent(entry.getKey(), entry.getValue());
+      }
+      for (final Entry<String, MetaClass> entry : other.erasedClassCache.entrySet()) {
+        erasedClassCache.putIfAbsent(entry.getKey(), entry.getValue());
+      }
+      invalidated.addAll(other.invalidated);
+      added.addAll(other.added);
+      removed.addAll(other.removed);
+    }
+
+    public MetaClass get(final String fqcn) {
+      final CacheEntry entry = primaryClassCache.get(fqcn);
+      return (entry != null) ? entry.cachedClass : null;
+    }
+
+    public Collection<MetaClass> getAllCached() {
+      return primaryClassCache.values().stream().filter(c -> c != null).map(c -> c.cachedClass).collect(Collectors.toList());
+    }
+
+    public Collection<MetaClass> getAllNewOrUpdated() {
+      return invalidated.stream().map(fcqn -> primaryClassCache.get(fcqn).cachedClass).collect(Collectors.toList());
+    }
+
+    public Set<String> getAllDeletedClasses() {
+      return Collections.unmodifiableSet(removed);
+    }
+
+    public Set<MetaClass> getAllNewClasses() {
+      return Collections.unmodifiableSet(added);
+    }
+
+    public boolean isKnownErasedType(final String fqcn) {
+      return erasedClassCache.containsKey(fqcn);
+    }
 
-    invalidated.clear();
-    removed.clear();
-    added.clear();
+    public MetaClass getErased(final String fqcn) {
+      return erasedClassCache.get(fqcn);
+    }
+
+    /**
+     * @return The index of the type hierarchy for the contents of this generation.
+     */
+    public TypeHierarchyIndex getTypeHierarchyIndex() {
+      return typeHierarchyIndex;
+    }
 
-    PRIMARY_CLASS_CACHE.clear();
-    ERASED_CLASS_CACHE.clear();
+    public int size() {
+      return primaryClassCache.size();
+    }
+
+    public boolean isKnownType(final String fqcn) {
+      return primaryClassCache.containsKey(fqcn);
+    }
 
-    PRIMARY_CLASS_CACHE.putAll(PERMANENT_CLASS_CACHE);
+    public boolean isNewOrUpdated(final String fqcn) {
+      return invalidated.contains(fqcn);
+    }
+
+    public boolean hasAnyChanges() {
+      return !invalidated.isEmpty() || !removed.isEmpty();
+    }
   }
 
-  public void updateCache(Map<String, MetaClass> mapToPush) {
-    logger.debug("updateCache called for " + mapToPush.size() + " MetaClasses.");
-    addNewOrUpdatedToInvalidated(mapToPush);
-    addRemoved();
+  /**
+   * @return The current generation of this cache. It keeps its contents when
+   *         the cache is cleared or updated later on, but may still gain
+   *         entries from concurrent pushes.
+   */
+  public Generation currentGeneration() {
+    return generation;
+  }
+
+  @Override
+  public synchronized void clear() {
+    final Generation next = new Generation(Collections.unmodifiableMap(new HashMap<String, CacheEntry>(generation.primaryClassCache)));
+    next.primaryClassCache.putAll(PERMANENT_CLASS_CACHE);
+    generation = next;
+    // permanent entries added while the next generation was being built
+    for (final Entry<String, CacheEntry> entry : PERMANENT_CLASS_CACHE.entrySet()) {
+      next.primaryClassCache.putIfAbsent(entry.getKey(), entry.getValue());
+    }
   }
 
-  private void addRemoved() {
-    final Set<String> oldKeys = new HashSet<String>(backupClassCache.keySet());
-    oldKeys.removeAll(PRIMARY_CLASS_CACHE.keySet());
+  public synchronized void updateCache(Map<String, MetaClass> mapToPush) {
+    logger.debug("updateCache called for " + mapToPush.size() + " MetaClasses.");
+    final Generation previous = generation;
+    final Generation next = previous.copy();
+    addNewOrUpdatedToInvalidated(next, mapToPush);
+    addRemoved(next);
+    generation = next;
+    // entries pushed to the previous generation while it was being copied
+    next.mergeFrom(previous);
+  }
+  private static void addRemoved(final Generation next) {
+    final Set<String> oldKeys = new HashSet<String>(next.backupClassCache.keySet());
+    oldKeys.removeAll(next.primaryClassCache.keySet());
 
     for (final String clazzName : oldKeys) {
-      if (backupClassCache.get(clazzName).hashCode != CacheEntry.PLACE_HOLDER)
-        removed.add(clazzName);
+      if (next.backupClassCache.get(clazzName).hashCode != CacheEntry.PLACE_HOLDER)
+        next.removed.add(clazzName);
     }
   }
 
-  private void addNewOrUpdatedToInvalidated(Map<String, MetaClass> mapToPush) {
+  private static void addNewOrUpdatedToInvalidated(final Generation next, Map<String, MetaClass> mapToPush) {
     for (final Entry<String, MetaClass> entry : mapToPush.entrySet()) {
       logger.trace("Creating new " + entry.getValue().getClass().getSimpleName() + " cache entry for " + entry.getKey());
       final CacheEntry newCacheEntry = createCacheEntry(entry.getValue());
-      PRIMARY_CLASS_CACHE.put(entry.getKey(), newCacheEntry);
-      final CacheEntry previousCacheEntry = backupClassCache.get(entry.getKey());
+      next.primaryClassCache.put(entry.getKey(), newCacheEntry);
+      final CacheEntry previousCacheEntry = next.backupClassCache.get(entry.getKey());
       if (previousCacheEntry == null || previousCacheEntry.hashCode != newCacheEntry.hashCode) {
         logger.trace("Old cache entry replaced for " + entry.getKey());
-        invalidated.add(entry.getKey());
+        next.invalidated.add(entry.getKey());
 
         if (previousCacheEntry == null) {
-          added.add(entry.getValue());
+          next.added.add(entry.getValue());
         }
       }
     }
@@ -102,13 +226,22 @@ public class MetaClassCache implements CacheStore {
   }
 
   public void pushCache(final String fqcn, final MetaClass clazz) {
+    Generation current;
+    do {
+      current = generation;
+      pushCache(current, fqcn, clazz);
+    } while (current != generation);
+  }
+
+  private static CacheEntry pushCache(final Generation current, final String fqcn, final MetaClass clazz) {
     logger.trace("Creating new " + clazz.getClass().getSimpleName() + " cache entry for " + fqcn);
-    if (!PRIMARY_CLASS_CACHE.containsKey(fqcn)) {
-      PRIMARY_CLASS_CACHE.put(fqcn, new CacheEntry(clazz, CacheEntry.PLACE_HOLDER));
-      if (!backupClassCache.containsKey(clazz.getFullyQualifiedName())) {
-        invalidated.add(fqcn);
-      }
+    final CacheEntry newEntry = new CacheEntry(clazz, CacheEntry.PLACE_HOLDER);
+    final CacheEntry existing = current.primaryClassCache.putIfAbsent(fqcn, newEntry);
+    if (existing == null && !current.backupClassCache.containsKey(clazz.getFullyQualifiedName())) {
+      current.invalidated.add(fqcn);
     }
+
+    return (existing != null) ? existing : newEntry;
   }
 
   public void pushToPermanentCache(final MetaClass clazz) {
@@ -117,57 +250,71 @@ public class MetaClassCache implements CacheStore {
 
   public void pushToPermanentCache(final String fullyQualifiedName, final MetaClass clazz) {
     logger.trace("Creating new permanent " + clazz.getClass().getSimpleName() + " cache entry for " + fullyQualifiedName);
-    pushCache(fullyQualifiedName, clazz);
-    PERMANENT_CLASS_CACHE.put(fullyQualifiedName, PRIMARY_CLASS_CACHE.get(fullyQualifiedName));
+    Generation current;
+    do {
+      current = generation;
+      PERMANENT_CLASS_CACHE.put(fullyQualifiedName, pushCache(current, fullyQualifiedName, clazz));
+    } while (current != generation);
   }
 
   public MetaClass get(String fqcn) {
-    final CacheEntry entry = PRIMARY_CLASS_CACHE.get(fqcn);
-    return (entry != null) ? entry.cachedClass : null;
+    return generation.get(fqcn);
   }
 
   public Collection<MetaClass> getAllCached() {
-    return PRIMARY_CLASS_CACHE.values().stream().filter(c -> c != null).map(c -> c.cachedClass).collect(Collectors.toList());
+    return generation.getAllCached();
   }
 
   public Collection<MetaClass> getAllNewOrUpdated() {
-    return invalidated.stream().map(fcqn -> PRIMARY_CLASS_CACHE.get(fcqn).cachedClass).collect(Collectors.toList());
+    return generation.getAllNewOrUpdated();
   }
 
   public Set<String> getAllDeletedClasses() {
-    return Collections.unmodifiableSet(removed);
+    return generation.getAllDeletedClasses();
   }
 
   public Set<MetaClass> getAllNewClasses() {
-    return Collections.unmodifiableSet(added);
+    return generation.getAllNewClasses();
   }
 
   public boolean isKnownErasedType(final String fqcn) {
-    return ERASED_CLASS_CACHE.containsKey(fqcn);
+    return generation.isKnownErasedType(fqcn);
   }
 
   public MetaClass getErased(final String fqcn) {
-    return ERASED_CLASS_CACHE.get(fqcn);
+    return generation.getErased(fqcn);
   }
 
   public void pushErasedCache(final String fqcn, final MetaClass clazz) {
     logger.trace("Creating new " + clazz.getClass().getSimpleName() + " cache entry for " + fqcn);
-    ERASED_CLASS_CACHE.put(fqcn, clazz);
+    Generation current;
+    do {
+      current = generation;
+      current.erasedClassCache.put(fqcn, clazz);
+    } while (current != generation);
+  }
+
+  /**
+   * @return The index of the type hierarchy for the current contents of this
+   *         cache. Replaced whenever this cache is cleared or updated.
+   */
+  public TypeHierarchyIndex getTypeHierarchyIndex() {
+    return generation.getTypeHierarchyIndex();
   }
 
   public int size() {
-    return PRIMARY_CLASS_CACHE.size();
+    return generation.size();
   }
 
   public boolean isKnownType(String fqcn) {
-    return PRIMARY_CLASS_CACHE.containsKey(fqcn);
+    return generation.isKnownType(fqcn);
   }
 
   public boolean isNewOrUpdated(String fqcn) {
-    return invalidated.contains(fqcn);
+    return generation.isNewOrUpdated(fqcn);
   }
 
-  private class CacheEntry {
+  private static class CacheEntry {
     final MetaClass cachedClass;
     final int hashCode;
 
@@ -179,7 +326,7 @@ public class MetaClassCache implements CacheStore {
     }
   }
 
-  private CacheEntry createCacheEntry(final MetaClass cachedClass) {
+  private static CacheEntry createCacheEntry(final MetaClass cachedClass) {
     return new CacheEntry(cachedClass, cachedClass.hashContent());
   }
 
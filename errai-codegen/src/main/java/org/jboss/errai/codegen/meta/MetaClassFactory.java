@@ -610,7 +610,8 @@ public final class MetaClassFactory {
   }
 
   public static boolean isChangedOrDeleted(final String fqcn) {
-    return getMetaClassCache().getAllDeletedClasses().contains(fqcn) || getMetaClassCache().isNewOrUpdated(fqcn);
+    final MetaClassCache.Generation generation = getMetaClassCache().currentGeneration();
+    return generation.getAllDeletedClasses().contains(fqcn) || generation.isNewOrUpdated(fqcn);
   }
 
   public static Set<String> getAllDeletedClasses() {
@@ -626,6 +627,6 @@ public final class MetaClassFactory {
   }
 
   public static boolean hasAnyChanges() {
-    return !getAllNewOrUpdatedClasses().isEmpty() || !getAllDeletedClasses().isEmpty();
+    return getMetaClassCache().currentGeneration().hasAnyChanges();
   }
 }
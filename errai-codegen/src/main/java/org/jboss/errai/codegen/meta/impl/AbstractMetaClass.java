@@ -56,17 +56,21 @@ import org.mvel2.util.ReflectionUtil;
 public abstract class AbstractMetaClass<T> extends MetaClass {
   private static final MetaClass NULL_TYPE = MetaClassFactory.get(NullType.class);
 
+  /*
+   * These caches are filled without locking. Computing a value twice is harmless, and the volatile writes publish
+   * complete values to other generator threads.
+   */
   protected volatile transient Class<?> _asClassCache;
   private volatile transient MetaClass _boxedCache;
   private volatile transient MetaClass _unboxedCache;
   private volatile transient Boolean _isPrimitiveWrapper;
   private volatile transient String _internalNameCache;
   private volatile transient MetaClass _outerComponentCache;
+  private volatile transient Collection<MetaClass> _allSuperTypesAndInterfacesCache;
 
   private final T enclosedMetaObject;
   protected MetaParameterizedType parameterizedType;
   protected MetaParameterizedType genericSuperClass;
-  private final Map<MetaClass, Boolean> ASSIGNABLE_CACHE = new HashMap<>();
   private MetaMethod[] staticMethodCache;
 
   protected AbstractMetaClass(final T enclosedMetaObject) {
@@ -471,12 +475,6 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
 
   @Override
   public boolean isAssignableFrom(final MetaClass clazz) {
-    Boolean assignable = ASSIGNABLE_CACHE.get(clazz);
-    if (assignable != null) {
-      return assignable;
-    }
-
-    // XXX not sure if this is uncached on purpose.
     // FIXME there are no tests or documentation for this case
     if (!isPrimitive() && NULL_TYPE.equals(clazz))
       return true;
@@ -486,22 +484,23 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
           && getArrayDimensions(this) == getArrayDimensions(clazz);
     }
 
-    final MetaClass sup;
-
     if (getFullyQualifiedName().equals(Object.class.getName())) {
-      assignable = true;
+      return true;
     }
     else if (this.getFullyQualifiedName().equals(clazz.getFullyQualifiedName())) {
-      assignable = true;
+      return true;
     }
-    else if (isInterface() && _hasInterface(clazz.getInterfaces(), this.getErased())) {
-      assignable = true;
+    else {
+      return MetaClassFactory.getMetaClassCache().getTypeHierarchyIndex().isAssignable(this, clazz);
     }
-    else
-      assignable = (sup = clazz.getSuperClass()) != null && isAssignableFrom(sup);
+  }
 
-    ASSIGNABLE_CACHE.put(clazz, assignable);
-    return assignable;
+  /**
+   * @return True if the super class and interfaces of this type can no longer
+   *         change, so that they may be cached.
+   */
+  protected boolean isHierarchyFixed() {
+    return true;
   }
 
   @Override
@@ -523,17 +522,6 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
     return clazz.isAssignableFrom(this);
   }
 
-  private static boolean _hasInterface(final MetaClass[] from, final MetaClass to) {
-    for (final MetaClass interfaceType : from) {
-      if (to.getFullyQualifiedName().equals(interfaceType.getErased().getFullyQualifiedName()))
-        return true;
-      else if (_hasInterface(interfaceType.getInterfaces(), to))
-        return true;
-    }
-
-    return false;
-  }
-
   @Override
   public boolean isAssignableFrom(final Class clazz) {
     return isAssignableFrom(MetaClassFactory.get(clazz));
@@ -565,10 +553,19 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
 
   @Override
   public Collection<MetaClass> getAllSuperTypesAndInterfaces() {
+    if (_allSuperTypesAndInterfacesCache != null) {
+      return _allSuperTypesAndInterfacesCache;
+    }
+
     final Collection<MetaClass> supersAndIfaces = new LinkedHashSet<>();
     addSuperTypesAndInterfaces(this, supersAndIfaces);
 
-    return supersAndIfaces;
+    if (isHierarchyFixed()) {
+      return _allSuperTypesAndInterfacesCache = Collections.unmodifiableCollection(supersAndIfaces);
+    }
+    else {
+      return supersAndIfaces;
+    }
   }
 
   private static void addInterfaces(final MetaClass metaClass, final Collection<MetaClass> supersAndIfaces) {
@@ -589,7 +586,7 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
   }
 
   @Override
-  public synchronized Class<?> asClass() {
+  public Class<?> asClass() {
     if (_asClassCache != null) {
       return _asClassCache;
     }
@@ -625,26 +622,26 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
   }
 
   @Override
-  public synchronized MetaClass asBoxed() {
+  public MetaClass asBoxed() {
     if (_boxedCache != null)
       return _boxedCache;
     return _boxedCache = GenUtil.getPrimitiveWrapper(this);
   }
 
   @Override
-  public synchronized MetaClass asUnboxed() {
+  public MetaClass asUnboxed() {
     if (_unboxedCache != null)
       return _unboxedCache;
     return _unboxedCache = GenUtil.getUnboxedFromWrapper(this);
   }
 
   @Override
-  public synchronized boolean isPrimitiveWrapper() {
+  public boolean isPrimitiveWrapper() {
     return _isPrimitiveWrapper != null ? _isPrimitiveWrapper : (_isPrimitiveWrapper = GenUtil.isPrimitiveWrapper(this));
   }
 
   @Override
-  public synchronized String getInternalName() {
+  public String getInternalName() {
     if (_internalNameCache != null)
       return _internalNameCache;
 
@@ -772,7 +769,7 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
   }
 
   @Override
-  public synchronized MetaClass getOuterComponentType() {
+  public MetaClass getOuterComponentType() {
     if (_outerComponentCache != null)
       return _outerComponentCache;
 
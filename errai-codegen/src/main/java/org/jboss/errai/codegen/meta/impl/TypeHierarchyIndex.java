@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.codegen.meta.impl;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassCache;
+
+/**
+ * An index of the type hierarchy of all {@link MetaClass MetaClasses} queried
+ * in one generation of the {@link MetaClassCache}. Every erased type name is
+ * assigned a dense id, and every type stores the ids of itself, its super
+ * classes, and all of its interfaces in a {@link BitSet}, so that
+ * assignability is a single bit test once both types have been indexed.
+ * <p>
+ * Types are indexed lazily the first time they are queried. Indexed entries
+ * are never modified, so the index can be shared by concurrent generators. A
+ * new index is created whenever the {@link MetaClassCache} is cleared or
+ * updated.
+ */
+public final class TypeHierarchyIndex {
+
+  private final Map<String, Integer> idsByTypeName = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final Map<String, BitSet> supertypesByTypeName = new ConcurrentHashMap<>();
+
+  /**
+   * @return True iff a value of type {@code from} can be assigned to type
+   *         {@code to}, ignoring type parameters.
+   */
+  public boolean isAssignable(final MetaClass to, final MetaClass from) {
+    return getSupertypeIds(from).get(getId(to));
+  }
+
+  private int getId(final MetaClass type) {
+    return idsByTypeName.computeIfAbsent(type.getFullyQualifiedName(), name -> nextId.getAndIncrement());
+  }
+
+  private BitSet getSupertypeIds(final MetaClass type) {
+    final String name = type.getFullyQualifiedName();
+    final BitSet cached = supertypesByTypeName.get(name);
+    if (cached != null) {
+      return cached;
+    }
+
+    final BitSet supertypeIds = new BitSet();
+    supertypeIds.set(getId(type));
+    // Only store the supertypes if none of them can still change.
+    boolean indexable = isIndexable(type);
+    final MetaClass superClass = type.getSuperClass();
+    if (superClass != null) {
+      supertypeIds.or(getSupertypeIds(superClass));
+      indexable &= supertypesByTypeName.containsKey(superClass.getFullyQualifiedName());
+    }
+    for (final MetaClass iface : type.getInterfaces()) {
+      final MetaClass erasedIface = iface.getErased();
+      supertypeIds.or(getSupertypeIds(erasedIface));
+      indexable &= supertypesByTypeName.containsKey(erasedIface.getFullyQualifiedName());
+    }
+
+    if (indexable) {
+      final BitSet existing = supertypesByTypeName.putIfAbsent(name, supertypeIds);
+      return (existing != null ? existing : supertypeIds);
+    }
+    else {
+      return supertypeIds;
+    }
+  }
+
+  private static boolean isIndexable(final MetaClass type) {
+    return !(type instanceof AbstractMetaClass) || ((AbstractMetaClass<?>) type).isHierarchyFixed();
+  }
+
+}
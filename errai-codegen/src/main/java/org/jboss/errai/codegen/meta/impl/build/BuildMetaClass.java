@@ -296,6 +296,11 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
     return superClass;
   }
 
+  @Override
+  protected boolean isHierarchyFixed() {
+    return false;
+  }
+
   @Override
   public MetaClass getComponentType() {
     if (isArray) {
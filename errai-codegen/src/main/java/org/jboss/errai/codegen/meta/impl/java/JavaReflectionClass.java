@@ -27,12 +27,12 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.util.TypeLiteral;
 
@@ -46,7 +46,7 @@ import org.jboss.errai.codegen.meta.impl.AbstractMetaClass;
 import org.jboss.errai.codegen.util.GenUtil;
 
 public class JavaReflectionClass extends AbstractMetaClass<Class> {
-  private Annotation[] _annotationsCache;
+  private volatile Annotation[] _annotationsCache;
 
   protected JavaReflectionClass(final Class clazz, final boolean erased) {
     this(clazz, null, erased);
@@ -372,7 +372,7 @@ public class JavaReflectionClass extends AbstractMetaClass<Class> {
   }
 
   @Override
-  public synchronized Annotation[] getAnnotations() {
+  public Annotation[] getAnnotations() {
     if (_annotationsCache == null) {
       _annotationsCache = getEnclosedMetaObject().getAnnotations();
     }
@@ -455,7 +455,7 @@ public class JavaReflectionClass extends AbstractMetaClass<Class> {
     return getEnclosedMetaObject().isAnonymousClass();
   }
 
-  private final Map<Integer, MetaClass> _arrayTypeCache = new HashMap<>();
+  private final Map<Integer, MetaClass> _arrayTypeCache = new ConcurrentHashMap<>();
 
   @Override
   public MetaClass asArrayOf(final int dimensions) {
@@ -101,7 +101,7 @@ public class JavaReflectionMethod extends MetaMethod {
   private volatile Annotation[] _annotationsCache;
 
   @Override
-  public synchronized Annotation[] getAnnotations() {
+  public Annotation[] getAnnotations() {
     if (_annotationsCache != null)
       return _annotationsCache;
     return _annotationsCache = method.getAnnotations();
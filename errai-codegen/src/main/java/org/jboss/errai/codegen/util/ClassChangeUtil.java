@@ -20,6 +20,7 @@ import org.eclipse.jdt.core.compiler.CompilationProgress;
 import org.eclipse.jdt.core.compiler.batch.BatchCompiler;
 import org.jboss.errai.common.metadata.ErraiAppPropertiesFiles;
 import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.slf4j.Logger;
 
 import javax.tools.JavaCompiler;
@@ -156,7 +157,7 @@ public class ClassChangeUtil {
                                     final String className,
                                     final String outputPath) {
 
-    try {
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("compile", ClassChangeUtil.class.getName())) {
 
       final ByteArrayOutputStream errorOutputStream = new ByteArrayOutputStream();
       final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
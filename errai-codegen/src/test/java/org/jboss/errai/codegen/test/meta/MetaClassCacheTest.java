@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.codegen.test.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassCache;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.codegen.meta.impl.TypeHierarchyIndex;
+import org.jboss.errai.codegen.test.model.tree.Child;
+import org.jboss.errai.codegen.test.model.tree.Parent;
+import org.junit.Test;
+
+/**
+ * Tests for the generations of {@link MetaClassCache}.
+ */
+public class MetaClassCacheTest {
+
+  private final MetaClassCache cache = new MetaClassCache();
+  private final MetaClass child = MetaClassFactory.get(Child.class);
+  private final MetaClass parent = MetaClassFactory.get(Parent.class);
+
+  @Test
+  public void clearKeepsPermanentEntriesAndForgetsOthers() throws Exception {
+    cache.pushToPermanentCache(parent);
+    cache.pushCache(child);
+    assertTrue(cache.isNewOrUpdated(child.getFullyQualifiedName()));
+
+    cache.clear();
+
+    assertSame(parent, cache.get(parent.getFullyQualifiedName()));
+    assertNull(cache.get(child.getFullyQualifiedName()));
+    assertFalse(cache.isNewOrUpdated(parent.getFullyQualifiedName()));
+  }
+
+  @Test
+  public void updateCacheRecordsNewUpdatedAndRemovedTypesAgainstPreviousGeneration() throws Exception {
+    cache.updateCache(Collections.singletonMap(parent.getFullyQualifiedName(), parent));
+    cache.updateCache(Collections.singletonMap(child.getFullyQualifiedName(), child));
+    cache.clear();
+
+    final TypeHierarchyIndex indexBeforeUpdate = cache.getTypeHierarchyIndex();
+    cache.updateCache(Collections.singletonMap(child.getFullyQualifiedName(), child));
+
+    assertNotSame(indexBeforeUpdate, cache.getTypeHierarchyIndex());
+    assertFalse(cache.isNewOrUpdated(child.getFullyQualifiedName()));
+    assertTrue(cache.getAllNewClasses().isEmpty());
+    assertEquals(Collections.singleton(parent.getFullyQualifiedName()), cache.getAllDeletedClasses());
+  }
+
+  @Test
+  public void readersNeverObserveAPartiallyClearedCache() throws Exception {
+    cache.pushToPermanentCache(parent);
+    final AtomicBoolean done = new AtomicBoolean();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Boolean> reader = executor.submit(() -> {
+        while (!done.get()) {
+          if (cache.get(parent.getFullyQualifiedName()) == null) {
+            return false;
+          }
+        }
+        return true;
+      });
+      final Future<?> writer = executor.submit(() -> {
+        for (int i = 0; i < 10000; i++) {
+          cache.pushCache(child);
+          cache.clear();
+        }
+        done.set(true);
+      });
+
+      writer.get(30, TimeUnit.SECONDS);
+      assertTrue("Permanent entry was missing during clear()", reader.get(30, TimeUnit.SECONDS));
+    } finally {
+      done.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void pinnedGenerationIsNotAffectedByLaterUpdates() throws Exception {
+    cache.pushCache(child);
+    final MetaClassCache.Generation pinned = cache.currentGeneration();
+
+    cache.clear();
+    cache.updateCache(Collections.singletonMap(parent.getFullyQualifiedName(), parent));
+
+    assertSame(child, pinned.get(child.getFullyQualifiedName()));
+    assertTrue(pinned.isNewOrUpdated(child.getFullyQualifiedName()));
+    assertNull(pinned.get(parent.getFullyQualifiedName()));
+    assertNull(cache.get(child.getFullyQualifiedName()));
+    assertSame(parent, cache.get(parent.getFullyQualifiedName()));
+  }
+
+  @Test
+  public void pinnedGenerationGainsEntriesPushedWhileCurrent() throws Exception {
+    final MetaClassCache.Generation pinned = cache.currentGeneration();
+
+    cache.pushCache(child);
+
+    assertSame(child, pinned.get(child.getFullyQualifiedName()));
+  }
+
+  @Test
+  public void pushesRacingUpdatesAreNotLost() throws Exception {
+    final AtomicBoolean done = new AtomicBoolean();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<?> updater = executor.submit(() -> {
+        while (!done.get()) {
+          cache.updateCache(Collections.singletonMap(parent.getFullyQualifiedName(), parent));
+        }
+      });
+      final Future<?> pusher = executor.submit(() -> {
+        for (int i = 0; i < 10000; i++) {
+          cache.pushCache("pushed" + i, child);
+          cache.pushToPermanentCache("permanent" + i, child);
+        }
+        done.set(true);
+      });
+
+      pusher.get(30, TimeUnit.SECONDS);
+      updater.get(30, TimeUnit.SECONDS);
+      for (int i = 0; i < 10000; i++) {
+        assertTrue("Lost pushed entry " + i, cache.isKnownType("pushed" + i));
+        assertTrue("Lost permanent entry " + i, cache.isKnownType("permanent" + i));
+      }
+    } finally {
+      done.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void permanentPushesRacingClearAreNotLost() throws Exception {
+    final AtomicBoolean done = new AtomicBoolean();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<?> clearer = executor.submit(() -> {
+        while (!done.get()) {
+          cache.clear();
+        }
+      });
+      final Future<?> pusher = executor.submit(() -> {
+        for (int i = 0; i < 10000; i++) {
+          cache.pushToPermanentCache("permanent" + i, child);
+        }
+        done.set(true);
+      });
+
+      pusher.get(30, TimeUnit.SECONDS);
+      clearer.get(30, TimeUnit.SECONDS);
+      for (int i = 0; i < 10000; i++) {
+        assertTrue("Lost permanent entry " + i, cache.isKnownType("permanent" + i));
+      }
+    } finally {
+      done.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.codegen.test.meta;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.codegen.meta.impl.TypeHierarchyIndex;
+import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
+import org.jboss.errai.codegen.test.model.tree.Child;
+import org.jboss.errai.codegen.test.model.tree.Grandparent;
+import org.jboss.errai.codegen.test.model.tree.GrandparentSuperInterface;
+import org.jboss.errai.codegen.test.model.tree.IsolatedInterface;
+import org.jboss.errai.codegen.test.model.tree.Parent;
+import org.jboss.errai.codegen.test.model.tree.ParentSuperInterface2;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TypeHierarchyIndex}.
+ */
+public class TypeHierarchyIndexTest {
+
+  private final TypeHierarchyIndex index = new TypeHierarchyIndex();
+
+  @Test
+  public void superClassesAndInterfacesAreAssignableFromSubType() throws Exception {
+    final MetaClass child = MetaClassFactory.get(Child.class);
+
+    assertTrue(index.isAssignable(child, child));
+    assertTrue(index.isAssignable(MetaClassFactory.get(Parent.class), child));
+    assertTrue(index.isAssignable(MetaClassFactory.get(Grandparent.class), child));
+    assertTrue(index.isAssignable(MetaClassFactory.get(ParentSuperInterface2.class), child));
+    assertTrue(index.isAssignable(MetaClassFactory.get(GrandparentSuperInterface.class), child));
+  }
+
+  @Test
+  public void unrelatedTypesAndSubTypesAreNotAssignable() throws Exception {
+    final MetaClass child = MetaClassFactory.get(Child.class);
+    final MetaClass parent = MetaClassFactory.get(Parent.class);
+
+    assertFalse(index.isAssignable(child, parent));
+    assertFalse(index.isAssignable(MetaClassFactory.get(IsolatedInterface.class), child));
+  }
+
+  @Test
+  public void changesToBuildMetaClassHierarchyAreSeen() throws Exception {
+    final BuildMetaClass built = ClassBuilder.define("org.foo.Built", Parent.class).publicScope().body().getClassDefinition();
+    final MetaClass isolated = MetaClassFactory.get(IsolatedInterface.class);
+    assertTrue(index.isAssignable(MetaClassFactory.get(Grandparent.class), built));
+    assertFalse(index.isAssignable(isolated, built));
+
+    built.addInterface(isolated);
+
+    assertTrue(index.isAssignable(isolated, built));
+  }
+
+}
@@ -115,6 +115,12 @@ public enum MessageParts {
    */
   PriorityProcessing,
 
+  /**
+   * Identifies the {@link org.jboss.errai.common.client.framework.RpcBatch} an RPC request was sent with. Consecutive
+   * requests of the same batch are independent of each other, so the server may execute them in parallel.
+   */
+  RpcBatch,
+
 
   /**
    * Used mainly for web sockets to negotiate which session the web socket is associated with.
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import org.jboss.errai.common.rebind.CacheStore;
 import org.jboss.errai.common.rebind.CacheUtil;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.jboss.errai.reflections.Configuration;
 import org.jboss.errai.reflections.Reflections;
 import org.jboss.errai.reflections.scanners.FieldAnnotationsScanner;
@@ -89,14 +90,16 @@ public class MetaDataScanner extends Reflections {
   }
 
   private static MetaDataScanner createInstance(final List<URL> urls, final File cacheFile) {
-    registerDefaultHandlers();
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("scanner", MetaDataScanner.class.getName())) {
+      registerDefaultHandlers();
 
-    final DeploymentContext ctx = new DeploymentContext(urls);
-    final List<URL> actualUrls = ctx.process();
+      final DeploymentContext ctx = new DeploymentContext(urls);
+      final List<URL> actualUrls = ctx.process();
 
-    final MetaDataScanner scanner = new MetaDataScanner(actualUrls, cacheFile);
-    ctx.close(); // needs to be closed after the scanner is created
-    return scanner;
+      final MetaDataScanner scanner = new MetaDataScanner(actualUrls, cacheFile);
+      ctx.close(); // needs to be closed after the scanner is created
+      return scanner;
+    }
   }
 
   private MetaDataScanner(final List<URL> urls, final File cacheFile) {
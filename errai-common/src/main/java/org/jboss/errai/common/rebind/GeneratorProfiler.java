@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.common.rebind;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records wall time, CPU time, allocated bytes and cache hit rates of code generators and their phases. Every
+ * measurement is identified by a category (e.g. "generator", "ioc", "compile") and a name within that category.
+ * Repeated measurements with the same category and name are aggregated.
+ * <p>
+ * Once generation has been quiet for a second, a JSON report of the current compilation is written to
+ * {@value #REPORT_FILE_NAME} in the {@link RebindUtils#getErraiCacheDir() Errai cache directory}. {@link #reset()}
+ * starts a new compilation.
+ * <p>
+ * Profiling is off until {@link #enable()} is called when code generation starts, so code shared with the server
+ * (e.g. the classpath scanner) doesn't profile or write reports in deployed applications. It can be turned on from the
+ * start with the system property {@value #ENABLE_PROFILER_PROPERTY}, and turned off for code generation with
+ * {@value #DISABLE_PROFILER_PROPERTY}.
+ * <p>
+ * CPU time and allocated bytes are measured for the thread that runs a phase. Work the phase hands off to other
+ * threads (e.g. parallel streams) only shows up in its wall time.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("ioc", "dependency-graph")) {
+ *   // work to measure
+ * }
+ * </pre>
+ *
+ * Times of nested phases are also included in the times of their enclosing phases.
+ */
+public final class GeneratorProfiler {
+  public static final String ENABLE_PROFILER_PROPERTY = "errai.devel.enable_generator_profiler";
+  public static final String DISABLE_PROFILER_PROPERTY = "errai.devel.disable_generator_profiler";
+  public static final String REPORT_FILE_NAME = "generator-profile.json";
+
+  private static final Logger log = LoggerFactory.getLogger(GeneratorProfiler.class);
+
+  private static volatile boolean enabled = Boolean.getBoolean(ENABLE_PROFILER_PROPERTY);
+  private static final long REPORT_DELAY_MILLIS = 1000;
+
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private static final boolean cpuTimeSupported = isCpuTimeSupported();
+  private static final boolean allocationsSupported = AllocationCounter.isSupported();
+
+  private static final ConcurrentMap<String, Stats> statsByKey = new ConcurrentHashMap<>();
+  private static final ThreadLocal<int[]> phaseDepth = ThreadLocal.withInitial(() -> new int[1]);
+  private static final AtomicBoolean reportScheduled = new AtomicBoolean();
+  private static final AtomicBoolean unreported = new AtomicBoolean();
+  private static volatile long lastActivityNanos;
+  private static volatile Instant compilationStart = Instant.now();
+
+  private static ScheduledExecutorService reporter;
+  private static ScheduledFuture<?> pendingReport;
+
+  private static final Phase NO_OP = new Phase(null);
+
+  private GeneratorProfiler() {
+  }
+
+  /**
+   * Turns profiling on, unless it was turned off with {@value #DISABLE_PROFILER_PROPERTY}. Called when code generation
+   * starts.
+   */
+  public static void enable() {
+    enabled = !Boolean.getBoolean(DISABLE_PROFILER_PROPERTY);
+  }
+
+  /**
+   * Turns profiling off and drops the report that would have been written once generation is quiet.
+   */
+  static synchronized void disable() {
+    enabled = false;
+    unreported.set(false);
+    if (pendingReport != null) {
+      pendingReport.cancel(false);
+      pendingReport = null;
+    }
+    reportScheduled.set(false);
+  }
+
+  /**
+   * Starts measuring a phase on the current thread. The returned phase must be closed on the same thread.
+   *
+   * @param category
+   *          The kind of work measured (e.g. "generator"). Must not be null.
+   * @param name
+   *          The name of the work within its category (e.g. a generator class name). Must not be null.
+   */
+  public static Phase start(final String category, final String name) {
+    if (!enabled) {
+      return NO_OP;
+    }
+
+    phaseDepth.get()[0]++;
+    return new Phase(statsFor(category, name));
+  }
+
+  public static void recordCacheHit(final String category, final String name) {
+    if (enabled) {
+      statsFor(category, name).cacheHits.increment();
+      scheduleReport();
+    }
+  }
+
+  public static void recordCacheMiss(final String category, final String name) {
+    if (enabled) {
+      statsFor(category, name).cacheMisses.increment();
+      scheduleReport();
+    }
+  }
+
+  /**
+   * Discards all measurements. Called when a new compilation starts.
+   */
+  public static void reset() {
+    statsByKey.clear();
+    compilationStart = Instant.now();
+  }
+
+  /**
+   * @return A JSON report of all measurements since the last {@link #reset()}.
+   */
+  public static String toJson() {
+    final Map<String, Stats> entries = new TreeMap<>(statsByKey);
+    final Map<String, Stats> categories = new TreeMap<>();
+    for (final Stats stats : entries.values()) {
+      categories.computeIfAbsent(stats.category, c -> new Stats(c, null)).add(stats);
+    }
+
+    final StringBuilder sb = new StringBuilder(256 + entries.size() * 256);
+    sb.append("{\n");
+    sb.append("  \"compilationStart\": ").append(quote(compilationStart.toString())).append(",\n");
+    sb.append("  \"reportTime\": ").append(quote(Instant.now().toString())).append(",\n");
+    sb.append("  \"cpuTimeSupported\": ").append(cpuTimeSupported).append(",\n");
+    sb.append("  \"allocationsSupported\": ").append(allocationsSupported).append(",\n");
+    // CPU and allocation counters are per thread: work a phase runs on other threads isn't included
+    sb.append("  \"cpuAndAllocationsOfPhaseThreadOnly\": true,\n");
+    sb.append("  \"categories\": [");
+    appendAll(sb, categories.values());
+    sb.append("],\n");
+    sb.append("  \"phases\": [");
+    appendAll(sb, entries.values());
+    sb.append("]\n");
+    sb.append("}\n");
+
+    return sb.toString();
+  }
+
+  /**
+   * Writes the {@link #toJson() report} to {@value #REPORT_FILE_NAME} in the Errai cache directory.
+   *
+   * @return The written file, or null if writing failed.
+   */
+  public static File writeReport() {
+    final File cacheDir = RebindUtils.getErraiCacheDir();
+    final File reportFile = new File(cacheDir, REPORT_FILE_NAME);
+    unreported.set(false);
+    try {
+      final File tempFile = File.createTempFile(REPORT_FILE_NAME, ".tmp", cacheDir);
+      Files.write(tempFile.toPath(), toJson().getBytes(StandardCharsets.UTF_8));
+      try {
+        Files.move(tempFile.toPath(), reportFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (final AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), reportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      log.debug("Wrote generator profile to {}", reportFile.getAbsolutePath());
+      return reportFile;
+    }
+    catch (final IOException e) {
+      log.warn("Could not write generator profile to " + reportFile.getAbsolutePath(), e);
+      return null;
+    }
+  }
+
+  private static Stats statsFor(final String category, final String name) {
+    return statsByKey.computeIfAbsent(category + ":" + name, k -> new Stats(category, name));
+  }
+
+  /**
+   * Notes new measurements and makes sure a report is written once there have been none for
+   * {@value #REPORT_DELAY_MILLIS} ms. A scheduled report checks the time of the last measurement when it is due, and
+   * reschedules itself until generation has been quiet for long enough.
+   */
+  private static void scheduleReport() {
+    lastActivityNanos = System.nanoTime();
+    unreported.set(true);
+    if (reportScheduled.compareAndSet(false, true)) {
+      scheduleReportIn(REPORT_DELAY_MILLIS);
+    }
+  }
+
+  private static synchronized void scheduleReportIn(final long delayMillis) {
+    if (reporter == null) {
+      reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "Errai generator profile reporter");
+        thread.setDaemon(true);
+        return thread;
+      });
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        if (enabled && unreported.get()) {
+          writeReport();
+        }
+      }, "Errai generator profile shutdown reporter"));
+    }
+    pendingReport = reporter.schedule(GeneratorProfiler::reportIfQuiet, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Runs while holding the lock, so that no report is written once {@link #disable()} has returned.
+   */
+  private static synchronized void reportIfQuiet() {
+    if (!reportScheduled.get()) {
+      // cancelled by disable()
+      return;
+    }
+    final long quietMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivityNanos);
+    if (quietMillis < REPORT_DELAY_MILLIS) {
+      scheduleReportIn(REPORT_DELAY_MILLIS - quietMillis);
+      return;
+    }
+    pendingReport = null;
+    reportScheduled.set(false);
+    if (unreported.get()) {
+      writeReport();
+    }
+  }
+
+  private static void appendAll(final StringBuilder sb, final Iterable<Stats> stats) {
+    boolean first = true;
+    for (final Stats s : stats) {
+      sb.append(first ? "\n" : ",\n");
+      s.appendJson(sb);
+      first = false;
+    }
+    if (!first) {
+      sb.append("\n  ");
+    }
+  }
+
+  private static String quote(final String value) {
+    final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      }
+      else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      }
+      else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  private static boolean isCpuTimeSupported() {
+    try {
+      return threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    }
+    catch (final UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  private static long currentCpuTime() {
+    return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : 0;
+  }
+
+  private static long currentAllocatedBytes() {
+    return allocationsSupported ? AllocationCounter.currentThreadAllocatedBytes() : 0;
+  }
+
+  /**
+   * A running measurement. Closing it adds the measured values to the totals of its category and name.
+   */
+  public static final class Phase implements AutoCloseable {
+    private final Stats stats;
+    private final long wallStart;
+    private final long cpuStart;
+    private final long allocationStart;
+
+    private Phase(final Stats stats) {
+      this.stats = stats;
+      if (stats != null) {
+        wallStart = System.nanoTime();
+        cpuStart = currentCpuTime();
+        allocationStart = currentAllocatedBytes();
+      }
+      else {
+        wallStart = cpuStart = allocationStart = 0;
+      }
+    }
+
+    /**
+     * Records a cache hit for the category and name of this phase.
+     */
+    public void cacheHit() {
+      if (stats != null) {
+        stats.cacheHits.increment();
+      }
+    }
+
+    /**
+     * Records a cache miss for the category and name of this phase.
+     */
+    public void cacheMiss() {
+      if (stats != null) {
+        stats.cacheMisses.increment();
+      }
+    }
+
+    @Override
+    public void close() {
+      if (stats == null) {
+        return;
+      }
+
+      stats.count.increment();
+      stats.wallNanos.add(System.nanoTime() - wallStart);
+      stats.cpuNanos.add(currentCpuTime() - cpuStart);
+      stats.allocatedBytes.add(currentAllocatedBytes() - allocationStart);
+
+      if (--phaseDepth.get()[0] == 0) {
+        scheduleReport();
+      }
+    }
+  }
+
+  private static final class Stats {
+    private final String category;
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private Stats(final String category, final String name) {
+      this.category = category;
+      this.name = name;
+    }
+
+    private void add(final Stats other) {
+      count.add(other.count.sum());
+      wallNanos.add(other.wallNanos.sum());
+      cpuNanos.add(other.cpuNanos.sum());
+      allocatedBytes.add(other.allocatedBytes.sum());
+      cacheHits.add(other.cacheHits.sum());
+      cacheMisses.add(other.cacheMisses.sum());
+    }
+
+    private void appendJson(final StringBuilder sb) {
+      final long hits = cacheHits.sum();
+      final long lookups = hits + cacheMisses.sum();
+
+      sb.append("    {\"category\": ").append(quote(category));
+      if (name != null) {
+        sb.append(", \"name\": ").append(quote(name));
+      }
+      sb.append(", \"count\": ").append(count.sum())
+        .append(", \"wallMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(wallNanos.sum()))
+        .append(", \"cpuMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(cpuNanos.sum()))
+        .append(", \"allocatedBytes\": ").append(allocatedBytes.sum())
+        .append(", \"cacheHits\": ").append(hits)
+        .append(", \"cacheMisses\": ").append(lookups - hits);
+      if (lookups > 0) {
+        sb.append(", \"cacheHitRate\": ").append(String.format(Locale.ROOT, "%.3f", (double) hits / lookups));
+      }
+      sb.append('}');
+    }
+  }
+
+  /**
+   * Kept separate so that JVMs without {@code com.sun.management} only lose allocation counts.
+   */
+  private static final class AllocationCounter {
+    private static boolean isSupported() {
+      try {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+      }
+      catch (final LinkageError | UnsupportedOperationException e) {
+        return false;
+      }
+    }
+
+    private static long currentThreadAllocatedBytes() {
+      return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+}
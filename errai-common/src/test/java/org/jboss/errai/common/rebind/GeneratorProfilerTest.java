@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.common.rebind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GeneratorProfilerTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String oldCacheDir;
+
+  @Before
+  public void setup() {
+    oldCacheDir = System.getProperty("errai.devel.debugCacheDir");
+    System.setProperty("errai.devel.debugCacheDir", tempFolder.getRoot().getAbsolutePath());
+    GeneratorProfiler.enable();
+    GeneratorProfiler.reset();
+  }
+
+  @After
+  public void restore() {
+    // drop the pending report before it can be written to the restored cache dir
+    GeneratorProfiler.disable();
+    if (oldCacheDir == null) {
+      System.clearProperty("errai.devel.debugCacheDir");
+    }
+    else {
+      System.setProperty("errai.devel.debugCacheDir", oldCacheDir);
+    }
+    GeneratorProfiler.reset();
+  }
+
+  @Test
+  public void repeatedPhasesAreAggregated() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("generator", "org.foo.Gen")) {
+        Thread.sleep(5);
+      }
+    }
+
+    final String json = GeneratorProfiler.toJson();
+    assertTrue(json, json.contains("{\"category\": \"generator\", \"name\": \"org.foo.Gen\", \"count\": 3, \"wallMillis\": "));
+    assertTrue(json, json.contains("{\"category\": \"generator\", \"count\": 3, "));
+  }
+
+  @Test
+  public void cacheHitRateIsReported() throws Exception {
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("factory", "Factories")) {
+      phase.cacheHit();
+      phase.cacheHit();
+      phase.cacheHit();
+      phase.cacheMiss();
+    }
+
+    final String json = GeneratorProfiler.toJson();
+    assertTrue(json, json.contains("\"cacheHits\": 3, \"cacheMisses\": 1, \"cacheHitRate\": 0.750}"));
+  }
+
+  @Test
+  public void resetDiscardsMeasurements() throws Exception {
+    GeneratorProfiler.recordCacheMiss("ui-template-cache", "i18nValues");
+    GeneratorProfiler.reset();
+
+    final String json = GeneratorProfiler.toJson();
+    assertTrue(json, json.contains("\"phases\": []"));
+  }
+
+  @Test
+  public void namesAreEscaped() throws Exception {
+    GeneratorProfiler.recordCacheHit("compile", "a \"quoted\" \\ name");
+
+    final String json = GeneratorProfiler.toJson();
+    assertTrue(json, json.contains("\"name\": \"a \\\"quoted\\\" \\\\ name\""));
+  }
+
+  @Test
+  public void reportIsWrittenToErraiCacheDir() throws Exception {
+    GeneratorProfiler.recordCacheHit("marshaller", "org.foo.Marshallers");
+
+    final File report = GeneratorProfiler.writeReport();
+
+    assertNotNull(report);
+    assertEquals(new File(tempFolder.getRoot(), GeneratorProfiler.REPORT_FILE_NAME).getAbsoluteFile(), report.getAbsoluteFile());
+    final String contents = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+    assertTrue(contents, contents.contains("\"name\": \"org.foo.Marshallers\""));
+  }
+
+  @Test
+  public void reportIsWrittenOnceGenerationIsQuiet() throws Exception {
+    final File report = new File(tempFolder.getRoot(), GeneratorProfiler.REPORT_FILE_NAME);
+
+    // keep generating for longer than the report delay
+    for (int i = 0; i < 5; i++) {
+      GeneratorProfiler.recordCacheHit("marshaller", "org.foo.Marshallers");
+      Thread.sleep(300);
+    }
+    assertFalse(report.exists());
+
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (!report.exists() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertTrue(report.exists());
+    final String contents = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+    assertTrue(contents, contents.contains("\"cacheHits\": 5"));
+  }
+
+  @Test
+  public void disablingDropsPendingReport() throws Exception {
+    GeneratorProfiler.recordCacheHit("marshaller", "org.foo.Marshallers");
+    GeneratorProfiler.disable();
+
+    Thread.sleep(1500);
+    assertFalse(new File(tempFolder.getRoot(), GeneratorProfiler.REPORT_FILE_NAME).exists());
+  }
+
+  @Test
+  public void disabledProfilerRecordsNothing() throws Exception {
+    GeneratorProfiler.disable();
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("generator", "org.foo.Gen")) {
+      phase.cacheHit();
+    }
+    GeneratorProfiler.recordCacheMiss("ui-template-cache", "i18nValues");
+
+    final String json = GeneratorProfiler.toJson();
+    assertTrue(json, json.contains("\"phases\": []"));
+  }
+}
@@ -26,8 +26,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassCache;
 import org.jboss.errai.codegen.meta.MetaClassFactory;
 import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.jboss.errai.config.util.ThreadUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,15 +58,19 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
       public String call() throws Exception {
         final String generatedCode;
 
-        if (isCacheEnabled() && isCacheValid()) {
-          log.info("Using cached output from " + AbstractAsyncGenerator.this.getClass().getName());
-          generatedCode = getGeneratedCache();
-        }
-        else {
-          log.info("Running generator " + AbstractAsyncGenerator.this.getClass().getName());
-          clearCacheRelevantClasses();
-          generatedCode = generate(logger, context);
-          setGeneratedCache(generatedCode);
+        try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("generator", AbstractAsyncGenerator.this.getClass().getName())) {
+          if (isCacheEnabled() && isCacheValid()) {
+            log.info("Using cached output from " + AbstractAsyncGenerator.this.getClass().getName());
+            phase.cacheHit();
+            generatedCode = getGeneratedCache();
+          }
+          else {
+            log.info("Running generator " + AbstractAsyncGenerator.this.getClass().getName());
+            phase.cacheMiss();
+            clearCacheRelevantClasses();
+            generatedCode = generate(logger, context);
+            setGeneratedCache(generatedCode);
+          }
         }
 
         return generatedCode;
@@ -99,10 +105,12 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
    * @return True iff this generator does not need to be run again this refresh.
    */
   protected boolean isCacheValid() {
-    return hasGenerationCache() && !(MetaClassFactory.hasAnyChanges() && hasRelevantChanges());
+    // the changes are read from one generation of the cache, even if it is updated concurrently
+    final MetaClassCache.Generation generation = MetaClassFactory.getMetaClassCache().currentGeneration();
+    return hasGenerationCache() && !(generation.hasAnyChanges() && hasRelevantChanges(generation));
   }
 
-  private boolean hasRelevantChanges() {
+  private boolean hasRelevantChanges(final MetaClassCache.Generation generation) {
     final String generatorName = this.getClass().getSimpleName();
     final Set<String> relevantClasses = cacheRelevantClasses.get(this.getClass());
     if (relevantClasses == null) {
@@ -110,7 +118,7 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
       return true;
     }
 
-    for (final MetaClass clazz : MetaClassFactory.getAllNewOrUpdatedClasses()) {
+    for (final MetaClass clazz : generation.getAllNewOrUpdated()) {
       final boolean previouslyMarkedRelevant = relevantClasses.contains(clazz.getFullyQualifiedName());
       if (previouslyMarkedRelevant || isRelevantClass(clazz)) {
         log.debug("New or updated class {} is {} cache relevant for {}.", clazz.getFullyQualifiedName(),
@@ -121,7 +129,7 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
       }
     }
 
-    for (final String deleted : MetaClassFactory.getAllDeletedClasses()) {
+    for (final String deleted : generation.getAllDeletedClasses()) {
       if (relevantClasses.contains(deleted)) {
         log.debug("Deleted class {} was cache relevant for {}.", deleted, generatorName);
         return true;
@@ -194,7 +202,9 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
               @Override
               public void run() {
                 final long start = System.currentTimeMillis();
-                MetaClassBridgeUtil.populateMetaClassFactoryFromTypeOracle(context, logger);
+                try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("metaclass", "MetaClassFactory population")) {
+                  MetaClassBridgeUtil.populateMetaClassFactoryFromTypeOracle(context, logger);
+                }
                 log.debug("MetaClassFactory populated in {}ms", System.currentTimeMillis() - start);
               }
             })
@@ -20,6 +20,7 @@ import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.typeinfo.TypeOracleException;
 import org.jboss.errai.common.metadata.ScannerSingleton;
 import org.jboss.errai.common.rebind.CacheUtil;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -136,6 +137,9 @@ public final class AsyncGenerators {
       if (!started) {
         started = true;
 
+        GeneratorProfiler.enable();
+        GeneratorProfiler.reset();
+
         EnvUtil.recordEnvironmentState();
         CacheUtil.clearAll();
 
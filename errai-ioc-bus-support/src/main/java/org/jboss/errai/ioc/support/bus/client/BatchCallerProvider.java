@@ -60,7 +60,9 @@ public class BatchCallerProvider implements Provider<BatchCaller>, Disposer<Batc
   }
 
   private final class BatchCallerImpl implements BatchCaller {
-    private RpcBatchImpl batch = new RpcBatchImpl();
+    private final String batchIdPrefix = Integer.toString(System.identityHashCode(this), 36) + ":";
+    private int batchCounter;
+    private RpcBatchImpl batch = new RpcBatchImpl(this);
 
     @Override
     public <T> T call(final RemoteCallback<?> callback, final Class<T> remoteService) {
@@ -79,7 +81,7 @@ public class BatchCallerProvider implements Provider<BatchCaller>, Disposer<Batc
     @Override
     public void sendBatch() {
       batch.flush();
-      batch = new RpcBatchImpl();
+      batch = new RpcBatchImpl(this);
     }
 
     @Override
@@ -103,12 +105,17 @@ public class BatchCallerProvider implements Provider<BatchCaller>, Disposer<Batc
   }
 
   private class RpcBatchImpl implements RpcBatch<RemoteCallSendable> {
+    private final BatchCallerImpl caller;
     private final List<RemoteCallSendable> queuedRequests = new ArrayList<>();
     private final List<RemoteCallback<?>> pendingCallbacks = new ArrayList<>();
     private RemoteCallback<Void> successCallback;
     private ErrorCallback errorCallback;
     private boolean enabled = true;
 
+    private RpcBatchImpl(final BatchCallerImpl caller) {
+      this.caller = caller;
+    }
+
     @Override
     public void addRequest(final RemoteCallSendable request) {
       queuedRequests.add(request);
@@ -116,8 +123,10 @@ public class BatchCallerProvider implements Provider<BatchCaller>, Disposer<Batc
 
     @Override
     public void flush() {
+      // calls of a batch are independent of each other, which allows the server to execute them in parallel
+      final String batchId = (queuedRequests.size() > 1) ? caller.batchIdPrefix + (++caller.batchCounter) : null;
       for (final RemoteCallSendable request : queuedRequests) {
-        request.sendNowWith(ErraiBus.get());
+        (batchId != null ? request.inBatch(batchId) : request).sendNowWith(ErraiBus.get());
       }
       queuedRequests.clear();
     }
@@ -76,6 +76,15 @@ public class QualifierUtil {
       factory = factoryProvider.provide();
   }
 
+  /**
+   * @return True if a {@link QualifierEqualityFactory} has been provided, so
+   *         that {@link #isEqual(Annotation, Annotation)} and
+   *         {@link #hashCodeOf(Annotation)} can be used.
+   */
+  public static boolean isInitialized() {
+    return factory != null;
+  }
+
   public static boolean isEqual(final Annotation a1, final Annotation a2) {
     return factory.isEqual(a1, a2);
   }
@@ -186,6 +186,9 @@ public abstract class AbstractContext implements Context {
     if (stack == null) {
       stack = new LinkedList<>();
       factoriesByCreatedInstances.put(unwrappedInstance, stack);
+      if (contextManager instanceof ContextManagerImpl) {
+        ((ContextManagerImpl) contextManager).instanceRegistered(unwrappedInstance, this);
+      }
     }
     stack.push(factory);
   }
@@ -197,6 +200,9 @@ public abstract class AbstractContext implements Context {
       beforeDestroyInstance(instance);
       final Object unwrapped = maybeUnwrap(instance);
       final Deque<Factory<?>> factories = factoriesByCreatedInstances.remove(unwrapped);
+      if (factories != null && contextManager instanceof ContextManagerImpl) {
+        ((ContextManagerImpl) contextManager).instanceUnregistered(unwrapped, this);
+      }
       while (factories != null && !factories.isEmpty()) {
         final Factory<?> factory = factories.pop();
         for (final DestructionCallback callback : destructionCallbacksByInstance.removeAll(unwrapped)) {
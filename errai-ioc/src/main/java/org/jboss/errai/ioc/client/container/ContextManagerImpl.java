@@ -20,6 +20,8 @@ import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,11 +32,25 @@ public class ContextManagerImpl implements ContextManager {
 
   private final Map<String, Context> contextsByFactoryName = new HashMap<String, Context>();
   private final Collection<Context> contexts = new ArrayList<Context>();
+  private final Map<Class<? extends Annotation>, Context> contextsByScope = new HashMap<>();
+
+  /*
+   * Instances created by an AbstractContext are reported through instanceRegistered/instanceUnregistered,
+   * so the contexts managing an instance can be found without asking every context. Contexts of any other
+   * type are kept in untrackedContexts and are still queried individually.
+   */
+  private final Map<Object, List<Context>> contextsByInstance = new IdentityHashMap<>();
+  private final Map<Context, Integer> contextIndices = new IdentityHashMap<>();
+  private final List<Context> untrackedContexts = new ArrayList<>();
 
   @Override
   public void addContext(final Context context) {
     if (!contexts.contains(context)) {
+      contextIndices.put(context, contexts.size());
       contexts.add(context);
+      if (!(context instanceof AbstractContext)) {
+        untrackedContexts.add(context);
+      }
       context.setContextManager(this);
       for (final Factory<?> factory : context.getAllFactories()) {
         contextsByFactoryName.put(factory.getHandle().getFactoryName(), context);
@@ -94,15 +110,28 @@ public class ContextManagerImpl implements ContextManager {
 
   @Override
   public void destroy(final Object instance) {
-    for (final Context context : contexts) {
+    for (final Context context : getManagingContexts(instance)) {
       context.destroyInstance(instance);
     }
   }
 
   @Override
   public boolean isManaged(final Object ref) {
-    for (final Context context : contexts) {
-      if (context.isManaged(ref)) {
+    return !getManagingContexts(ref).isEmpty();
+  }
+
+  @Override
+  public boolean addDestructionCallback(final Object instance, final DestructionCallback<?> callback) {
+    final List<Context> candidates = new ArrayList<>(untrackedContexts);
+    final List<Context> registered = contextsByInstance.get(Factory.maybeUnwrapProxy(instance));
+    if (registered != null) {
+      for (final Context context : registered) {
+        insertInOrder(candidates, context);
+      }
+    }
+
+    for (final Context context : candidates) {
+      if (context.addDestructionCallback(instance, callback)) {
         return true;
       }
     }
@@ -111,24 +140,81 @@ public class ContextManagerImpl implements ContextManager {
   }
 
   @Override
-  public boolean addDestructionCallback(final Object instance, final DestructionCallback<?> callback) {
-    boolean success = false;
-    for (final Context context : contexts) {
-      success = success || context.addDestructionCallback(instance, callback);
+  public <P> P getInstanceProperty(final Object instance, final String propertyName, final Class<P> type) {
+    final List<Context> managingContexts = getManagingContexts(instance);
+    if (!managingContexts.isEmpty()) {
+      return managingContexts.get(0).getInstanceProperty(instance, propertyName, type);
     }
 
-    return success;
+    throw new RuntimeException("The given instance, " + instance + ", is not managed.");
   }
 
-  @Override
-  public <P> P getInstanceProperty(final Object instance, final String propertyName, final Class<P> type) {
-    for (final Context context : contexts) {
-      if (context.isManaged(instance)) {
-        return context.getInstanceProperty(instance, propertyName, type);
+  /**
+   * @return A new list of the contexts for which {@link Context#isManaged(Object)} is true, in the order the
+   *         contexts were added.
+   */
+  private List<Context> getManagingContexts(final Object ref) {
+    final List<Context> managingContexts = new ArrayList<>();
+    final List<Context> registered = contextsByInstance.get(ref);
+    if (registered != null) {
+      managingContexts.addAll(registered);
+    }
+
+    if (ref instanceof Proxy) {
+      final Context proxyContext = ((Proxy<?>) ref).getProxyContext();
+      if (proxyContext instanceof AbstractContext && contextIndices.containsKey(proxyContext)
+              && !managingContexts.contains(proxyContext)) {
+        insertInOrder(managingContexts, proxyContext);
       }
     }
 
-    throw new RuntimeException("The given instance, " + instance + ", is not managed.");
+    for (final Context context : untrackedContexts) {
+      if (context.isManaged(ref)) {
+        insertInOrder(managingContexts, context);
+      }
+    }
+
+    return managingContexts;
+  }
+
+  /**
+   * Called by an {@link AbstractContext} when it starts managing an unwrapped instance.
+   */
+  void instanceRegistered(final Object unwrappedInstance, final Context context) {
+    if (!contextIndices.containsKey(context)) {
+      return;
+    }
+
+    List<Context> registered = contextsByInstance.get(unwrappedInstance);
+    if (registered == null) {
+      registered = new ArrayList<>(1);
+      contextsByInstance.put(unwrappedInstance, registered);
+    }
+    if (!registered.contains(context)) {
+      insertInOrder(registered, context);
+    }
+  }
+
+  /**
+   * Called by an {@link AbstractContext} when it stops managing an unwrapped instance.
+   */
+  void instanceUnregistered(final Object unwrappedInstance, final Context context) {
+    final List<Context> registered = contextsByInstance.get(unwrappedInstance);
+    if (registered != null) {
+      registered.remove(context);
+      if (registered.isEmpty()) {
+        contextsByInstance.remove(unwrappedInstance);
+      }
+    }
+  }
+
+  private void insertInOrder(final List<Context> orderedContexts, final Context context) {
+    final int index = contextIndices.get(context);
+    int pos = orderedContexts.size();
+    while (pos > 0 && contextIndices.get(orderedContexts.get(pos - 1)) > index) {
+      pos--;
+    }
+    orderedContexts.add(pos, context);
   }
 
   @Override
@@ -149,8 +235,14 @@ public class ContextManagerImpl implements ContextManager {
   }
 
   private Context getContextForScope(final Class<? extends Annotation> scope) {
+    final Context cached = contextsByScope.get(scope);
+    if (cached != null) {
+      return cached;
+    }
+
     for (final Context context : contexts) {
       if (context.handlesScope(scope)) {
+        contextsByScope.put(scope, context);
         return context;
       }
     }
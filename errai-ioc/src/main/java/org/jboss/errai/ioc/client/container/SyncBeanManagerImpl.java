@@ -20,8 +20,11 @@ import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.enterprise.context.Dependent;
@@ -55,6 +58,12 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
   private ContextManager contextManager;
   private final Multimap<String, FactoryHandle> handlesByName = ArrayListMultimap.create();
   private final Multimap<String, SyncBeanDef<?>> runtimeBeanDefsByName = ArrayListMultimap.create();
+  /**
+   * Results of {@link #lookupBeans(Class, Annotation...)}, excluding
+   * {@link JsTypeProvider JsTypeProviders} which can be added by other scripts
+   * at any time. Cleared whenever a factory or bean is added.
+   */
+  private final Map<ResolutionKey, ResolvedBeans> resolutionCache = new HashMap<>();
 
   @Override
   public void destroyBean(final Object ref) {
@@ -136,6 +145,7 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
   }
 
   private void addFactory(final FactoryHandle handle) {
+    resolutionCache.clear();
     for (final Class<?> assignableType : handle.getAssignableTypes()) {
       handlesByName.put(assignableType.getName(), handle);
     }
@@ -155,20 +165,30 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
     Assert.notNull(name);
     logger.debug("Looking up beans for {}", name);
 
-    final Collection<FactoryHandle> handles = handlesByName.get(name);
-    final Collection<SyncBeanDef<?>> runtimeBeanDefs = runtimeBeanDefsByName.get(name);
-    final JsArray<JsTypeProvider<?>> jsProviders = getJsProviders(name);
-
     final Set<String> beanDefFactoryNames = new HashSet<>();
-    final Collection beanDefs = new ArrayList<SyncBeanDef<Object>>(handles.size()+runtimeBeanDefs.size()+jsProviders.length());
-    beanDefs.addAll(runtimeBeanDefs);
-    for (final FactoryHandle handle : handles) {
+    final Collection beanDefs = new ArrayList<SyncBeanDef<Object>>();
+    addLocalBeanDefs(name, beanDefs, beanDefFactoryNames);
+    addJsBeanDefs(name, keepJsDups, beanDefFactoryNames, beanDefs);
+
+    logger.debug("Looked up {} beans: {}", beanDefs.size(), beanDefs);
+
+    return beanDefs;
+  }
+
+  private void addLocalBeanDefs(final String name, final Collection<SyncBeanDef<?>> beanDefs,
+          final Set<String> beanDefFactoryNames) {
+    beanDefs.addAll(runtimeBeanDefsByName.get(name));
+    for (final FactoryHandle handle : handlesByName.get(name)) {
       if (handle.isAvailableByLookup()) {
         beanDefs.add(new IOCBeanDefImplementation<>(handle, this.<Object>getType(name, handle, handle.getActualType())));
         beanDefFactoryNames.add(handle.getFactoryName());
       }
     }
-    for (final JsTypeProvider<?> provider : JsArray.iterable(jsProviders)) {
+  }
+
+  private void addJsBeanDefs(final String name, final boolean keepJsDups, final Set<String> beanDefFactoryNames,
+          final Collection<SyncBeanDef<?>> beanDefs) {
+    for (final JsTypeProvider<?> provider : JsArray.iterable(getJsProviders(name))) {
       logger.debug("Found JS provider for name {} from factory {}", provider.getName(), provider.getFactoryName());
       if (keepJsDups || provider.getFactoryName() == null || !beanDefFactoryNames.contains(provider.getFactoryName())) {
         logger.debug("Keeping JS provider for name {} from factory {}", provider.getName(), provider.getFactoryName());
@@ -178,10 +198,6 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
         logger.debug("Rejecting duplicate JS provider for name {} from factory {}", provider.getName(), provider.getFactoryName());
       }
     }
-
-    logger.debug("Looked up {} beans: {}", beanDefs.size(), beanDefs);
-
-    return beanDefs;
   }
 
   private JsArray<JsTypeProvider<?>> getJsProviders(final String name) {
@@ -220,19 +236,44 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
     return (Class<T>) defaultType;
   }
 
+  @SuppressWarnings({ "rawtypes", "unchecked" })
   @Override
   public <T> Collection<SyncBeanDef<T>> lookupBeans(final Class<T> type, final Annotation... qualifiers) {
     final Set<Annotation> qualifierSet = new HashSet<>(Arrays.asList(qualifiers));
-    final Collection<SyncBeanDef<T>> candidates = lookupBeans(type);
-    final Iterator<SyncBeanDef<T>> iter = candidates.iterator();
+    if (!QualifierUtil.isInitialized()) {
+      return (Collection) filterByQualifiers((Collection) lookupBeans(type), qualifierSet);
+    }
+
+    final String name = type.getName();
+    final ResolutionKey key = new ResolutionKey(name, qualifiers);
+    ResolvedBeans resolved = resolutionCache.get(key);
+    if (resolved == null) {
+      final Collection<SyncBeanDef<?>> localBeanDefs = new ArrayList<>();
+      final Set<String> localFactoryNames = new HashSet<>();
+      addLocalBeanDefs(name, localBeanDefs, localFactoryNames);
+      resolved = new ResolvedBeans(filterByQualifiers(localBeanDefs, qualifierSet), localFactoryNames);
+      resolutionCache.put(key, resolved);
+    }
+
+    final Collection<SyncBeanDef<?>> beanDefs = new ArrayList<>(resolved.beanDefs);
+    final Collection<SyncBeanDef<?>> jsBeanDefs = new ArrayList<>();
+    addJsBeanDefs(name, false, resolved.factoryNames, jsBeanDefs);
+    beanDefs.addAll(filterByQualifiers(jsBeanDefs, qualifierSet));
+
+    return (Collection) beanDefs;
+  }
+
+  private static Collection<SyncBeanDef<?>> filterByQualifiers(final Collection<SyncBeanDef<?>> beanDefs,
+          final Set<Annotation> qualifierSet) {
+    final Iterator<SyncBeanDef<?>> iter = beanDefs.iterator();
     while (iter.hasNext()) {
-      final SyncBeanDef<T> beanDef = iter.next();
+      final SyncBeanDef<?> beanDef = iter.next();
       if (!beanDef.matches(qualifierSet)) {
         iter.remove();
       }
     }
 
-    return candidates;
+    return beanDefs;
   }
 
   @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -253,6 +294,7 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
 
   @Override
   public <T> void registerBean(final SyncBeanDef<T> beanDef) {
+    resolutionCache.clear();
     runtimeBeanDefsByName.put(beanDef.getType().getName(), beanDef);
     if (!beanDef.getType().getName().equals(beanDef.getBeanClass().getName())) {
       runtimeBeanDefsByName.put(beanDef.getBeanClass().getName(), beanDef);
@@ -264,6 +306,7 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
 
   @Override
   public <T> void registerBeanTypeAlias(final SyncBeanDef<T> beanDef, final Class<?> type) {
+    resolutionCache.clear();
     runtimeBeanDefsByName.put(type.getName(), beanDef);
   }
 
@@ -274,6 +317,59 @@ public class SyncBeanManagerImpl implements SyncBeanManager, BeanManagerSetup {
     contextManager = null;
     handlesByName.clear();
     runtimeBeanDefsByName.clear();
+    resolutionCache.clear();
+  }
+
+  /**
+   * Identifies a lookup by type and qualifiers. Qualifiers are compared with
+   * {@link QualifierUtil#isEqual(Annotation, Annotation)}, and only the last
+   * qualifier of each annotation type is kept, as in
+   * {@link QualifierUtil#matches(Collection, Collection)}.
+   */
+  private static final class ResolutionKey {
+    private final String typeName;
+    private final Map<String, Annotation> qualifiersByType = new HashMap<>();
+
+    private ResolutionKey(final String typeName, final Annotation[] qualifiers) {
+      this.typeName = typeName;
+      for (final Annotation qualifier : qualifiers) {
+        qualifiersByType.put(qualifier.annotationType().getName(), qualifier);
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * typeName.hashCode() + qualifiersByType.keySet().hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof ResolutionKey)) {
+        return false;
+      }
+
+      final ResolutionKey other = (ResolutionKey) obj;
+      if (!typeName.equals(other.typeName) || !qualifiersByType.keySet().equals(other.qualifiersByType.keySet())) {
+        return false;
+      }
+      for (final Entry<String, Annotation> entry : qualifiersByType.entrySet()) {
+        if (!QualifierUtil.isEqual(entry.getValue(), other.qualifiersByType.get(entry.getKey()))) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+
+  private static final class ResolvedBeans {
+    private final Collection<SyncBeanDef<?>> beanDefs;
+    private final Set<String> factoryNames;
+
+    private ResolvedBeans(final Collection<SyncBeanDef<?>> beanDefs, final Set<String> factoryNames) {
+      this.beanDefs = beanDefs;
+      this.factoryNames = factoryNames;
+    }
   }
 
   // TODO Find way to properly get scope, qualifiers, and assignable types.
@@ -28,6 +28,7 @@ import org.jboss.errai.codegen.builder.ClassStructureBuilder;
 import org.jboss.errai.codegen.meta.MetaClassMember;
 import org.jboss.errai.codegen.meta.MetaParameter;
 import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.jboss.errai.ioc.client.container.Factory;
 import org.jboss.errai.ioc.rebind.ioc.graph.api.CustomFactoryInjectable;
 import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraph;
@@ -61,10 +62,23 @@ public class FactoryGenerator extends IncrementalGenerator {
   private static Map<String, String> generatedSourceByFactoryTypeName = new HashMap<String, String>();
   private static Map<String, Injectable> injectablesByFactoryTypeName = new HashMap<String, Injectable>();
 
+  private static PersistentFactoryCache persistentCache;
+
   private static long totalTime;
 
   public static void resetTotalTime() {
     totalTime = 0;
+    if (persistentCache != null) {
+      persistentCache.resetStatistics();
+    }
+  }
+
+  private static PersistentFactoryCache getPersistentCache() {
+    if (persistentCache == null) {
+      persistentCache = PersistentFactoryCache.inErraiCacheDir();
+    }
+
+    return persistentCache;
   }
 
   public static void setDependencyGraph(final DependencyGraph graph) {
@@ -105,6 +119,13 @@ public class FactoryGenerator extends IncrementalGenerator {
   @Override
   public RebindResult generateIncrementally(final TreeLogger logger, final GeneratorContext generatorContext, final String typeName)
           throws UnableToCompleteException {
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("factory", FactoryGenerator.class.getName())) {
+      return generateFactory(logger, generatorContext, typeName, phase);
+    }
+  }
+
+  private RebindResult generateFactory(final TreeLogger logger, final GeneratorContext generatorContext, final String typeName,
+          final GeneratorProfiler.Phase phase) {
     final long start = System.currentTimeMillis();
     final DependencyGraph graph = assertGraphSet();
     final InjectionContext injectionContext = assertInjectionContextSet();
@@ -123,15 +144,27 @@ public class FactoryGenerator extends IncrementalGenerator {
       final String factorySource;
       if (isCacheUsable(typeName, injectable)) {
         log.debug("Reusing cached factory for " + typeName);
+        phase.cacheHit();
         factorySource = generatedSourceByFactoryTypeName.get(typeName);
       } else {
-        log.debug("Generating factory for " + typeName);
-        generator.generate(factoryBuilder, injectable, graph, injectionContext, logger, generatorContext);
-        factorySource = factoryBuilder.toJavaString();
+        final String persistentKey = (RebindUtils.NO_CACHE ? null : getPersistentCache().keyFor(typeName, injectable));
+        final String persistedSource = (persistentKey != null ? persistentCache.get(persistentKey) : null);
+        if (persistedSource != null) {
+          log.debug("Reusing persisted factory for " + typeName);
+          phase.cacheHit();
+          factorySource = persistedSource;
+        } else {
+          log.debug("Generating factory for " + typeName);
+          phase.cacheMiss();
+          generator.generate(factoryBuilder, injectable, graph, injectionContext, logger, generatorContext);
+          factorySource = factoryBuilder.toJavaString();
+          if (persistentKey != null) {
+            persistentCache.put(persistentKey, factorySource);
+          }
+          writeToDotErraiFolder(factorySimpleClassName, factorySource);
+        }
         generatedSourceByFactoryTypeName.put(typeName, factorySource);
         injectablesByFactoryTypeName.put(typeName, injectable);
-
-        writeToDotErraiFolder(factorySimpleClassName, factorySource);
       }
 
       pw.write(factorySource);
@@ -145,7 +178,12 @@ public class FactoryGenerator extends IncrementalGenerator {
 
     final long ellapsed = System.currentTimeMillis() - start;
     totalTime += ellapsed;
-    log.debug("Factory for {} completed in {}ms. Total factory generation time: {}ms", typeName, ellapsed, totalTime);
+    if (persistentCache != null) {
+      log.debug("Factory for {} completed in {}ms. Total factory generation time: {}ms. Persisted factories reused: {}, generated: {}",
+              typeName, ellapsed, totalTime, persistentCache.getHits(), persistentCache.getMisses());
+    } else {
+      log.debug("Factory for {} completed in {}ms. Total factory generation time: {}ms", typeName, ellapsed, totalTime);
+    }
 
     return retVal;
   }
@@ -47,6 +47,7 @@ import org.jboss.errai.codegen.util.Stmt;
 import org.jboss.errai.common.client.api.annotations.IOCProducer;
 import org.jboss.errai.common.metadata.MetaDataScanner;
 import org.jboss.errai.common.metadata.ScannerSingleton;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.jboss.errai.common.server.api.ErraiBootstrapFailure;
 import org.jboss.errai.config.rebind.EnvUtil;
 import org.jboss.errai.config.util.ClassScanner;
@@ -219,7 +220,9 @@ public class IOCBootstrapGenerator {
 
     log.debug("Processing IOC extensions...");
     long start = System.currentTimeMillis();
-    processExtensions(context, injectionContext, beforeTasks, afterTasks);
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("ioc", "extensions")) {
+      processExtensions(context, injectionContext, beforeTasks, afterTasks);
+    }
     log.debug("Extensions processed in {}ms", (System.currentTimeMillis() - start));
 
     final IOCProcessor processorFactory = new IOCProcessor(injectionContext);
@@ -243,7 +246,10 @@ public class IOCBootstrapGenerator {
     blockBuilder.finish();
 
     start = System.currentTimeMillis();
-    final String bootstrapperImplString = classBuilder.toJavaString();
+    final String bootstrapperImplString;
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("ioc", "bootstrapper source")) {
+      bootstrapperImplString = classBuilder.toJavaString();
+    }
     log.debug("Generated BootstrapperImpl String in {}ms", System.currentTimeMillis() - start);
 
     return bootstrapperImplString;
@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.Set;
 
 import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassCache;
 import org.jboss.errai.codegen.meta.MetaClassFactory;
 import org.jboss.errai.common.metadata.RebindUtils;
 import org.jboss.errai.config.rebind.AbstractAsyncGenerator;
@@ -77,7 +78,8 @@ public class IOCGenerator extends AbstractAsyncGenerator {
     // This ensures the logged total build time of factories is reset even if
     // the BootstrapperImpl is not regenerated.
     FactoryGenerator.resetTotalTime();
-    Collection<MetaClass> newOrUpdated = MetaClassFactory.getAllNewOrUpdatedClasses();
+    final MetaClassCache.Generation generation = MetaClassFactory.getMetaClassCache().currentGeneration();
+    Collection<MetaClass> newOrUpdated = generation.getAllNewOrUpdated();
     // filter out generated IOC environment config
     if (newOrUpdated.size() == 1) {
       MetaClass clazz = newOrUpdated.iterator().next();
@@ -86,7 +88,7 @@ public class IOCGenerator extends AbstractAsyncGenerator {
       }
     }
 
-    boolean hasAnyChanges =  !newOrUpdated.isEmpty() || !MetaClassFactory.getAllDeletedClasses().isEmpty();
+    boolean hasAnyChanges =  !newOrUpdated.isEmpty() || !generation.getAllDeletedClasses().isEmpty();
     return hasGenerationCache() && (EnvUtil.isProdMode() || !hasAnyChanges);
   }
 
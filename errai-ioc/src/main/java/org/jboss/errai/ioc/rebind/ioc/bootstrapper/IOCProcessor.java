@@ -88,6 +88,7 @@ import org.jboss.errai.codegen.util.Bool;
 import org.jboss.errai.codegen.util.If;
 import org.jboss.errai.codegen.util.Stmt;
 import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.jboss.errai.config.rebind.EnvUtil;
 import org.jboss.errai.config.util.ClassScanner;
 import org.jboss.errai.ioc.client.Bootstrapper;
@@ -121,6 +122,7 @@ import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.Reachabil
 import org.jboss.errai.ioc.rebind.ioc.graph.api.Injectable;
 import org.jboss.errai.ioc.rebind.ioc.graph.api.Qualifier;
 import org.jboss.errai.ioc.rebind.ioc.graph.api.QualifierFactory;
+import org.jboss.errai.ioc.rebind.ioc.graph.impl.DependencyGraphBuilderFragment;
 import org.jboss.errai.ioc.rebind.ioc.graph.impl.DependencyGraphBuilderImpl;
 import org.jboss.errai.ioc.rebind.ioc.graph.impl.InjectableHandle;
 import org.jboss.errai.ioc.rebind.ioc.injector.api.ExtensionTypeCallback;
@@ -152,11 +154,22 @@ public class IOCProcessor {
 
   public static final String REACHABILITY_PROPERTY = "errai.ioc.reachability";
   public static final String PLUGIN_PROPERTY = "errai.ioc.jsinterop.support";
+  public static final String PARALLEL_PROPERTY = "errai.ioc.parallel";
 
   public static boolean isJsInteropSupportEnabled() {
     return Boolean.getBoolean(PLUGIN_PROPERTY);
   }
 
+  /**
+   * @return True if types should be processed concurrently when building the
+   *         dependency graph. Off by default, since extensions and
+   *         {@link MetaClass} implementations outside of Errai may not be
+   *         thread-safe.
+   */
+  public static boolean isParallelProcessingEnabled() {
+    return Boolean.getBoolean(PARALLEL_PROPERTY);
+  }
+
   private final Set<Class<? extends Annotation>> nonSimpletonTypeAnnotations = new HashSet<>();
 
   private final InjectionContext injectionContext;
@@ -186,19 +199,24 @@ public class IOCProcessor {
   public void process(final IOCProcessingContext processingContext) {
     long start = System.currentTimeMillis();
 
-    final Collection<MetaClass> allMetaClasses = findRelevantClasses(processingContext);
-    log.debug("Found {} classes", allMetaClasses.size());
     final DependencyGraphBuilder graphBuilder = new DependencyGraphBuilderImpl(qualFactory, injectionContext.isAsync());
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("ioc", "dependency graph building")) {
+      final Collection<MetaClass> allMetaClasses = findRelevantClasses(processingContext);
+      log.debug("Found {} classes", allMetaClasses.size());
 
-    runExtensionCallbacks(allMetaClasses);
-    log.debug("Ran {} extension callbacks on all types {} types.", injectionContext.getExtensionTypeCallbacks().size(), allMetaClasses.size());
+      runExtensionCallbacks(allMetaClasses);
+      log.debug("Ran {} extension callbacks on all types {} types.", injectionContext.getExtensionTypeCallbacks().size(), allMetaClasses.size());
 
-    addAllInjectableProviders(graphBuilder);
-    processDependencies(allMetaClasses, graphBuilder);
-    log.debug("Added {} classes to dependency graph in {}ms", allMetaClasses.size(), System.currentTimeMillis() - start);
+      addAllInjectableProviders(graphBuilder);
+      processDependencies(allMetaClasses, graphBuilder);
+      log.debug("Added {} classes to dependency graph in {}ms", allMetaClasses.size(), System.currentTimeMillis() - start);
+    }
 
     start = System.currentTimeMillis();
-    final DependencyGraph dependencyGraph = graphBuilder.createGraph(getReachabilityStrategy());
+    final DependencyGraph dependencyGraph;
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("ioc", "dependency graph resolution")) {
+      dependencyGraph = graphBuilder.createGraph(getReachabilityStrategy());
+    }
     log.debug("Resolved dependency graph with {} reachable injectables in {}ms", dependencyGraph.getNumberOfInjectables(), System.currentTimeMillis() - start);
 
     FactoryGenerator.resetTotalTime();
@@ -207,25 +225,27 @@ public class IOCProcessor {
 
     start = System.currentTimeMillis();
 
-    final Map<Class<? extends Annotation>, MetaClass> scopeContexts = findScopeContexts(processingContext);
-    final Set<MetaClass> scopeContextSet = new LinkedHashSet<>(scopeContexts.values());
-    final Statement[] contextLocalVarInvocation = contextLocalVarInvocation(scopeContextSet);
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("ioc", "factory registration")) {
+      final Map<Class<? extends Annotation>, MetaClass> scopeContexts = findScopeContexts(processingContext);
+      final Set<MetaClass> scopeContextSet = new LinkedHashSet<>(scopeContexts.values());
+      final Statement[] contextLocalVarInvocation = contextLocalVarInvocation(scopeContextSet);
 
-    @SuppressWarnings("rawtypes")
-    final BlockBuilder registerFactoriesBody = createRegisterFactoriesMethod(processingContext, scopeContextSet);
+      @SuppressWarnings("rawtypes")
+      final BlockBuilder registerFactoriesBody = createRegisterFactoriesMethod(processingContext, scopeContextSet);
 
-    declareAndRegisterFactories(processingContext, dependencyGraph, scopeContexts, scopeContextSet, registerFactoriesBody);
-    final String contextManagerFieldName = declareContextManagerField(processingContext);
-    if (isJsInteropSupportEnabled()) {
-      declareWindowInjectionContextField(processingContext);
-    }
-    declareStaticLogger(processingContext);
-    if (injectionContext.isAsync()) {
-      declareAsyncBeanManagerSetupField(processingContext);
-    }
+      declareAndRegisterFactories(processingContext, dependencyGraph, scopeContexts, scopeContextSet, registerFactoriesBody);
+      final String contextManagerFieldName = declareContextManagerField(processingContext);
+      if (isJsInteropSupportEnabled()) {
+        declareWindowInjectionContextField(processingContext);
+      }
+      declareStaticLogger(processingContext);
+      if (injectionContext.isAsync()) {
+        declareAsyncBeanManagerSetupField(processingContext);
+      }
 
-    registerFactoriesBody.finish();
-    bootstrapContainer(processingContext, dependencyGraph, scopeContextSet, contextLocalVarInvocation, contextManagerFieldName);
+      registerFactoriesBody.finish();
+      bootstrapContainer(processingContext, dependencyGraph, scopeContextSet, contextLocalVarInvocation, contextManagerFieldName);
+    }
     log.debug("Processed factory GWT.create calls in {}ms", System.currentTimeMillis() - start);
   }
 
@@ -602,8 +622,13 @@ public class IOCProcessor {
 
   private void processDependencies(final Collection<MetaClass> types, final DependencyGraphBuilder builder) {
     final List<String> problems = new ArrayList<>();
-    for (final MetaClass type : types) {
-      processType(type, builder, problems);
+    if (isParallelProcessingEnabled()) {
+      processDependenciesInParallel(types, builder, problems);
+    }
+    else {
+      for (final MetaClass type : types) {
+        processType(type, builder, problems);
+      }
     }
 
     if (!problems.isEmpty()) {
@@ -611,6 +636,41 @@ public class IOCProcessor {
     }
   }
 
+  /**
+   * Processes each type into its own {@link DependencyGraphBuilderFragment} on
+   * the common fork-join pool. The fragments and problems are then merged in
+   * the iteration order of the given types, so that the resulting graph is the
+   * same as when processing sequentially.
+   */
+  private void processDependenciesInParallel(final Collection<MetaClass> types, final DependencyGraphBuilder builder,
+          final List<String> problems) {
+    // Load lazily initialized state before it is shared between threads.
+    getAlternatives();
+    final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    final List<TypeFragment> fragments = new ArrayList<>(types).parallelStream().map(type -> {
+      final Thread thread = Thread.currentThread();
+      final ClassLoader oldClassLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader(contextClassLoader);
+      try {
+        final TypeFragment fragment = new TypeFragment();
+        processType(type, fragment.graph, fragment.problems);
+        return fragment;
+      } finally {
+        thread.setContextClassLoader(oldClassLoader);
+      }
+    }).collect(Collectors.toList());
+
+    for (final TypeFragment fragment : fragments) {
+      fragment.graph.mergeInto(builder);
+      problems.addAll(fragment.problems);
+    }
+  }
+
+  private static class TypeFragment {
+    final DependencyGraphBuilderFragment graph = new DependencyGraphBuilderFragment();
+    final List<String> problems = new ArrayList<>();
+  }
+
   private String buildProblemsMessage(final List<String> problems) {
     final StringBuilder builder = new StringBuilder();
     builder.append("The following problems were found:\n");
@@ -1301,6 +1361,10 @@ public class IOCProcessor {
   }
 
   private boolean isAlternativeEnabled(final MetaClass type) {
+    return getAlternatives().contains(type.getFullyQualifiedName());
+  }
+
+  private synchronized Collection<String> getAlternatives() {
     if (alternatives == null) {
       final String userDefinedAlternatives = EnvUtil.getEnvironmentConfig().getFrameworkOrSystemProperty("errai.ioc.enabled.alternatives");
       if (userDefinedAlternatives != null) {
@@ -1310,7 +1374,7 @@ public class IOCProcessor {
       }
     }
 
-    return alternatives.contains(type.getFullyQualifiedName());
+    return alternatives;
   }
 
   private boolean isEnabledByProperty(final MetaClass type) {
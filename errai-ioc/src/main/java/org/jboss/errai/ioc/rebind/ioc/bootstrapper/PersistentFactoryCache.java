@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ioc.rebind.ioc.bootstrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.common.metadata.MetaDataScanner;
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.common.metadata.ScannerSingleton;
+import org.jboss.errai.ioc.client.api.CodeDecorator;
+import org.jboss.errai.ioc.client.api.IOCExtension;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.Dependency;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Injectable;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.WiringElementType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of generated factory sources that is kept in a subdirectory of
+ * {@link RebindUtils#getErraiCacheDir()}, so it survives restarts of the JVM.
+ * Each source is stored under a hash of everything its generation depends on:
+ * <ul>
+ * <li>the {@link Injectable} and its dependencies, including the
+ * {@link MetaClass#hashContent() hashContent} of their types,
+ * <li>the names, sizes, and modification times of all jars on the classpath,
+ * which contain Errai and any IOC extensions,
+ * <li>the names, sizes, and modification times of the resources in the class
+ * directories on the classpath (for example, the templates and style sheets of
+ * {@code @Templated} beans, wherever they are referenced from), and of the
+ * class files of the {@link IOCExtension IOC extensions} and
+ * {@link CodeDecorator decorators} in those directories.
+ * </ul>
+ * Any change to these yields a different key, so stale entries are never used;
+ * they are simply left behind until the Errai cache directory is cleared. The
+ * last part is shared by all factories, so changing a resource or an extension
+ * in a class directory makes the next compile regenerate every factory, while
+ * changes to other classes only affect the factories that depend on them.
+ */
+public class PersistentFactoryCache {
+
+  private static final Logger log = LoggerFactory.getLogger(PersistentFactoryCache.class);
+
+  /**
+   * Part of every key. Must be changed when the key composition or the
+   * generated factories change in a way the other key parts don't capture.
+   */
+  private static final String FORMAT_VERSION = "1";
+
+  public static final String CACHE_DIR_NAME = "ioc-factories";
+
+  private final File cacheDir;
+  private final String environmentFingerprint;
+  private final Supplier<String> classDirectoriesFingerprintSupplier;
+  private volatile String classDirectoriesFingerprint;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * @param cacheDir
+   *          The directory cached factory sources are stored in. Created if it
+   *          doesn't exist.
+   * @param environmentFingerprint
+   *          Part of every key, identifying the code that generates the
+   *          factories.
+   */
+  public PersistentFactoryCache(final File cacheDir, final String environmentFingerprint) {
+    this(cacheDir, environmentFingerprint, () -> "");
+  }
+
+  /**
+   * @param cacheDir
+   *          The directory cached factory sources are stored in. Created if it
+   *          doesn't exist.
+   * @param environmentFingerprint
+   *          Part of every key, identifying the code that generates the
+   *          factories.
+   * @param classDirectoriesFingerprint
+   *          Computes the part of every key that identifies the resources and
+   *          extensions in the class directories. Called at most once between
+   *          calls to {@link #resetStatistics()}.
+   */
+  public PersistentFactoryCache(final File cacheDir, final String environmentFingerprint,
+          final Supplier<String> classDirectoriesFingerprint) {
+    this.cacheDir = cacheDir;
+    this.environmentFingerprint = environmentFingerprint;
+    this.classDirectoriesFingerprintSupplier = classDirectoriesFingerprint;
+    cacheDir.mkdirs();
+  }
+
+  /**
+   * @return A cache in the {@link #CACHE_DIR_NAME} subdirectory of the Errai
+   *         cache directory, for the jars and class directories on the current
+   *         classpath.
+   */
+  public static PersistentFactoryCache inErraiCacheDir() {
+    return new PersistentFactoryCache(new File(RebindUtils.getErraiCacheDir(), CACHE_DIR_NAME),
+            getClasspathJarsFingerprint(), PersistentFactoryCache::computeClassDirectoriesFingerprint);
+  }
+
+  /**
+   * @param typeName
+   *          The fully qualified name of the type the factory is generated for.
+   * @param injectable
+   *          The injectable the factory is generated for.
+   * @return The key the factory source is cached under.
+   */
+  public String keyFor(final String typeName, final Injectable injectable) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(FORMAT_VERSION).append('\n');
+    sb.append(environmentFingerprint).append('\n');
+    sb.append(typeName).append('\n');
+    appendInjectable(sb, injectable);
+    sb.append(injectable.hashContent()).append('\n');
+    sb.append(getClassDirectoriesFingerprint()).append('\n');
+    for (final Dependency dep : injectable.getDependencies()) {
+      sb.append(dep.getDependencyType()).append(' ');
+      appendInjectable(sb, dep.getInjectable());
+    }
+
+    return sha1(sb.toString());
+  }
+
+  private static void appendInjectable(final StringBuilder sb, final Injectable injectable) {
+    final MetaClass type = injectable.getInjectedType();
+    final List<String> wiringElementTypes = new ArrayList<String>();
+    for (final WiringElementType wiringElementType : injectable.getWiringElementTypes()) {
+      wiringElementTypes.add(wiringElementType.name());
+    }
+    Collections.sort(wiringElementTypes);
+
+    sb.append(injectable.getFactoryName())
+      .append(' ').append(injectable.getInjectableType())
+      .append(' ').append(injectable.getScope().getName())
+      .append(' ').append(injectable.getQualifier().getIdentifierSafeString())
+      .append(' ').append(injectable.getBeanName())
+      .append(' ').append(wiringElementTypes)
+      .append(' ').append(injectable.requiresProxy())
+      .append(' ').append(injectable.loadAsync())
+      .append(' ').append(type.getFullyQualifiedNameWithTypeParms())
+      .append(' ').append(type.hashContent())
+      .append('\n');
+  }
+
+  /**
+   * @return The cached factory source for the given key, or null if there is
+   *         none.
+   */
+  public String get(final String key) {
+    final File file = new File(cacheDir, key + ".java");
+    if (file.isFile()) {
+      try {
+        final String source = RebindUtils.readFileToString(file);
+        hits.incrementAndGet();
+        return source;
+      } catch (final RuntimeException e) {
+        log.warn("Could not read cached factory " + file + ". It will be regenerated.", e);
+      }
+    }
+    misses.incrementAndGet();
+
+    return null;
+  }
+
+  /**
+   * Stores the given factory source under the given key. The source is written
+   * to a temporary file first, so that concurrent compiles never read a
+   * partially written entry.
+   */
+  public void put(final String key, final String source) {
+    final File file = new File(cacheDir, key + ".java");
+    try {
+      final File tmp = File.createTempFile(key, ".tmp", cacheDir);
+      RebindUtils.writeStringToFile(tmp, source);
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException | RuntimeException e) {
+      log.warn("Could not write cached factory " + file, e);
+    }
+  }
+
+  /**
+   * @return The number of {@link #get(String)} calls that found a cached source
+   *         since the last {@link #resetStatistics()}.
+   */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return The number of {@link #get(String)} calls that found no cached
+   *         source since the last {@link #resetStatistics()}.
+   */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Resets the hit and miss counts, and forgets the class directories
+   * fingerprint so that changed resources are noticed by the next compile in
+   * this JVM.
+   */
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    classDirectoriesFingerprint = null;
+  }
+
+  private String getClassDirectoriesFingerprint() {
+    String fingerprint = classDirectoriesFingerprint;
+    if (fingerprint == null) {
+      synchronized (this) {
+        fingerprint = classDirectoriesFingerprint;
+        if (fingerprint == null) {
+          fingerprint = classDirectoriesFingerprintSupplier.get();
+          classDirectoriesFingerprint = fingerprint;
+        }
+      }
+    }
+
+    return fingerprint;
+  }
+
+  private static String computeClassDirectoriesFingerprint() {
+    final Set<String> extensionClassNames = new TreeSet<String>();
+    try {
+      final MetaDataScanner scanner = ScannerSingleton.getOrCreateInstance();
+      for (final Class<?> extension : scanner.getTypesAnnotatedWith(IOCExtension.class)) {
+        extensionClassNames.add(extension.getName());
+      }
+      for (final Class<?> decorator : scanner.getTypesAnnotatedWith(CodeDecorator.class)) {
+        extensionClassNames.add(decorator.getName());
+      }
+
+      return fingerprintClassDirectories(getClassDirectories(), extensionClassNames);
+    } catch (final Exception e) {
+      log.warn("Could not fingerprint the class directories on the classpath. Cached factories won't be used.", e);
+      // never matches an earlier key
+      return String.valueOf(System.nanoTime());
+    }
+  }
+
+  /**
+   * @return The directories on the classpath, and the roots of the Errai
+   *         modules (directories containing {@code ErraiApp.properties}) the
+   *         context class loader can see.
+   */
+  private static Collection<File> getClassDirectories() throws IOException, URISyntaxException {
+    final Set<File> dirs = new TreeSet<File>();
+    for (final String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      final File f = new File(entry);
+      if (f.isDirectory()) {
+        dirs.add(f.getAbsoluteFile());
+      }
+    }
+    final Enumeration<URL> modules = Thread.currentThread().getContextClassLoader().getResources("ErraiApp.properties");
+    while (modules.hasMoreElements()) {
+      final URL url = modules.nextElement();
+      if ("file".equals(url.getProtocol())) {
+        dirs.add(new File(url.toURI()).getParentFile().getAbsoluteFile());
+      }
+    }
+
+    return dirs;
+  }
+
+  /**
+   * Fingerprints all resources in the given directories, and the class files
+   * (including nested classes) of the given classes found there. Other class
+   * files and Java sources are left out: the types that a factory depends on
+   * are covered by their {@link MetaClass#hashContent() hashContent}.
+   */
+  static String fingerprintClassDirectories(final Collection<File> dirs, final Collection<String> classNames) {
+    final StringBuilder sb = new StringBuilder();
+    for (final File dir : dirs) {
+      appendResources(sb, dir);
+      for (final String className : classNames) {
+        final File classFile = new File(dir, className.replace('.', File.separatorChar) + ".class");
+        final String nestedPrefix = classFile.getName().replace(".class", "$");
+        final File[] classFiles = classFile.getParentFile().listFiles((d, name) -> name.equals(classFile.getName())
+                || (name.startsWith(nestedPrefix) && name.endsWith(".class")));
+        if (classFiles != null) {
+          Arrays.sort(classFiles);
+          for (final File f : classFiles) {
+            appendFile(sb, f);
+          }
+        }
+      }
+    }
+
+    return sha1(sb.toString());
+  }
+
+  private static void appendResources(final StringBuilder sb, final File dir) {
+    final File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files);
+    for (final File f : files) {
+      if (f.isDirectory()) {
+        appendResources(sb, f);
+      }
+      else if (!f.getName().endsWith(".class") && !f.getName().endsWith(".java")) {
+        appendFile(sb, f);
+      }
+    }
+  }
+
+  private static String getClasspathJarsFingerprint() {
+    final StringBuilder sb = new StringBuilder();
+    for (final String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      final File f = new File(entry);
+      if (f.isFile()) {
+        appendFile(sb, f);
+      }
+    }
+
+    return sha1(sb.toString());
+  }
+
+  private static void appendFile(final StringBuilder sb, final File f) {
+    sb.append(f.getPath()).append(' ').append(f.length()).append(' ').append(f.lastModified()).append('\n');
+  }
+
+  private static String sha1(final String s) {
+    try {
+      return RebindUtils.hashToHexString(MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8)));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-1 is not available", e);
+    }
+  }
+
+}
@@ -21,12 +21,12 @@ import static org.jboss.errai.ioc.util.GeneratedNamesUtil.qualifiedClassNameToId
 import java.lang.annotation.Annotation;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Default;
@@ -89,7 +89,7 @@ public class DefaultQualifierFactory implements QualifierFactory {
 
   private static final Qualifier UNIVERSAL = new Universal();
 
-  private final Map<SortedSet<AnnotationWrapper>, NormalQualifier> qualifiers = new HashMap<>();
+  private final Map<SortedSet<AnnotationWrapper>, NormalQualifier> qualifiers = new ConcurrentHashMap<>();
 
   @Override
   public Qualifier forSource(final HasAnnotations annotated) {
@@ -109,13 +109,7 @@ public class DefaultQualifierFactory implements QualifierFactory {
   }
 
   private NormalQualifier getOrCreateQualifier(final SortedSet<AnnotationWrapper> annos) {
-    NormalQualifier qualifier = qualifiers.get(annos);
-    if (qualifier == null) {
-      qualifier = new NormalQualifier(annos);
-      qualifiers.put(annos, qualifier);
-    }
-
-    return qualifier;
+    return qualifiers.computeIfAbsent(annos, NormalQualifier::new);
   }
 
   private SortedSet<AnnotationWrapper> getRawQualifiers(final HasAnnotations annotated) {
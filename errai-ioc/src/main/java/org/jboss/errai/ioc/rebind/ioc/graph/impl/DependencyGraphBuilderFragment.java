@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ioc.rebind.ioc.graph.impl;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.jboss.errai.codegen.meta.HasAnnotations;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassMember;
+import org.jboss.errai.codegen.meta.MetaField;
+import org.jboss.errai.codegen.meta.MetaMethod;
+import org.jboss.errai.codegen.meta.MetaParameter;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraph;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Injectable;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Qualifier;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.InjectableProvider;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.WiringElementType;
+
+/**
+ * Records calls to a {@link DependencyGraphBuilder} so that they can be made
+ * later, in order, on another builder. This allows types to be processed
+ * concurrently, each into its own fragment, while the fragments are merged
+ * into the real builder sequentially, so that generated factory names and
+ * graph contents do not depend on thread scheduling.
+ *
+ * Injectables returned by a fragment only support
+ * {@link Injectable#getInjectedType()}, {@link Injectable#getQualifier()},
+ * {@link Injectable#getHandle()}, {@link Injectable#getScope()},
+ * {@link Injectable#getInjectableType()}, and
+ * {@link Injectable#getWiringElementTypes()}. When passed back into the
+ * fragment they are replaced by the injectables of the real builder during
+ * {@link #mergeInto(DependencyGraphBuilder)}.
+ */
+public final class DependencyGraphBuilderFragment implements DependencyGraphBuilder {
+
+  private interface Operation {
+    void applyTo(DependencyGraphBuilder builder, Map<Injectable, Injectable> mergedInjectables);
+  }
+
+  private final List<Operation> operations = new ArrayList<>();
+
+  @Override
+  public Injectable addInjectable(final MetaClass injectedType, final Qualifier qualifier,
+          final Predicate<List<InjectableHandle>> pathPredicate, final Class<? extends Annotation> literalScope,
+          final InjectableType injectableType, final WiringElementType... wiringTypes) {
+    final PendingInjectable pending = new PendingInjectable(injectedType, qualifier, literalScope, injectableType, false, wiringTypes);
+    operations.add((builder, merged) -> merged.put(pending,
+            builder.addInjectable(injectedType, qualifier, pathPredicate, literalScope, injectableType, wiringTypes)));
+
+    return pending;
+  }
+
+  @Override
+  public Injectable addExtensionInjectable(final MetaClass injectedType, final Qualifier qualifier,
+          final Predicate<List<InjectableHandle>> pathPredicate, final InjectableProvider provider,
+          final WiringElementType... wiringTypes) {
+    final PendingInjectable pending = new PendingInjectable(injectedType, qualifier, null, InjectableType.Extension, true, wiringTypes);
+    operations.add((builder, merged) -> merged.put(pending,
+            builder.addExtensionInjectable(injectedType, qualifier, pathPredicate, provider, wiringTypes)));
+
+    return pending;
+  }
+
+  @Override
+  public void addFieldDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final MetaField dependentField) {
+    operations.add((builder, merged) -> builder.addFieldDependency(resolve(injectable, merged), type, qualifier, dependentField));
+  }
+
+  @Override
+  public void addConstructorDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final int paramIndex, final MetaParameter param) {
+    operations.add((builder, merged) -> builder.addConstructorDependency(resolve(injectable, merged), type, qualifier, paramIndex, param));
+  }
+
+  @Override
+  public void addProducerParamDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final int paramIndex, final MetaParameter param) {
+    operations.add((builder, merged) -> builder.addProducerParamDependency(resolve(injectable, merged), type, qualifier, paramIndex, param));
+  }
+
+  @Override
+  public void addProducerMemberDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final MetaClassMember producingMember) {
+    operations.add((builder, merged) -> builder.addProducerMemberDependency(resolve(injectable, merged), type, qualifier, producingMember));
+  }
+
+  @Override
+  public void addProducerMemberDependency(final Injectable producedInjectable, final MetaClass producerType,
+          final MetaClassMember method) {
+    operations.add((builder, merged) -> builder.addProducerMemberDependency(resolve(producedInjectable, merged), producerType, method));
+  }
+
+  @Override
+  public void addSetterMethodDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final MetaMethod setter) {
+    operations.add((builder, merged) -> builder.addSetterMethodDependency(resolve(injectable, merged), type, qualifier, setter));
+  }
+
+  @Override
+  public void addDisposesMethodDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final MetaMethod disposer) {
+    operations.add((builder, merged) -> builder.addDisposesMethodDependency(resolve(injectable, merged), type, qualifier, disposer));
+  }
+
+  @Override
+  public void addDisposesParamDependency(final Injectable injectable, final MetaClass type, final Qualifier qualifier,
+          final Integer index, final MetaParameter param) {
+    operations.add((builder, merged) -> builder.addDisposesParamDependency(resolve(injectable, merged), type, qualifier, index, param));
+  }
+
+  @Override
+  public DependencyGraph createGraph(final ReachabilityStrategy strategy) {
+    throw new UnsupportedOperationException("A graph cannot be created from a fragment. Merge it into a "
+            + DependencyGraphBuilderImpl.class.getSimpleName() + " first.");
+  }
+
+  /**
+   * Makes all recorded calls on the given builder, in the order they were
+   * recorded on this fragment.
+   */
+  public void mergeInto(final DependencyGraphBuilder builder) {
+    final Map<Injectable, Injectable> mergedInjectables = new IdentityHashMap<>();
+    for (final Operation operation : operations) {
+      operation.applyTo(builder, mergedInjectables);
+    }
+  }
+
+  private static Injectable resolve(final Injectable injectable, final Map<Injectable, Injectable> mergedInjectables) {
+    if (injectable instanceof PendingInjectable) {
+      final Injectable merged = mergedInjectables.get(injectable);
+      if (merged == null) {
+        throw new IllegalStateException("The injectable " + injectable + " was created by a different fragment.");
+      }
+
+      return merged;
+    } else {
+      return injectable;
+    }
+  }
+
+  private static final class PendingInjectable implements Injectable {
+
+    private final MetaClass injectedType;
+    private final Qualifier qualifier;
+    private final Class<? extends Annotation> scope;
+    private final InjectableType injectableType;
+    private final boolean extension;
+    private final Collection<WiringElementType> wiringTypes;
+
+    private PendingInjectable(final MetaClass injectedType, final Qualifier qualifier,
+            final Class<? extends Annotation> scope, final InjectableType injectableType, final boolean extension,
+            final WiringElementType... wiringTypes) {
+      this.injectedType = injectedType;
+      this.qualifier = qualifier;
+      this.scope = scope;
+      this.injectableType = injectableType;
+      this.extension = extension;
+      this.wiringTypes = Collections.unmodifiableList(Arrays.asList(wiringTypes));
+    }
+
+    @Override
+    public InjectableHandle getHandle() {
+      return new InjectableHandle(injectedType, qualifier);
+    }
+
+    @Override
+    public MetaClass getInjectedType() {
+      return injectedType;
+    }
+
+    @Override
+    public Qualifier getQualifier() {
+      return qualifier;
+    }
+
+    @Override
+    public Class<? extends Annotation> getScope() {
+      return scope;
+    }
+
+    @Override
+    public InjectableType getInjectableType() {
+      return injectableType;
+    }
+
+    @Override
+    public Collection<WiringElementType> getWiringElementTypes() {
+      return wiringTypes;
+    }
+
+    @Override
+    public Optional<HasAnnotations> getAnnotatedObject() {
+      throw unavailable();
+    }
+
+    @Override
+    public String getBeanName() {
+      throw unavailable();
+    }
+
+    @Override
+    public String getFactoryName() {
+      throw unavailable();
+    }
+
+    @Override
+    public Collection<Dependency> getDependencies() {
+      throw unavailable();
+    }
+
+    @Override
+    public boolean loadAsync() {
+      throw unavailable();
+    }
+
+    @Override
+    public boolean requiresProxy() {
+      throw unavailable();
+    }
+
+    @Override
+    public void setRequiresProxyTrue() {
+      throw unavailable();
+    }
+
+    @Override
+    public boolean isContextual() {
+      throw unavailable();
+    }
+
+    @Override
+    public boolean isExtension() {
+      return extension;
+    }
+
+    @Override
+    public int hashContent() {
+      throw unavailable();
+    }
+
+    private UnsupportedOperationException unavailable() {
+      return new UnsupportedOperationException("Not available before the fragment containing " + this + " is merged.");
+    }
+
+    @Override
+    public String toString() {
+      return "[Pending " + injectableType + ":" + injectedType.getFullyQualifiedName() + "$" + qualifier + "]";
+    }
+  }
+
+}
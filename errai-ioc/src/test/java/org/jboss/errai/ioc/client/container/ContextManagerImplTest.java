@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ioc.client.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Exercises the instance-to-context registry of {@link ContextManagerImpl},
+ * including the destruction of large {@link Dependent} graphs.
+ */
+public class ContextManagerImplTest {
+
+  private static final int CHAIN_DEPTH = 500;
+  private static final int TREE_DEPTH = 14;
+  private static final int TREE_BRANCHING = 2;
+
+  public static class Node {
+    final List<Node> children = new ArrayList<>();
+    boolean destroyed;
+  }
+
+  /**
+   * Creates nodes for one level of a tree, each with {@code branching} children
+   * from the next level.
+   */
+  static class NodeFactory extends Factory<Node> {
+    private final int level;
+    private final int maxLevel;
+    private final int branching;
+
+    NodeFactory(final Class<? extends Annotation> scope, final int level, final int maxLevel, final int branching) {
+      super(new FactoryHandleImpl(Node.class, factoryName(level), scope, false, null, true));
+      this.level = level;
+      this.maxLevel = maxLevel;
+      this.branching = branching;
+    }
+
+    static String factoryName(final int level) {
+      return "Node" + level;
+    }
+
+    @Override
+    public Node createInstance(final ContextManager contextManager) {
+      final Node node = new Node();
+      if (level < maxLevel) {
+        for (int i = 0; i < branching; i++) {
+          final Node child = contextManager.getInstance(factoryName(level + 1));
+          node.children.add(registerDependentScopedReference(node, child));
+        }
+      }
+
+      return node;
+    }
+
+    @Override
+    protected void generatedDestroyInstance(final Object instance, final ContextManager contextManager) {
+      ((Node) instance).destroyed = true;
+    }
+  }
+
+  private ContextManagerImpl contextManager;
+
+  @Before
+  public void setup() {
+    contextManager = new ContextManagerImpl();
+    contextManager.addContext(new ApplicationScopedContext());
+    contextManager.addContext(new DependentScopeContext());
+  }
+
+  @Test
+  public void destroyingDeepDependentChainDestroysEveryNode() throws Exception {
+    registerLevels(Dependent.class, CHAIN_DEPTH, 1);
+
+    final Node root = contextManager.getInstance(NodeFactory.factoryName(0));
+    final List<Node> nodes = collect(root);
+    assertEquals(CHAIN_DEPTH + 1, nodes.size());
+
+    contextManager.destroy(root);
+
+    assertAllDestroyedAndUnmanaged(nodes);
+  }
+
+  @Test
+  public void destroyingWideDependentTreeDestroysEveryNode() throws Exception {
+    registerLevels(Dependent.class, TREE_DEPTH, TREE_BRANCHING);
+
+    final Node root = contextManager.getInstance(NodeFactory.factoryName(0));
+    final List<Node> nodes = collect(root);
+    assertEquals((1 << (TREE_DEPTH + 1)) - 1, nodes.size());
+
+    contextManager.destroy(root);
+
+    assertAllDestroyedAndUnmanaged(nodes);
+  }
+
+  @Test
+  public void destroyingSubtreeLeavesRestOfTreeManaged() throws Exception {
+    registerLevels(Dependent.class, TREE_DEPTH, TREE_BRANCHING);
+
+    final Node root = contextManager.getInstance(NodeFactory.factoryName(0));
+    final Node destroyedChild = root.children.get(0);
+    final Node keptChild = root.children.get(1);
+    final List<Node> destroyedNodes = collect(destroyedChild);
+    final List<Node> keptNodes = collect(keptChild);
+
+    contextManager.destroy(destroyedChild);
+
+    assertAllDestroyedAndUnmanaged(destroyedNodes);
+    assertTrue(contextManager.isManaged(root));
+    assertFalse(root.destroyed);
+    for (final Node node : keptNodes) {
+      assertFalse(node.destroyed);
+      assertTrue(contextManager.isManaged(node));
+    }
+  }
+
+  @Test
+  public void destructionCallbackAndPropertiesUseManagingContext() throws Exception {
+    registerLevels(Dependent.class, 0, 0);
+
+    final Node node = contextManager.getInstance(NodeFactory.factoryName(0));
+    final List<Node> destroyed = new ArrayList<>();
+    assertTrue(contextManager.isManaged(node));
+    assertTrue(contextManager.addDestructionCallback(node, (final Node n) -> destroyed.add(n)));
+
+    contextManager.destroy(node);
+
+    assertEquals(1, destroyed.size());
+    assertSame(node, destroyed.get(0));
+    assertFalse(contextManager.isManaged(node));
+    assertFalse(contextManager.addDestructionCallback(node, (final Node n) -> destroyed.add(n)));
+  }
+
+  @Test
+  public void applicationScopedInstanceIsManagedByItsContext() throws Exception {
+    registerLevels(ApplicationScoped.class, 0, 0);
+
+    final Node node = contextManager.getInstance(NodeFactory.factoryName(0));
+    assertSame(node, contextManager.getInstance(NodeFactory.factoryName(0)));
+    assertTrue(contextManager.isManaged(node));
+    assertTrue(contextManager.addDestructionCallback(node, (final Node n) -> {}));
+  }
+
+  @Test
+  public void contextsWithoutRegistrySupportAreStillConsulted() throws Exception {
+    final Object instance = new Object();
+    final Context custom = mock(Context.class);
+    when(custom.isManaged(instance)).thenReturn(true);
+    when(custom.getInstanceProperty(instance, "prop", String.class)).thenReturn("value");
+    contextManager.addContext(custom);
+
+    assertTrue(contextManager.isManaged(instance));
+    assertEquals("value", contextManager.getInstanceProperty(instance, "prop", String.class));
+    assertFalse(contextManager.isManaged(new Object()));
+  }
+
+  private void registerLevels(final Class<? extends Annotation> scope, final int maxLevel, final int branching) {
+    for (int level = 0; level <= maxLevel; level++) {
+      contextManager.addFactory(new NodeFactory(scope, level, maxLevel, branching));
+    }
+  }
+
+  private static List<Node> collect(final Node root) {
+    final List<Node> nodes = new ArrayList<>();
+    final List<Node> pending = new ArrayList<>();
+    pending.add(root);
+    while (!pending.isEmpty()) {
+      final Node node = pending.remove(pending.size() - 1);
+      nodes.add(node);
+      pending.addAll(node.children);
+    }
+
+    return nodes;
+  }
+
+  private void assertAllDestroyedAndUnmanaged(final List<Node> nodes) {
+    for (final Node node : nodes) {
+      assertTrue(node.destroyed);
+      assertFalse(contextManager.isManaged(node));
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.ioc.client.container;
+
+import static org.junit.Assert.assertTrue;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+
+import javax.enterprise.context.Dependent;
+
+import org.jboss.errai.ioc.client.container.ContextManagerImplTest.Node;
+import org.jboss.errai.ioc.client.container.ContextManagerImplTest.NodeFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Measures how the time to destroy a {@link Dependent} graph through
+ * {@link ContextManagerImpl} grows with the size of the graph. The time per
+ * destroyed bean should stay roughly the same for larger graphs. Ignored by
+ * default, like the other performance tests; remove the {@link Ignore} to run
+ * it.
+ */
+public class ContextManagerPerformanceTests {
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+
+  /**
+   * Creating a chain recurses through the factories of all of its levels, so
+   * the graphs are built on a thread with a large stack.
+   */
+  private static final long STACK_SIZE = 256L * 1024 * 1024;
+
+  private static final NumberFormat nf = new DecimalFormat("###,###.###");
+
+  @Test
+  @Ignore
+  public void testDestroyingDeepChainsScalesLinearly() {
+    final double smallest = nanosPerBean("chain", 1000, 1);
+    final double largest = nanosPerBean("chain", 8000, 1);
+
+    assertTrue("destroying 8x the beans took " + nf.format(largest / smallest) + "x as long per bean",
+        largest < smallest * 4);
+  }
+
+  @Test
+  @Ignore
+  public void testDestroyingWideTreesScalesLinearly() {
+    final double smallest = nanosPerBean("tree", 12, 2);
+    final double largest = nanosPerBean("tree", 15, 2);
+
+    assertTrue("destroying 8x the beans took " + nf.format(largest / smallest) + "x as long per bean",
+        largest < smallest * 4);
+  }
+
+  /**
+   * Builds and destroys a graph of {@code depth + 1} levels of {@code branching}
+   * children a number of times, and returns the mean time it took to destroy
+   * one bean.
+   */
+  private static double nanosPerBean(final String shape, final int depth, final int branching) {
+    final double[] result = new double[1];
+    final Throwable[] failure = new Throwable[1];
+    final Thread thread = new Thread(null, () -> {
+      try {
+        result[0] = measure(shape, depth, branching);
+      }
+      catch (final Throwable t) {
+        failure[0] = t;
+      }
+    }, "ContextManagerPerformanceTests", STACK_SIZE);
+    thread.start();
+    try {
+      thread.join();
+    }
+    catch (final InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    if (failure[0] != null) {
+      throw new AssertionError("measuring " + shape + "s failed", failure[0]);
+    }
+    return result[0];
+  }
+
+  private static double measure(final String shape, final int depth, final int branching) {
+    long totalNanos = 0;
+    int beans = 0;
+    for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+      final ContextManagerImpl contextManager = new ContextManagerImpl();
+      contextManager.addContext(new ApplicationScopedContext());
+      contextManager.addContext(new DependentScopeContext());
+      for (int level = 0; level <= depth; level++) {
+        contextManager.addFactory(new NodeFactory(Dependent.class, level, depth, branching));
+      }
+      final Node root = contextManager.getInstance(NodeFactory.factoryName(0));
+
+      final long start = System.nanoTime();
+      contextManager.destroy(root);
+      final long time = System.nanoTime() - start;
+
+      if (round >= WARMUP_ROUNDS) {
+        totalNanos += time;
+        beans += count(root);
+      }
+    }
+
+    final double nanosPerBean = totalNanos / (double) beans;
+    System.out.println("Destroyed " + shape + "s of " + nf.format(beans / MEASURED_ROUNDS) + " beans: "
+        + nf.format(totalNanos / 1000d / MEASURED_ROUNDS) + "us per graph, " + nf.format(nanosPerBean) + "ns per bean");
+    return nanosPerBean;
+  }
+
+  private static int count(final Node root) {
+    int count = 1;
+    for (final Node child : root.children) {
+      count += count(child);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ioc.rebind.ioc.bootstrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.Dependent;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.Dependency;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.DependencyType;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.InjectableType;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Injectable;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Qualifier;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.WiringElementType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentFactoryCacheTest {
+
+  private File cacheDir;
+  private PersistentFactoryCache cache;
+
+  @Before
+  public void setup() throws Exception {
+    cacheDir = Files.createTempDirectory("ioc-factory-cache").toFile();
+    cache = new PersistentFactoryCache(cacheDir, "env");
+  }
+
+  @After
+  public void teardown() {
+    final File[] files = cacheDir.listFiles();
+    if (files != null) {
+      for (final File f : files) {
+        f.delete();
+      }
+    }
+    cacheDir.delete();
+  }
+
+  @Test
+  public void testStoredSourceIsFoundByNewCacheInstance() throws Exception {
+    final Injectable injectable = injectable("Bean", 1);
+    final String key = cache.keyFor("org.foo.Bean", injectable);
+    assertNull(cache.get(key));
+    cache.put(key, "source");
+
+    final PersistentFactoryCache otherCache = new PersistentFactoryCache(cacheDir, "env");
+    final String otherKey = otherCache.keyFor("org.foo.Bean", injectable("Bean", 1));
+    assertEquals(key, otherKey);
+    assertEquals("source", otherCache.get(otherKey));
+    assertEquals(1, otherCache.getHits());
+    assertEquals(0, otherCache.getMisses());
+  }
+
+  @Test
+  public void testKeyChangesWithTypeContent() throws Exception {
+    assertNotEquals(cache.keyFor("org.foo.Bean", injectable("Bean", 1)),
+            cache.keyFor("org.foo.Bean", injectable("Bean", 2)));
+  }
+
+  @Test
+  public void testKeyChangesWithDependencyContent() throws Exception {
+    final Injectable injectable = injectable("Bean", 1);
+    final Injectable injectableWithChangedDep = injectable("Bean", 1);
+    addDependency(injectable, injectable("Dep", 1));
+    addDependency(injectableWithChangedDep, injectable("Dep", 2));
+
+    assertNotEquals(cache.keyFor("org.foo.Bean", injectable), cache.keyFor("org.foo.Bean", injectableWithChangedDep));
+  }
+
+  @Test
+  public void testKeyChangesWithEnvironment() throws Exception {
+    final PersistentFactoryCache otherCache = new PersistentFactoryCache(cacheDir, "other env");
+    assertNotEquals(cache.keyFor("org.foo.Bean", injectable("Bean", 1)),
+            otherCache.keyFor("org.foo.Bean", injectable("Bean", 1)));
+  }
+
+  @Test
+  public void testKeyChangesWithClassDirectories() throws Exception {
+    final PersistentFactoryCache otherCache = new PersistentFactoryCache(cacheDir, "env", () -> "changed");
+    assertNotEquals(cache.keyFor("org.foo.Bean", injectable("Bean", 1)),
+            otherCache.keyFor("org.foo.Bean", injectable("Bean", 1)));
+  }
+
+  @Test
+  public void testClassDirectoriesAreFingerprintedOncePerCompile() throws Exception {
+    final AtomicInteger fingerprints = new AtomicInteger();
+    final PersistentFactoryCache otherCache = new PersistentFactoryCache(cacheDir, "env",
+            () -> String.valueOf(fingerprints.incrementAndGet()));
+
+    final String key = otherCache.keyFor("org.foo.Bean", injectable("Bean", 1));
+    assertEquals(key, otherCache.keyFor("org.foo.Bean", injectable("Bean", 1)));
+    assertEquals(1, fingerprints.get());
+
+    otherCache.resetStatistics();
+    assertNotEquals(key, otherCache.keyFor("org.foo.Bean", injectable("Bean", 1)));
+    assertEquals(2, fingerprints.get());
+  }
+
+  @Test
+  public void testClassDirectoriesFingerprintCoversResourcesAndExtensions() throws Exception {
+    final File classDir = Files.createTempDirectory("ioc-class-dir").toFile();
+    try {
+      final File template = write(classDir, "org/other/Template.html", "<div/>");
+      final File extension = write(classDir, "org/ext/Extension.class", "1");
+      final File nestedExtension = write(classDir, "org/ext/Extension$1.class", "1");
+      final File otherClass = write(classDir, "org/ext/Other.class", "1");
+      final File source = write(classDir, "org/ext/Other.java", "class Other {}");
+      final List<File> dirs = Collections.singletonList(classDir);
+      final List<String> extensions = Collections.singletonList("org.ext.Extension");
+
+      final String fingerprint = PersistentFactoryCache.fingerprintClassDirectories(dirs, extensions);
+
+      touch(otherClass);
+      touch(source);
+      assertEquals(fingerprint, PersistentFactoryCache.fingerprintClassDirectories(dirs, extensions));
+
+      touch(template);
+      final String templateChanged = PersistentFactoryCache.fingerprintClassDirectories(dirs, extensions);
+      assertNotEquals(fingerprint, templateChanged);
+
+      touch(extension);
+      final String extensionChanged = PersistentFactoryCache.fingerprintClassDirectories(dirs, extensions);
+      assertNotEquals(templateChanged, extensionChanged);
+
+      touch(nestedExtension);
+      assertNotEquals(extensionChanged, PersistentFactoryCache.fingerprintClassDirectories(dirs, extensions));
+    }
+    finally {
+      delete(classDir);
+    }
+  }
+
+  @Test
+  public void testResetStatistics() throws Exception {
+    cache.get("missing");
+    assertEquals(1, cache.getMisses());
+    cache.resetStatistics();
+    assertEquals(0, cache.getMisses());
+    assertEquals(0, cache.getHits());
+  }
+
+  private static Injectable injectable(final String simpleName, final int hashContent) {
+    final MetaClass type = mock(MetaClass.class);
+    when(type.getPackageName()).thenReturn("org.foo");
+    when(type.getFullyQualifiedNameWithTypeParms()).thenReturn("org.foo." + simpleName);
+    when(type.hashContent()).thenReturn(hashContent);
+
+    final Qualifier qualifier = mock(Qualifier.class);
+    when(qualifier.getIdentifierSafeString()).thenReturn("Any");
+
+    final Injectable injectable = mock(Injectable.class);
+    when(injectable.getInjectedType()).thenReturn(type);
+    when(injectable.getQualifier()).thenReturn(qualifier);
+    when(injectable.getFactoryName()).thenReturn("Type_factory__" + simpleName);
+    when(injectable.getInjectableType()).thenReturn(InjectableType.Type);
+    doReturn(Dependent.class).when(injectable).getScope();
+    when(injectable.getBeanName()).thenReturn(simpleName);
+    when(injectable.getWiringElementTypes()).thenReturn(Collections.singleton(WiringElementType.DependentBean));
+    when(injectable.hashContent()).thenReturn(hashContent);
+    when(injectable.getDependencies()).thenReturn(Collections.<Dependency> emptyList());
+
+    return injectable;
+  }
+
+  private static File write(final File dir, final String path, final String content) throws Exception {
+    final File f = new File(dir, path);
+    f.getParentFile().mkdirs();
+    Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    f.setLastModified(1000000000000L);
+    return f;
+  }
+
+  private static void touch(final File f) {
+    f.setLastModified(f.lastModified() + 10000);
+  }
+
+  private static void delete(final File f) {
+    final File[] children = f.listFiles();
+    if (children != null) {
+      for (final File child : children) {
+        delete(child);
+      }
+    }
+    f.delete();
+  }
+
+  private static void addDependency(final Injectable injectable, final Injectable depInjectable) {
+    final Dependency dep = mock(Dependency.class);
+    when(dep.getDependencyType()).thenReturn(DependencyType.Field);
+    when(dep.getInjectable()).thenReturn(depInjectable);
+    when(injectable.getDependencies()).thenReturn(Collections.singleton(dep));
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ioc.rebind.ioc.graph.impl;
+
+import static org.jboss.errai.ioc.rebind.ioc.bootstrapper.IOCProcessor.ANY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.codegen.meta.MetaField;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.InjectableType;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.DependencyGraphBuilder.ReachabilityStrategy;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Injectable;
+import org.jboss.errai.ioc.rebind.ioc.graph.api.Qualifier;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.WiringElementType;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class DependencyGraphBuilderFragmentTest {
+
+  private final MetaClass type = MetaClassFactory.get(Object.class);
+  private final MetaClass depType = MetaClassFactory.get(String.class);
+  private final Qualifier qualifier = mock(Qualifier.class);
+
+  @Test
+  public void pendingInjectableExposesValuesKnownWhenAdded() throws Exception {
+    final DependencyGraphBuilderFragment fragment = new DependencyGraphBuilderFragment();
+    final Injectable pending = fragment.addInjectable(type, qualifier, ANY, ApplicationScoped.class,
+            InjectableType.Type, WiringElementType.NormalScopedBean);
+
+    assertEquals(type, pending.getInjectedType());
+    assertEquals(qualifier, pending.getQualifier());
+    assertEquals(ApplicationScoped.class, pending.getScope());
+    assertEquals(InjectableType.Type, pending.getInjectableType());
+    assertEquals(Collections.singletonList(WiringElementType.NormalScopedBean), pending.getWiringElementTypes());
+  }
+
+  @Test
+  public void mergeReplaysCallsInOrderWithMergedInjectables() throws Exception {
+    final DependencyGraphBuilderFragment fragment = new DependencyGraphBuilderFragment();
+    final MetaField field = mock(MetaField.class);
+    final Injectable pending = fragment.addInjectable(type, qualifier, ANY, Dependent.class, InjectableType.Type,
+            WiringElementType.DependentBean);
+    fragment.addFieldDependency(pending, depType, qualifier, field);
+
+    final DependencyGraphBuilder target = mock(DependencyGraphBuilder.class);
+    final Injectable merged = mock(Injectable.class);
+    when(target.addInjectable(type, qualifier, ANY, Dependent.class, InjectableType.Type, WiringElementType.DependentBean))
+      .thenReturn(merged);
+    fragment.mergeInto(target);
+
+    assertNotSame(pending, merged);
+    final InOrder inOrder = inOrder(target);
+    inOrder.verify(target).addInjectable(type, qualifier, ANY, Dependent.class, InjectableType.Type, WiringElementType.DependentBean);
+    inOrder.verify(target).addFieldDependency(merged, depType, qualifier, field);
+  }
+
+  @Test
+  public void factoryNamesDependOnMergeOrderOnly() throws Exception {
+    final Qualifier defaultQualifier = new DefaultQualifierFactory().forDefault();
+    final DependencyGraphBuilderFragment first = new DependencyGraphBuilderFragment();
+    final DependencyGraphBuilderFragment second = new DependencyGraphBuilderFragment();
+    // Record out of order, as concurrently processed types might be.
+    second.addInjectable(type, defaultQualifier, ANY, Dependent.class, InjectableType.Type, WiringElementType.DependentBean);
+    first.addInjectable(type, defaultQualifier, ANY, Dependent.class, InjectableType.Type, WiringElementType.DependentBean);
+
+    final DependencyGraphBuilder sequential = new DependencyGraphBuilderImpl(new DefaultQualifierFactory(), false);
+    final Injectable expectedFirst = sequential.addInjectable(type, defaultQualifier, ANY, Dependent.class,
+            InjectableType.Type, WiringElementType.DependentBean);
+    final Injectable expectedSecond = sequential.addInjectable(type, defaultQualifier, ANY, Dependent.class,
+            InjectableType.Type, WiringElementType.DependentBean);
+
+    final List<Injectable> added = new ArrayList<>();
+    final DependencyGraphBuilder merged = recordingAdded(new DependencyGraphBuilderImpl(new DefaultQualifierFactory(), false), added);
+    first.mergeInto(merged);
+    second.mergeInto(merged);
+
+    assertEquals(2, added.size());
+    assertEquals(expectedFirst.getFactoryName(), added.get(0).getFactoryName());
+    assertEquals(expectedSecond.getFactoryName(), added.get(1).getFactoryName());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void cannotCreateGraphFromFragment() throws Exception {
+    new DependencyGraphBuilderFragment().createGraph(ReachabilityStrategy.All);
+  }
+
+  private static DependencyGraphBuilder recordingAdded(final DependencyGraphBuilder builder, final List<Injectable> added) {
+    return (DependencyGraphBuilder) Proxy.newProxyInstance(DependencyGraphBuilder.class.getClassLoader(),
+            new Class<?>[] { DependencyGraphBuilder.class }, (proxy, method, args) -> {
+              final Object retVal = method.invoke(builder, args);
+              if (retVal instanceof Injectable) {
+                added.add((Injectable) retVal);
+              }
+              return retVal;
+            });
+  }
+
+}
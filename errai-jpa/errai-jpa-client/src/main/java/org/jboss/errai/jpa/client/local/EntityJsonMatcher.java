@@ -40,4 +40,18 @@ public interface EntityJsonMatcher {
    */
   boolean matches(JSONObject candidate);
 
+  /**
+   * Returns the identifier that every entity accepted by this matcher must
+   * have, if the predicate requires one. Storage backends can then look the
+   * candidate up by its key instead of testing every entity of the type. The
+   * candidate found that way must still be passed to
+   * {@link #matches(JSONObject)}.
+   *
+   * @return the required identifier value, or null if this matcher accepts
+   *         entities with any identifier.
+   */
+  default Object getRequiredIdentifier() {
+    return null;
+  }
+
 }
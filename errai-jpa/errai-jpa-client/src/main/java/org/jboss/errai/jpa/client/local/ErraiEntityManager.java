@@ -17,6 +17,7 @@
 package org.jboss.errai.jpa.client.local;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -214,6 +215,7 @@ public class ErraiEntityManager implements EntityManager {
         entityType.deliverPrePersist(entity);
         persistenceContext.put(key, entity);
         backend.put(key, entity);
+        persistenceContext.putSnapshot(key, entityType.snapshot(this, entity));
         entityType.deliverPostPersist(entity);
         break;
       case MANAGED:
@@ -245,6 +247,7 @@ public class ErraiEntityManager implements EntityManager {
 
         persistenceContext.put(key, mergeTarget);
         backend.put(key, mergeTarget);
+        persistenceContext.putSnapshot(key, entityType.snapshot(this, mergeTarget));
 
         if (sendUpdateEvent) {
           entityType.deliverPostUpdate(mergeTarget);
@@ -481,7 +484,9 @@ public class ErraiEntityManager implements EntityManager {
    * manager's storage backend.
    * <p>
    * This methods checks if the entity value has truly changed, and if so it
-   * fires the PreUpdate and PostUpdate events.
+   * fires the PreUpdate and PostUpdate events. Entities whose state matches
+   * the snapshot taken when they were last written or read are skipped
+   * without consulting the backend.
    * <p>
    * This method also verifies that the entity's current identity matches the
    * key's identity. In JPA 2.0, application code is not allowed to modify a
@@ -499,6 +504,11 @@ public class ErraiEntityManager implements EntityManager {
    */
   private <X> void updateInBackend(final Key<X, ?> key, final X entity) {
     final ErraiIdentifiableType<X> entityType = getMetamodel().entity(getNarrowedClass(entity));
+    final Object[] snapshot = entityType.snapshot(this, entity);
+    if (Arrays.equals(snapshot, persistenceContext.getSnapshot(key))) {
+      // unchanged since it was last written or read
+      return;
+    }
     if (backend.isModified(key, entity)) {
       final Object currentId = entityType.getId(Object.class).get(entity);
       if (!key.getId().equals(currentId)) {
@@ -508,8 +518,12 @@ public class ErraiEntityManager implements EntityManager {
       }
       entityType.deliverPreUpdate(entity);
       backend.put(key, entity);
+      persistenceContext.putSnapshot(key, entityType.snapshot(this, entity));
       entityType.deliverPostUpdate(entity);
     }
+    else {
+      persistenceContext.putSnapshot(key, snapshot);
+    }
   }
 
   /**
@@ -556,6 +570,13 @@ public class ErraiEntityManager implements EntityManager {
     return backend.getAll(type, matcher);
   }
 
+  /**
+   * EXPERIMENTAL. This method is very unlikely to survive in the long run.
+   */
+  public <X> List<X> findAll(final ErraiIdentifiableType<X> type, final EntityJsonMatcher matcher, final int maxResults) {
+    return backend.getAll(type, matcher, maxResults);
+  }
+
   /**
    * Tests if this entity manager's storage backend contains an entity that
    * could conflict with the given key. This method is free of side effects: it
@@ -648,6 +669,7 @@ public class ErraiEntityManager implements EntityManager {
       entity = backend.get(key);
       if (entity != null) {
         persistenceContext.put(key, entity);
+        persistenceContext.putSnapshot(key, getMetamodel().entity(getNarrowedClass(entity)).snapshot(this, entity));
         ((ErraiIdentifiableType<X>) key.getEntityType()).deliverPostLoad(entity);
       }
     }
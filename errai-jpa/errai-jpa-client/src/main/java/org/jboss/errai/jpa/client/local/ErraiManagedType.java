@@ -16,9 +16,11 @@
 
 package org.jboss.errai.jpa.client.local;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.persistence.EntityManager;
@@ -186,6 +188,77 @@ public abstract class ErraiManagedType<X> implements ManagedType<X> {
     return jsonValue;
   }
 
+  /**
+   * Captures the persistent state of the given entity in a form that is cheap
+   * to compare. Two snapshots of the same entity are equal (as per
+   * {@link java.util.Arrays#equals(Object[], Object[])}) if
+   * {@link #toJson(EntityManager, Object)} would produce the same JSON for both
+   * states, so comparing snapshots tells whether an entity needs to be written
+   * back without serializing it.
+   *
+   * @param em
+   *          The entity manager that sourceEntity exists in. Not null.
+   * @param sourceEntity
+   *          The entity whose state to capture. Not null.
+   * @return the snapshot, in attribute order. Never null.
+   */
+  public Object[] snapshot(ErraiEntityManager em, X sourceEntity) {
+    Object[] snapshot = new Object[singularAttributes.size() + pluralAttributes.size()];
+    int i = 0;
+    for (Attribute<? super X, ?> a : singularAttributes) {
+      snapshot[i++] = snapshotValue(sourceEntity, (ErraiAttribute<? super X, ?>) a, em);
+    }
+    for (Attribute<? super X, ?> a : pluralAttributes) {
+      snapshot[i++] = snapshotValue(sourceEntity, (ErraiAttribute<? super X, ?>) a, em);
+    }
+    return snapshot;
+  }
+
+  private <Y> Object snapshotValue(X sourceEntity, ErraiAttribute<? super X, Y> attr, ErraiEntityManager eem) {
+    switch (attr.getPersistentAttributeType()) {
+    case BASIC:
+      Y value = attr.get(sourceEntity);
+      if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+              || value instanceof Character || value instanceof Enum) {
+        // immutable, so the value itself will do
+        return value;
+      }
+      return JsonUtil.basicValueToJson(value).toString();
+
+    case ELEMENT_COLLECTION:
+    case EMBEDDED:
+      return makeInlineJson(sourceEntity, attr, eem).toString();
+
+    case MANY_TO_ONE:
+    case ONE_TO_ONE:
+      return idOf(eem, attr.getJavaType(), attr.get(sourceEntity));
+
+    case MANY_TO_MANY:
+    case ONE_TO_MANY:
+      Y collection = attr.get(sourceEntity);
+      if (collection == null) {
+        return null;
+      }
+      Class<?> elementType = ((ErraiPluralAttribute<? super X, ?, ?>) attr).getElementType().getJavaType();
+      List<Object> ids = new ArrayList<Object>();
+      for (Object element : (Iterable<?>) collection) {
+        ids.add(idOf(eem, elementType, element));
+      }
+      return ids;
+
+    default:
+      throw new PersistenceException("Unknown attribute type " + attr);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> Object idOf(ErraiEntityManager eem, Class<E> entityType, Object entity) {
+    if (entity == null) {
+      return null;
+    }
+    return eem.getMetamodel().entity(entityType).getId(Object.class).get((E) entity);
+  }
+
   /**
    * Copies the state of the attributes in sourceEntity into targetEntity.
    * Related entities are resolved from the given entity manager before the
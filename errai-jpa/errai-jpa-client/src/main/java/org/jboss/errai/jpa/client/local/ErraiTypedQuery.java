@@ -16,12 +16,14 @@
 
 package org.jboss.errai.jpa.client.local;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import javax.persistence.FlushModeType;
@@ -229,14 +231,88 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
 
   @Override
   public List<X> getResultList() {
-    List<X> results = em.findAll(em.getMetamodel().entity(resultType), this);
+    // the number of results we need before the first ones are skipped
+    final int wanted = (maxResults > Integer.MAX_VALUE - firstResult) ? Integer.MAX_VALUE : firstResult + maxResults;
+
+    List<X> results;
     Comparator<X> cmp = getComparator();
-    if (cmp != null) {
-      Collections.sort(results, cmp);
+    if (cmp == null) {
+      results = em.findAll(em.getMetamodel().entity(resultType), this, wanted);
+    }
+    else {
+      results = em.findAll(em.getMetamodel().entity(resultType), this);
+      if (wanted < results.size()) {
+        results = smallest(results, cmp, wanted);
+      }
+      else {
+        Collections.sort(results, cmp);
+      }
+    }
+
+    if (firstResult > 0) {
+      results = (firstResult < results.size())
+              ? new ArrayList<X>(results.subList(firstResult, results.size()))
+              : new ArrayList<X>();
     }
     return results;
   }
 
+  /**
+   * Returns the {@code k} smallest elements of the given list in ascending
+   * order, using a heap of {@code k} elements rather than sorting the whole
+   * list. Elements that compare as equal keep their order in the given list,
+   * so the result is the same as the first {@code k} elements of the sorted
+   * list, and consecutive pages neither repeat nor skip any of them.
+   */
+  private static <X> List<X> smallest(List<X> list, final Comparator<X> cmp, int k) {
+    if (k == 0) {
+      return new ArrayList<X>();
+    }
+
+    final Comparator<Ranked<X>> rankedCmp = new Comparator<Ranked<X>>() {
+      @Override
+      public int compare(Ranked<X> a, Ranked<X> b) {
+        final int result = cmp.compare(a.value, b.value);
+        return result != 0 ? result : (a.index < b.index ? -1 : (a.index == b.index ? 0 : 1));
+      }
+    };
+
+    // the head of this queue is the largest of the k smallest elements seen so far
+    final PriorityQueue<Ranked<X>> heap = new PriorityQueue<Ranked<X>>(k, Collections.reverseOrder(rankedCmp));
+    int index = 0;
+    for (X x : list) {
+      final Ranked<X> ranked = new Ranked<X>(x, index++);
+      if (heap.size() < k) {
+        heap.add(ranked);
+      }
+      else if (rankedCmp.compare(ranked, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(ranked);
+      }
+    }
+
+    final List<Ranked<X>> sorted = new ArrayList<Ranked<X>>(heap);
+    Collections.sort(sorted, rankedCmp);
+    final List<X> result = new ArrayList<X>(sorted.size());
+    for (Ranked<X> ranked : sorted) {
+      result.add(ranked.value);
+    }
+    return result;
+  }
+
+  /**
+   * A result together with its position in the list it was selected from.
+   */
+  private static class Ranked<X> {
+    private final X value;
+    private final int index;
+
+    private Ranked(X value, int index) {
+      this.value = value;
+      this.index = index;
+    }
+  }
+
   @Override
   public X getSingleResult() {
     List<X> resultList = getResultList();
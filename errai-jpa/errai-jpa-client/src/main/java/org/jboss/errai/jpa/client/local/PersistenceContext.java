@@ -38,6 +38,15 @@ public class PersistenceContext {
    */
   private final Map<Key<?, ?>, Object> contents = new HashMap<Key<?, ?>, Object>();
 
+  /**
+   * Maps the key for an entity in the persistence context to a snapshot of its
+   * state as of the last time it was written to or read from the storage
+   * backend.
+   *
+   * @see ErraiManagedType#snapshot(ErraiEntityManager, Object)
+   */
+  private final Map<Key<?, ?>, Object[]> snapshots = new HashMap<Key<?, ?>, Object[]>();
+
   /**
    * Creates a new PersistenceContext that can track entities represented within
    * the given metamodel.
@@ -96,6 +105,31 @@ public class PersistenceContext {
    */
   public void remove(Key<?, ?> key) {
     contents.remove(key);
+    snapshots.remove(key);
+  }
+
+  /**
+   * Records the state of the entity having the given key as it is in the
+   * storage backend.
+   *
+   * @param key
+   *          The key the entity is stored under in this persistence context.
+   * @param snapshot
+   *          The snapshot of the entity's state. Not null.
+   */
+  public void putSnapshot(Key<?, ?> key, Object[] snapshot) {
+    snapshots.put(key, Assert.notNull(snapshot));
+  }
+
+  /**
+   * Returns the last snapshot recorded for the entity having the given key.
+   *
+   * @param key
+   *          The key the entity is stored under in this persistence context.
+   * @return The snapshot, or null if none was recorded.
+   */
+  public Object[] getSnapshot(Key<?, ?> key) {
+    return snapshots.get(key);
   }
 
   /**
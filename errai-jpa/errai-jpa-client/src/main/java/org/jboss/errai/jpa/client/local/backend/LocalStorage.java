@@ -80,4 +80,23 @@ public class LocalStorage {
       entryVisitor.@org.jboss.errai.jpa.client.local.backend.EntryVisitor::visit(Ljava/lang/String;Ljava/lang/String;)(key, value);
     }
   }-*/;
+
+  /**
+   * Invokes the given entry visitor on each key/value pair whose key starts
+   * with the given prefix. Only the values of those pairs are read.
+   *
+   * @param prefix
+   *          The prefix of the keys to visit. Must not be null.
+   * @param entryVisitor
+   *          The visitor that will act on each matching key/value pair.
+   */
+  public static native void forEachKey(String prefix, EntryVisitor entryVisitor) /*-{
+    for (var i = 0, n = $wnd.localStorage.length; i < n; i++) {
+      var key = $wnd.localStorage.key(i);
+      if (key.lastIndexOf(prefix, 0) === 0) {
+        var value = $wnd.localStorage.getItem(key);
+        entryVisitor.@org.jboss.errai.jpa.client.local.backend.EntryVisitor::visit(Ljava/lang/String;Ljava/lang/String;)(key, value);
+      }
+    }
+  }-*/;
 }
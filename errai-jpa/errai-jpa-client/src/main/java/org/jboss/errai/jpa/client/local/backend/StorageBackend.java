@@ -16,6 +16,7 @@
 
 package org.jboss.errai.jpa.client.local.backend;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
@@ -84,6 +85,25 @@ public interface StorageBackend {
    */
   <X> List<X> getAll(ErraiIdentifiableType<X> type, EntityJsonMatcher matcher);
 
+  /**
+   * Returns the first {@code maxResults} entities of the given type (and its
+   * subtypes) whose JSON representations are accepted by the given matcher.
+   * Backends that can stop looking once enough matches have been found should
+   * override this method.
+   *
+   * @param type
+   *          The type of entities to retrieve
+   * @param matcher
+   *          The matcher that decides which entity instances will be retrieved.
+   * @param maxResults
+   *          The maximum number of entities to return.
+   * @return at most {@code maxResults} matching entities of the given type.
+   */
+  default <X> List<X> getAll(ErraiIdentifiableType<X> type, EntityJsonMatcher matcher, int maxResults) {
+    final List<X> all = getAll(type, matcher);
+    return all.size() > maxResults ? new ArrayList<X>(all.subList(0, maxResults)) : all;
+  }
+
   /**
    * Tests if this backend contains data for the given key. As with
    * {@link #get(Key)}, subtypes are taken into account. If this backend
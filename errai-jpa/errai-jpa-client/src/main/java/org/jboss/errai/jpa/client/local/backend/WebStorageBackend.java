@@ -17,7 +17,10 @@
 package org.jboss.errai.jpa.client.local.backend;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jboss.errai.common.client.api.Assert;
 import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
@@ -31,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.json.client.JSONString;
 import com.google.gwt.json.client.JSONValue;
 
 /**
@@ -43,6 +47,13 @@ import com.google.gwt.json.client.JSONValue;
  * <i>A</i> and <i>B</i> (<i>A</i> != <i>B</i>), the storage backend for
  * namespace <i>A</i> will never see, modify, or otherwise or interfere with
  * anything stored in the storage backend for namespace <i>B</i>.
+ * <p>
+ * The storage key of an entity starts with the namespace and the name of its
+ * type, so queries find the entities of the queried type by comparing storage
+ * keys, and only read and parse the values of those entities. Web storage
+ * can't be searched by key prefix, so this still looks at every key, but it
+ * needs no extra entries that would use up the storage quota or get out of
+ * step with the entities.
  *
  * @author Jonathan Fuerth <jfuerth@gmail.com>
  */
@@ -55,9 +66,26 @@ public class WebStorageBackend implements StorageBackend {
     }
   };
 
+  /**
+   * The maximum number of parsed entities kept by {@link #parse(String, String)}.
+   */
+  private static final int MAX_PARSED_ENTITIES = 500;
+
   private final ErraiEntityManager em;
   private final String namespace;
-  
+
+  /**
+   * Parsed JSON of the most recently read entities, keyed by storage key. An
+   * entry is only used while the stored string is still the one it was parsed
+   * from.
+   */
+  private final Map<String, ParsedEntity> parsedEntities = new LinkedHashMap<String, ParsedEntity>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, ParsedEntity> eldest) {
+      return size() > MAX_PARSED_ENTITIES;
+    }
+  };
+
   private final Logger logger;
 
   /**
@@ -106,17 +134,51 @@ public class WebStorageBackend implements StorageBackend {
     for (String key : toRemove) {
       LocalStorage.remove(key);
     }
+    parsedEntities.clear();
   }
 
   @Override
   public <X> void put(Key<X,?> key, X value) {
     ErraiManagedType<X> entityType = key.getEntityType();
-    String keyJson = namespace + key.toJson();
-    JSONValue valueJson = entityType.toJson(em, value);
+    putJson(entityType, key.toJson(), entityType.toJson(em, value));
+  }
+
+  /**
+   * Stores the given entity JSON under the given (non-namespaced) key of an
+   * entity of exactly the given type.
+   */
+  void putJson(ErraiManagedType<?> entityType, String key, JSONValue valueJson) {
+    String keyJson = namespace + key;
     logger.trace(">>>put '" + keyJson + "'");
+    parsedEntities.remove(keyJson);
     LocalStorage.put(keyJson, valueJson.toString());
   }
 
+  /**
+   * Returns the stored JSON of the entity under the given (non-namespaced) key,
+   * or null if there is none. Subtypes are not taken into account.
+   */
+  JSONObject getJson(String key) {
+    String keyJson = namespace + key;
+    String value = LocalStorage.get(keyJson);
+    return value == null ? null : parse(keyJson, value);
+  }
+
+  /**
+   * Returns the (non-namespaced) keys of all stored entities of exactly the
+   * given type.
+   */
+  List<String> keysOf(ErraiManagedType<?> entityType) {
+    final List<String> keys = new ArrayList<String>();
+    LocalStorage.forEachKey(namespace + keyPrefix(entityType), new EntryVisitor() {
+      @Override
+      public void visit(String key, String value) {
+        keys.add(key.substring(namespace.length()));
+      }
+    });
+    return keys;
+  }
+
   @Override
   public <X> X get(Key<X, ?> requestedKey) {
     for (ErraiManagedType<? extends X> entityType : requestedKey.getEntityType().getSubtypes()) {
@@ -126,7 +188,7 @@ public class WebStorageBackend implements StorageBackend {
       logger.trace("<<<get '" + keyJson + "' : " + valueJson);
       X entity;
       if (valueJson != null) {
-        entity = entityType.fromJson(em, JSONParser.parseStrict(valueJson));
+        entity = entityType.fromJson(em, parse(keyJson, valueJson));
         logger.trace("   returning " + entity);
         return entity;
       }
@@ -136,41 +198,61 @@ public class WebStorageBackend implements StorageBackend {
 
   @Override
   public <X> List<X> getAll(final ErraiIdentifiableType<X> type, final EntityJsonMatcher matcher) {
-    // TODO index entries by entity type
+    return getAll(type, matcher, Integer.MAX_VALUE);
+  }
 
+  @Override
+  public <X> List<X> getAll(final ErraiIdentifiableType<X> type, final EntityJsonMatcher matcher, int maxResults) {
     final List<X> entities = new ArrayList<X>();
-    LocalStorage.forEachKey(new EntryVisitor() {
-      @Override
-      public void visit(String key, String value) {
-        Key<?, ?> k = parseNamespacedKey(em, key, false);
-        if (k == null) return;
+    final Object id = matcher.getRequiredIdentifier();
+    final boolean lookup = id != null && isIdentifierOf(type, id);
+    for (ErraiManagedType<X> entityType : type.getSubtypes()) {
+      final List<String> keys;
+      if (lookup) {
+        keys = Collections.singletonList(new Key<X, Object>(entityType, id).toJson());
+      }
+      else {
+        keys = keysOf(entityType);
+      }
+
+      for (String key : keys) {
+        if (entities.size() >= maxResults) {
+          return entities;
+        }
+        String keyJson = namespace + key;
+        String value = LocalStorage.get(keyJson);
+        if (value == null) continue;
         logger.trace("getAll(): considering " + value);
-        if (type.isSuperclassOf(k.getEntityType())) {
-          logger.trace(" --> correct type");
-          JSONObject candidate = JSONParser.parseStrict(value).isObject();
-          Assert.notNull(candidate);
-          if (matcher.matches(candidate)) {
-            @SuppressWarnings("unchecked")
-            Key<X, ?> typedKey = (Key<X, ?>) k;
-
-            // Unfortunately, this throws away a lot of work we've already done (getting the entity type,
-            // creating the key, doing a backend.get(), parsing the JSON value, ...)
-            // it would be nice to avoid this, but we have to go back to the entity manager in case the
-            // thing we want is in the persistence context.
-            entities.add((X) em.find(k.getEntityType().getJavaType(), typedKey.getId()));
-          }
-          else {
-            logger.trace(" --> but not a match");
-          }
+        JSONObject candidate = parse(keyJson, value);
+        if (matcher.matches(candidate)) {
+          @SuppressWarnings("unchecked")
+          Key<X, ?> typedKey = (Key<X, ?>) Key.fromJson(em, key, true);
+
+          // we have to go back to the entity manager in case the thing we want is in the persistence
+          // context. If it isn't, the backend.get() it does reuses the JSON we just parsed.
+          entities.add(em.find(entityType.getJavaType(), typedKey.getId()));
         }
         else {
-          logger.trace(" --> wrong type");
+          logger.trace(" --> but not a match");
         }
       }
-    });
+    }
     return entities;
   }
 
+  /**
+   * Tests if the given value is of the exact type of the ID attribute of the
+   * given entity type, so the key it makes is the key of a stored entity
+   * whenever the query's equality test on the ID would accept that entity.
+   */
+  static boolean isIdentifierOf(ErraiIdentifiableType<?> type, Object id) {
+    Class<?> idType = type.getId(Object.class).getJavaType();
+    if (idType == long.class) {
+      idType = Long.class;
+    }
+    return id.getClass() == idType;
+  }
+
   @Override
   public <X, Y> boolean contains(Key<X, Y> key) {
     boolean contains = false;
@@ -186,7 +268,16 @@ public class WebStorageBackend implements StorageBackend {
 
   @Override
   public <X> void remove(Key<X, ?> key) {
-    String keyJson = namespace + key.toJson();
+    removeJson(key.getEntityType(), key.toJson());
+  }
+
+  /**
+   * Removes the entity under the given (non-namespaced) key of an entity of
+   * exactly the given type, if there is one.
+   */
+  void removeJson(ErraiManagedType<?> entityType, String key) {
+    String keyJson = namespace + key;
+    parsedEntities.remove(keyJson);
     LocalStorage.remove(keyJson);
   }
 
@@ -195,7 +286,7 @@ public class WebStorageBackend implements StorageBackend {
     ErraiManagedType<X> entityType = key.getEntityType();
     String keyJson = namespace + key.toJson();
     JSONValue newValueJson = entityType.toJson(em, value);
-    JSONValue oldValueJson = JSONParser.parseStrict(LocalStorage.get(keyJson));
+    JSONValue oldValueJson = parse(keyJson, LocalStorage.get(keyJson));
     boolean modified = !JsonUtil.equals(newValueJson, oldValueJson);
     if (modified) {
       logger.trace("Detected modified entity " + key);
@@ -211,4 +302,40 @@ public class WebStorageBackend implements StorageBackend {
     if (key.charAt(0) != '{') return null;
     return Key.fromJson(em, key, failIfNotFound);
   }
+
+  /**
+   * Returns the parsed JSON object of the given stored value, reusing the
+   * result of an earlier parse of the same value.
+   */
+  private JSONObject parse(String keyJson, String value) {
+    ParsedEntity parsed = parsedEntities.get(keyJson);
+    if (parsed == null || !parsed.value.equals(value)) {
+      JSONObject json = JSONParser.parseStrict(value).isObject();
+      Assert.notNull(json);
+      parsed = new ParsedEntity(value, json);
+      parsedEntities.put(keyJson, parsed);
+    }
+    return parsed.json;
+  }
+
+  /**
+   * Returns the common beginning of the (non-namespaced) keys of the entities
+   * of exactly the given type: the JSON of a {@link Key} up to its ID.
+   */
+  private static String keyPrefix(ErraiManagedType<?> entityType) {
+    JSONObject typeOnly = new JSONObject();
+    typeOnly.put("entityType", new JSONString(entityType.getJavaType().getName()));
+    String typeOnlyJson = typeOnly.toString();
+    return typeOnlyJson.substring(0, typeOnlyJson.length() - 1);
+  }
+
+  private static class ParsedEntity {
+    private final String value;
+    private final JSONObject json;
+
+    private ParsedEntity(String value, JSONObject json) {
+      this.value = value;
+      this.json = json;
+    }
+  }
 }
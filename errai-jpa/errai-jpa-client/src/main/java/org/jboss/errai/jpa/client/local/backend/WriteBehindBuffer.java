@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.jpa.client.local.backend;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.common.client.api.tasks.AsyncTask;
+import org.jboss.errai.common.client.api.tasks.TaskManager;
+import org.jboss.errai.common.client.util.TimeUnit;
+import org.jboss.errai.jpa.client.local.ErraiManagedType;
+
+/**
+ * The in-memory part of a {@link WriteBehindStorageBackend}: keeps the stored
+ * value of every entity of the types used so far, and writes changes to a
+ * {@link Store} when the flush scheduled through the {@link TaskManager} runs.
+ * <p>
+ * Values are opaque to the buffer (the storage backend uses entity JSON), so
+ * the buffering and flushing can be used and tested without a browser.
+ *
+ * @param <V>
+ *          the type of the stored entity values.
+ */
+public class WriteBehindBuffer<V> {
+
+  /**
+   * The storage a {@link WriteBehindBuffer} reads entities from and eventually
+   * writes them to. Keys are entity keys, and entities are only filed under
+   * their exact type.
+   */
+  public interface Store<V> {
+
+    /**
+     * Returns the keys of all stored entities of exactly the given type.
+     */
+    List<String> keysOf(ErraiManagedType<?> entityType);
+
+    /**
+     * Returns the value stored under the given key, or null if there is none.
+     */
+    V get(String key);
+
+    void put(ErraiManagedType<?> entityType, String key, V value);
+
+    void remove(ErraiManagedType<?> entityType, String key);
+
+    void removeAll();
+  }
+
+  private final Store<V> store;
+  private final TaskManager taskManager;
+  private final int writeDelayMillis;
+
+  /**
+   * The value of every stored entity of the types loaded so far, by entity
+   * type and then by key.
+   */
+  private final Map<ErraiManagedType<?>, Map<String, V>> entities = new HashMap<ErraiManagedType<?>, Map<String, V>>();
+
+  /**
+   * Changes not yet written to the store, by key, in the order they were first
+   * made.
+   */
+  private final Map<String, PendingWrite<V>> pendingWrites = new LinkedHashMap<String, PendingWrite<V>>();
+
+  private AsyncTask scheduledFlush;
+
+  /**
+   * Creates a WriteBehindBuffer.
+   *
+   * @param store
+   *          the storage the entities are read from and eventually written to.
+   *          Must not be null.
+   * @param taskManager
+   *          schedules the flushes of collected writes. Must not be null.
+   * @param writeDelayMillis
+   *          how long to collect writes, starting at the first write after a
+   *          flush, before writing them to {@code store}.
+   */
+  public WriteBehindBuffer(Store<V> store, TaskManager taskManager, int writeDelayMillis) {
+    this.store = Assert.notNull(store);
+    this.taskManager = Assert.notNull(taskManager);
+    this.writeDelayMillis = writeDelayMillis;
+  }
+
+  /**
+   * Returns the value of the entity of exactly the given type under the given
+   * key, or null if there is none.
+   */
+  public V get(ErraiManagedType<?> entityType, String key) {
+    return entitiesOf(entityType).get(key);
+  }
+
+  /**
+   * Returns the keys of all entities of exactly the given type. The returned
+   * list is a copy, so it stays valid while the buffer is changed.
+   */
+  public List<String> keysOf(ErraiManagedType<?> entityType) {
+    return new ArrayList<String>(entitiesOf(entityType).keySet());
+  }
+
+  public boolean contains(ErraiManagedType<?> entityType, String key) {
+    return entitiesOf(entityType).containsKey(key);
+  }
+
+  /**
+   * Stores the given value right away, and schedules writing it to the store.
+   */
+  public void put(ErraiManagedType<?> entityType, String key, V value) {
+    entitiesOf(entityType).put(key, Assert.notNull(value));
+    pendingWrites.put(key, new PendingWrite<V>(entityType, value));
+    scheduleFlush();
+  }
+
+  /**
+   * Removes the entity under the given key right away, and schedules removing
+   * it from the store.
+   */
+  public void remove(ErraiManagedType<?> entityType, String key) {
+    if (entitiesOf(entityType).remove(key) != null) {
+      pendingWrites.put(key, new PendingWrite<V>(entityType, null));
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Discards all entities and unwritten changes, and empties the store.
+   */
+  public void removeAll() {
+    cancelScheduledFlush();
+    pendingWrites.clear();
+    entities.clear();
+    store.removeAll();
+  }
+
+  /**
+   * Writes all changes made so far to the store right away, instead of waiting
+   * for the scheduled flush.
+   */
+  public void flush() {
+    cancelScheduledFlush();
+    writePending();
+  }
+
+  /**
+   * Returns the number of changes that have not been written to the store yet.
+   */
+  public int getPendingWriteCount() {
+    return pendingWrites.size();
+  }
+
+  private void cancelScheduledFlush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+  }
+
+  private void scheduleFlush() {
+    if (scheduledFlush == null) {
+      scheduledFlush = taskManager.schedule(TimeUnit.MILLISECONDS, writeDelayMillis, new Runnable() {
+        @Override
+        public void run() {
+          scheduledFlush = null;
+          writePending();
+        }
+      });
+    }
+  }
+
+  private void writePending() {
+    for (Map.Entry<String, PendingWrite<V>> write : pendingWrites.entrySet()) {
+      final PendingWrite<V> pending = write.getValue();
+      if (pending.value == null) {
+        store.remove(pending.entityType, write.getKey());
+      }
+      else {
+        store.put(pending.entityType, write.getKey(), pending.value);
+      }
+    }
+    pendingWrites.clear();
+  }
+
+  /**
+   * Returns the entities of exactly the given type, reading them from the store
+   * if this is the first time the type is used.
+   */
+  private Map<String, V> entitiesOf(ErraiManagedType<?> entityType) {
+    Map<String, V> stored = entities.get(entityType);
+    if (stored == null) {
+      stored = new HashMap<String, V>();
+      for (String key : store.keysOf(entityType)) {
+        final V value = store.get(key);
+        if (value != null) {
+          stored.put(key, value);
+        }
+      }
+      entities.put(entityType, stored);
+    }
+    return stored;
+  }
+
+  private static class PendingWrite<V> {
+    private final ErraiManagedType<?> entityType;
+
+    /** The new value, or null if the entity was removed. */
+    private final V value;
+
+    private PendingWrite(ErraiManagedType<?> entityType, V value) {
+      this.entityType = entityType;
+      this.value = value;
+    }
+  }
+}
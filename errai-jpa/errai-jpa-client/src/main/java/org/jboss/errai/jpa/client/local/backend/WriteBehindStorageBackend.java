@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.jpa.client.local.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.common.client.api.tasks.TaskManager;
+import org.jboss.errai.common.client.api.tasks.TaskManagerFactory;
+import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.ErraiIdentifiableType;
+import org.jboss.errai.jpa.client.local.ErraiManagedType;
+import org.jboss.errai.jpa.client.local.JsonUtil;
+import org.jboss.errai.jpa.client.local.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gwt.json.client.JSONObject;
+
+/**
+ * A storage backend that keeps the JSON of all entities it has seen in memory,
+ * and writes changes through to a {@link WebStorageBackend} some time later.
+ * <p>
+ * The entities of a type are read from web storage the first time that type is
+ * used; after that, all reads and queries are answered from memory. Writes are
+ * collected until the {@link TaskManager} runs the scheduled flush, so an
+ * entity that is changed several times before then is only written once.
+ * Writes that have not been flushed are lost if the page is closed, so
+ * applications can call {@link #flush()} at points where the data must be
+ * safe.
+ * <p>
+ * Only one instance of this backend should be in use per storage namespace at
+ * any time, because instances don't see each other's unflushed writes.
+ */
+public class WriteBehindStorageBackend implements StorageBackend {
+
+  /**
+   * The delay used by {@link #FACTORY}: changes are written as soon as the
+   * browser's event loop is free.
+   */
+  public static final int DEFAULT_WRITE_DELAY_MILLIS = 0;
+
+  public static final StorageBackendFactory FACTORY = new StorageBackendFactory() {
+    @Override
+    public StorageBackend createInstanceFor(ErraiEntityManager em) {
+      return new WriteBehindStorageBackend(em, new WebStorageBackend(em), TaskManagerFactory.get(),
+              DEFAULT_WRITE_DELAY_MILLIS);
+    }
+  };
+
+  private final ErraiEntityManager em;
+
+  /** The JSON of the stored entities, and the writes not yet made to web storage. */
+  private final WriteBehindBuffer<JSONObject> buffer;
+
+  private final Logger logger = LoggerFactory.getLogger(WriteBehindStorageBackend.class);
+
+  /**
+   * Creates a WriteBehindStorageBackend.
+   *
+   * @param erraiEntityManager
+   *          the ErraiEntityManager this storage backend will be used with (it
+   *          is used for resolving entity references). Must not be null.
+   * @param store
+   *          the web storage the entities are read from and eventually written
+   *          to. Must be bound to the same ErraiEntityManager. Must not be null.
+   * @param taskManager
+   *          schedules the flushes of collected writes. Must not be null.
+   * @param writeDelayMillis
+   *          how long to collect writes, starting at the first write after a
+   *          flush, before writing them to {@code store}.
+   */
+  public WriteBehindStorageBackend(ErraiEntityManager erraiEntityManager, final WebStorageBackend store,
+          TaskManager taskManager, int writeDelayMillis) {
+    this.em = Assert.notNull(erraiEntityManager);
+    Assert.notNull(store);
+    this.buffer = new WriteBehindBuffer<JSONObject>(new WriteBehindBuffer.Store<JSONObject>() {
+      @Override
+      public List<String> keysOf(ErraiManagedType<?> entityType) {
+        return store.keysOf(entityType);
+      }
+
+      @Override
+      public JSONObject get(String key) {
+        return store.getJson(key);
+      }
+
+      @Override
+      public void put(ErraiManagedType<?> entityType, String key, JSONObject value) {
+        store.putJson(entityType, key, value);
+      }
+
+      @Override
+      public void remove(ErraiManagedType<?> entityType, String key) {
+        store.removeJson(entityType, key);
+      }
+
+      @Override
+      public void removeAll() {
+        store.removeAll();
+      }
+    }, taskManager, writeDelayMillis);
+  }
+
+  @Override
+  public <X> void put(Key<X, ?> key, X value) {
+    final ErraiManagedType<X> entityType = key.getEntityType();
+    final String keyJson = key.toJson();
+    logger.trace(">>>put '" + keyJson + "'");
+    buffer.put(entityType, keyJson, entityType.toJson(em, value).isObject());
+  }
+
+  @Override
+  public <X> X get(Key<X, ?> requestedKey) {
+    for (ErraiManagedType<? extends X> entityType : requestedKey.getEntityType().getSubtypes()) {
+      @SuppressWarnings("unchecked")
+      Key<X, ?> key = new Key<X, Object>((ErraiManagedType<X>) entityType, (Object) requestedKey.getId());
+      JSONObject valueJson = buffer.get(entityType, key.toJson());
+      if (valueJson != null) {
+        return entityType.fromJson(em, valueJson);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public <X> List<X> getAll(ErraiIdentifiableType<X> type, EntityJsonMatcher matcher) {
+    return getAll(type, matcher, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public <X> List<X> getAll(ErraiIdentifiableType<X> type, EntityJsonMatcher matcher, int maxResults) {
+    final List<X> results = new ArrayList<X>();
+    final Object id = matcher.getRequiredIdentifier();
+    final boolean lookup = id != null && WebStorageBackend.isIdentifierOf(type, id);
+    for (ErraiManagedType<X> entityType : type.getSubtypes()) {
+      final List<String> keys;
+      if (lookup) {
+        keys = Collections.singletonList(new Key<X, Object>(entityType, id).toJson());
+      }
+      else {
+        keys = buffer.keysOf(entityType);
+      }
+
+      for (String key : keys) {
+        if (results.size() >= maxResults) {
+          return results;
+        }
+        JSONObject candidate = buffer.get(entityType, key);
+        if (candidate != null && matcher.matches(candidate)) {
+          @SuppressWarnings("unchecked")
+          Key<X, ?> typedKey = (Key<X, ?>) Key.fromJson(em, key, true);
+
+          // the entity manager returns the managed instance if there is one, and calls back into get() if not
+          results.add(em.find(entityType.getJavaType(), typedKey.getId()));
+        }
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public <X, Y> boolean contains(Key<X, Y> key) {
+    for (ErraiManagedType<X> entityType : key.getEntityType().getSubtypes()) {
+      if (buffer.contains(entityType, new Key<X, Y>(entityType, key.getId()).toJson())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public <X> void remove(Key<X, ?> key) {
+    buffer.remove(key.getEntityType(), key.toJson());
+  }
+
+  @Override
+  public <X> boolean isModified(Key<X, ?> key, X value) {
+    final ErraiManagedType<X> entityType = key.getEntityType();
+    final JSONObject oldValueJson = buffer.get(entityType, key.toJson());
+    return oldValueJson == null || !JsonUtil.equals(entityType.toJson(em, value), oldValueJson);
+  }
+
+  @Override
+  public void removeAll() {
+    buffer.removeAll();
+  }
+
+  /**
+   * Writes all changes made so far to the web storage right away, instead of
+   * waiting for the scheduled flush.
+   */
+  public void flush() {
+    logger.trace("Writing " + buffer.getPendingWriteCount() + " changed entities to web storage");
+    buffer.flush();
+  }
+}
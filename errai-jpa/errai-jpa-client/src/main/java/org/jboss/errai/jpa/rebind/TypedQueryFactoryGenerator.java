@@ -29,6 +29,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.persistence.EntityManager;
 import javax.persistence.NamedQuery;
 import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.hql.internal.antlr.HqlSqlTokenTypes;
@@ -97,6 +99,13 @@ public class TypedQueryFactoryGenerator {
   private final String jpaQuery;
   private final QueryTranslatorImpl query;
   private final Class<?> resultType;
+
+  /**
+   * The name of the result type's ID attribute if queries can be answered by
+   * looking up an entity by that ID, or null.
+   */
+  private final String lookupIdAttribute;
+
   private final AtomicInteger uniqueNumber = new AtomicInteger();
 
   public TypedQueryFactoryGenerator(EntityManager em, NamedQuery namedQuery) {
@@ -125,6 +134,7 @@ public class TypedQueryFactoryGenerator {
                 query.getReturnTypes().length + ": " + jpaQuery);
       }
       resultType = query.getReturnTypes()[0].getReturnedClass();
+      lookupIdAttribute = findLookupIdAttribute(em, resultType);
       org.hibernate.hql.internal.ast.tree.Statement sqlAST = query.getSqlAST();
 
       if (logger.isDebugEnabled()) {
@@ -153,6 +163,7 @@ public class TypedQueryFactoryGenerator {
             Stmt.loadVariable("actualResultType"),
             Stmt.loadVariable("parameters"));
     appendMatchesMethod(anonQueryClassBuilder);
+    appendRequiredIdentifierMethod(anonQueryClassBuilder);
     appendComparatorMethod(anonQueryClassBuilder, context);
 
     AnonymousClassStructureBuilder factoryBuilder = ObjectBuilder.newInstanceOf(TypedQueryFactory.class, context).extend(
@@ -228,6 +239,103 @@ public class TypedQueryFactoryGenerator {
     matchesMethod.finish();
   }
 
+  /**
+   * Returns the name of the ID attribute of the given entity type if an ID
+   * value taken from a query parameter can be used to look up the matching
+   * entity by its key. This is not the case for IDs of numeric types that
+   * query evaluation normalizes to double (see {@link JsonDotNodeResolver}),
+   * because such an ID never equals the parameter value the way the key
+   * lookup would need it to.
+   */
+  private static String findLookupIdAttribute(EntityManager em, Class<?> entityType) {
+    try {
+      EntityType<?> et = em.getMetamodel().entity(entityType);
+      if (!et.hasSingleIdAttribute()) {
+        return null;
+      }
+      SingularAttribute<?, ?> idAttr = et.getId(et.getIdType().getJavaType());
+      Class<?> idType = idAttr.getJavaType();
+      if (idType == Float.class || idType == float.class
+              || idType == Integer.class || idType == int.class
+              || idType == Short.class || idType == short.class
+              || idType == Byte.class || idType == byte.class
+              || idType == Character.class || idType == char.class) {
+        return null;
+      }
+      return idAttr.getName();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Adds the {@code getRequiredIdentifier()} method to the given class builder
+   * if the WHERE clause of the query requires the ID attribute of the result
+   * type to be equal to a named parameter. Storage backends use this to look
+   * up the single candidate entity by key rather than testing all entities of
+   * the result type.
+   *
+   * @param classBuilder
+   *          The class builder to add the method to. Should be a builder for a
+   *          subclass of ErraiTypedQuery.
+   */
+  private void appendRequiredIdentifierMethod(AnonymousClassStructureBuilder classBuilder) {
+    if (lookupIdAttribute == null) return;
+
+    AstInorderTraversal traverser = new AstInorderTraversal(query.getSqlAST().getWalker().getAST());
+    AST whereClause = traverser.fastForwardTo(HqlSqlTokenTypes.WHERE);
+    if (whereClause == null) return;
+
+    AST expression = whereClause.getFirstChild();
+    if (expression != null && expression.getType() == HqlSqlTokenTypes.FILTERS) {
+      expression = expression.getNextSibling();
+    }
+
+    String paramName = findRequiredIdentifierParam(expression);
+    if (paramName != null) {
+      classBuilder.publicMethod(Object.class, "getRequiredIdentifier")
+        .append(Stmt.loadVariable("this").invoke("getParameterValue", paramName).returnValue())
+        .finish();
+    }
+  }
+
+  /**
+   * Returns the name of the parameter the ID attribute is compared to in the
+   * given expression or any of its top-level conjuncts, or null if there is
+   * no such comparison.
+   */
+  private String findRequiredIdentifierParam(AST expression) {
+    if (expression == null) return null;
+
+    switch (expression.getType()) {
+    case HqlSqlTokenTypes.AND: {
+      String paramName = findRequiredIdentifierParam(expression.getFirstChild());
+      return paramName != null ? paramName : findRequiredIdentifierParam(expression.getFirstChild().getNextSibling());
+    }
+    case HqlSqlTokenTypes.EQ: {
+      AST lhs = expression.getFirstChild();
+      AST rhs = lhs.getNextSibling();
+      if (isIdAttribute(lhs) && rhs.getType() == HqlSqlTokenTypes.NAMED_PARAM) {
+        return namedParameterName(rhs);
+      }
+      if (isIdAttribute(rhs) && lhs.getType() == HqlSqlTokenTypes.NAMED_PARAM) {
+        return namedParameterName(lhs);
+      }
+      return null;
+    }
+    default:
+      return null;
+    }
+  }
+
+  private boolean isIdAttribute(AST ast) {
+    return ast.getType() == HqlSqlTokenTypes.DOT && lookupIdAttribute.equals(((DotNode) ast).getPropertyPath());
+  }
+
+  private static String namedParameterName(AST ast) {
+    return ((NamedParameterSpecification) ((ParameterNode) ast).getHqlParameterSpecification()).getName();
+  }
+
   /**
    * Adds the {@code getComparator()} method to the given class builder.
    *
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.jpa.test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.common.client.api.tasks.AsyncTask;
+import org.jboss.errai.common.client.api.tasks.TaskManager;
+import org.jboss.errai.common.client.util.TimeUnit;
+import org.jboss.errai.jpa.client.local.ErraiManagedType;
+import org.jboss.errai.jpa.client.local.backend.WriteBehindBuffer;
+import org.jboss.errai.jpa.test.entity.Zentity;
+
+import com.google.gwt.json.client.JSONValue;
+
+/**
+ * Tests the buffering and flushing of {@link WriteBehindBuffer} against an
+ * in-memory store and a task manager that only runs tasks when told to.
+ */
+public class WriteBehindBufferUnitTest extends TestCase {
+
+  private static class MapStore implements WriteBehindBuffer.Store<String> {
+    private final Map<String, String> values = new LinkedHashMap<String, String>();
+    private final List<String> writes = new ArrayList<String>();
+
+    @Override
+    public List<String> keysOf(ErraiManagedType<?> entityType) {
+      return new ArrayList<String>(values.keySet());
+    }
+
+    @Override
+    public String get(String key) {
+      return values.get(key);
+    }
+
+    @Override
+    public void put(ErraiManagedType<?> entityType, String key, String value) {
+      writes.add("put " + key + "=" + value);
+      values.put(key, value);
+    }
+
+    @Override
+    public void remove(ErraiManagedType<?> entityType, String key) {
+      writes.add("remove " + key);
+      values.remove(key);
+    }
+
+    @Override
+    public void removeAll() {
+      writes.add("removeAll");
+      values.clear();
+    }
+  }
+
+  private static class ScheduledTask implements AsyncTask {
+    private final int delayMillis;
+    private final Runnable task;
+    private boolean cancelled;
+    private boolean finished;
+
+    private ScheduledTask(int delayMillis, Runnable task) {
+      this.delayMillis = delayMillis;
+      this.task = task;
+    }
+
+    private void run() {
+      if (!cancelled && !finished) {
+        finished = true;
+        task.run();
+      }
+    }
+
+    @Override
+    public void cancel(boolean interrupt) {
+      cancelled = true;
+    }
+
+    @Override
+    public void setExitHandler(Runnable runnable) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return finished;
+    }
+  }
+
+  /**
+   * Collects scheduled tasks, which the test runs by calling {@link #runAll()}.
+   */
+  private static class ManualTaskManager implements TaskManager {
+    private final List<ScheduledTask> scheduled = new ArrayList<ScheduledTask>();
+
+    @Override
+    public void execute(Runnable task) {
+      schedule(TimeUnit.MILLISECONDS, 0, task);
+    }
+
+    @Override
+    public AsyncTask scheduleRepeating(TimeUnit unit, int interval, Runnable task) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AsyncTask schedule(TimeUnit unit, int interval, Runnable task) {
+      ScheduledTask scheduledTask = new ScheduledTask((int) unit.toMillis(interval), task);
+      scheduled.add(scheduledTask);
+      return scheduledTask;
+    }
+
+    @Override
+    public void requestStop() {
+    }
+
+    private int pendingCount() {
+      int count = 0;
+      for (ScheduledTask task : scheduled) {
+        if (!task.isCancelled() && !task.isFinished()) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    private void runAll() {
+      for (ScheduledTask task : new ArrayList<ScheduledTask>(scheduled)) {
+        task.run();
+      }
+    }
+  }
+
+  private final ErraiManagedType<Zentity> zentityType = new ErraiManagedType<Zentity>(Zentity.class) {
+    @Override
+    public Zentity fromJson(EntityManager em, JSONValue jsonValue) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PersistenceType getPersistenceType() {
+      return PersistenceType.ENTITY;
+    }
+  };
+
+  private MapStore store;
+  private ManualTaskManager taskManager;
+  private WriteBehindBuffer<String> buffer;
+
+  @Override
+  protected void setUp() throws Exception {
+    store = new MapStore();
+    taskManager = new ManualTaskManager();
+    buffer = new WriteBehindBuffer<String>(store, taskManager, 250);
+  }
+
+  public void testChangesAreVisibleBeforeFlush() throws Exception {
+    buffer.put(zentityType, "a", "1");
+
+    assertEquals("1", buffer.get(zentityType, "a"));
+    assertTrue(buffer.contains(zentityType, "a"));
+    assertEquals(1, buffer.keysOf(zentityType).size());
+    assertTrue(store.values.isEmpty());
+
+    buffer.flush();
+    assertEquals("1", store.values.get("a"));
+  }
+
+  public void testOnlyLatestStateIsWritten() throws Exception {
+    buffer.put(zentityType, "a", "1");
+    buffer.put(zentityType, "a", "2");
+    buffer.put(zentityType, "b", "1");
+    buffer.remove(zentityType, "b");
+    assertEquals(2, buffer.getPendingWriteCount());
+
+    buffer.flush();
+    assertEquals("[put a=2, remove b]", store.writes.toString());
+    assertEquals(0, buffer.getPendingWriteCount());
+  }
+
+  public void testEntitiesStoredEarlierAreLoaded() throws Exception {
+    store.values.put("a", "1");
+
+    assertEquals("1", buffer.get(zentityType, "a"));
+
+    buffer.remove(zentityType, "a");
+    assertNull(buffer.get(zentityType, "a"));
+    assertEquals("1", store.values.get("a"));
+
+    buffer.flush();
+    assertFalse(store.values.containsKey("a"));
+  }
+
+  public void testRemovingUnknownEntityWritesNothing() throws Exception {
+    buffer.remove(zentityType, "a");
+
+    assertEquals(0, buffer.getPendingWriteCount());
+    assertEquals(0, taskManager.pendingCount());
+  }
+
+  public void testScheduledFlushWritesChanges() throws Exception {
+    buffer.put(zentityType, "a", "1");
+    buffer.put(zentityType, "b", "1");
+    assertEquals(1, taskManager.pendingCount());
+    assertEquals(250, taskManager.scheduled.get(0).delayMillis);
+    assertTrue(store.writes.isEmpty());
+
+    taskManager.runAll();
+    assertEquals("[put a=1, put b=1]", store.writes.toString());
+
+    // the next change schedules a new flush
+    buffer.put(zentityType, "a", "2");
+    assertEquals(1, taskManager.pendingCount());
+    taskManager.runAll();
+    assertEquals("2", store.values.get("a"));
+  }
+
+  public void testFlushCancelsScheduledFlush() throws Exception {
+    buffer.put(zentityType, "a", "1");
+    buffer.flush();
+
+    assertEquals(0, taskManager.pendingCount());
+    taskManager.runAll();
+    assertEquals("[put a=1]", store.writes.toString());
+  }
+
+  public void testRemoveAllDiscardsPendingWrites() throws Exception {
+    store.values.put("a", "1");
+    buffer.put(zentityType, "b", "1");
+
+    buffer.removeAll();
+    assertEquals(0, taskManager.pendingCount());
+    assertEquals("[removeAll]", store.writes.toString());
+    assertTrue(buffer.keysOf(zentityType).isEmpty());
+  }
+}
@@ -38,6 +38,7 @@ import org.junit.runners.Suite;
   ErraiCascadeTest.class,
   HibernateCascadeTest.class,
   JsonUtilTest.class,
-  NamespacedEntityManagerTest.class})
+  NamespacedEntityManagerTest.class,
+  WriteBehindStorageBackendTest.class})
 public class AllJpaTests {
 }
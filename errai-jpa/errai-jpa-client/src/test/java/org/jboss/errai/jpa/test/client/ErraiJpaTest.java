@@ -645,6 +645,38 @@ public class ErraiJpaTest extends JpaClientTestCase {
     assertCallbackLog(expectedLifecycle);
   }
 
+  public void testInPlaceModificationOfMutableAttributeIsFlushed() throws Exception {
+
+    // make it
+    final Album album = new Album();
+    album.setName("Abbey Road");
+    album.setReleaseDate(new Date(-8366400000L));
+
+    // store it
+    final EntityManager em = getEntityManager();
+    em.persist(album);
+    em.flush();
+    Album.CALLBACK_LOG.clear();
+
+    // flushing an unmodified entity does nothing
+    em.flush();
+    assertCallbackLog(new ArrayList<CallbackLogEntry>());
+
+    // modify the date without replacing it
+    album.getReleaseDate().setTime(0L);
+    em.flush();
+
+    final List<CallbackLogEntry> expectedLifecycle = new ArrayList<>();
+    expectedLifecycle.add(new CallbackLogEntry(StandaloneLifecycleListener.instanceFor(album), PreUpdate.class));
+    expectedLifecycle.add(new CallbackLogEntry(album, PreUpdate.class));
+    expectedLifecycle.add(new CallbackLogEntry(StandaloneLifecycleListener.instanceFor(album), PostUpdate.class));
+    expectedLifecycle.add(new CallbackLogEntry(album, PostUpdate.class));
+    assertCallbackLog(expectedLifecycle);
+
+    em.clear();
+    assertEquals(0L, em.find(Album.class, album.getId()).getReleaseDate().getTime());
+  }
+
   public void testMergeIntoManagedEntityLifecycle() throws Exception {
 
     // make it
@@ -17,17 +17,23 @@
 package org.jboss.errai.jpa.test.client;
 
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 
 import org.jboss.errai.ioc.client.Container;
 import org.jboss.errai.ioc.client.container.IOC;
 import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.backend.EntryVisitor;
 import org.jboss.errai.jpa.client.local.backend.LocalStorage;
 import org.jboss.errai.jpa.client.local.backend.StorageBackend;
 import org.jboss.errai.jpa.client.local.backend.StorageBackendFactory;
 import org.jboss.errai.jpa.client.local.backend.WebStorageBackend;
 import org.jboss.errai.jpa.test.client.res.JpaClientTestCase;
 import org.jboss.errai.jpa.test.entity.Genre;
+import org.jboss.errai.jpa.test.entity.Zentity;
 
 /**
  * Tests the JPA EntityManager facilities provided by Errai JPA.
@@ -180,4 +186,69 @@ public class NamespacedEntityManagerTest extends JpaClientTestCase {
     assertNotNull(emB.find(Genre.class, test1.getId()));
     assertNotNull(emB.find(Genre.class, test2.getId()));
   }
+
+  public void testQueryOnlyFindsEntitiesOfItsTypeAndNamespace() throws Exception {
+    EntityManager emA = getNamespacedEntityManager("a");
+
+    Zentity zentity1 = new Zentity();
+    zentity1.setString("abc");
+    Zentity zentity2 = new Zentity();
+    zentity2.setString("abc");
+    Genre genre = new Genre("abc");
+    emA.persist(zentity1);
+    emA.persist(zentity2);
+    emA.persist(genre);
+    emA.flush();
+
+    // the namespace holds the entities and nothing else
+    final List<String> keys = new ArrayList<String>();
+    LocalStorage.forEachKey(new EntryVisitor() {
+      @Override
+      public void visit(String key, String value) {
+        if (key.startsWith("a")) {
+          keys.add(key);
+        }
+      }
+    });
+    assertEquals(keys.toString(), 3, keys.size());
+
+    EntityManager freshEmA = getNamespacedEntityManager("a");
+    TypedQuery<Zentity> q = freshEmA.createNamedQuery("zentityString", Zentity.class);
+    q.setParameter("s", "abc");
+    assertEquals(2, q.getResultList().size());
+
+    freshEmA.remove(freshEmA.find(Zentity.class, zentity1.getId()));
+    freshEmA.flush();
+    assertEquals(1, q.getResultList().size());
+
+    TypedQuery<Zentity> qB = getNamespacedEntityManager("b").createNamedQuery("zentityString", Zentity.class);
+    qB.setParameter("s", "abc");
+    assertEquals(0, qB.getResultList().size());
+  }
+
+  public void testQuerySeesEntitiesStoredByAnotherEntityManagerOnTheSameNamespace() throws Exception {
+    // two entity managers on one namespace share the storage like two browser tabs do
+    EntityManager emA = getNamespacedEntityManager("a");
+    EntityManager otherEmA = getNamespacedEntityManager("a");
+
+    TypedQuery<Zentity> q = emA.createNamedQuery("zentityString", Zentity.class);
+    q.setParameter("s", "abc");
+    assertEquals(0, q.getResultList().size());
+
+    Zentity zentity1 = new Zentity();
+    zentity1.setString("abc");
+    Zentity zentity2 = new Zentity();
+    zentity2.setString("abc");
+    emA.persist(zentity1);
+    otherEmA.persist(zentity2);
+    emA.flush();
+    otherEmA.flush();
+
+    assertEquals(2, q.getResultList().size());
+
+    otherEmA.remove(otherEmA.find(Zentity.class, zentity1.getId()));
+    otherEmA.flush();
+    emA.clear();
+    assertEquals(1, q.getResultList().size());
+  }
 }
@@ -1073,6 +1073,104 @@ public class QueryTest extends JpaClientTestCase {
     assertEquals(resultStrings.get(4), zentity5.toString());
   }
 
+  public void testFirstAndMaxResultsWithOrderBy() {
+    final EntityManager em = getEntityManagerAndClearStorageBackend();
+
+    for (final int i : new int[] { 5, 1, 3, 2, 4 }) {
+      final Zentity zentity = new Zentity();
+      zentity.setPrimitiveInt(i);
+      em.persist(zentity);
+    }
+    em.flush();
+
+    final TypedQuery<Zentity> q = em.createNamedQuery("zentityOrderByPrimitiveInt", Zentity.class);
+    q.setFirstResult(1);
+    q.setMaxResults(2);
+    final List<Zentity> results = q.getResultList();
+    assertEquals(2, results.size());
+    assertEquals(2, results.get(0).getPrimitiveInt());
+    assertEquals(3, results.get(1).getPrimitiveInt());
+
+    q.setFirstResult(4);
+    q.setMaxResults(10);
+    assertEquals(1, q.getResultList().size());
+    assertEquals(5, q.getResultList().get(0).getPrimitiveInt());
+
+    q.setFirstResult(5);
+    assertTrue(q.getResultList().isEmpty());
+  }
+
+  public void testPagesWithOrderByTiesDontRepeatOrSkipResults() {
+    final EntityManager em = getEntityManagerAndClearStorageBackend();
+
+    for (final int i : new int[] { 2, 1, 2, 1, 2, 1, 2 }) {
+      final Zentity zentity = new Zentity();
+      zentity.setPrimitiveInt(i);
+      em.persist(zentity);
+    }
+    em.flush();
+
+    final TypedQuery<Zentity> q = em.createNamedQuery("zentityOrderByPrimitiveInt", Zentity.class);
+    final List<Zentity> all = q.getResultList();
+    assertEquals(7, all.size());
+
+    final List<Zentity> paged = new ArrayList<>();
+    q.setMaxResults(2);
+    for (int first = 0; first < all.size(); first += 2) {
+      q.setFirstResult(first);
+      paged.addAll(q.getResultList());
+    }
+    assertEquals(all, paged);
+  }
+
+  public void testMaxResultsWithoutOrderBy() {
+    final EntityManager em = getEntityManagerAndClearStorageBackend();
+
+    for (int i = 0; i < 5; i++) {
+      final Zentity zentity = new Zentity();
+      zentity.setString("abc");
+      em.persist(zentity);
+    }
+    em.flush();
+
+    final TypedQuery<Zentity> q = em.createNamedQuery("zentityString", Zentity.class);
+    q.setParameter("s", "abc");
+    assertEquals(5, q.getResultList().size());
+
+    q.setMaxResults(3);
+    assertEquals(3, q.getResultList().size());
+
+    q.setFirstResult(4);
+    assertEquals(1, q.getResultList().size());
+  }
+
+  public void testIdEqualityQuery() {
+    final EntityManager em = getEntityManagerAndClearStorageBackend();
+
+    final Zentity abc = new Zentity();
+    abc.setString("abc");
+    em.persist(abc);
+    final Zentity def = new Zentity();
+    def.setString("def");
+    em.persist(def);
+    em.flush();
+
+    final TypedQuery<Zentity> q = em.createNamedQuery("zentityIdAndString", Zentity.class);
+    q.setParameter("id", abc.getId());
+    q.setParameter("s", "abc");
+    assertEquals(abc.toString(), q.getSingleResult().toString());
+
+    // the rest of the WHERE clause still applies to the entity found by ID
+    q.setParameter("s", "def");
+    assertTrue(q.getResultList().isEmpty());
+
+    q.setParameter("id", def.getId());
+    assertEquals(def.toString(), q.getSingleResult().toString());
+
+    q.setParameter("id", def.getId() + 1000);
+    assertTrue(q.getResultList().isEmpty());
+  }
+
   public void testOrderByPrimitiveIntDesc() {
     final EntityManager em = getEntityManagerAndClearStorageBackend();
 
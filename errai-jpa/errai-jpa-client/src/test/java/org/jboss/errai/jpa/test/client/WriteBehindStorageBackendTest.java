@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.jpa.test.client;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import org.jboss.errai.common.client.api.tasks.TaskManagerFactory;
+import org.jboss.errai.ioc.client.Container;
+import org.jboss.errai.ioc.client.container.IOC;
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.backend.EntryVisitor;
+import org.jboss.errai.jpa.client.local.backend.LocalStorage;
+import org.jboss.errai.jpa.client.local.backend.StorageBackend;
+import org.jboss.errai.jpa.client.local.backend.StorageBackendFactory;
+import org.jboss.errai.jpa.client.local.backend.WebStorageBackend;
+import org.jboss.errai.jpa.client.local.backend.WriteBehindStorageBackend;
+import org.jboss.errai.jpa.test.client.res.JpaClientTestCase;
+import org.jboss.errai.jpa.test.entity.Zentity;
+
+/**
+ * Tests that entity managers using a {@link WriteBehindStorageBackend} see
+ * their own changes right away, and that the changes reach web storage once the
+ * backend is flushed. The scheduling of flushes is covered by
+ * {@link org.jboss.errai.jpa.test.WriteBehindBufferUnitTest}.
+ */
+public class WriteBehindStorageBackendTest extends JpaClientTestCase {
+
+  private WriteBehindStorageBackend backend;
+
+  @Override
+  public String getModuleName() {
+    return "org.jboss.errai.jpa.test.JpaTest";
+  }
+
+  protected ErraiEntityManager getWebStorageEntityManager() {
+    ErraiEntityManager originalEm = (ErraiEntityManager) JpaTestClient.INSTANCE.entityManager;
+    return new ErraiEntityManager(originalEm, new StorageBackendFactory() {
+      @Override
+      public StorageBackend createInstanceFor(ErraiEntityManager em) {
+        return new WebStorageBackend(em, "wb");
+      }
+    });
+  }
+
+  protected ErraiEntityManager getWriteBehindEntityManager(final int writeDelayMillis) {
+    ErraiEntityManager originalEm = (ErraiEntityManager) JpaTestClient.INSTANCE.entityManager;
+    return new ErraiEntityManager(originalEm, new StorageBackendFactory() {
+      @Override
+      public StorageBackend createInstanceFor(ErraiEntityManager em) {
+        backend = new WriteBehindStorageBackend(em, new WebStorageBackend(em, "wb"), TaskManagerFactory.get(),
+                writeDelayMillis);
+        return backend;
+      }
+    });
+  }
+
+  private static int countStoredEntities() {
+    final int[] count = new int[1];
+    LocalStorage.forEachKey(new EntryVisitor() {
+      @Override
+      public void visit(String key, String value) {
+        if (key.startsWith("wb{")) {
+          count[0]++;
+        }
+      }
+    });
+    return count[0];
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+
+    // We need to bootstrap the IoC container manually because GWTTestCase
+    // doesn't call onModuleLoad() for us.
+    new Container().bootstrapContainer();
+
+    LocalStorage.removeAll();
+  }
+
+  @Override
+  protected void gwtTearDown() throws Exception {
+    Container.reset();
+    IOC.reset();
+  }
+
+  public void testChangesAreVisibleBeforeFlush() throws Exception {
+    EntityManager em = getWriteBehindEntityManager(60000);
+
+    Zentity zentity = new Zentity();
+    zentity.setString("abc");
+    em.persist(zentity);
+    em.flush();
+    em.clear();
+
+    assertEquals(0, countStoredEntities());
+    assertEquals("abc", em.find(Zentity.class, zentity.getId()).getString());
+
+    TypedQuery<Zentity> q = em.createNamedQuery("zentityString", Zentity.class);
+    q.setParameter("s", "abc");
+    assertEquals(1, q.getResultList().size());
+
+    backend.flush();
+    assertEquals(1, countStoredEntities());
+    assertEquals("abc", getWebStorageEntityManager().find(Zentity.class, zentity.getId()).getString());
+  }
+
+  public void testOnlyLatestStateIsWritten() throws Exception {
+    EntityManager em = getWriteBehindEntityManager(60000);
+
+    Zentity zentity = new Zentity();
+    zentity.setString("abc");
+    em.persist(zentity);
+    em.flush();
+    zentity.setString("def");
+    em.flush();
+    Zentity removed = new Zentity();
+    em.persist(removed);
+    em.flush();
+    em.remove(removed);
+    em.flush();
+
+    backend.flush();
+    assertEquals(1, countStoredEntities());
+
+    EntityManager webStorageEm = getWebStorageEntityManager();
+    assertEquals("def", webStorageEm.find(Zentity.class, zentity.getId()).getString());
+    assertNull(webStorageEm.find(Zentity.class, removed.getId()));
+  }
+
+  public void testEntitiesStoredEarlierAreLoaded() throws Exception {
+    EntityManager webStorageEm = getWebStorageEntityManager();
+    Zentity zentity = new Zentity();
+    zentity.setString("abc");
+    webStorageEm.persist(zentity);
+    webStorageEm.flush();
+
+    EntityManager em = getWriteBehindEntityManager(60000);
+    assertEquals("abc", em.find(Zentity.class, zentity.getId()).getString());
+
+    em.remove(em.find(Zentity.class, zentity.getId()));
+    em.flush();
+    TypedQuery<Zentity> q = em.createNamedQuery("zentityString", Zentity.class);
+    q.setParameter("s", "abc");
+    assertEquals(0, q.getResultList().size());
+    assertEquals(1, countStoredEntities());
+
+    backend.flush();
+    assertEquals(0, countStoredEntities());
+  }
+}
@@ -125,6 +125,11 @@ import org.jboss.errai.ioc.client.api.TestOnly;
 
 
 
+  // ID lookup
+  // ---------
+
+  @NamedQuery(name="zentityIdAndString", query="SELECT z FROM Zentity z WHERE z.id = :id AND z.string = :s"),
+
   // ORDER BY
   // --------
 
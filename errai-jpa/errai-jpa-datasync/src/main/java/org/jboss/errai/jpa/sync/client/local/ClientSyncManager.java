@@ -47,6 +47,7 @@ import org.jboss.errai.jpa.client.local.backend.StorageBackendFactory;
 import org.jboss.errai.jpa.client.local.backend.WebStorageBackend;
 import org.jboss.errai.jpa.sync.client.shared.ConflictResponse;
 import org.jboss.errai.jpa.sync.client.shared.DataSyncService;
+import org.jboss.errai.jpa.sync.client.shared.DeleteByIdResponse;
 import org.jboss.errai.jpa.sync.client.shared.DeleteResponse;
 import org.jboss.errai.jpa.sync.client.shared.EntityComparator;
 import org.jboss.errai.jpa.sync.client.shared.IdChangeResponse;
@@ -169,6 +170,10 @@ public class ClientSyncManager {
    * After a successful synchronization, both the expected state and desired state entity managers
    * will yield the same results as the server-side entity manager does for the given query with the
    * given set of parameters.
+   * <p>
+   * Entities with a {@code @Version} attribute that have not changed locally since the last sync
+   * are sent to the server as ID and version only. The server only sends them back if its version
+   * has moved on, or if they have left the query results.
    *
    * @param queryName
    *          The name of a JPA named query. This query must be defined in a {@link NamedQuery}
@@ -194,10 +199,129 @@ public class ClientSyncManager {
           String queryName, Class<E> queryResultType, Map<String, Object> queryParams,
           final RemoteCallback<List<SyncResponse<E>>> onCompletion,
           final ErrorCallback<?> onError) {
+    coldSync(queryName, queryResultType, queryParams, 0, null, onCompletion, onError);
+  }
+
+  /**
+   * Performs a "cold" synchronization like
+   * {@link #coldSync(String, Class, Map, RemoteCallback, ErrorCallback)}, but lets the server send
+   * the entities that are new to this client in several responses of limited size. Each response
+   * is applied to the expected state and desired state entity managers as soon as it arrives, and
+   * the next one is requested until the server has no more new entities for us. Only the first
+   * request reconciles the entities of this client; the later ones just ask for the next new
+   * entities after the highest ID received so far, so the named query must return its results in
+   * ascending ID order.
+   *
+   * @param queryName
+   *          The name of a JPA named query, as for
+   *          {@link #coldSync(String, Class, Map, RemoteCallback, ErrorCallback)}.
+   * @param queryResultType
+   *          The result type returned by the query.
+   * @param queryParams
+   *          The name-value pairs to use for filling in the named parameters in the query.
+   * @param maxResults
+   *          The maximum number of new entities the server sends in one response, or 0 to receive
+   *          all of them in a single response.
+   * @param onProgress
+   *          Called with the sync responses of each response from the server, after they have been
+   *          applied. Can be null.
+   * @param onCompletion
+   *          Called with the sync responses of all responses from the server once the last one has
+   *          been applied. Must not be null.
+   * @param onError
+   *          Called when the data sync fails. Can be null, in which case the default error handling
+   *          for the {@code Caller<DataSyncService>} will apply.
+   */
+  public <E> void coldSync(
+          String queryName, Class<E> queryResultType, Map<String, Object> queryParams, int maxResults,
+          RemoteCallback<List<SyncResponse<E>>> onProgress,
+          RemoteCallback<List<SyncResponse<E>>> onCompletion,
+          ErrorCallback<?> onError) {
+    coldSync(queryName, queryResultType, queryParams, maxResults, null, onProgress, onCompletion, onError,
+            new ArrayList<SyncResponse<E>>());
+  }
+
+  private <E> void coldSync(
+          final String queryName, final Class<E> queryResultType, final Map<String, Object> queryParams,
+          final int maxResults, final Object newEntitiesAfter,
+          final RemoteCallback<List<SyncResponse<E>>> onProgress,
+          final RemoteCallback<List<SyncResponse<E>>> onCompletion,
+          final ErrorCallback<?> onError,
+          final List<SyncResponse<E>> previousResponses) {
     if (syncInProgress) {
       throw new IllegalStateException("A data sync operation is already in progress");
     }
     syncInProgress = true;
+
+    final List<SyncRequestOperation<E>> syncRequests;
+    final SyncableDataSet<E> syncSet;
+    if (newEntitiesAfter == null) {
+      final Map<Object, Object> knownVersions = new HashMap<Object, Object>();
+      syncRequests = syncRequests(queryName, queryResultType, queryParams, knownVersions);
+      syncSet = SyncableDataSet.from(queryName, queryResultType, queryParams)
+              .withKnownVersions(knownVersions).withMaxResults(maxResults);
+    }
+    else {
+      // the first response has reconciled our own entities, so we only ask for the next new ones
+      syncRequests = new ArrayList<SyncRequestOperation<E>>();
+      syncSet = SyncableDataSet.from(queryName, queryResultType, queryParams)
+              .withMaxResults(maxResults).withNewEntitiesAfter(newEntitiesAfter);
+    }
+
+    RemoteCallback<List<SyncResponse<E>>> onSuccess = new RemoteCallback<List<SyncResponse<E>>>() {
+      @Override
+      public void callback(List<SyncResponse<E>> syncResponse) {
+        final Object lastNewEntityId = lastNewEntityId(syncResponse, maxResults);
+        if (newEntitiesAfter != null) {
+          syncResponse = withoutKnownEntities(syncResponse);
+        }
+        try {
+          applyResults(syncResponse);
+        }
+        finally {
+          syncInProgress = false;
+        }
+        if (onProgress != null) {
+          onProgress.callback(syncResponse);
+        }
+
+        previousResponses.addAll(syncResponse);
+        if (lastNewEntityId != null) {
+          // the server sends new entities in ascending ID order, so continue after the last one we got
+          coldSync(queryName, queryResultType, queryParams, maxResults, lastNewEntityId, onProgress, onCompletion,
+                  onError, previousResponses);
+        }
+        else {
+          onCompletion.callback(previousResponses);
+        }
+      }
+    };
+
+    @SuppressWarnings("rawtypes")
+    ErrorCallback errorCallback = new ErrorCallback() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public boolean error(Object message, Throwable throwable) {
+        syncInProgress = false;
+        ErrorCallback rawOnError = onError == null ? DEFAULT_ERROR_CALLBACK : onError;
+        return rawOnError.error(message, throwable);
+      }
+    };
+
+    dataSyncService.call(onSuccess, errorCallback).coldSync(syncSet, syncRequests);
+  }
+
+  /**
+   * Compares the results of the given named query in the desired state and expected state entity
+   * managers, and returns the sync requests that tell the server about the differences.
+   *
+   * @param knownVersions
+   *          receives the ID and version of each entity that has not changed since we received it, in
+   *          place of a sync request for it.
+   */
+  private <E> List<SyncRequestOperation<E>> syncRequests(
+          String queryName, Class<E> queryResultType, Map<String, Object> queryParams,
+          Map<Object, Object> knownVersions) {
     final TypedQuery<E> query = desiredStateEm.createNamedQuery(queryName, queryResultType);
     final TypedQuery<E> expectedQuery = expectedStateEm.createNamedQuery(queryName, queryResultType);
     for (Map.Entry<String, Object> param : queryParams.entrySet()) {
@@ -210,6 +334,9 @@ public class ClientSyncManager {
       expectedResults.put((Key<E, Object>) expectedStateEm.keyFor(expectedState), expectedState);
     }
 
+    // the server can only report deletions of known versions if it knows which entity type to report them as
+    final boolean sendKnownVersions = queryResultType != Object.class;
+
     final List<SyncRequestOperation<E>> syncRequests = new ArrayList<SyncRequestOperation<E>>();
     for (E desiredState : query.getResultList()) {
       Key<E, ?> key = desiredStateEm.keyFor(desiredState);
@@ -221,7 +348,13 @@ public class ClientSyncManager {
         syncRequests.add(SyncRequestOperation.updated(desiredState, expectedState));
       }
       else /* desiredState == expectedState */ {
-        syncRequests.add(SyncRequestOperation.unchanged(expectedState));
+        Object version = sendKnownVersions ? versionOf(expectedState) : null;
+        if (version != null) {
+          knownVersions.put(key.getId(), version);
+        }
+        else {
+          syncRequests.add(SyncRequestOperation.unchanged(expectedState));
+        }
       }
     }
 
@@ -233,34 +366,48 @@ public class ClientSyncManager {
     for (SyncRequestOperation<?> sro : syncRequests) {
       System.out.println("   " + sro);
     }
+    return syncRequests;
+  }
 
-    final SyncableDataSet<E> syncSet = SyncableDataSet.from(queryName, queryResultType, queryParams);
-
-    RemoteCallback<List<SyncResponse<E>>> onSuccess = new RemoteCallback<List<SyncResponse<E>>>() {
-      @Override
-      public void callback(List<SyncResponse<E>> syncResponse) {
-        try {
-          applyResults(syncResponse);
-        }
-        finally {
-          syncInProgress = false;
+  /**
+   * Removes the new entities we already hold from the given response to a request for the next new
+   * entities. The server sends all entities after the cursor, but the ones we held when the sync
+   * started have been reconciled with the first response.
+   */
+  private <E> List<SyncResponse<E>> withoutKnownEntities(List<SyncResponse<E>> syncResponse) {
+    final List<SyncResponse<E>> unknown = new ArrayList<SyncResponse<E>>(syncResponse.size());
+    for (SyncResponse<E> response : syncResponse) {
+      if (response instanceof NewRemoteEntityResponse) {
+        E entity = ((NewRemoteEntityResponse<E>) response).getEntity();
+        if (expectedStateEm.find(expectedStateEm.keyFor(entity), Collections.<String,Object>emptyMap()) != null) {
+          continue;
         }
-        onCompletion.callback(syncResponse);
       }
-    };
+      unknown.add(response);
+    }
+    return unknown;
+  }
 
-    @SuppressWarnings("rawtypes")
-    ErrorCallback errorCallback = new ErrorCallback() {
-      @SuppressWarnings("unchecked")
-      @Override
-      public boolean error(Object message, Throwable throwable) {
-        syncInProgress = false;
-        ErrorCallback rawOnError = onError == null ? DEFAULT_ERROR_CALLBACK : onError;
-        return rawOnError.error(message, throwable);
+  /**
+   * If the given response from the server was limited to {@code maxResults} new entities, so there
+   * may be more, returns the ID of the last of them. The server sends them in ascending ID order, so
+   * this is the highest one.
+   *
+   * @return the ID of the last new entity, or null if there are no more new entities to request.
+   */
+  private <E> Object lastNewEntityId(List<SyncResponse<E>> syncResponse, int maxResults) {
+    if (maxResults == 0) {
+      return null;
+    }
+    int newEntities = 0;
+    E lastNewEntity = null;
+    for (SyncResponse<E> response : syncResponse) {
+      if (response instanceof NewRemoteEntityResponse) {
+        newEntities++;
+        lastNewEntity = ((NewRemoteEntityResponse<E>) response).getEntity();
       }
-    };
-
-    dataSyncService.call(onSuccess, errorCallback).coldSync(syncSet, syncRequests);
+    }
+    return newEntities >= maxResults ? desiredStateEm.keyFor(lastNewEntity).getId() : null;
   }
 
   /**
@@ -339,6 +486,23 @@ public class ClientSyncManager {
           desiredStateEm.detach(resolved);
         }
       }
+      else if (response instanceof DeleteByIdResponse) {
+        DeleteByIdResponse<E> dr = (DeleteByIdResponse<E>) response;
+        System.out.println("    -> Delete " + dr.getEntityTypeName() + " id=" + dr.getId());
+        ErraiIdentifiableType<E> entityType = expectedStateEm.getMetamodel().entity(dr.getEntityTypeName());
+        Key<E, Object> key = new Key<E, Object>(entityType, dr.getId());
+        E resolved = expectedStateEm.find(key, Collections.<String,Object>emptyMap());
+        if (resolved != null) {
+          expectedStateEm.remove(resolved);
+          expectedStateEm.detach(resolved);
+        }
+
+        resolved = desiredStateEm.find(key, Collections.<String,Object>emptyMap());
+        if (resolved != null) {
+          desiredStateEm.remove(resolved);
+          desiredStateEm.detach(resolved);
+        }
+      }
       else if (response instanceof IdChangeResponse) {
         IdChangeResponse<E> icr = (IdChangeResponse<E>) response;
         System.out.println("    -> ID Change from " + icr.getOldId() + " to " + icr.getEntity());
@@ -391,6 +555,28 @@ public class ClientSyncManager {
     }
   }
 
+  /**
+   * Returns the {@code @Version} value of the given entity from expectedStateEm.
+   * This is the version the server sent us when we last synchronized the
+   * entity.
+   *
+   * @param entity
+   *          The entity whose version to retrieve.
+   * @return the version value, or null if the entity type has no version
+   *         attribute (or the entity has not been assigned a version yet).
+   */
+  private <E> Object versionOf(E entity) {
+    @SuppressWarnings("unchecked")
+    ErraiIdentifiableType<E> entityType = expectedStateEm.getMetamodel().entity((Class<E>) entity.getClass());
+    if (!entityType.hasVersionAttribute()) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    ErraiSingularAttribute<? super E, Object> versionAttr =
+            (ErraiSingularAttribute<? super E, Object>) entityType.getVersion(Object.class);
+    return versionAttr.get(entity);
+  }
+
   /**
    * Changes the ID of an existing entity in desiredStateEm.
    *
@@ -72,6 +72,8 @@ public class ClientSyncWorker<E> {
 
   private Map<String, Object> queryParams;
 
+  private int maxResults;
+
   /**
    * The callback that gets notified by ClientSyncManager when a sync operation has completed.
    * Notifies this worker's callbacks.
@@ -91,6 +93,25 @@ public class ClientSyncWorker<E> {
     }
   };
 
+  /**
+   * The callback that gets notified by ClientSyncManager of each response of a sync operation that
+   * is delivered in several responses. Notifies this worker's callbacks.
+   */
+  private final RemoteCallback<List<SyncResponse<E>>> onProgress = new RemoteCallback<List<SyncResponse<E>>>() {
+    @Override
+    public void callback(List<SyncResponse<E>> response) {
+      SyncResponses<E> responses = new SyncResponses<E>(response);
+      for (DataSyncCallback<E> callback : callbacks) {
+        try {
+          callback.onSyncProgress(responses);
+        }
+        catch (Throwable t) {
+          logger.error("Ignoring Exception from DataSyncCallback:", t);
+        }
+      }
+    }
+  };
+
   private final RemoteCallback<List<SyncResponse<E>>> timerSchedulingRemoteCallback = new RemoteCallback<List<SyncResponse<E>>>() {
 
     @Override
@@ -198,7 +219,7 @@ public class ClientSyncWorker<E> {
       public void run() {
         try {
           manager.coldSync(ClientSyncWorker.this.queryName, ClientSyncWorker.this.queryResultType, queryParams,
-                  timerSchedulingRemoteCallback, timerSchedulingErrorCallback);
+                  maxResults, onProgress, timerSchedulingRemoteCallback, timerSchedulingErrorCallback);
         }
         catch (Throwable t) {
           if (!manager.isSyncInProgress()) {
@@ -221,6 +242,21 @@ public class ClientSyncWorker<E> {
     callbacks.add(onCompletion);
   }
 
+  /**
+   * Limits the number of new entities the server sends in one response. The entities of a large
+   * data set then arrive in several responses, each of which is reported to
+   * {@link DataSyncCallback#onSyncProgress(SyncResponses)} as it is applied.
+   *
+   * @param maxResults
+   *          the maximum number of new entities per response, or 0 (the default) for no limit.
+   */
+  public void setMaxResults(int maxResults) {
+    if (maxResults < 0) {
+      throw new IllegalArgumentException("maxResults must not be negative: " + maxResults);
+    }
+    this.maxResults = maxResults;
+  }
+
   /**
    * Starts this sync worker if it has not already been started or stopped.
    *
@@ -36,4 +36,17 @@ public interface DataSyncCallback<E> {
    *          result of the sync operation, never null.
    */
   public void onSync(SyncResponses<E> responses);
+
+  /**
+   * Invoked for each response received from the server while a synchronization
+   * operation that is delivered in several responses is still in progress (see
+   * {@link ClientSyncWorker#setMaxResults(int)}). The default implementation
+   * does nothing.
+   *
+   * @param responses
+   *          the part of the sync operation's result that has just been
+   *          applied, never null.
+   */
+  public default void onSyncProgress(SyncResponses<E> responses) {
+  }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.jpa.sync.client.shared;
+
+import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * Sync response that indicates the deletion of an entity the requesting side
+ * reported as a {@link SyncableDataSet#withKnownVersions(java.util.Map) known version}.
+ * The responding side no longer has the entity, so it is identified by its ID
+ * and the result type of the synchronized data set, which may be a supertype
+ * (even an abstract one) of the deleted entity's type.
+ *
+ * @param <X> the entity type
+ */
+@Portable
+public class DeleteByIdResponse<X> extends SyncResponse<X> {
+
+  private final String entityTypeName;
+  private final Object id;
+
+  public DeleteByIdResponse(
+          @MapsTo("entityTypeName") String entityTypeName,
+          @MapsTo("id") Object id) {
+    this.entityTypeName = Assert.notNull(entityTypeName);
+    this.id = Assert.notNull(id);
+  }
+
+  /**
+   * Returns the fully-qualified name of the entity type the ID belongs to. The
+   * deleted entity is of this type or one of its subtypes.
+   */
+  public String getEntityTypeName() {
+    return entityTypeName;
+  }
+
+  /**
+   * Returns the ID of the entity that was deleted.
+   */
+  public Object getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return "Delete " + entityTypeName + " id=" + id;
+  }
+}
@@ -17,6 +17,7 @@
 package org.jboss.errai.jpa.sync.client.shared;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
@@ -36,23 +37,103 @@ public class SyncableDataSet<E> {
   /** Stored as a string so to keep SyncableDataSet marshallable. */
   private final String resultTypeFqcn;
 
+  /**
+   * Maps entity ID to the {@code @Version} value of every entity in the
+   * requesting side's expected state that the requesting side has not changed.
+   * These entities are not sent as sync request operations at all: the
+   * responding side only reports the ones whose version no longer matches, or
+   * which have disappeared from the data set.
+   */
+  private final Map<Object, Object> knownVersions;
+
+  /**
+   * The maximum number of entities the responding side sends back as new in
+   * one response, or 0 for no limit.
+   */
+  private final int maxResults;
+
+  /**
+   * The ID after which the responding side continues sending new entities
+   * when their number is limited, or null to start with the lowest ID.
+   */
+  private final Object newEntitiesAfter;
+
   // FIXME need to allow app to specify TemporalType for date params
   public static <E> SyncableDataSet<E> from(String queryName, Class<E> resultType, Map<String, Object> params) {
     return new SyncableDataSet<E>(queryName, resultType, params);
   }
 
   private SyncableDataSet(String queryName, Class<E> resultType, Map<String, Object> params) {
-    this(queryName, resultType.getName(), params);
+    this(queryName, resultType.getName(), params, Collections.emptyMap(), 0, null);
   }
 
   // Errai Marshalling constructor
   private SyncableDataSet(
           @MapsTo("queryName") String queryName,
           @MapsTo("resultTypeFqcn") String resultTypeFqcn,
-          @MapsTo("params") Map<String, Object> params) {
+          @MapsTo("params") Map<String, Object> params,
+          @MapsTo("knownVersions") Map<Object, Object> knownVersions,
+          @MapsTo("maxResults") int maxResults,
+          @MapsTo("newEntitiesAfter") Object newEntitiesAfter) {
     this.queryName = Assert.notNull(queryName);
     this.resultTypeFqcn = resultTypeFqcn;
     this.params = Collections.unmodifiableMap(params);
+    this.knownVersions = knownVersions == null ?
+            Collections.emptyMap() : Collections.unmodifiableMap(knownVersions);
+    this.maxResults = maxResults;
+    this.newEntitiesAfter = newEntitiesAfter;
+  }
+
+  /**
+   * Returns a copy of this syncable data set which tells the responding side
+   * that the requesting side already holds the given entity versions, and has
+   * not changed those entities since it received them.
+   *
+   * @param knownVersions
+   *          map of entity ID to {@code @Version} value. Must not be null.
+   * @return a new syncable data set for the same query and parameters.
+   */
+  public SyncableDataSet<E> withKnownVersions(Map<Object, Object> knownVersions) {
+    return new SyncableDataSet<E>(queryName, resultTypeFqcn, params, new HashMap<Object, Object>(knownVersions),
+            maxResults, newEntitiesAfter);
+  }
+
+  /**
+   * Returns a copy of this syncable data set which limits the number of
+   * entities the responding side sends back as new in one response. The new
+   * entities are sent in ascending order of their IDs, which must be
+   * {@link Comparable}. The requesting side receives the next ones by syncing
+   * again with {@link #withNewEntitiesAfter(Object)} set to the highest ID it
+   * has received.
+   *
+   * @param maxResults
+   *          the maximum number of new entities per response, or 0 for no
+   *          limit.
+   * @return a new syncable data set for the same query and parameters.
+   */
+  public SyncableDataSet<E> withMaxResults(int maxResults) {
+    if (maxResults < 0) {
+      throw new IllegalArgumentException("maxResults must not be negative: " + maxResults);
+    }
+    return new SyncableDataSet<E>(queryName, resultTypeFqcn, params, knownVersions, maxResults, newEntitiesAfter);
+  }
+
+  /**
+   * Returns a copy of this syncable data set which asks the responding side
+   * for the next new entities only: those with an ID greater than the given
+   * one. This is the cursor for receiving the new entities of a data set with
+   * {@link #withMaxResults(int) limited} responses, after the first response
+   * has reconciled the entities of the requesting side. A request with a
+   * cursor must not carry sync requests, and its named query must return its
+   * results in ascending ID order.
+   *
+   * @param id
+   *          the highest ID of the new entities received so far, or null to
+   *          start from the beginning.
+   * @return a new syncable data set for the same query and parameters.
+   */
+  public SyncableDataSet<E> withNewEntitiesAfter(Object id) {
+    return new SyncableDataSet<E>(queryName, resultTypeFqcn, params, knownVersions, maxResults, id);
   }
 
   public TypedQuery<E> createQuery(EntityManager em) {
@@ -64,8 +145,18 @@ public class SyncableDataSet<E> {
     return query;
   }
 
+  /**
+   * Resolves the result type of this syncable data set against the entity
+   * types known to the given entity manager.
+   *
+   * @return the result type. This is {@code Object.class} for data sets created
+   *         without a specific entity type.
+   * @throws IllegalStateException
+   *           if the result type is not an entity type known to the given
+   *           entity manager.
+   */
   @SuppressWarnings("unchecked")
-  private Class<E> getResultType(EntityManager em) {
+  public Class<E> getResultType(EntityManager em) {
     // We support this so users don't have to specify the query return type when using @Sync.
     if (resultTypeFqcn.equals("java.lang.Object")) {
       return (Class<E>) Object.class;
@@ -100,10 +191,43 @@ public class SyncableDataSet<E> {
     return params;
   }
 
+  /**
+   * Returns a read-only view of the entity versions the requesting side
+   * already holds and has not changed. See {@link #withKnownVersions(Map)}.
+   *
+   * @return a read-only map of entity ID to {@code @Version} value. Never null,
+   *         but empty when the requesting side sent all of its entities as
+   *         sync request operations.
+   */
+  public Map<Object, Object> getKnownVersions() {
+    return knownVersions;
+  }
+
+  /**
+   * Returns the maximum number of entities the responding side sends back as
+   * new in one response. See {@link #withMaxResults(int)}.
+   *
+   * @return the maximum number of new entities per response, or 0 for no limit.
+   */
+  public int getMaxResults() {
+    return maxResults;
+  }
+
+  /**
+   * Returns the ID after which the responding side continues sending new
+   * entities. See {@link #withNewEntitiesAfter(Object)}.
+   *
+   * @return the ID of the last new entity received, or null.
+   */
+  public Object getNewEntitiesAfter() {
+    return newEntitiesAfter;
+  }
+
   @Override
   public String toString() {
     return "SyncableDataSet [queryName=" + queryName + ", params=" + params + ", resultType=" + resultTypeFqcn
-            + "]";
+            + ", knownVersions=" + knownVersions.size() + ", maxResults=" + maxResults
+            + ", newEntitiesAfter=" + newEntitiesAfter + "]";
   }
 
 
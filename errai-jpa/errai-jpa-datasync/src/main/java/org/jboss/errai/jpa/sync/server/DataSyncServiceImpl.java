@@ -17,9 +17,14 @@
 package org.jboss.errai.jpa.sync.server;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
@@ -29,6 +34,7 @@ import javax.persistence.metamodel.SingularAttribute;
 import org.jboss.errai.common.client.api.Assert;
 import org.jboss.errai.jpa.sync.client.shared.ConflictResponse;
 import org.jboss.errai.jpa.sync.client.shared.DataSyncService;
+import org.jboss.errai.jpa.sync.client.shared.DeleteByIdResponse;
 import org.jboss.errai.jpa.sync.client.shared.DeleteResponse;
 import org.jboss.errai.jpa.sync.client.shared.EntityComparator;
 import org.jboss.errai.jpa.sync.client.shared.IdChangeResponse;
@@ -41,22 +47,82 @@ import org.jboss.errai.jpa.sync.client.shared.UpdateResponse;
 
 public class DataSyncServiceImpl implements DataSyncService {
 
+  /**
+   * The number of query results read at once, unless a different page size is
+   * given to the constructor.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 500;
+
   private final EntityManager em;
   private final JpaAttributeAccessor attributeAccessor;
   private final EntityComparator entityComparator;
+  private final int pageSize;
 
   public DataSyncServiceImpl(EntityManager em, JpaAttributeAccessor attributeAccessor) {
+    this(em, attributeAccessor, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Creates a DataSyncServiceImpl that reads the results of the synchronized
+   * queries in pages of the given size.
+   * <p>
+   * Paging relies on the named queries returning their results in a stable
+   * order, so they should have an {@code ORDER BY} clause (for example on the
+   * ID). When the pages of a query overlap, its results are read again in one
+   * piece.
+   *
+   * @param em
+   *          the entity manager to synchronize with. Must not be null.
+   * @param attributeAccessor
+   *          reads and writes attribute values of the entities. Must not be
+   *          null.
+   * @param pageSize
+   *          the number of query results to read at once. Must be positive.
+   */
+  public DataSyncServiceImpl(EntityManager em, JpaAttributeAccessor attributeAccessor, int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
     this.em = Assert.notNull(em);
     this.attributeAccessor = Assert.notNull(attributeAccessor);
     this.entityComparator = new EntityComparator(em.getMetamodel(), attributeAccessor);
+    this.pageSize = pageSize;
   }
 
   @Override
   public <E> List<SyncResponse<E>> coldSync(SyncableDataSet<E> dataSet, List<SyncRequestOperation<E>> syncRequestOps) {
-    TypedQuery<E> query = dataSet.createQuery(em);
-    Map<Object, E> localResults = new HashMap<Object, E>();
-    for (E localEntity : query.getResultList()) {
-      localResults.put(id(localEntity), localEntity);
+    if (dataSet.getNewEntitiesAfter() != null) {
+      return continueColdSync(dataSet, syncRequestOps);
+    }
+
+    // the IDs of the entities whose local state the requests need; new remote entities have no local state
+    final Set<Object> requestedIds = new HashSet<Object>();
+    for (SyncRequestOperation<E> syncReq : syncRequestOps) {
+      if (syncReq.getType() != SyncRequestOperation.Type.NEW) {
+        requestedIds.add(remoteId(syncReq));
+      }
+    }
+
+    // read the data set one page at a time. This is done before making any changes so the pages don't shift.
+    final TypedQuery<E> query = dataSet.createQuery(em);
+    ScanResult<E> scan = new ScanResult<E>(dataSet, requestedIds);
+    if (!scanInPages(query, scan)) {
+      // the query doesn't return its results in a stable order, so the pages may also have missed some
+      scan = new ScanResult<E>(dataSet, requestedIds);
+      for (E localEntity : query.setFirstResult(0).setMaxResults(Integer.MAX_VALUE).getResultList()) {
+        scan.add(localEntity);
+      }
+    }
+
+    // our local copies of the requested entities (absent if deleted or no longer in the data set)
+    final Map<Object, E> localStates = scan.localStates;
+
+    // responses about entities the client holds unchanged
+    final List<SyncResponse<E>> knownVersionResponses = scan.knownVersionResponses;
+
+    // entities the client holds unchanged that have left the data set
+    for (Object id : scan.unseenKnownIds) {
+      knownVersionResponses.add(new DeleteByIdResponse<E>(dataSet.getResultType(em).getName(), id));
     }
 
     // maps the old remote ID -> new local persistent entity
@@ -74,25 +140,15 @@ public class DataSyncServiceImpl implements DataSyncService {
       final E remoteExpectedState = syncReq.getExpectedState();
 
       // the JPA ID of the remote entity, whether new to us or known before
-      final Object remoteId;
-      if (remoteNewState != null) {
-        remoteId = id(remoteNewState);
-      }
-      else if (remoteExpectedState != null) {
-        remoteId = id(remoteExpectedState);
-      }
-      else {
-        throw new IllegalArgumentException("New and Expected states can't both be null");
-      }
+      final Object remoteId = remoteId(syncReq);
 
       // our actual local copy of the entity (null if it has been deleted)
-      final E localState = localResults.get(remoteId);
+      final E localState = localStates.get(remoteId);
 
       // TODO handle related entities reachable from the given ones
 
       switch (syncReq.getType()) {
       case UPDATED:
-        localResults.remove(remoteId);
         if (entityComparator.isDifferent(localState, remoteExpectedState)) {
           syncResponse.add(new ConflictResponse<E>(remoteExpectedState, localState, remoteNewState));
         }
@@ -112,7 +168,6 @@ public class DataSyncServiceImpl implements DataSyncService {
           syncResponse.add(new DeleteResponse<E>(remoteExpectedState));
         }
         else {
-          localResults.remove(remoteId);
           if (entityComparator.isDifferent(localState, remoteExpectedState)) {
             syncResponse.add(new UpdateResponse<E>(localState));
           }
@@ -123,7 +178,6 @@ public class DataSyncServiceImpl implements DataSyncService {
         // have to check for null in case someone else already deleted this entity
         if (localState != null) {
           // FIXME need to compare expected state with actual; issue conflict if they differ
-          localResults.remove(remoteId);
           em.remove(localState);
           syncResponse.add(new DeleteResponse<E>(localState));
         }
@@ -134,6 +188,8 @@ public class DataSyncServiceImpl implements DataSyncService {
       }
     }
 
+    syncResponse.addAll(knownVersionResponses);
+
     em.flush();
 
     // pick up new IDs (this has to be done after the flush)
@@ -141,12 +197,240 @@ public class DataSyncServiceImpl implements DataSyncService {
       syncResponse.add(new IdChangeResponse<E>(newLocalEntity.getKey(), newLocalEntity.getValue()));
     }
 
-    for (E newOnThisSide : localResults.values()) {
-      syncResponse.add(new NewRemoteEntityResponse<E>(newOnThisSide));
+    for (E newEntity : scan.newOnThisSide()) {
+      syncResponse.add(new NewRemoteEntityResponse<E>(newEntity));
     }
     return syncResponse;
   }
 
+  /**
+   * Answers a request for the next new entities of a cold sync with a limited
+   * number of new entities per response: the (at most {@code maxResults})
+   * entities of the data set with the lowest IDs greater than the cursor. The
+   * client has reconciled its own entities with the first response already, so
+   * it sends no sync requests, and we don't look at any other entities.
+   */
+  private <E> List<SyncResponse<E>> continueColdSync(SyncableDataSet<E> dataSet,
+          List<SyncRequestOperation<E>> syncRequestOps) {
+    if (!syncRequestOps.isEmpty()) {
+      throw new IllegalArgumentException("A request for the new entities after " + dataSet.getNewEntitiesAfter()
+              + " must not carry sync requests");
+    }
+    if (dataSet.getMaxResults() == 0) {
+      throw new IllegalArgumentException("newEntitiesAfter can only be used with a limited number of results");
+    }
+
+    final Comparable<Object> cursor = comparableId(dataSet.getNewEntitiesAfter());
+    final TypedQuery<E> query = dataSet.createQuery(em);
+    final int firstResult = firstResultAfter(query, cursor);
+    final List<E> next = query.setFirstResult(firstResult).setMaxResults(dataSet.getMaxResults()).getResultList();
+
+    final List<SyncResponse<E>> syncResponse = new ArrayList<SyncResponse<E>>(next.size());
+    Comparable<Object> previousId = cursor;
+    for (E localEntity : next) {
+      final Comparable<Object> id = comparableId(id(localEntity));
+      if (id.compareTo(previousId) <= 0) {
+        throw new IllegalArgumentException("Query " + dataSet.getQueryName()
+                + " must return its results in ascending ID order to be synchronized with limited responses");
+      }
+      previousId = id;
+      syncResponse.add(new NewRemoteEntityResponse<E>(localEntity));
+    }
+    return syncResponse;
+  }
+
+  /**
+   * Returns the position of the first result of the given query whose ID is
+   * greater than the given one, or the number of results if there is none. The
+   * query must return its results in ascending ID order. The position is found
+   * with a logarithmic number of single-result queries.
+   */
+  private <E> int firstResultAfter(TypedQuery<E> query, Comparable<Object> id) {
+    // all results before position low have an ID up to the given one; the result at position high (if any) is after it
+    int low = 0;
+    int step = 1;
+    while (!isAfter(query, low + step - 1, id)) {
+      low += step;
+      step *= 2;
+    }
+    int high = low + step - 1;
+    while (low < high) {
+      final int middle = low + (high - low) / 2;
+      if (isAfter(query, middle, id)) {
+        high = middle;
+      }
+      else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Tests if the result at the given position of the given query has an ID
+   * greater than the given one, or if there is no result at that position.
+   */
+  private <E> boolean isAfter(TypedQuery<E> query, int position, Comparable<Object> id) {
+    final List<E> result = query.setFirstResult(position).setMaxResults(1).getResultList();
+    if (result.isEmpty()) {
+      return true;
+    }
+    final E localEntity = result.get(0);
+    final boolean after = comparableId(id(localEntity)).compareTo(id) > 0;
+    em.detach(localEntity);
+    return after;
+  }
+
+  /**
+   * Reads the results of the given query in pages into the given scan result.
+   *
+   * @return false if a page contained an entity of an earlier page, which means
+   *         the query results are not in a stable order.
+   */
+  private <E> boolean scanInPages(TypedQuery<E> query, ScanResult<E> scan) {
+    List<E> page;
+    int firstResult = 0;
+    do {
+      page = query.setFirstResult(firstResult).setMaxResults(pageSize).getResultList();
+      firstResult += page.size();
+      for (E localEntity : page) {
+        if (!scan.add(localEntity)) {
+          return false;
+        }
+      }
+    } while (page.size() == pageSize);
+    return true;
+  }
+
+  /**
+   * What a cold sync needs to know about the entities of the data set on this
+   * side. Entities that need no response are detached as they are added, so
+   * only those of the requests and responses stay in memory.
+   */
+  private class ScanResult<E> {
+    private final Set<Object> requestedIds;
+    private final Map<Object, Object> knownVersions;
+    private final int maxResults;
+
+    private final Set<Object> seenIds = new HashSet<Object>();
+    private final Set<Object> unseenKnownIds;
+    private final Map<Object, E> localStates = new HashMap<Object, E>();
+    private final List<SyncResponse<E>> knownVersionResponses = new ArrayList<SyncResponse<E>>();
+
+    // entities the client doesn't know about. When their number is limited, a heap of those with the lowest IDs.
+    private final List<E> newOnThisSide = new ArrayList<E>();
+    private final PriorityQueue<NewEntity<E>> lowestNewOnThisSide;
+
+    ScanResult(SyncableDataSet<E> dataSet, Set<Object> requestedIds) {
+      this.requestedIds = requestedIds;
+      this.knownVersions = dataSet.getKnownVersions();
+      this.maxResults = dataSet.getMaxResults();
+      this.unseenKnownIds = new HashSet<Object>(knownVersions.keySet());
+      this.lowestNewOnThisSide = maxResults == 0 ? null
+              : new PriorityQueue<NewEntity<E>>(maxResults, Collections.reverseOrder());
+    }
+
+    /**
+     * @return false if the given entity has been added before.
+     */
+    boolean add(E localEntity) {
+      final Object id = id(localEntity);
+      if (!seenIds.add(id)) {
+        return false;
+      }
+
+      if (requestedIds.contains(id)) {
+        localStates.put(id, localEntity);
+      }
+      else if (unseenKnownIds.remove(id)) {
+        // entities the client holds unchanged only come back if our version differs
+        if (sameVersion(version(localEntity), knownVersions.get(id))) {
+          em.detach(localEntity);
+        }
+        else {
+          knownVersionResponses.add(new UpdateResponse<E>(localEntity));
+        }
+      }
+      else if (lowestNewOnThisSide == null) {
+        newOnThisSide.add(localEntity);
+      }
+      else {
+        addLimited(new NewEntity<E>(comparableId(id), localEntity));
+      }
+      return true;
+    }
+
+    private void addLimited(NewEntity<E> newEntity) {
+      if (lowestNewOnThisSide.size() < maxResults) {
+        lowestNewOnThisSide.add(newEntity);
+      }
+      else if (newEntity.compareTo(lowestNewOnThisSide.peek()) < 0) {
+        // the client will get the replaced one with a later request
+        em.detach(lowestNewOnThisSide.poll().entity);
+        lowestNewOnThisSide.add(newEntity);
+      }
+      else {
+        em.detach(newEntity.entity);
+      }
+    }
+
+    /**
+     * @return the entities to send to the client as new, in ascending order of
+     *         their IDs if their number is limited.
+     */
+    List<E> newOnThisSide() {
+      if (lowestNewOnThisSide == null) {
+        return newOnThisSide;
+      }
+      final List<NewEntity<E>> sorted = new ArrayList<NewEntity<E>>(lowestNewOnThisSide);
+      Collections.sort(sorted);
+      final List<E> entities = new ArrayList<E>(sorted.size());
+      for (NewEntity<E> newEntity : sorted) {
+        entities.add(newEntity.entity);
+      }
+      return entities;
+    }
+  }
+
+  private static class NewEntity<E> implements Comparable<NewEntity<E>> {
+    private final Comparable<Object> id;
+    private final E entity;
+
+    NewEntity(Comparable<Object> id, E entity) {
+      this.id = id;
+      this.entity = entity;
+    }
+
+    @Override
+    public int compareTo(NewEntity<E> other) {
+      return id.compareTo(other.id);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> comparableId(Object id) {
+    if (!(id instanceof Comparable)) {
+      throw new IllegalArgumentException("Can't limit the number of new entities of a data set with "
+              + (id == null ? "null" : "non-comparable " + id.getClass().getName()) + " IDs");
+    }
+    return (Comparable<Object>) id;
+  }
+
+  /**
+   * Returns the ID of the entity the given sync request is about.
+   */
+  private <E> Object remoteId(SyncRequestOperation<E> syncReq) {
+    if (syncReq.getEntity() != null) {
+      return id(syncReq.getEntity());
+    }
+    else if (syncReq.getExpectedState() != null) {
+      return id(syncReq.getExpectedState());
+    }
+    else {
+      throw new IllegalArgumentException("New and Expected states can't both be null");
+    }
+  }
+
   /**
    * Returns the ID of the given object, which must be a JPA entity.
    *
@@ -165,6 +449,38 @@ public class DataSyncServiceImpl implements DataSyncService {
     return attributeAccessor.get(attr, entity);
   }
 
+  /**
+   * Returns the {@code @Version} value of the given object, which must be a JPA
+   * entity.
+   *
+   * @param entity
+   *          the JPA entity whose version value to retrieve
+   * @return The version of the given entity, or null if its type has no
+   *         version attribute.
+   */
+  private <X> Object version(X entity) {
+    @SuppressWarnings("unchecked")
+    EntityType<X> type = em.getMetamodel().entity((Class<X>) entity.getClass());
+    for (SingularAttribute<? super X, ?> attr : type.getSingularAttributes()) {
+      if (attr.isVersion()) {
+        return attributeAccessor.get(attr, entity);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Compares two {@code @Version} values. Timestamp versions are compared by
+   * their millisecond value, because {@link java.sql.Timestamp} instances
+   * never equal plain {@link Date} instances.
+   */
+  private static boolean sameVersion(Object ours, Object theirs) {
+    if (ours instanceof Date && theirs instanceof Date) {
+      return ((Date) ours).getTime() == ((Date) theirs).getTime();
+    }
+    return ours == null ? theirs == null : ours.equals(theirs);
+  }
+
   /**
    * Sets the ID of the given object, which must be a JPA entity, to its default
    * value. The default value for reference types is {@code null}; the default
@@ -36,6 +36,7 @@ import org.jboss.errai.ioc.client.lifecycle.api.StateChange;
 import org.jboss.errai.jpa.client.local.ErraiEntityManager;
 import org.jboss.errai.jpa.sync.client.local.ClientSyncManager;
 import org.jboss.errai.jpa.sync.client.shared.DataSyncService;
+import org.jboss.errai.jpa.sync.client.shared.DeleteByIdResponse;
 import org.jboss.errai.jpa.sync.client.shared.DeleteResponse;
 import org.jboss.errai.jpa.sync.client.shared.IdChangeResponse;
 import org.jboss.errai.jpa.sync.client.shared.NewRemoteEntityResponse;
@@ -234,9 +235,9 @@ public class ClientSyncManagerIntegrationTest extends GWTTestCase {
     dsem.flush();
     dsem.clear();
 
+    // the entity is versioned, so the client sends its ID and version instead of a sync request
     final List<SyncRequestOperation<SimpleEntity>> expectedClientRequests =
         new ArrayList<>();
-    expectedClientRequests.add(SyncRequestOperation.unchanged(originalEntityState));
 
     // now cook up a server response that says something changed
     SimpleEntity.setId(newEntity, originalEntityState.getId());
@@ -272,17 +273,17 @@ public class ClientSyncManagerIntegrationTest extends GWTTestCase {
     dsem.flush();
     dsem.clear();
 
+    // the entity is versioned, so the client sends its ID and version instead of a sync request
     final List<SyncRequestOperation<SimpleEntity>> expectedClientRequests =
         new ArrayList<>();
-    expectedClientRequests.add(SyncRequestOperation.unchanged(originalEntityState));
 
     // now cook up a server response that says it got deleted
     final List<SyncResponse<SimpleEntity>> fakeServerResponses = new ArrayList<>();
-    fakeServerResponses.add(new DeleteResponse<>(newEntity));
+    fakeServerResponses.add(new DeleteByIdResponse<>(SimpleEntity.class.getName(), originalEntityState.getId()));
     performColdSync(expectedClientRequests, fakeServerResponses);
 
-    assertNull(esem.find(SimpleEntity.class, newEntity.getId()));
-    assertNull(dsem.find(SimpleEntity.class, newEntity.getId()));
+    assertNull(esem.find(SimpleEntity.class, originalEntityState.getId()));
+    assertNull(dsem.find(SimpleEntity.class, originalEntityState.getId()));
 
     // finally, ensure the deleted entity is not stuck in the REMOVED state
     // (should be NEW or DETACHED; we can verify by trying to merge it)
@@ -24,10 +24,10 @@ import org.jboss.errai.common.client.api.RemoteCallback;
 import org.jboss.errai.jpa.sync.client.local.ClientSyncManager;
 
 /**
- * A subclass of the real ClientSyncManager that overrides
- * {@link #coldSync(String, Class, Map, RemoteCallback, ErrorCallback)} so it
- * just captures its arguments and does not attempt to communicate with the
- * server.
+ * A subclass of the real ClientSyncManager that overrides the
+ * {@link #coldSync(String, Class, Map, RemoteCallback, ErrorCallback)} methods
+ * so they just capture their arguments and do not attempt to communicate with
+ * the server.
  * <p>
  * Note that this bean is blacklisted in ErraiApp.properties so that it does not
  * get injected in place of the real ClientSyncManager.
@@ -43,6 +43,14 @@ public class MockClientSyncManager extends ClientSyncManager {
     onCompletion.callback(Collections.emptyList());
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public void coldSync(String queryName, Class queryResultType, Map queryParams, int maxResults,
+          RemoteCallback onProgress, RemoteCallback onCompletion, ErrorCallback onError) {
+    coldSyncCallCount++;
+    onCompletion.callback(Collections.emptyList());
+  }
+
   public int getColdSyncCallCount() {
     return coldSyncCallCount;
   }
@@ -27,7 +27,7 @@ import javax.persistence.Version;
 
 @Entity
 @NamedQueries({
-    @NamedQuery(name = "allSimpleEntities", query = "SELECT se FROM SimpleEntity se"),
+    @NamedQuery(name = "allSimpleEntities", query = "SELECT se FROM SimpleEntity se ORDER BY se.id"),
     @NamedQuery(name = "simpleEntitiesByIdAndString",
          query = "SELECT se FROM SimpleEntity se WHERE se.id = :id AND se.string = :string AND :literal IS NOT NULL") })
 public class SimpleEntity implements Cloneable {
@@ -17,18 +17,23 @@
 package org.jboss.errai.jpa.sync.test.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.TypedQuery;
 
 import org.jboss.errai.jpa.sync.client.shared.ConflictResponse;
+import org.jboss.errai.jpa.sync.client.shared.DeleteByIdResponse;
 import org.jboss.errai.jpa.sync.client.shared.DeleteResponse;
 import org.jboss.errai.jpa.sync.client.shared.IdChangeResponse;
 import org.jboss.errai.jpa.sync.client.shared.NewRemoteEntityResponse;
@@ -52,6 +57,12 @@ public class DataSyncServiceUnitTest extends AbstractServerSideDataSyncTest {
   @Before
   public void setupDss() {
     dss = new DataSyncServiceImpl(em, new JavaReflectionAttributeAccessor());
+
+    // a query that returns its results in a different order every time
+    em.getEntityManagerFactory().addNamedQuery("allSimpleEntitiesInRandomOrder",
+            em.createQuery("SELECT se FROM SimpleEntity se ORDER BY rand()"));
+    em.getEntityManagerFactory().addNamedQuery("allSimpleEntitiesInDescendingOrder",
+            em.createQuery("SELECT se FROM SimpleEntity se ORDER BY se.id DESC"));
   }
 
   @Test
@@ -244,6 +255,256 @@ public class DataSyncServiceUnitTest extends AbstractServerSideDataSyncTest {
     assertEquals(localSimpleEntity.toString(), deleteResponse.getEntity().toString());
   }
 
+  @Test
+  public void testKnownVersionUnchanged() {
+    SimpleEntity remoteSimpleEntity = new SimpleEntity();
+    remoteSimpleEntity.setDate(new Timestamp(-2960391600000L));
+    remoteSimpleEntity.setInteger(42);
+    remoteSimpleEntity.setString("Mr. Watson--come here--I want to see you.");
+    em.persist(remoteSimpleEntity);
+    em.flush();
+    em.detach(remoteSimpleEntity);
+
+    Map<Object, Object> knownVersions = new HashMap<Object, Object>();
+    knownVersions.put(remoteSimpleEntity.getId(), remoteSimpleEntity.getVersion());
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+            .withKnownVersions(knownVersions);
+
+    // now do the actual sync (the entity itself is not part of the request)
+    List<SyncResponse<SimpleEntity>> syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+
+    // ensure the response is as expected (nothing to do)
+    assertEquals("Got unexpected response: " + syncResponse, 0, syncResponse.size());
+  }
+
+  @Test
+  public void testKnownVersionRemoteSideChanged() {
+    SimpleEntity remoteSimpleEntity = new SimpleEntity();
+    remoteSimpleEntity.setDate(new Timestamp(-2960391600000L));
+    remoteSimpleEntity.setInteger(42);
+    remoteSimpleEntity.setString("Mr. Watson--come here--I want to see you.");
+    em.persist(remoteSimpleEntity);
+    em.flush();
+
+    Map<Object, Object> knownVersions = new HashMap<Object, Object>();
+    knownVersions.put(remoteSimpleEntity.getId(), remoteSimpleEntity.getVersion());
+
+    remoteSimpleEntity.setString("This is different");
+    em.flush();
+    em.detach(remoteSimpleEntity);
+
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+            .withKnownVersions(knownVersions);
+
+    // now do the actual sync
+    List<SyncResponse<SimpleEntity>> syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+
+    // ensure the response is as expected (the server's newer version)
+    assertEquals("Got unexpected response: " + syncResponse, 1, syncResponse.size());
+    UpdateResponse<SimpleEntity> updateResponse = (UpdateResponse<SimpleEntity>) syncResponse.get(0);
+    assertEquals(remoteSimpleEntity.toString(), updateResponse.getEntity().toString());
+  }
+
+  @Test
+  public void testKnownVersionRemoteSideDeleted() {
+    Map<Object, Object> knownVersions = new HashMap<Object, Object>();
+    knownVersions.put(123L, 3);
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+            .withKnownVersions(knownVersions);
+
+    // now do the actual sync
+    List<SyncResponse<SimpleEntity>> syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+
+    // ensure the response is as expected (the server doesn't have the entity anymore)
+    assertEquals("Got unexpected response: " + syncResponse, 1, syncResponse.size());
+    DeleteByIdResponse<SimpleEntity> deleteResponse = (DeleteByIdResponse<SimpleEntity>) syncResponse.get(0);
+    assertEquals(SimpleEntity.class.getName(), deleteResponse.getEntityTypeName());
+    assertEquals(123L, deleteResponse.getId());
+  }
+
+  @Test
+  public void testPagedResultsAreAllCompared() {
+    Map<Object, Object> knownVersions = new HashMap<Object, Object>();
+    List<SimpleEntity> remoteEntities = new ArrayList<SimpleEntity>();
+    for (int i = 0; i < 5; i++) {
+      SimpleEntity remoteSimpleEntity = new SimpleEntity();
+      remoteSimpleEntity.setInteger(i);
+      remoteSimpleEntity.setString("entity " + i);
+      em.persist(remoteSimpleEntity);
+      remoteEntities.add(remoteSimpleEntity);
+    }
+    em.flush();
+
+    // the client knows entities 0 and 3; entity 3 has changed since
+    knownVersions.put(remoteEntities.get(0).getId(), remoteEntities.get(0).getVersion());
+    knownVersions.put(remoteEntities.get(3).getId(), remoteEntities.get(3).getVersion());
+    remoteEntities.get(3).setString("changed");
+    em.flush();
+    em.clear();
+
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+            .withKnownVersions(knownVersions);
+
+    // now do the actual sync, reading two entities at a time
+    DataSyncServiceImpl pagedDss = new DataSyncServiceImpl(em, new JavaReflectionAttributeAccessor(), 2);
+    List<SyncResponse<SimpleEntity>> syncResponse = pagedDss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+
+    // ensure the response is as expected (one update, three new entities)
+    assertEquals("Got unexpected response: " + syncResponse, 4, syncResponse.size());
+    UpdateResponse<SimpleEntity> updateResponse = (UpdateResponse<SimpleEntity>) syncResponse.get(0);
+    assertEquals("changed", updateResponse.getEntity().getString());
+    for (SyncResponse<SimpleEntity> response : syncResponse.subList(1, 4)) {
+      assertTrue(response instanceof NewRemoteEntityResponse);
+    }
+  }
+
+  @Test
+  public void testMaxResultsLimitsNewRemoteEntities() {
+    for (int i = 0; i < 3; i++) {
+      SimpleEntity remoteSimpleEntity = new SimpleEntity();
+      remoteSimpleEntity.setInteger(i);
+      em.persist(remoteSimpleEntity);
+    }
+    em.flush();
+    em.clear();
+
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+            .withMaxResults(2);
+
+    // now do the actual sync (we're starting from empty on the local (requesting) side)
+    List<SyncResponse<SimpleEntity>> syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+    assertEquals("Got unexpected response: " + syncResponse, 2, syncResponse.size());
+
+    // the next sync tells the server we have those two now, so it sends the third
+    Map<Object, Object> knownVersions = new HashMap<Object, Object>();
+    for (SyncResponse<SimpleEntity> response : syncResponse) {
+      SimpleEntity received = ((NewRemoteEntityResponse<SimpleEntity>) response).getEntity();
+      knownVersions.put(received.getId(), received.getVersion());
+    }
+    syncResponse = dss.coldSync(sds.withKnownVersions(knownVersions), new ArrayList<SyncRequestOperation<SimpleEntity>>());
+    assertEquals("Got unexpected response: " + syncResponse, 1, syncResponse.size());
+    SimpleEntity third = ((NewRemoteEntityResponse<SimpleEntity>) syncResponse.get(0)).getEntity();
+    assertFalse(knownVersions.containsKey(third.getId()));
+  }
+
+  @Test
+  public void testMaxResultsSendsLowestIdsFirstAndContinuesAfterCursor() {
+    for (int i = 0; i < 5; i++) {
+      SimpleEntity remoteSimpleEntity = new SimpleEntity();
+      remoteSimpleEntity.setInteger(i);
+      em.persist(remoteSimpleEntity);
+    }
+    em.flush();
+    em.clear();
+
+    // the first response picks the lowest IDs even if the query returns them in any order
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntitiesInRandomOrder", SimpleEntity.class, NO_PARAMS)
+            .withMaxResults(2);
+    List<SyncResponse<SimpleEntity>> syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+    assertEquals("Got unexpected response: " + syncResponse, 2, syncResponse.size());
+    List<Long> receivedIds = new ArrayList<Long>();
+    for (SyncResponse<SimpleEntity> response : syncResponse) {
+      receivedIds.add(((NewRemoteEntityResponse<SimpleEntity>) response).getEntity().getId());
+    }
+    Collections.sort(receivedIds);
+
+    // the cursor alone moves the sync on, without the client reporting the entities it got as known
+    sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS).withMaxResults(2);
+    for (int expectedSize : new int[] { 2, 1, 0 }) {
+      sds = sds.withNewEntitiesAfter(receivedIds.get(receivedIds.size() - 1));
+      syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+      assertEquals("Got unexpected response: " + syncResponse, expectedSize, syncResponse.size());
+      for (SyncResponse<SimpleEntity> response : syncResponse) {
+        receivedIds.add(((NewRemoteEntityResponse<SimpleEntity>) response).getEntity().getId());
+      }
+    }
+
+    List<Long> sortedIds = new ArrayList<Long>(receivedIds);
+    Collections.sort(sortedIds);
+    assertEquals(sortedIds, receivedIds);
+    assertEquals(5, new HashSet<Long>(receivedIds).size());
+  }
+
+  @Test
+  public void testNewEntitiesAfterCursorDontDependOnKnownEntities() {
+    List<Long> ids = new ArrayList<Long>();
+    for (int i = 0; i < 7; i++) {
+      SimpleEntity remoteSimpleEntity = new SimpleEntity();
+      remoteSimpleEntity.setInteger(i);
+      em.persist(remoteSimpleEntity);
+      ids.add(remoteSimpleEntity.getId());
+    }
+    em.flush();
+    em.clear();
+    Collections.sort(ids);
+
+    // every cursor position, including ones before, between and after the IDs of the data set
+    for (int i = 0; i <= ids.size(); i++) {
+      Long cursor = (i == 0) ? ids.get(0) - 1 : ids.get(i - 1);
+      SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+              .withMaxResults(3).withNewEntitiesAfter(cursor);
+      List<SyncResponse<SimpleEntity>> syncResponse = dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+
+      List<Long> receivedIds = new ArrayList<Long>();
+      for (SyncResponse<SimpleEntity> response : syncResponse) {
+        receivedIds.add(((NewRemoteEntityResponse<SimpleEntity>) response).getEntity().getId());
+      }
+      assertEquals(ids.subList(i, Math.min(i + 3, ids.size())), receivedIds);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNewEntitiesAfterCursorRequireAscendingIds() {
+    for (int i = 0; i < 5; i++) {
+      SimpleEntity remoteSimpleEntity = new SimpleEntity();
+      remoteSimpleEntity.setInteger(i);
+      em.persist(remoteSimpleEntity);
+    }
+    em.flush();
+    em.clear();
+
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntitiesInDescendingOrder", SimpleEntity.class, NO_PARAMS)
+            .withMaxResults(2).withNewEntitiesAfter(0L);
+    dss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNewEntitiesAfterCursorRejectSyncRequests() {
+    SimpleEntity localSimpleEntity = new SimpleEntity();
+    SimpleEntity.setId(localSimpleEntity, 1234L);
+
+    List<SyncRequestOperation<SimpleEntity>> syncRequest = new ArrayList<SyncRequestOperation<SimpleEntity>>();
+    syncRequest.add(SyncRequestOperation.created(localSimpleEntity));
+
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntities", SimpleEntity.class, NO_PARAMS)
+            .withMaxResults(2).withNewEntitiesAfter(0L);
+    dss.coldSync(sds, syncRequest);
+  }
+
+  @Test
+  public void testPagesOfUnorderedQueryDontLoseEntities() {
+    for (int i = 0; i < 20; i++) {
+      SimpleEntity remoteSimpleEntity = new SimpleEntity();
+      remoteSimpleEntity.setInteger(i);
+      em.persist(remoteSimpleEntity);
+    }
+    em.flush();
+    em.clear();
+
+    SyncableDataSet<SimpleEntity> sds = SyncableDataSet.from("allSimpleEntitiesInRandomOrder", SimpleEntity.class, NO_PARAMS);
+
+    // every page is read in a different order, so the pages overlap
+    DataSyncServiceImpl pagedDss = new DataSyncServiceImpl(em, new JavaReflectionAttributeAccessor(), 3);
+    List<SyncResponse<SimpleEntity>> syncResponse = pagedDss.coldSync(sds, new ArrayList<SyncRequestOperation<SimpleEntity>>());
+
+    Set<Long> receivedIds = new HashSet<Long>();
+    for (SyncResponse<SimpleEntity> response : syncResponse) {
+      receivedIds.add(((NewRemoteEntityResponse<SimpleEntity>) response).getEntity().getId());
+    }
+    assertEquals("Got unexpected response: " + syncResponse, 20, syncResponse.size());
+    assertEquals(20, receivedIds.size());
+  }
+
   @Test
   public void testSendLocalDelete() throws Exception {
     SimpleEntity remoteSimpleEntity = new SimpleEntity();
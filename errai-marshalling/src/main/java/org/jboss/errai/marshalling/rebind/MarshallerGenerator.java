@@ -27,6 +27,7 @@ import org.jboss.errai.codegen.meta.MetaClassFactory;
 import org.jboss.errai.codegen.meta.impl.AbstractMetaClass;
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
 import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
 import org.jboss.errai.marshalling.client.api.MarshallerFramework;
 import org.jboss.errai.marshalling.rebind.api.GeneratorMappingContextFactory;
 import org.jboss.errai.marshalling.rebind.api.MappingStrategy;
@@ -45,8 +46,9 @@ import com.google.gwt.core.ext.UnableToCompleteException;
  * Generator used to generate marshallers for custom portable types
  * independently. In DevMode, generation is deferred until the marshaller is
  * actually needed. This is also an incremental generator. It will only generate
- * code when a portable type has changed or a new one has been introduced.
- * Otherwise, it will use a cached version of the generated marshaller code.
+ * code when a portable type, its mapping or one of the types it maps has changed
+ * (see {@link MarshallerUnitKey}), or a new one has been introduced. Otherwise,
+ * it will use a cached version of the generated marshaller code.
  *
  * @author Christian Sadilek <csadilek@redhat.com>
  */
@@ -54,9 +56,10 @@ public class MarshallerGenerator extends IncrementalGenerator {
   private static final Logger log = LoggerFactory.getLogger(MarshallerGenerator.class);
   private final String packageName = MarshallerFramework.class.getPackage().getName();
 
-  // We're keeping this cache of portable types to compare their contents and
-  // find out if they have changed since the last refresh.
-  private static Map<String, MetaClass> cachedPortableTypes = new ConcurrentHashMap<>();
+  // We're keeping the unit key of each generated marshaller (see MarshallerUnitKey) to
+  // find out if the portable type, its mapping or any of its mapped types have changed
+  // since the last refresh.
+  private static Map<String, String> cachedUnitKeysByTypeName = new ConcurrentHashMap<>();
   private static Map<String, String> cachedSourceByTypeName = new ConcurrentHashMap<>();
 
   /*
@@ -66,26 +69,36 @@ public class MarshallerGenerator extends IncrementalGenerator {
    * generator results will be invalidated automatically if they were generated
    * by a version of this generator with a different version id.
    */
-  private static final long GENERATOR_VERSION_ID = 1L;
+  private static final long GENERATOR_VERSION_ID = 2L;
 
   @Override
   public RebindResult generateIncrementally(final TreeLogger logger, final GeneratorContext context, final String typeName) throws UnableToCompleteException {
+    try (GeneratorProfiler.Phase phase = GeneratorProfiler.start("marshaller", MarshallerGenerator.class.getName())) {
+      return generateOrReuseMarshaller(logger, context, typeName, phase);
+    }
+  }
+
+  private RebindResult generateOrReuseMarshaller(final TreeLogger logger, final GeneratorContext context, final String typeName,
+          final GeneratorProfiler.Phase phase) {
     final String fullyQualifiedTypeName = distillTargetTypeName(typeName);
     final MetaClass type = MetaClassFactory.get(fullyQualifiedTypeName);
     final String className = MarshallerGeneratorFactory.getMarshallerImplClassName(type, true);
     final String marshallerTypeName = packageName + "." + className;
-    final MetaClass cachedType = cachedPortableTypes.get(fullyQualifiedTypeName);
+    final String cachedUnitKey = cachedUnitKeysByTypeName.get(fullyQualifiedTypeName);
 
     final PrintWriter printWriter = context.tryCreate(logger, packageName, className);
     if (printWriter != null) {
-      if (!RebindUtils.NO_CACHE && cachedType != null && cachedType.hashContent() == type.hashContent()) {
+      final String unitKey = MarshallerUnitKey.of(type, DefinitionsFactorySingleton.get()::getDefinition);
+      if (!RebindUtils.NO_CACHE && unitKey.equals(cachedUnitKey)) {
         log.debug("Reusing cached marshaller for {}", fullyQualifiedTypeName);
+        phase.cacheHit();
         printWriter.append(cachedSourceByTypeName.get(fullyQualifiedTypeName));
         context.commit(logger, printWriter);
       } else {
         log.debug("Generating marshaller for {}", fullyQualifiedTypeName);
+        phase.cacheMiss();
         final String generatedSource = generateMarshaller(context, type, className, marshallerTypeName, logger, printWriter);
-        cachedPortableTypes.put(fullyQualifiedTypeName, type);
+        cachedUnitKeysByTypeName.put(fullyQualifiedTypeName, unitKey);
         cachedSourceByTypeName.put(fullyQualifiedTypeName, generatedSource);
       }
 
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.marshalling.rebind;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaParameterizedType;
+import org.jboss.errai.codegen.meta.MetaType;
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.marshalling.rebind.api.model.InstantiationMapping;
+import org.jboss.errai.marshalling.rebind.api.model.Mapping;
+import org.jboss.errai.marshalling.rebind.api.model.MappingDefinition;
+import org.jboss.errai.marshalling.rebind.api.model.MemberMapping;
+
+/**
+ * Computes the cache key of a single generated marshaller. The key covers everything the generated
+ * source of one portable type depends on: the content of the type itself, its {@link MappingDefinition}
+ * and the content and portability of the types it maps directly. A change to one portable type therefore
+ * only invalidates its own marshaller and the marshallers of the types that map it.
+ */
+public final class MarshallerUnitKey {
+
+  private MarshallerUnitKey() {
+  }
+
+  /**
+   * @param type
+   *          The portable type (or array type) a marshaller is generated for. Must not be null.
+   * @param definitions
+   *          Looks up the mapping definition of a type, or returns null if the type has none. Must not be
+   *          null. Usually {@link DefinitionsFactory#getDefinition(MetaClass)}.
+   * @return A hex string identifying the generated marshaller source for the given type.
+   */
+  public static String of(final MetaClass type, final Function<MetaClass, MappingDefinition> definitions) {
+    final StringBuilder sb = new StringBuilder();
+    appendType(sb, type);
+
+    final MetaClass compType = type.getOuterComponentType();
+    final Map<String, MetaClass> dependencies = new TreeMap<>();
+    if (compType != type) {
+      collectDependencies(compType, dependencies);
+    }
+
+    final MappingDefinition definition = definitions.apply(compType);
+    if (definition != null) {
+      appendDefinition(sb, definition, dependencies);
+    }
+
+    for (final MetaClass dependency : dependencies.values()) {
+      sb.append("|dep:");
+      appendType(sb, dependency);
+      final MappingDefinition depDefinition = definitions.apply(dependency);
+      sb.append(':').append(depDefinition != null);
+      if (depDefinition != null) {
+        sb.append(':').append(className(depDefinition.getClientMarshallerClass()));
+      }
+    }
+
+    return sha1(sb.toString());
+  }
+
+  private static void appendDefinition(final StringBuilder sb, final MappingDefinition definition,
+          final Map<String, MetaClass> dependencies) {
+    sb.append("|def:")
+      .append(className(definition.getClientMarshallerClass())).append(':')
+      .append(className(definition.getServerMarshallerClass())).append(':')
+      .append(definition.alreadyGenerated()).append(':')
+      .append(definition.isLazy());
+
+    final InstantiationMapping instantiation = definition.getInstantiationMapping();
+    if (instantiation != null) {
+      sb.append("|new:").append(instantiation.getClass().getName()).append(':').append(instantiation.getMember());
+      for (final Mapping mapping : instantiation.getMappings()) {
+        appendMapping(sb, mapping, dependencies);
+      }
+    }
+
+    for (final MemberMapping mapping : definition.getMemberMappings()) {
+      sb.append("|member:")
+        .append(mapping.getBindingMember()).append(':')
+        .append(mapping.getReadingMember()).append(':')
+        .append(mapping.canRead()).append(':')
+        .append(mapping.canWrite());
+      appendMapping(sb, mapping, dependencies);
+    }
+  }
+
+  private static void appendMapping(final StringBuilder sb, final Mapping mapping,
+          final Map<String, MetaClass> dependencies) {
+    sb.append("|map:").append(mapping.getKey());
+    final MetaClass mappedType = mapping.getType();
+    if (mappedType != null) {
+      sb.append(':').append(mappedType.getFullyQualifiedNameWithTypeParms());
+      collectDependencies(mappedType, dependencies);
+    }
+  }
+
+  private static void collectDependencies(final MetaClass type, final Map<String, MetaClass> dependencies) {
+    final MetaClass compType = type.getOuterComponentType();
+    if (compType.isPrimitive() || dependencies.containsKey(compType.getFullyQualifiedName())) {
+      return;
+    }
+    dependencies.put(compType.getFullyQualifiedName(), compType.getErased());
+
+    final MetaParameterizedType parameterizedType = compType.getParameterizedType();
+    if (parameterizedType != null) {
+      for (final MetaType typeParam : parameterizedType.getTypeParameters()) {
+        if (typeParam instanceof MetaClass) {
+          collectDependencies((MetaClass) typeParam, dependencies);
+        }
+      }
+    }
+  }
+
+  private static void appendType(final StringBuilder sb, final MetaClass type) {
+    final MetaClass compType = type.getOuterComponentType();
+    sb.append(type.getFullyQualifiedName());
+    if (!compType.isPrimitive()) {
+      sb.append('#').append(compType.hashContent());
+    }
+  }
+
+  private static String className(final Class<?> clazz) {
+    return (clazz == null) ? "" : clazz.getName();
+  }
+
+  private static String sha1(final String content) {
+    try {
+      final MessageDigest md = MessageDigest.getInstance("SHA-1");
+      return RebindUtils.hashToHexString(md.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException("failed to hash marshaller unit for caching", e);
+    }
+  }
+}
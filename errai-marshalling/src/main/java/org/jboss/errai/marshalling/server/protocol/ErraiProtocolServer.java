@@ -33,15 +33,22 @@ public class ErraiProtocolServer extends ErraiProtocol {
 
   public static ByteArrayInputStream encodePayloadToByteArrayInputStream(final Map<String, Object> payload) {
     try {
-      // Process the payload before the encoding process.
-      preprocessors.forEach(preprocessor -> preprocessor.process(payload));
-
-      return new ByteArrayInputStream(encodePayload(payload).getBytes("UTF-8"));
+      return new ByteArrayInputStream(encodeProcessedPayload(payload).getBytes("UTF-8"));
     } catch (UnsupportedEncodingException e) {
       throw new AssertionError("UTF-8 appears not to be supported by this JRE, but that's impossible");
     }
   }
 
+  /**
+   * Encodes the payload after applying the registered {@link PayloadPreprocessor}s to it.
+   */
+  public static String encodeProcessedPayload(final Map<String, Object> payload) {
+    // Process the payload before the encoding process.
+    preprocessors.forEach(preprocessor -> preprocessor.process(payload));
+
+    return encodePayload(payload);
+  }
+
   public static void addPreprocessor(PayloadPreprocessor preprocessor) {
     preprocessors.add(preprocessor);
   }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.marshalling.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.errai.codegen.builder.ClassStructureBuilder;
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassMember;
+import org.jboss.errai.marshalling.rebind.MarshallerUnitKey;
+import org.jboss.errai.marshalling.rebind.api.model.MappingDefinition;
+import org.jboss.errai.marshalling.rebind.api.model.MemberMapping;
+import org.jboss.errai.marshalling.rebind.api.model.impl.SimpleMapping;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MarshallerUnitKeyTest {
+
+  private final Map<String, MappingDefinition> definitions = new HashMap<>();
+
+  private MetaClass address;
+  private MetaClass person;
+
+  @Before
+  public void setup() {
+    address = define("org.foo.Address", "street");
+    person = ClassBuilder.define("org.foo.Person").publicScope().body()
+        .privateField("address", address).finish()
+        .privateField("name", String.class).finish()
+        .getClassDefinition();
+
+    addDefinition(address);
+    final MappingDefinition personDefinition = addDefinition(person);
+    personDefinition.addMemberMapping(new FieldMapping("address", address));
+  }
+
+  @Test
+  public void testKeyIsStable() {
+    assertEquals(key(person), key(person));
+  }
+
+  @Test
+  public void testKeyChangesWhenMappedTypeChanges() {
+    final String before = key(person);
+
+    final MetaClass changedAddress = define("org.foo.Address", "street", "zip");
+    addDefinition(changedAddress);
+    definitions.get("org.foo.Person").getMemberMappings().get(0).setType(changedAddress);
+
+    assertNotEquals(before, key(person));
+  }
+
+  @Test
+  public void testKeyIgnoresUnrelatedTypes() {
+    addDefinition(define("org.foo.Unrelated", "a"));
+    final String before = key(person);
+
+    addDefinition(define("org.foo.Unrelated", "a", "b"));
+
+    assertEquals(before, key(person));
+  }
+
+  @Test
+  public void testKeyChangesWhenMappedTypeIsNoLongerPortable() {
+    final String before = key(person);
+
+    definitions.remove("org.foo.Address");
+
+    assertNotEquals(before, key(person));
+  }
+
+  @Test
+  public void testKeyChangesWhenMappingChanges() {
+    final String before = key(person);
+
+    definitions.get("org.foo.Person").addMemberMapping(new FieldMapping("name", person.getDeclaredField("name").getType()));
+
+    assertNotEquals(before, key(person));
+  }
+
+  private String key(final MetaClass type) {
+    return MarshallerUnitKey.of(type, t -> definitions.get(t.getFullyQualifiedName()));
+  }
+
+  private MappingDefinition addDefinition(final MetaClass type) {
+    final MappingDefinition definition = new MappingDefinition(type, false);
+    definitions.put(type.getFullyQualifiedName(), definition);
+    return definition;
+  }
+
+  private static MetaClass define(final String name, final String... fields) {
+    final ClassStructureBuilder<?> builder = ClassBuilder.define(name).publicScope().body();
+    for (final String field : fields) {
+      builder.privateField(field, String.class).finish();
+    }
+    return builder.getClassDefinition();
+  }
+
+  private static class FieldMapping extends SimpleMapping implements MemberMapping {
+
+    FieldMapping(final String key, final MetaClass type) {
+      super(key, type);
+    }
+
+    @Override
+    public MetaClassMember getBindingMember() {
+      return toMap.getDeclaredField(key);
+    }
+
+    @Override
+    public MetaClassMember getReadingMember() {
+      return toMap.getDeclaredField(key);
+    }
+
+    @Override
+    public boolean canRead() {
+      return true;
+    }
+
+    @Override
+    public boolean canWrite() {
+      return true;
+    }
+  }
+}
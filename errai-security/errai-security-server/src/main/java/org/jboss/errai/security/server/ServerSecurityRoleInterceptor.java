@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
@@ -49,6 +51,13 @@ import org.jboss.errai.security.shared.util.AnnotationUtils;
 @Interceptor
 public class ServerSecurityRoleInterceptor {
 
+  /**
+   * Authorization plans of the intercepted methods. Interceptor instances are bound to the lifecycle of the target
+   * bean, so the plans are shared by all of them.
+   */
+  private static final ConcurrentMap<PlanKey, AuthorizationPlan> plans =
+          new ConcurrentHashMap<PlanKey, AuthorizationPlan>();
+
   private final AuthenticationService authenticationService;
   private final RequiredRolesExtractor roleExtractor;
 
@@ -69,14 +78,12 @@ public class ServerSecurityRoleInterceptor {
   @AroundInvoke
   public Object aroundInvoke(InvocationContext context) throws Exception {
     final User user = authenticationService.getUser();
-    final Collection<RestrictedAccess> annotations = getRestrictedAccessAnnotations(context.getTarget().getClass(),
-            context.getMethod());
-    final Set<Role> roles = AnnotationUtils.mergeRoles(roleExtractor, annotations);
+    final AuthorizationPlan plan = getAuthorizationPlan(context.getTarget().getClass(), context.getMethod());
 
     if (User.ANONYMOUS.equals(user)) {
       throw new UnauthenticatedException();
     }
-    else if (!user.getRoles().containsAll(roles)) {
+    else if (!plan.isAuthorized(roleExtractor, user.getRoles())) {
       throw new UnauthorizedException();
     }
     else {
@@ -84,6 +91,19 @@ public class ServerSecurityRoleInterceptor {
     }
   }
 
+  private AuthorizationPlan getAuthorizationPlan(final Class<?> aClass, final Method method) {
+    final PlanKey key = new PlanKey(aClass, method);
+    AuthorizationPlan plan = plans.get(key);
+    if (plan == null) {
+      plan = new AuthorizationPlan(roleExtractor, getRestrictedAccessAnnotations(aClass, method));
+      final AuthorizationPlan existing = plans.putIfAbsent(key, plan);
+      if (existing != null) {
+        plan = existing;
+      }
+    }
+    return plan;
+  }
+
   private Collection<RestrictedAccess> getRestrictedAccessAnnotations(Class<?> aClass, Method method) {
     final Collection<RestrictedAccess> annotations = new ArrayList<RestrictedAccess>();
 
@@ -129,4 +149,66 @@ public class ServerSecurityRoleInterceptor {
       annotations.add(annotation);
     }
   }
+
+  /**
+   * The result of resolving the {@link RestrictedAccess} annotations of a method. The roles of annotations without
+   * {@link RestrictedAccess#providers() providers} are fixed and extracted once. Provided roles may change between
+   * invocations and are still extracted on every call.
+   */
+  private static class AuthorizationPlan {
+    private final Role[] requiredRoles;
+    private final RestrictedAccess[] providedRoleAnnotations;
+
+    private AuthorizationPlan(final RequiredRolesExtractor roleExtractor,
+            final Collection<RestrictedAccess> annotations) {
+      final Collection<RestrictedAccess> withProviders = new ArrayList<RestrictedAccess>();
+      final Collection<RestrictedAccess> withoutProviders = new ArrayList<RestrictedAccess>();
+      for (final RestrictedAccess annotation : annotations) {
+        if (annotation.providers().length > 0) {
+          withProviders.add(annotation);
+        }
+        else {
+          withoutProviders.add(annotation);
+        }
+      }
+
+      final Set<Role> roles = AnnotationUtils.mergeRoles(roleExtractor, withoutProviders);
+      requiredRoles = roles.toArray(new Role[roles.size()]);
+      providedRoleAnnotations = withProviders.toArray(new RestrictedAccess[withProviders.size()]);
+    }
+
+    private boolean isAuthorized(final RequiredRolesExtractor roleExtractor, final Set<Role> userRoles) {
+      for (final Role role : requiredRoles) {
+        if (!userRoles.contains(role)) {
+          return false;
+        }
+      }
+
+      return providedRoleAnnotations.length == 0
+              || userRoles.containsAll(AnnotationUtils.mergeRoles(roleExtractor, providedRoleAnnotations));
+    }
+  }
+
+  private static final class PlanKey {
+    private final Class<?> targetClass;
+    private final Method method;
+
+    private PlanKey(final Class<?> targetClass, final Method method) {
+      this.targetClass = targetClass;
+      this.method = method;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof PlanKey))
+        return false;
+      final PlanKey other = (PlanKey) obj;
+      return targetClass.equals(other.targetClass) && method.equals(other.method);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * targetClass.hashCode() + method.hashCode();
+    }
+  }
 }
@@ -122,6 +122,30 @@ public class SecurityRoleInterceptorTest {
     fail("security exception should have been thrown");
   }
 
+  @Test
+  public void shouldCheckEveryUserAgainstCachedRoles() throws Exception {
+    // given
+    InvocationContext context = mock(InvocationContext.class);
+    when(context.getTarget()).thenReturn(new Service());
+    when(context.getMethod()).thenReturn(getAnnotatedServiceMethod());
+    final Set<Role> roles = new HashSet<Role>(Arrays.asList(new RoleImpl("admin"), new RoleImpl("user")));
+
+    // when
+    when(authenticationService.getUser()).thenReturn(new UserImpl("admin", roles));
+    interceptor.aroundInvoke(context);
+    when(authenticationService.getUser()).thenReturn(new UserImpl("testuser"));
+    try {
+      interceptor.aroundInvoke(context);
+      fail("security exception should have been thrown");
+    }
+    catch (UnauthorizedException e) {
+      // expected
+    }
+
+    // then
+    verify(context, times(1)).proceed();
+  }
+
   private void invokeTest(InvocationContext context, Object service) throws Exception {
     when(context.getTarget()).thenReturn(service);
     when(context.getMethod()).thenReturn(getAnnotatedServiceMethod());
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ui.rebind;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.jboss.errai.ui.shared.TemplateUtil;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+/**
+ * Computes the child element index path from a template root to each data-field element of a
+ * {@link org.jboss.errai.ui.shared.api.annotations.Templated} component, so that
+ * {@link TemplateUtil#getDataFieldElements(com.google.gwt.dom.client.Element, String[], int[][])} can find those
+ * elements without searching the whole template.
+ * <p>
+ * Elements are selected with the same rules used by {@link TemplateUtil}: a {@code data-field} attribute beats an
+ * {@code id}, an {@code id} beats a {@code class}, and otherwise the first element in document order wins.
+ */
+class DataFieldPathIndex {
+
+  private static final String[] ATTRIBUTES_BY_PRIORITY = { "class", "id", "data-field" };
+
+  private DataFieldPathIndex() {}
+
+  /**
+   * @param templateContents
+   *          The HTML of the template file.
+   * @param rootField
+   *          The data-field, id or class of the template fragment, or an empty string if the whole template is used.
+   * @param names
+   *          The data-field names required by the component. {@code "this"} is ignored since it always refers to the
+   *          template root.
+   * @return A map of data-field names to child element index paths from the template root, or an empty optional if
+   *         the template root or any of the given names could not be located.
+   */
+  static Optional<Map<String, int[]>> forTemplate(final String templateContents, final String rootField,
+          final Collection<String> names) {
+    final Element parserDiv = Jsoup.parseBodyFragment(templateContents).body();
+    final Element templateRoot;
+    if (rootField != null && !rootField.trim().isEmpty()) {
+      templateRoot = findRootField(parserDiv, rootField);
+    }
+    else {
+      templateRoot = firstNonMetaElement(parserDiv);
+    }
+
+    if (templateRoot == null || templateRoot.tagName().equalsIgnoreCase("meta")) {
+      return Optional.empty();
+    }
+
+    final Map<String, Element> elements = new HashMap<>();
+    final Map<String, Integer> priorities = new HashMap<>();
+    collectDataFields(templateRoot, names, elements, priorities);
+
+    final Map<String, int[]> paths = new LinkedHashMap<>();
+    for (final String name : names) {
+      if ("this".equals(name)) {
+        continue;
+      }
+
+      final Element element = elements.get(name);
+      if (element == null) {
+        return Optional.empty();
+      }
+      paths.put(name, pathFrom(templateRoot, element));
+    }
+
+    return Optional.of(paths);
+  }
+
+  private static Element findRootField(final Element parserDiv, final String rootField) {
+    Element candidate = null;
+    int candidatePriority = -1;
+    for (final Element element : parserDiv.getAllElements()) {
+      for (int priority = 0; priority < ATTRIBUTES_BY_PRIORITY.length; priority++) {
+        final String attrName = ATTRIBUTES_BY_PRIORITY[priority];
+        if (element.hasAttr(attrName) && element.attr(attrName).equals(rootField) && candidatePriority < priority) {
+          candidate = element;
+          candidatePriority = priority;
+        }
+      }
+    }
+
+    return candidate;
+  }
+
+  private static void collectDataFields(final Element templateRoot, final Collection<String> names,
+          final Map<String, Element> elements, final Map<String, Integer> priorities) {
+    // getAllElements returns the root and its descendants in document (depth-first) order.
+    for (final Element element : templateRoot.getAllElements()) {
+      for (int priority = 0; priority < ATTRIBUTES_BY_PRIORITY.length; priority++) {
+        final String attrVal = element.attr(ATTRIBUTES_BY_PRIORITY[priority]);
+        if (!attrVal.isEmpty()) {
+          final String[] values = (priority == 0) ? attrVal.split(" +") : new String[] { attrVal };
+          for (final String name : values) {
+            final Integer existing = priorities.get(name);
+            if (names.contains(name) && (existing == null || existing < priority)) {
+              elements.put(name, element);
+              priorities.put(name, priority);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static int[] pathFrom(final Element templateRoot, final Element element) {
+    final List<Integer> reversed = new ArrayList<>();
+    for (Element cur = element; cur != templateRoot; cur = cur.parent()) {
+      reversed.add(cur.elementSiblingIndex());
+    }
+
+    final int[] path = new int[reversed.size()];
+    for (int i = 0; i < path.length; i++) {
+      path[i] = reversed.get(path.length - 1 - i);
+    }
+
+    return path;
+  }
+
+  /*
+   * Mirrors TemplateUtil, which ignores meta tags from ERRAI-779.
+   */
+  private static Element firstNonMetaElement(final Element parserDiv) {
+    for (final Element child : parserDiv.children()) {
+      if (!child.tagName().equalsIgnoreCase("meta")) {
+        return child;
+      }
+    }
+
+    return null;
+  }
+
+}
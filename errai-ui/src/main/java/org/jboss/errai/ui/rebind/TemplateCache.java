@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ui.rebind;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.common.rebind.GeneratorProfiler;
+import org.jboss.errai.ui.rebind.chain.TemplateCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.google.common.io.Resources;
+
+/**
+ * Shares the work of parsing {@link org.jboss.errai.ui.shared.api.annotations.Templated} templates between the Errai UI
+ * generators. Templates are keyed by a hash of their contents, so each distinct template is parsed at most once per
+ * compiler JVM no matter how many components or GWT permutations use it. When a template changes, the entry of its
+ * previous contents is dropped unless another template still has those contents.
+ * <p>
+ * Data derived from a template (such as its i18n keys or data-field paths) is also written to a subdirectory of
+ * {@link RebindUtils#getErraiCacheDir()}, so later builds can reuse it without parsing the template at all. The parsed
+ * DOM itself is only kept in memory.
+ * <p>
+ * Classpath resource probes (for example, for the default stylesheet of a component) are memoized until
+ * {@link #clearResourceProbes()} is called at the start of the next IOC generation.
+ */
+public class TemplateCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(TemplateCache.class);
+
+  /**
+   * Part of the name of every persisted entry. Must be changed when the data derived from templates changes in a way
+   * that the Errai UI jar fingerprint doesn't capture.
+   */
+  private static final String FORMAT_VERSION = "1";
+
+  public static final String CACHE_DIR_NAME = "ui-templates";
+
+  private static TemplateCache instance;
+
+  private final File cacheDir;
+  private final String environmentFingerprint;
+  private final Map<String, CachedTemplate> templatesByContentHash = new ConcurrentHashMap<>();
+  private final Map<String, String> contentHashesByTemplate = new ConcurrentHashMap<>();
+  private final Map<String, Integer> templateCountsByContentHash = new HashMap<>();
+  private final Map<String, Boolean> resourceProbes = new ConcurrentHashMap<>();
+
+  /**
+   * @param cacheDir
+   *          The directory derived template data is persisted in, or {@code null} to keep everything in memory.
+   * @param environmentFingerprint
+   *          Part of the name of every persisted entry, identifying the code that derives the data.
+   */
+  public TemplateCache(final File cacheDir, final String environmentFingerprint) {
+    this.cacheDir = cacheDir;
+    this.environmentFingerprint = environmentFingerprint;
+    if (cacheDir != null) {
+      cacheDir.mkdirs();
+    }
+  }
+
+  /**
+   * @return The shared cache, persisting to the {@link #CACHE_DIR_NAME} subdirectory of the Errai cache directory
+   *         unless {@link RebindUtils#NO_CACHE} is set.
+   */
+  public static synchronized TemplateCache get() {
+    if (instance == null) {
+      final File cacheDir = (RebindUtils.NO_CACHE) ? null : new File(RebindUtils.getErraiCacheDir(), CACHE_DIR_NAME);
+      instance = new TemplateCache(cacheDir, FORMAT_VERSION + " " + getCodeSourceFingerprint());
+    }
+
+    return instance;
+  }
+
+  /**
+   * Reads the given template resource and returns the cache entry for its contents.
+   *
+   * @throws IllegalArgumentException
+   *           If the template cannot be read.
+   */
+  public CachedTemplate getTemplate(final URL template) {
+    final String contents;
+    try {
+      contents = Resources.toString(template, StandardCharsets.UTF_8);
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("could not read template " + template, e);
+    }
+
+    final String contentHash = sha1(contents);
+    final CachedTemplate cached = templatesByContentHash.computeIfAbsent(contentHash,
+            hash -> new CachedTemplate(hash, contents));
+    evictPreviousContents(template.toExternalForm(), contentHash);
+
+    return cached;
+  }
+
+  /*
+   * Drops the entry of the previous contents of the given template, unless another template has the same contents.
+   * Unchanged templates, the common case, are recognized without taking the lock.
+   */
+  private void evictPreviousContents(final String template, final String contentHash) {
+    if (contentHash.equals(contentHashesByTemplate.get(template))) {
+      return;
+    }
+
+    synchronized (this) {
+      final String previousHash = contentHashesByTemplate.put(template, contentHash);
+      if (contentHash.equals(previousHash)) {
+        return;
+      }
+
+      templateCountsByContentHash.merge(contentHash, 1, Integer::sum);
+      if (previousHash != null && templateCountsByContentHash.computeIfPresent(previousHash,
+              (hash, count) -> (count > 1) ? count - 1 : null) == null) {
+        templatesByContentHash.remove(previousHash);
+      }
+    }
+  }
+
+  /**
+   * @return The number of distinct template contents held in memory.
+   */
+  int size() {
+    return templatesByContentHash.size();
+  }
+
+  /**
+   * @return True iff the given resource exists for the context class loader. The result is remembered until
+   *         {@link #clearResourceProbes()} is called.
+   */
+  public boolean resourceExists(final String path) {
+    return resourceProbes.computeIfAbsent(path,
+            p -> Thread.currentThread().getContextClassLoader().getResource(p) != null);
+  }
+
+  /**
+   * Forgets the results of {@link #resourceExists(String)}, so that added or removed resources are noticed.
+   */
+  public void clearResourceProbes() {
+    resourceProbes.clear();
+  }
+
+  /**
+   * The parsed form of one template, and any data derived from it.
+   */
+  public class CachedTemplate {
+    private final String contentHash;
+    private final String contents;
+    private Document document;
+    private Map<String, Serializable> derived;
+
+    private CachedTemplate(final String contentHash, final String contents) {
+      this.contentHash = contentHash;
+      this.contents = contents;
+    }
+
+    public String getContents() {
+      return contents;
+    }
+
+    /**
+     * @return A copy of the template, parsed with {@link TemplateCatalog#parseTemplate(String)}. Callers may modify the
+     *         returned document.
+     */
+    public synchronized Document getDocument() {
+      if (document == null) {
+        document = new TemplateCatalog().parseTemplate(contents);
+      }
+
+      return (Document) document.cloneNode(true);
+    }
+
+    /**
+     * Returns the data derived from this template under the given key, computing and persisting it if necessary.
+     *
+     * @param key
+     *          Identifies the derived data, including any parameters the computation depends on.
+     * @param computation
+     *          Derives the data from this template. May return {@code null}, which is cached as well.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends Serializable> T computeIfAbsent(final String key,
+            final Function<CachedTemplate, T> computation) {
+      if (derived == null) {
+        derived = loadDerived();
+      }
+
+      final String kind = key.split("#", 2)[0];
+      if (derived.containsKey(key)) {
+        GeneratorProfiler.recordCacheHit("ui-template-cache", kind);
+        return (T) derived.get(key);
+      }
+
+      GeneratorProfiler.recordCacheMiss("ui-template-cache", kind);
+      final T value = computation.apply(this);
+      derived.put(key, value);
+      storeDerived();
+
+      return value;
+    }
+
+    private File getDerivedFile() {
+      return new File(cacheDir, sha1(environmentFingerprint + "\n" + contentHash) + ".ser");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Serializable> loadDerived() {
+      if (cacheDir != null) {
+        final File file = getDerivedFile();
+        if (file.isFile()) {
+          try (InputStream in = Files.newInputStream(file.toPath()); ObjectInputStream ois = new ObjectInputStream(in)) {
+            return (Map<String, Serializable>) ois.readObject();
+          } catch (final IOException | ClassNotFoundException | RuntimeException e) {
+            logger.warn("Could not read cached template data " + file + ". It will be recomputed.", e);
+          }
+        }
+      }
+
+      return new HashMap<>();
+    }
+
+    /*
+     * Written to a temporary file first, so that concurrent compiles never read a partially written entry.
+     */
+    private void storeDerived() {
+      if (cacheDir == null) {
+        return;
+      }
+
+      final File file = getDerivedFile();
+      try {
+        final File tmp = File.createTempFile(contentHash, ".tmp", cacheDir);
+        try (OutputStream out = Files.newOutputStream(tmp.toPath()); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+          oos.writeObject(derived);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final IOException | RuntimeException e) {
+        logger.warn("Could not write cached template data " + file, e);
+      }
+    }
+  }
+
+  /*
+   * Identifies the Errai UI code that derives data from templates.
+   */
+  private static String getCodeSourceFingerprint() {
+    final CodeSource codeSource = TemplateCache.class.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return "";
+    }
+
+    final String location = codeSource.getLocation().toString();
+    try {
+      final File file = new File(codeSource.getLocation().toURI());
+      return location + " " + file.length() + " " + file.lastModified();
+    } catch (final Exception e) {
+      return location;
+    }
+  }
+
+  private static String sha1(final String s) {
+    try {
+      return RebindUtils.hashToHexString(MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8)));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-1 is not available", e);
+    }
+  }
+
+}
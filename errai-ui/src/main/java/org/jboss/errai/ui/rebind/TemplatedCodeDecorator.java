@@ -33,12 +33,14 @@ import static org.jboss.errai.ioc.util.GeneratedNamesUtil.qualifiedClassNameToSh
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -148,7 +150,7 @@ public class TemplatedCodeDecorator extends IOCDecoratorExtension<Templated> {
     final Class<?> templateProvider = anno.provider();
     final boolean customProvider = templateProvider != Templated.DEFAULT_PROVIDER.class;
     final Optional<String> styleSheetPath = getTemplateStyleSheetPath(declaringClass);
-    final boolean explicitStyleSheetPresent = styleSheetPath.filter(path -> Thread.currentThread().getContextClassLoader().getResource(path) != null).isPresent();
+    final boolean explicitStyleSheetPresent = styleSheetPath.filter(path -> TemplateCache.get().resourceExists(path)).isPresent();
 
     if (declaringClass.isAssignableTo(Composite.class)) {
       logger.warn("The @Templated class, {}, extends Composite. This will not be supported in future versions.", declaringClass.getFullyQualifiedName());
@@ -303,8 +305,7 @@ public class TemplatedCodeDecorator extends IOCDecoratorExtension<Templated> {
       final String dataFieldElementsVarName = "dataFieldElements";
       initStmts.add(Stmt.declareVariable(dataFieldElementsVarName,
           new TypeLiteral<Map<String, Element>>() {},
-          Stmt.invokeStatic(TemplateUtil.class, "getDataFieldElements",
-                  rootTemplateElement))
+          getDataFieldElements(decorable, customProvider, rootTemplateElement))
       );
 
       final String dataFieldMetasVarName = "dataFieldMetas";
@@ -330,6 +331,49 @@ public class TemplatedCodeDecorator extends IOCDecoratorExtension<Templated> {
     }
   }
 
+  /**
+   * When the template is available at compile time, data-field elements are located by child element paths computed
+   * here instead of searching the template DOM for every component instance.
+   */
+  private Statement getDataFieldElements(final Decorable decorable, final boolean customProvider,
+          final Statement rootTemplateElement) {
+    final Optional<Map<String, int[]>> dataFieldPaths = (customProvider) ? Optional.empty() : getDataFieldPaths(decorable);
+    if (dataFieldPaths.isPresent()) {
+      final Map<String, int[]> paths = dataFieldPaths.get();
+      return Stmt.invokeStatic(TemplateUtil.class, "getDataFieldElements", rootTemplateElement,
+              loadLiteral(paths.keySet().toArray(new String[paths.size()])),
+              loadLiteral(paths.values().toArray(new int[paths.size()][])));
+    }
+    else {
+      return Stmt.invokeStatic(TemplateUtil.class, "getDataFieldElements", rootTemplateElement);
+    }
+  }
+
+  private Optional<Map<String, int[]>> getDataFieldPaths(final Decorable decorable) {
+    final MetaClass declaringClass = decorable.getDecorableDeclaringType();
+    final URL template = Thread.currentThread().getContextClassLoader().getResource(getTemplateFileName(declaringClass));
+    if (template == null) {
+      return Optional.empty();
+    }
+
+    final Set<String> names = new LinkedHashSet<>(DataFieldCodeDecorator.aggregateDataFieldMap(decorable, decorable.getType()).keySet());
+    for (final MetaMethod method : declaringClass.getMethodsAnnotatedWith(EventHandler.class)) {
+      names.addAll(Arrays.asList(method.getAnnotation(EventHandler.class).value()));
+    }
+
+    final String fragment = getTemplateFragmentName(declaringClass);
+    try {
+      final LinkedHashMap<String, int[]> paths = TemplateCache.get().getTemplate(template).computeIfAbsent(
+              "dataFieldPaths#" + fragment + "#" + String.join(",", names),
+              t -> DataFieldPathIndex.forTemplate(t.getContents(), fragment, names).map(LinkedHashMap::new).orElse(null));
+      return Optional.ofNullable(paths);
+    } catch (final IllegalArgumentException e) {
+      logger.warn("Could not read the template [{}] of {}. Data-fields will be located at runtime.", template,
+              declaringClass.getFullyQualifiedName(), e);
+      return Optional.empty();
+    }
+  }
+
   private Optional<String> getResolvedStyleSheetPath(final Optional<String> declaredStylesheetPath,
           final MetaClass declaringClass) {
     if (declaredStylesheetPath.isPresent()) {
@@ -338,11 +382,11 @@ public class TemplatedCodeDecorator extends IOCDecoratorExtension<Templated> {
     else {
       final String simpleName = declaringClass.getName();
       final String unsuffixedPath = declaringClass.getPackageName().replace('.', '/') + "/" + simpleName;
-      final boolean cssSheetExists = (Thread.currentThread().getContextClassLoader().getResource(unsuffixedPath + ".css") != null);
+      final boolean cssSheetExists = TemplateCache.get().resourceExists(unsuffixedPath + ".css");
       if (cssSheetExists) {
         return Optional.of(unsuffixedPath + ".css");
       }
-      final boolean lessSheetExists = (Thread.currentThread().getContextClassLoader().getResource(unsuffixedPath + ".less") != null);
+      final boolean lessSheetExists = TemplateCache.get().resourceExists(unsuffixedPath + ".less");
       if (lessSheetExists) {
         return Optional.of(unsuffixedPath + ".less");
       }
@@ -32,6 +32,7 @@ public class TemplatedErraiIOCExtension implements IOCExtensionConfigurator {
   @Override
   public void configure(final IOCProcessingContext context, final InjectionContext injectionContext) {
     injectionContext.mapElementType(WiringElementType.DependentBean, Templated.class);
+    TemplateCache.get().clearResourceProbes();
   }
 
   @Override
@@ -51,7 +51,6 @@ import org.jboss.errai.reflections.scanners.ResourcesScanner;
 import org.jboss.errai.reflections.util.ConfigurationBuilder;
 import org.jboss.errai.reflections.util.FilterBuilder;
 import org.jboss.errai.ui.client.local.spi.TranslationService;
-import org.jboss.errai.ui.rebind.chain.TemplateCatalog;
 import org.jboss.errai.ui.shared.DomVisit;
 import org.jboss.errai.ui.shared.MessageBundle;
 import org.jboss.errai.ui.shared.TemplateUtil;
@@ -486,13 +485,15 @@ public class TranslationServiceGenerator extends AbstractAsyncGenerator {
         throw new IllegalArgumentException("Could not find template " + templateFileName + " for @Templated class "
             + templatedAnnotatedClass.getName());
       }
-      final Document templateNode = new TemplateCatalog().parseTemplate(resource);
-      if (templateNode == null) // TODO log that the template failed to parse
+      final HashMap<String, String> i18nValues = TemplateCache.get().getTemplate(resource)
+              .computeIfAbsent("i18nValues#" + templateFragment + "#" + i18nPrefix, template -> {
+                final Element templateRoot = getTemplateRootNode(template.getDocument(), templateFragment);
+                if (templateRoot == null) // TODO log that the template root couldn't be found
+                  return null;
+                return new HashMap<>(getTemplateI18nValues(templateRoot, i18nPrefix));
+              });
+      if (i18nValues == null)
         continue;
-      final Element templateRoot = getTemplateRootNode(templateNode, templateFragment);
-      if (templateRoot == null) // TODO log that the template root couldn't be found
-        continue;
-      final Map<String, String> i18nValues = getTemplateI18nValues(templateRoot, i18nPrefix);
       allI18nValues.putAll(i18nValues);
     }
 
@@ -73,6 +73,15 @@ public class TemplateCatalog {
     }
   }
 
+  /**
+   * Parses the given template source into a document.
+   *
+   * @param templateSource the HTML of the template to parse
+   */
+  public Document parseTemplate(String templateSource) {
+    return jsoup2DOM(Jsoup.parse(templateSource, ""));
+  }
+
   /**
    * for testing purposes.
    *
@@ -415,6 +415,66 @@ public final class TemplateUtil {
     return templateFile.substring(idx1 + 1, idx2 + 1);
   }
 
+  /**
+   * Like {@link #getDataFieldElements(Element)}, but locates the given data-fields by following child element
+   * indices computed from the template at compile time. If any path does not lead to an element with a matching
+   * data-field, id or class (for example because the template was modified after it was parsed), the whole template is
+   * searched instead.
+   *
+   * @param dataFieldNames
+   *          The data-field names to locate.
+   * @param dataFieldPaths
+   *          For each data-field name, the indices of the child elements leading from the template root to the
+   *          data-field element.
+   */
+  public static Map<String, Element> getDataFieldElements(final Element templateRoot, final String[] dataFieldNames,
+          final int[][] dataFieldPaths) {
+    final Map<String, Element> dataFields = new LinkedHashMap<>();
+    for (int i = 0; i < dataFieldNames.length; i++) {
+      final Element element = followPath(templateRoot, dataFieldPaths[i]);
+      if (element == null || !hasDataFieldName(element, dataFieldNames[i])) {
+        logger.fine("Template did not match the compile-time data-field index for [" + dataFieldNames[i]
+                + "]. Searching template for fields.");
+        return getDataFieldElements(templateRoot);
+      }
+      dataFields.put(dataFieldNames[i], element);
+    }
+
+    dataFields.put("this", templateRoot);
+
+    return dataFields;
+  }
+
+  private static Element followPath(final Element templateRoot, final int[] path) {
+    Element current = templateRoot;
+    for (int i = 0; i < path.length && current != null; i++) {
+      current = current.getFirstChildElement();
+      for (int j = 0; j < path[i] && current != null; j++) {
+        current = current.getNextSiblingElement();
+      }
+    }
+
+    return current;
+  }
+
+  private static boolean hasDataFieldName(final Element element, final String name) {
+    if (name.equals(element.getAttribute(AttributeType.DATA_FIELD.getAttributeName()))
+            || name.equals(element.getAttribute(AttributeType.ID.getAttributeName()))) {
+      return true;
+    }
+
+    final String classValue = element.getAttribute(AttributeType.CLASS.getAttributeName());
+    if (classValue != null && !classValue.isEmpty()) {
+      for (final String className : classValue.split(" +")) {
+        if (name.equals(className)) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
   public static Map<String, Element> getDataFieldElements(final Element templateRoot) {
 
     final Map<String, Element> dataFields = new LinkedHashMap<>();
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ui.rebind;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Test;
+
+public class DataFieldPathIndexTest {
+
+  private static final String TEMPLATE =
+          "<meta charset='UTF-8'>\n"
+          + "<div id='root'>\n"
+          + "  <span class='title header'>Title</span>\n"
+          + "  <form>\n"
+          + "    <input class='name' type='text'>\n"
+          + "    <input id='name' data-field='email' type='text'>\n"
+          + "    <button data-field='name'>Go</button>\n"
+          + "  </form>\n"
+          + "  <span class='header'>Second</span>\n"
+          + "</div>";
+
+  @Test
+  public void pathsFollowChildElementIndicesFromRoot() throws Exception {
+    final Map<String, int[]> paths = DataFieldPathIndex.forTemplate(TEMPLATE, "", asList("title", "email", "this")).get();
+
+    assertEquals(asList("title", "email"), asList(paths.keySet().toArray()));
+    assertArrayEquals(new int[] { 0 }, paths.get("title"));
+    assertArrayEquals(new int[] { 1, 1 }, paths.get("email"));
+  }
+
+  @Test
+  public void dataFieldBeatsIdAndIdBeatsClass() throws Exception {
+    final Map<String, int[]> paths = DataFieldPathIndex.forTemplate(TEMPLATE, "", asList("name")).get();
+
+    assertArrayEquals(new int[] { 1, 2 }, paths.get("name"));
+  }
+
+  @Test
+  public void firstElementInDocumentOrderWinsForEqualPriority() throws Exception {
+    final Map<String, int[]> paths = DataFieldPathIndex.forTemplate(TEMPLATE, "", asList("header")).get();
+
+    assertArrayEquals(new int[] { 0 }, paths.get("header"));
+  }
+
+  @Test
+  public void pathsAreRelativeToTemplateFragment() throws Exception {
+    final Map<String, int[]> paths = DataFieldPathIndex.forTemplate(TEMPLATE, "name", asList("this")).get();
+    assertEquals(0, paths.size());
+
+    final Optional<Map<String, int[]>> formPaths = DataFieldPathIndex.forTemplate(
+            "<div><form id='form'><label>Email</label><input data-field='email'></form></div>", "form", asList("email"));
+    assertArrayEquals(new int[] { 1 }, formPaths.get().get("email"));
+  }
+
+  @Test
+  public void missingDataFieldOrFragmentProducesNoIndex() throws Exception {
+    assertFalse(DataFieldPathIndex.forTemplate(TEMPLATE, "", asList("title", "missing")).isPresent());
+    assertFalse(DataFieldPathIndex.forTemplate(TEMPLATE, "missing", asList("title")).isPresent());
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.ui.rebind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.errai.ui.rebind.TemplateCache.CachedTemplate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class TemplateCacheTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private File cacheDir;
+  private final AtomicInteger computations = new AtomicInteger();
+
+  @Before
+  public void setup() throws Exception {
+    cacheDir = tmp.newFolder("cache");
+  }
+
+  @Test
+  public void templatesWithSameContentsShareOneEntry() throws Exception {
+    final TemplateCache cache = new TemplateCache(cacheDir, "env");
+    final File first = writeTemplate("first.html", "<div data-field='a'></div>");
+    final File second = writeTemplate("second.html", "<div data-field='a'></div>");
+    final File third = writeTemplate("third.html", "<div data-field='b'></div>");
+
+    final CachedTemplate template = cache.getTemplate(first.toURI().toURL());
+    assertSame(template, cache.getTemplate(second.toURI().toURL()));
+    assertNotSame(template, cache.getTemplate(third.toURI().toURL()));
+  }
+
+  @Test
+  public void changedTemplateReplacesEntryOfItsPreviousContents() throws Exception {
+    final TemplateCache cache = new TemplateCache(cacheDir, "env");
+    final File template = writeTemplate("template.html", "<div data-field='a'></div>");
+
+    for (int i = 0; i < 10; i++) {
+      writeTemplate("template.html", "<div data-field='b" + i + "'></div>");
+      cache.getTemplate(template.toURI().toURL());
+    }
+
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void contentsOfChangedTemplateAreKeptWhileAnotherTemplateHasThem() throws Exception {
+    final TemplateCache cache = new TemplateCache(cacheDir, "env");
+    final File template = writeTemplate("template.html", "<div data-field='a'></div>");
+    final File copy = writeTemplate("copy.html", "<div data-field='a'></div>");
+
+    final CachedTemplate original = cache.getTemplate(template.toURI().toURL());
+    assertSame(original, cache.getTemplate(copy.toURI().toURL()));
+    writeTemplate("template.html", "<div data-field='b'></div>");
+    cache.getTemplate(template.toURI().toURL());
+
+    assertEquals(2, cache.size());
+    assertSame(original, cache.getTemplate(copy.toURI().toURL()));
+  }
+
+  @Test
+  public void sharedContentsAreDroppedOnceNoTemplateHasThem() throws Exception {
+    final TemplateCache cache = new TemplateCache(cacheDir, "env");
+    final File template = writeTemplate("template.html", "<div data-field='a'></div>");
+    final File copy = writeTemplate("copy.html", "<div data-field='a'></div>");
+
+    cache.getTemplate(template.toURI().toURL());
+    cache.getTemplate(copy.toURI().toURL());
+    writeTemplate("template.html", "<div data-field='b'></div>");
+    cache.getTemplate(template.toURI().toURL());
+    writeTemplate("copy.html", "<div data-field='b'></div>");
+    cache.getTemplate(copy.toURI().toURL());
+
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void derivedDataIsComputedOnceAndPersisted() throws Exception {
+    final File file = writeTemplate("template.html", "<div data-field='a'></div>");
+
+    assertEquals("a", new TemplateCache(cacheDir, "env").getTemplate(file.toURI().toURL()).computeIfAbsent("key", this::firstDataField));
+    assertEquals("a", new TemplateCache(cacheDir, "env").getTemplate(file.toURI().toURL()).computeIfAbsent("key", this::firstDataField));
+    assertEquals(1, computations.get());
+
+    assertEquals("a", new TemplateCache(cacheDir, "other env").getTemplate(file.toURI().toURL()).computeIfAbsent("key", this::firstDataField));
+    assertEquals(2, computations.get());
+  }
+
+  @Test
+  public void nullResultsAreCachedInMemoryOnly() throws Exception {
+    final File file = writeTemplate("template.html", "<div></div>");
+    final CachedTemplate template = new TemplateCache(null, "env").getTemplate(file.toURI().toURL());
+
+    assertNull(template.computeIfAbsent("key", this::firstDataField));
+    assertNull(template.computeIfAbsent("key", this::firstDataField));
+    assertEquals(1, computations.get());
+    assertEquals(0, cacheDir.list().length);
+  }
+
+  @Test
+  public void documentsAreCopiesOfParsedTemplate() throws Exception {
+    final File file = writeTemplate("template.html", "<div data-field='a'></div>");
+    final CachedTemplate template = new TemplateCache(cacheDir, "env").getTemplate(file.toURI().toURL());
+
+    final Document first = template.getDocument();
+    ((Element) first.getElementsByTagName("div").item(0)).setAttribute("data-i18n-key", "changed");
+
+    final Document second = template.getDocument();
+    assertNotSame(first, second);
+    assertTrue(((Element) second.getElementsByTagName("div").item(0)).getAttribute("data-i18n-key").isEmpty());
+  }
+
+  private String firstDataField(final CachedTemplate template) {
+    computations.incrementAndGet();
+    final String dataField = ((Element) template.getDocument().getElementsByTagName("div").item(0))
+            .getAttribute("data-field");
+    return dataField.isEmpty() ? null : dataField;
+  }
+
+  private File writeTemplate(final String name, final String contents) throws Exception {
+    final File file = new File(tmp.getRoot(), name);
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+}